@@ -0,0 +1,54 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowNode;
+
+/**
+ * Precomputed drawing geometry of a connection: the segment between its node border anchors and the
+ * arrowhead triangles at both ends, ready for {@code drawLine} and {@code fillPolygon}.
+ * {@link DiagramSpatialIndex} keeps one per connection and recomputes it only when an endpoint node
+ * moves, is resized or changes shape. Must not be modified by readers.
+ */
+public final class ConnectionGeometry {
+
+    /** Length of the arrowhead sides, in world units. */
+    public static final int ARROW_SIZE = 10;
+    private static final double ARROW_SPREAD = Math.PI / 6;
+
+    /** Anchor points as x1, y1 (source node) and x2, y2 (target node). */
+    public final double[] segment = new double[4];
+    /** Arrowhead at the target end, pointing into the target node. */
+    public final int[] headX = new int[3];
+    public final int[] headY = new int[3];
+    /** Arrowhead at the source end, pointing into the source node. */
+    public final int[] tailX = new int[3];
+    public final int[] tailY = new int[3];
+
+    /** Computes the geometry of a connection between the two nodes, for callers without an index. */
+    public static ConnectionGeometry between(FlowNode from, FlowNode to) {
+        ConnectionGeometry g = new ConnectionGeometry();
+        g.update(from, to);
+        return g;
+    }
+
+    void update(FlowNode from, FlowNode to) {
+        double fromCx = from.getX() + from.getWidth() / 2.0;
+        double fromCy = from.getY() + from.getHeight() / 2.0;
+        double toCx = to.getX() + to.getWidth() / 2.0;
+        double toCy = to.getY() + to.getHeight() / 2.0;
+        DiagramSpatialIndex.anchorTowards(from, toCx, toCy, segment, 0);
+        DiagramSpatialIndex.anchorTowards(to, fromCx, fromCy, segment, 2);
+        arrowHead(segment[0], segment[1], segment[2], segment[3], headX, headY);
+        arrowHead(segment[2], segment[3], segment[0], segment[1], tailX, tailY);
+    }
+
+    /** Writes the filled triangle with its tip at (x2, y2), pointing from (x1, y1) towards it. */
+    public static void arrowHead(double x1, double y1, double x2, double y2, int[] xs, int[] ys) {
+        double angle = Math.atan2(y2 - y1, x2 - x1);
+        xs[0] = (int) x2;
+        ys[0] = (int) y2;
+        xs[1] = (int) (x2 - ARROW_SIZE * Math.cos(angle - ARROW_SPREAD));
+        ys[1] = (int) (y2 - ARROW_SIZE * Math.sin(angle - ARROW_SPREAD));
+        xs[2] = (int) (x2 - ARROW_SIZE * Math.cos(angle + ARROW_SPREAD));
+        ys[2] = (int) (y2 - ARROW_SIZE * Math.sin(angle + ARROW_SPREAD));
+    }
+}
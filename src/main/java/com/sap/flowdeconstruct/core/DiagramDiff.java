@@ -0,0 +1,346 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Field-level difference between two versions of a flow, keyed by node id.
+ * Connections are keyed by "from|to" because connection ids are not persisted in Markdown.
+ * Only fields that actually changed between the two versions are applied, so anything the
+ * live diagram holds that the file did not touch (positions, selection, styling) is kept.
+ */
+public class DiagramDiff {
+
+    private static final int NEW_NODE_SPACING_Y = 80;
+    private static final int NEW_NODE_OFFSET_X = 160;
+
+    private final String oldName;
+    private final String newName;
+    private final List<NodeState> addedNodes = new ArrayList<>();
+    private final List<String> removedNodeIds = new ArrayList<>();
+    private final List<NodeState[]> changedNodes = new ArrayList<>();
+    private final List<ConnectionState> addedConnections = new ArrayList<>();
+    private final List<String> removedConnectionKeys = new ArrayList<>();
+    private final List<ConnectionState[]> changedConnections = new ArrayList<>();
+
+    private DiagramDiff(String oldName, String newName) {
+        this.oldName = oldName;
+        this.newName = newName;
+    }
+
+    /**
+     * Computes what changed from {@code before} to {@code after}.
+     */
+    public static DiagramDiff compute(Snapshot before, Snapshot after) {
+        DiagramDiff diff = new DiagramDiff(before.name, after.name);
+        for (NodeState n : after.nodes.values()) {
+            NodeState old = before.nodes.get(n.id);
+            if (old == null) {
+                diff.addedNodes.add(n);
+            } else if (!old.equals(n)) {
+                diff.changedNodes.add(new NodeState[] { old, n });
+            }
+        }
+        for (String id : before.nodes.keySet()) {
+            if (!after.nodes.containsKey(id)) diff.removedNodeIds.add(id);
+        }
+        for (ConnectionState c : after.connections.values()) {
+            ConnectionState old = before.connections.get(c.key());
+            if (old == null) {
+                diff.addedConnections.add(c);
+            } else if (!old.equals(c)) {
+                diff.changedConnections.add(new ConnectionState[] { old, c });
+            }
+        }
+        for (String key : before.connections.keySet()) {
+            if (!after.connections.containsKey(key)) diff.removedConnectionKeys.add(key);
+        }
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return getChangeCount() == 0;
+    }
+
+    public int getChangeCount() {
+        return (Objects.equals(oldName, newName) ? 0 : 1)
+                + addedNodes.size() + removedNodeIds.size() + changedNodes.size()
+                + addedConnections.size() + removedConnectionKeys.size() + changedConnections.size();
+    }
+
+    /**
+     * Applies the difference to a live diagram as a single batch. Must run on the thread that owns the diagram.
+     */
+    public void applyTo(FlowDiagram live) {
+        live.runBatch(() -> {
+            Map<String, FlowNode> byId = new HashMap<>();
+            for (FlowNode n : live.getNodes()) byId.put(n.getId(), n);
+
+            if (!Objects.equals(oldName, newName) && newName != null) {
+                live.setName(newName);
+            }
+
+            for (String id : removedNodeIds) {
+                FlowNode node = byId.remove(id);
+                if (node != null) live.removeNode(node);
+            }
+
+            for (NodeState[] change : changedNodes) {
+                FlowNode node = byId.get(change[1].id);
+                if (node != null) change[1].applyChangedFields(change[0], node);
+            }
+
+            // Nodes typed without a Position line land at the origin; stack them right of the existing ones
+            int placeX = 50;
+            int placeY = 50;
+            for (FlowNode n : byId.values()) {
+                placeX = Math.max(placeX, (int) n.getX() + NEW_NODE_OFFSET_X);
+            }
+            for (NodeState state : addedNodes) {
+                FlowNode node = byId.get(state.id);
+                if (node == null) {
+                    node = new FlowNode();
+                    node.setId(state.id);
+                    state.applyAll(node);
+                    if (state.x == 0 && state.y == 0) {
+                        node.setPosition(placeX, placeY);
+                        placeY += NEW_NODE_SPACING_Y;
+                    }
+                    live.addNode(node);
+                    byId.put(state.id, node);
+                } else {
+                    state.applyAll(node);
+                }
+            }
+
+            Map<String, FlowConnection> connByKey = new HashMap<>();
+            for (FlowConnection c : live.getConnections()) connByKey.put(key(c.getFromNodeId(), c.getToNodeId()), c);
+
+            for (String key : removedConnectionKeys) {
+                FlowConnection conn = connByKey.remove(key);
+                if (conn != null) live.removeConnection(conn);
+            }
+            for (ConnectionState[] change : changedConnections) {
+                FlowConnection conn = connByKey.get(change[1].key());
+                if (conn != null) change[1].applyChangedFields(change[0], conn);
+            }
+            for (ConnectionState state : addedConnections) {
+                FlowConnection conn = connByKey.get(state.key());
+                if (conn == null) {
+                    conn = live.addConnection(byId.get(state.fromId), byId.get(state.toId));
+                    if (conn == null) continue;
+                    connByKey.put(state.key(), conn);
+                }
+                state.applyAll(conn);
+            }
+        });
+    }
+
+    static String key(String fromId, String toId) {
+        return fromId + "|" + toId;
+    }
+
+    /**
+     * Immutable copy of the persisted fields of a flow (top level only).
+     * Cheap to take on the UI thread and safe to read from any thread afterwards.
+     */
+    public static class Snapshot {
+        final String name;
+        final Map<String, NodeState> nodes = new LinkedHashMap<>();
+        final Map<String, ConnectionState> connections = new LinkedHashMap<>();
+
+        private Snapshot(String name) {
+            this.name = name;
+        }
+
+        public static Snapshot of(FlowDiagram diagram) {
+            Snapshot s = new Snapshot(diagram.getName());
+            for (FlowNode n : diagram.getNodes()) {
+                s.nodes.put(n.getId(), new NodeState(n));
+            }
+            for (FlowConnection c : diagram.getConnections()) {
+                ConnectionState cs = new ConnectionState(c);
+                s.connections.put(cs.key(), cs);
+            }
+            return s;
+        }
+
+        /**
+         * Rebuilds a detached diagram from this snapshot, e.g. to export it off the UI thread.
+         */
+        public FlowDiagram toDiagram() {
+            FlowDiagram d = new FlowDiagram(name);
+            Map<String, FlowNode> byId = new HashMap<>();
+            for (NodeState state : nodes.values()) {
+                FlowNode node = new FlowNode();
+                node.setId(state.id);
+                state.applyAll(node);
+                d.addNode(node);
+                byId.put(state.id, node);
+            }
+            for (ConnectionState state : connections.values()) {
+                FlowConnection conn = d.addConnection(byId.get(state.fromId), byId.get(state.toId));
+                if (conn != null) state.applyAll(conn);
+            }
+            return d;
+        }
+
+        public int getNodeCount() {
+            return nodes.size();
+        }
+    }
+
+    static final class NodeState {
+        final String id;
+        final String text;
+        final String notes;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final FlowNode.NodeShape shape;
+        final String fillColorHex;
+        final String borderColorHex;
+        final String textColorHex;
+        final String textFontFamily;
+        final int textFontSize;
+        final int textFontStyle;
+        final boolean pinned;
+        final boolean autoFit;
+
+        NodeState(FlowNode n) {
+            id = n.getId();
+            text = n.getText();
+            notes = n.getNotes();
+            x = (int) n.getX();
+            y = (int) n.getY();
+            width = n.getWidth();
+            height = n.getHeight();
+            shape = n.getShape();
+            fillColorHex = n.getFillColorHex();
+            borderColorHex = n.getBorderColorHex();
+            textColorHex = n.getTextColorHex();
+            textFontFamily = n.getTextFontFamily();
+            textFontSize = n.getTextFontSize();
+            textFontStyle = n.getTextFontStyle();
+            pinned = n.isPinned();
+            autoFit = n.isAutoFit();
+        }
+
+        void applyAll(FlowNode node) {
+            node.setText(text);
+            node.setNotes(notes);
+            node.setPosition(x, y);
+            node.setWidth(width);
+            node.setHeight(height);
+            node.setShape(shape);
+            node.setFillColorHex(fillColorHex);
+            node.setBorderColorHex(borderColorHex);
+            node.setTextColorHex(textColorHex);
+            node.setTextFontFamily(textFontFamily);
+            node.setTextFontSize(textFontSize);
+            node.setTextFontStyle(textFontStyle);
+            node.setPinned(pinned);
+            node.setAutoFit(autoFit);
+        }
+
+        void applyChangedFields(NodeState old, FlowNode node) {
+            if (!Objects.equals(old.text, text)) node.setText(text);
+            if (!Objects.equals(old.notes, notes)) node.setNotes(notes);
+            if (old.x != x || old.y != y) node.setPosition(x, y);
+            if (old.width != width) node.setWidth(width);
+            if (old.height != height) node.setHeight(height);
+            if (old.shape != shape) node.setShape(shape);
+            if (!Objects.equals(old.fillColorHex, fillColorHex)) node.setFillColorHex(fillColorHex);
+            if (!Objects.equals(old.borderColorHex, borderColorHex)) node.setBorderColorHex(borderColorHex);
+            if (!Objects.equals(old.textColorHex, textColorHex)) node.setTextColorHex(textColorHex);
+            if (!Objects.equals(old.textFontFamily, textFontFamily)) node.setTextFontFamily(textFontFamily);
+            if (old.textFontSize != textFontSize) node.setTextFontSize(textFontSize);
+            if (old.textFontStyle != textFontStyle) node.setTextFontStyle(textFontStyle);
+            if (old.pinned != pinned) node.setPinned(pinned);
+            if (old.autoFit != autoFit) node.setAutoFit(autoFit);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NodeState)) return false;
+            NodeState s = (NodeState) o;
+            return x == s.x && y == s.y && width == s.width && height == s.height
+                    && textFontSize == s.textFontSize && textFontStyle == s.textFontStyle
+                    && shape == s.shape && pinned == s.pinned && autoFit == s.autoFit
+                    && Objects.equals(id, s.id) && Objects.equals(text, s.text) && Objects.equals(notes, s.notes)
+                    && Objects.equals(fillColorHex, s.fillColorHex) && Objects.equals(borderColorHex, s.borderColorHex)
+                    && Objects.equals(textColorHex, s.textColorHex) && Objects.equals(textFontFamily, s.textFontFamily);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, text, x, y);
+        }
+    }
+
+    static final class ConnectionState {
+        final String fromId;
+        final String toId;
+        final FlowConnection.ConnectionType type;
+        final FlowConnection.DirectionStyle directionStyle;
+        final String protocol;
+        final String lineColorHex;
+        final String arrowColorHex;
+
+        ConnectionState(FlowConnection c) {
+            fromId = c.getFromNodeId();
+            toId = c.getToNodeId();
+            type = c.getType();
+            directionStyle = c.getDirectionStyle();
+            protocol = c.getProtocol();
+            lineColorHex = c.getLineColorHex();
+            arrowColorHex = c.getArrowColorHex();
+        }
+
+        String key() {
+            return DiagramDiff.key(fromId, toId);
+        }
+
+        void applyAll(FlowConnection conn) {
+            conn.setType(type);
+            conn.setDirectionStyle(directionStyle);
+            conn.setProtocol(protocol);
+            conn.setLineColorHex(lineColorHex);
+            conn.setArrowColorHex(arrowColorHex);
+        }
+
+        void applyChangedFields(ConnectionState old, FlowConnection conn) {
+            if (old.type != type) conn.setType(type);
+            if (old.directionStyle != directionStyle) conn.setDirectionStyle(directionStyle);
+            if (!Objects.equals(old.protocol, protocol)) conn.setProtocol(protocol);
+            if (!Objects.equals(old.lineColorHex, lineColorHex)) conn.setLineColorHex(lineColorHex);
+            if (!Objects.equals(old.arrowColorHex, arrowColorHex)) conn.setArrowColorHex(arrowColorHex);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConnectionState)) return false;
+            ConnectionState s = (ConnectionState) o;
+            return type == s.type && directionStyle == s.directionStyle
+                    && Objects.equals(fromId, s.fromId) && Objects.equals(toId, s.toId)
+                    && Objects.equals(protocol, s.protocol)
+                    && Objects.equals(lineColorHex, s.lineColorHex) && Objects.equals(arrowColorHex, s.arrowColorHex);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fromId, toId);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index of a diagram's node bounds and connection segments, for hit-testing and overlap checks.
+ * It listens to the diagram and updates itself incrementally: moving or resizing a node re-indexes that
+ * node and its connections only. Bulk events (batches, node list replacement, clear) trigger a rebuild.
+ * Connection segments run between the node border anchors used for drawing, see {@link #anchorPointTowards};
+ * their {@link ConnectionGeometry} is cached and recomputed only when an endpoint moves, resizes or changes shape.
+ * Segments are indexed clipped to a grid of {@link #PIECE_SIZE} squares, so long connections sit in small cells
+ * next to the places they pass instead of piling up near the root, where every query would have to scan them.
+ * The world area touched by incremental updates is collected for {@link #takeDamage()}.
+ * Like the model, it must be used from the thread that modifies the diagram.
+ */
+public class DiagramSpatialIndex implements FlowDiagram.DiagramStateListener {
+
+    /**
+     * Side of the grid squares connection segments are clipped to. A power of two no larger than the
+     * quadtree's initial root, so that every square is exactly one of its cells.
+     */
+    static final double PIECE_SIZE = 256;
+
+    /** A connection and the pieces its segment is indexed as. */
+    private static final class IndexedSegment {
+        final FlowConnection conn;
+        final List<SegmentPiece> pieces = new ArrayList<>(2);
+        // Stamp of the last query that visited the connection, so each query reports it once
+        int visited;
+
+        IndexedSegment(FlowConnection conn) {
+            this.conn = conn;
+        }
+    }
+
+    /** The part of a connection segment inside one grid square. */
+    private static final class SegmentPiece {
+        final IndexedSegment segment;
+        final double x1, y1, x2, y2;
+
+        SegmentPiece(IndexedSegment segment, double x1, double y1, double x2, double y2) {
+            this.segment = segment;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+    }
+
+    private final FlowDiagram diagram;
+    private final QuadTree<FlowNode> nodeTree = new QuadTree<>();
+    private final QuadTree<SegmentPiece> connectionTree = new QuadTree<>();
+    private final Map<FlowConnection, IndexedSegment> segments = new IdentityHashMap<>();
+    private final Map<String, FlowNode> nodesById = new HashMap<>();
+    private final Map<String, List<FlowConnection>> connectionsByNodeId = new HashMap<>();
+    // Position in the diagram's node list, so overlapping hits resolve like a list scan would
+    private final Map<FlowNode, Long> nodeOrder = new IdentityHashMap<>();
+    private final Map<FlowConnection, ConnectionGeometry> geometry = new IdentityHashMap<>();
+    private long nextOrder;
+    private int queryStamp;
+    private Rectangle2D.Double damage;
+
+    private DiagramSpatialIndex(FlowDiagram diagram) {
+        this.diagram = diagram;
+    }
+
+    /**
+     * Builds an index for the diagram and keeps it up to date until {@link #detach()} is called.
+     */
+    public static DiagramSpatialIndex attach(FlowDiagram diagram) {
+        DiagramSpatialIndex index = new DiagramSpatialIndex(diagram);
+        index.rebuild();
+        diagram.addStateListener(index);
+        return index;
+    }
+
+    public void detach() {
+        diagram.removeStateListener(this);
+    }
+
+    public FlowDiagram getDiagram() {
+        return diagram;
+    }
+
+    @Override
+    public void onDiagramStateChanged(FlowDiagram d, String event, Object oldValue, Object newValue) {
+        switch (event) {
+            case "nodeModified":
+                if ("position".equals(newValue) || "width".equals(newValue) || "height".equals(newValue)
+                        || "shape".equals(newValue)) {
+                    updateNode((FlowNode) oldValue);
+                }
+                break;
+            case "nodeAdded":
+                addNode((FlowNode) newValue);
+                break;
+            case "nodeRemoved":
+                removeNode((FlowNode) oldValue);
+                break;
+            case "connectionAdded":
+                addConnection((FlowConnection) newValue);
+                break;
+            case "connectionRemoved":
+                removeConnection((FlowConnection) oldValue);
+                break;
+            case "nodes":
+            case "connections":
+            case "cleared":
+            case "batchUpdated":
+                rebuild();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Re-indexes the whole diagram. */
+    public void rebuild() {
+        nodeTree.clear();
+        connectionTree.clear();
+        segments.clear();
+        nodesById.clear();
+        connectionsByNodeId.clear();
+        nodeOrder.clear();
+        geometry.clear();
+        nextOrder = 0;
+        for (FlowNode node : diagram.getNodes()) {
+            addNode(node);
+        }
+        for (FlowConnection conn : diagram.getConnections()) {
+            addConnection(conn);
+        }
+        damage = null;
+    }
+
+    /**
+     * Returns and resets the world area where indexed nodes and segments were, or are now, since the last call:
+     * old and new boxes of moved, resized, added and removed nodes and the pieces of their connections.
+     * Null if nothing changed; rebuilds are not reported, as a bulk change may touch any part of the diagram.
+     */
+    public Rectangle2D.Double takeDamage() {
+        Rectangle2D.Double d = damage;
+        damage = null;
+        return d;
+    }
+
+    private void addDamage(double minX, double minY, double maxX, double maxY) {
+        if (damage == null) damage = new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+        else {
+            damage.add(minX, minY);
+            damage.add(maxX, maxY);
+        }
+    }
+
+    /**
+     * Returns the node containing the world point, edges included. When nodes overlap, the one
+     * earliest in the diagram's node list wins.
+     */
+    public FlowNode findNodeAt(double x, double y) {
+        FlowNode[] best = new FlowNode[1];
+        nodeTree.query(x, y, x, y, node -> {
+            if (contains(node, x, y) && (best[0] == null || nodeOrder.get(node) < nodeOrder.get(best[0]))) {
+                best[0] = node;
+            }
+            return true;
+        });
+        return best[0];
+    }
+
+    /**
+     * Returns the connection whose segment is closest to the world point, if within {@code maxDistance}.
+     */
+    public FlowConnection findConnectionAt(double x, double y, double maxDistance) {
+        SegmentPiece piece = connectionTree.nearest(x, y, maxDistance,
+                (p, px, py) -> distancePointToSegment(px, py, p.x1, p.y1, p.x2, p.y2));
+        return piece != null ? piece.segment.conn : null;
+    }
+
+    /**
+     * Returns the node nearest to {@code from} in the direction (dx, dy), one of the four axis directions, or
+     * null. Only nodes whose center lies beyond {@code from}'s center in that direction count. They are ranked
+     * by the distance along the direction plus twice the offset across it, so nodes in line win over closer
+     * ones off to the side. Only the half-plane ahead is searched, nearest cells first.
+     */
+    public FlowNode findNearestInDirection(FlowNode from, int dx, int dy) {
+        double cx = from.getX() + from.getWidth() / 2.0;
+        double cy = from.getY() + from.getHeight() / 2.0;
+        double inf = Double.POSITIVE_INFINITY;
+        return nodeTree.nearest(cx, cy, Double.MAX_VALUE,
+                dx > 0 ? cx : -inf, dy > 0 ? cy : -inf, dx < 0 ? cx : inf, dy < 0 ? cy : inf,
+                (node, x, y) -> node == from ? inf : directionalDistance(node, x, y, dx, dy, false));
+    }
+
+    /**
+     * Like {@link #findNearestInDirection}, but only among the nodes {@code from} connects to (outgoing) or
+     * is connected from (incoming), and only within 45 degrees of the direction.
+     */
+    public FlowNode findConnectedInDirection(FlowNode from, int dx, int dy, boolean outgoing) {
+        double cx = from.getX() + from.getWidth() / 2.0;
+        double cy = from.getY() + from.getHeight() / 2.0;
+        FlowNode best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (FlowConnection conn : getConnectionsOf(from)) {
+            String end = outgoing ? conn.getFromNodeId() : conn.getToNodeId();
+            if (!from.getId().equals(end)) continue;
+            FlowNode other = nodesById.get(outgoing ? conn.getToNodeId() : conn.getFromNodeId());
+            if (other == null || other == from) continue;
+            double d = directionalDistance(other, cx, cy, dx, dy, true);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node whose center is nearest to {@code from}'s center, other than {@code from}; null if
+     * there is none.
+     */
+    public FlowNode findNearestNode(FlowNode from) {
+        double cx = from.getX() + from.getWidth() / 2.0;
+        double cy = from.getY() + from.getHeight() / 2.0;
+        return nodeTree.nearest(cx, cy, Double.MAX_VALUE, (node, x, y) -> node == from ? Double.POSITIVE_INFINITY
+                : Math.hypot(node.getX() + node.getWidth() / 2.0 - x, node.getY() + node.getHeight() / 2.0 - y));
+    }
+
+    // Never less than the distance to the node's center, as the tree's nearest search requires
+    private static double directionalDistance(FlowNode node, double x, double y, int dx, int dy, boolean cone) {
+        double nx = node.getX() + node.getWidth() / 2.0 - x;
+        double ny = node.getY() + node.getHeight() / 2.0 - y;
+        double along = nx * dx + ny * dy;
+        double across = Math.abs(nx * dy - ny * dx);
+        if (along <= 0 || (cone && across > along)) return Double.POSITIVE_INFINITY;
+        return along + 2 * across;
+    }
+
+    /**
+     * True if any node other than {@code exclude} overlaps the box. Touching edges do not count.
+     */
+    public boolean intersectsAnyNode(double minX, double minY, double maxX, double maxY, FlowNode exclude) {
+        return !nodeTree.query(minX, minY, maxX, maxY, node ->
+                node == exclude || !(node.getX() < maxX && minX < node.getX() + node.getWidth()
+                        && node.getY() < maxY && minY < node.getY() + node.getHeight()));
+    }
+
+    /** Visits the nodes whose bounds intersect the box until the visitor returns false. */
+    public void forEachNodeIn(double minX, double minY, double maxX, double maxY, Predicate<FlowNode> visitor) {
+        nodeTree.query(minX, minY, maxX, maxY, visitor);
+    }
+
+    /**
+     * Visits the connections with a segment piece whose bounds intersect the box, each once, until the visitor
+     * returns false. Every connection whose segment crosses the box is visited.
+     */
+    public void forEachConnectionIn(double minX, double minY, double maxX, double maxY, Predicate<FlowConnection> visitor) {
+        int stamp = ++queryStamp;
+        connectionTree.query(minX, minY, maxX, maxY, piece -> {
+            IndexedSegment segment = piece.segment;
+            if (segment.visited == stamp) return true;
+            segment.visited = stamp;
+            return visitor.test(segment.conn);
+        });
+    }
+
+    public List<FlowNode> findNodesIn(double minX, double minY, double maxX, double maxY) {
+        List<FlowNode> result = new ArrayList<>();
+        nodeTree.query(minX, minY, maxX, maxY, result::add);
+        return result;
+    }
+
+    /** Nodes intersecting the box, sorted by their position in the diagram's node list (drawing order). */
+    public List<FlowNode> findNodesInListOrder(double minX, double minY, double maxX, double maxY) {
+        List<FlowNode> result = findNodesIn(minX, minY, maxX, maxY);
+        sortInListOrder(result);
+        return result;
+    }
+
+    /** Sorts indexed nodes by their position in the diagram's node list (drawing order). */
+    public void sortInListOrder(List<FlowNode> nodes) {
+        nodes.sort((a, b) -> Long.compare(nodeOrder.get(a), nodeOrder.get(b)));
+    }
+
+    /** Bounds of all indexed nodes as minX, minY, maxX, maxY, or null if there are none. */
+    public double[] getNodeBounds() {
+        return nodeTree.bounds();
+    }
+
+    public FlowNode getNode(String id) {
+        return nodesById.get(id);
+    }
+
+    /**
+     * The cached drawing geometry of an indexed connection, or null if it is not indexed (e.g. an
+     * endpoint is missing). Valid until the next change to the diagram.
+     */
+    public ConnectionGeometry geometryOf(FlowConnection conn) {
+        return geometry.get(conn);
+    }
+
+    /** Connections attached to the node, as indexed. The list must not be modified. */
+    public List<FlowConnection> getConnectionsOf(FlowNode node) {
+        List<FlowConnection> conns = node != null ? connectionsByNodeId.get(node.getId()) : null;
+        return conns != null ? Collections.unmodifiableList(conns) : Collections.<FlowConnection>emptyList();
+    }
+
+    private void addNode(FlowNode node) {
+        if (node == null) return;
+        nodesById.put(node.getId(), node);
+        if (!nodeOrder.containsKey(node)) nodeOrder.put(node, nextOrder++);
+        double[] old = nodeTree.boundsOf(node);
+        if (old != null) addDamage(old[0], old[1], old[2], old[3]);
+        nodeTree.put(node, node.getX(), node.getY(), node.getX() + node.getWidth(), node.getY() + node.getHeight());
+        addDamage(node.getX(), node.getY(), node.getX() + node.getWidth(), node.getY() + node.getHeight());
+    }
+
+    private void updateNode(FlowNode node) {
+        if (node == null || !nodeTree.contains(node)) return;
+        addNode(node);
+        List<FlowConnection> conns = connectionsByNodeId.get(node.getId());
+        if (conns != null) {
+            for (FlowConnection conn : conns) indexConnection(conn);
+        }
+    }
+
+    private void removeNode(FlowNode node) {
+        if (node == null) return;
+        double[] old = nodeTree.boundsOf(node);
+        if (old != null) addDamage(old[0], old[1], old[2], old[3]);
+        nodeTree.remove(node);
+        nodeOrder.remove(node);
+        nodesById.remove(node.getId());
+        // The diagram drops the node's connections without separate events
+        List<FlowConnection> conns = connectionsByNodeId.remove(node.getId());
+        if (conns != null) {
+            for (FlowConnection conn : conns) {
+                unindexSegment(conn);
+                geometry.remove(conn);
+                String other = node.getId().equals(conn.getFromNodeId()) ? conn.getToNodeId() : conn.getFromNodeId();
+                List<FlowConnection> otherConns = connectionsByNodeId.get(other);
+                if (otherConns != null) otherConns.remove(conn);
+            }
+        }
+    }
+
+    private void addConnection(FlowConnection conn) {
+        if (conn == null || !indexConnection(conn)) return;
+        connectionsByNodeId.computeIfAbsent(conn.getFromNodeId(), k -> new ArrayList<>(2)).add(conn);
+        connectionsByNodeId.computeIfAbsent(conn.getToNodeId(), k -> new ArrayList<>(2)).add(conn);
+    }
+
+    private void removeConnection(FlowConnection conn) {
+        if (conn == null || !unindexSegment(conn)) return;
+        geometry.remove(conn);
+        List<FlowConnection> from = connectionsByNodeId.get(conn.getFromNodeId());
+        if (from != null) from.remove(conn);
+        List<FlowConnection> to = connectionsByNodeId.get(conn.getToNodeId());
+        if (to != null) to.remove(conn);
+    }
+
+    /** (Re)computes the connection's geometry and indexes its segment bounds. */
+    private boolean indexConnection(FlowConnection conn) {
+        FlowNode from = nodesById.get(conn.getFromNodeId());
+        FlowNode to = nodesById.get(conn.getToNodeId());
+        if (from == null || to == null) {
+            geometry.remove(conn);
+            unindexSegment(conn);
+            return false;
+        }
+        ConnectionGeometry g = geometry.get(conn);
+        if (g == null) {
+            g = new ConnectionGeometry();
+            geometry.put(conn, g);
+        }
+        g.update(from, to);
+        IndexedSegment segment = segments.get(conn);
+        if (segment == null) {
+            segment = new IndexedSegment(conn);
+            segments.put(conn, segment);
+        } else {
+            removePieces(segment);
+        }
+        double[] s = g.segment;
+        addPieces(segment, s[0], s[1], s[2], s[3]);
+        return true;
+    }
+
+    /** Removes the connection's pieces from the tree. Returns false if it was not indexed. */
+    private boolean unindexSegment(FlowConnection conn) {
+        IndexedSegment segment = segments.remove(conn);
+        if (segment == null) return false;
+        removePieces(segment);
+        return true;
+    }
+
+    private void removePieces(IndexedSegment segment) {
+        for (SegmentPiece piece : segment.pieces) {
+            connectionTree.remove(piece);
+            addDamage(Math.min(piece.x1, piece.x2), Math.min(piece.y1, piece.y2),
+                    Math.max(piece.x1, piece.x2), Math.max(piece.y1, piece.y2));
+        }
+        segment.pieces.clear();
+    }
+
+    /** Cuts the segment where it crosses the grid lines and indexes each piece by its own bounds. */
+    private void addPieces(IndexedSegment segment, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        int crossX = dx == 0 ? 0 : gridLinesBetween(x1, x2);
+        int crossY = dy == 0 ? 0 : gridLinesBetween(y1, y2);
+        double[] cuts = new double[crossX + crossY + 2];
+        int n = 0;
+        cuts[n++] = 0;
+        double firstX = Math.floor(Math.min(x1, x2) / PIECE_SIZE) + 1;
+        for (int i = 0; i < crossX; i++) cuts[n++] = ((firstX + i) * PIECE_SIZE - x1) / dx;
+        double firstY = Math.floor(Math.min(y1, y2) / PIECE_SIZE) + 1;
+        for (int i = 0; i < crossY; i++) cuts[n++] = ((firstY + i) * PIECE_SIZE - y1) / dy;
+        cuts[n++] = 1;
+        Arrays.sort(cuts, 0, n);
+        double px = x1;
+        double py = y1;
+        for (int i = 1; i < n; i++) {
+            if (cuts[i] <= cuts[i - 1] && i < n - 1) continue;
+            double qx = i == n - 1 ? x2 : x1 + cuts[i] * dx;
+            double qy = i == n - 1 ? y2 : y1 + cuts[i] * dy;
+            // Rounding must not leave a cut end a hair outside the square, which would lift the piece
+            // into a cell many times larger
+            double squareX = Math.floor((px + qx) / 2 / PIECE_SIZE) * PIECE_SIZE;
+            double squareY = Math.floor((py + qy) / 2 / PIECE_SIZE) * PIECE_SIZE;
+            px = clamp(px, squareX, squareX + PIECE_SIZE);
+            qx = clamp(qx, squareX, squareX + PIECE_SIZE);
+            py = clamp(py, squareY, squareY + PIECE_SIZE);
+            qy = clamp(qy, squareY, squareY + PIECE_SIZE);
+            SegmentPiece piece = new SegmentPiece(segment, px, py, qx, qy);
+            segment.pieces.add(piece);
+            connectionTree.put(piece, Math.min(px, qx), Math.min(py, qy), Math.max(px, qx), Math.max(py, qy));
+            addDamage(Math.min(px, qx), Math.min(py, qy), Math.max(px, qx), Math.max(py, qy));
+            px = qx;
+            py = qy;
+        }
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    /** Number of grid lines strictly between the two coordinates. */
+    private static int gridLinesBetween(double a, double b) {
+        double lo = Math.min(a, b);
+        double hi = Math.max(a, b);
+        return (int) Math.max(0, Math.ceil(hi / PIECE_SIZE) - Math.floor(lo / PIECE_SIZE) - 1);
+    }
+
+    /** Writes the drawn segment of the connection as x1, y1, x2, y2. Returns false if an endpoint is missing. */
+    public boolean segmentOf(FlowConnection conn, double[] out) {
+        ConnectionGeometry g = geometry.get(conn);
+        if (g == null) return false;
+        System.arraycopy(g.segment, 0, out, 0, 4);
+        return true;
+    }
+
+    private static boolean contains(FlowNode node, double x, double y) {
+        double nx = node.getX();
+        double ny = node.getY();
+        return x >= nx && x <= nx + node.getWidth() && y >= ny && y <= ny + node.getHeight();
+    }
+
+    /**
+     * Point on the node's border where a connection towards (tx, ty) attaches: the middle of the
+     * side facing the target.
+     */
+    public static Point2D.Double anchorPointTowards(FlowNode node, double tx, double ty) {
+        double[] p = new double[2];
+        anchorTowards(node, tx, ty, p, 0);
+        return new Point2D.Double(p[0], p[1]);
+    }
+
+    /** {@link #anchorPointTowards} without allocating: writes x, y to {@code out} at {@code offset}. */
+    static void anchorTowards(FlowNode node, double tx, double ty, double[] out, int offset) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        int w = node.getWidth();
+        int h = node.getHeight();
+        double cx = x + w / 2.0;
+        double cy = y + h / 2.0;
+        double dx = tx - cx;
+        double dy = ty - cy;
+        if (Math.abs(dx) > Math.abs(dy)) {
+            out[offset] = dx >= 0 ? x + w : x;
+            out[offset + 1] = cy;
+        } else {
+            out[offset] = cx;
+            out[offset + 1] = dy >= 0 ? y + h : y;
+        }
+    }
+
+    public static double distancePointToSegment(double px, double py, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        if (dx == 0 && dy == 0) {
+            // It's a point not a segment.
+            dx = px - x1;
+            dy = py - y1;
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+        double t = ((px - x1) * dx + (py - y1) * dy) / (dx * dx + dy * dy);
+        t = Math.max(0, Math.min(1, t));
+        double projX = x1 + t * dx;
+        double projY = y1 + t * dy;
+        double ddx = px - projX;
+        double ddy = py - projY;
+        return Math.sqrt(ddx * ddx + ddy * ddy);
+    }
+}
@@ -0,0 +1,541 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fruchterman-Reingold style force-directed layout for maps that are not hierarchies, such as meshes of
+ * systems with links in both directions.
+ * <p>
+ * Nodes repel each other up to a few ideal edge lengths apart. The repulsion is approximated with a
+ * Barnes-Hut quadtree rebuilt each step, so a step costs O(n log n), and is computed for ranges of nodes
+ * in parallel on a {@link ForkJoinPool}. Connections pull their ends together, a weak gravity keeps
+ * disconnected parts close, and moves are capped by a cooling temperature. Pinned nodes exert and feel
+ * forces but never move.
+ * <p>
+ * {@link #start} runs the simulation on a background thread and publishes intermediate positions about
+ * once per frame to the UI executor, each as one batched update, so the canvas animates the convergence.
+ */
+public final class ForceDirectedLayout {
+
+    /** Preferred distance between connected nodes, in world units. */
+    public static final double IDEAL_EDGE_LENGTH = 180;
+    public static final int MAX_ITERATIONS = 400;
+
+    // Opening angle: cells smaller than THETA times their distance are treated as one body
+    private static final double THETA = 0.9;
+    private static final double GRAVITY = 0.02;
+    private static final double COOLING = 0.97;
+    // Repulsion is ignored beyond this squared distance, so large maps do not keep inflating
+    private static final double RANGE2 = Math.pow(IDEAL_EDGE_LENGTH * 3, 2);
+    // Converged once no node moves further than this in a step, in world units
+    private static final double MIN_MOVE = 0.5;
+    // Nodes per fork-join task
+    private static final int FORCE_BATCH = 256;
+    private static final long FRAME_NANOS = 16_000_000L;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ForceDirectedLayout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int n;
+    private final String[] ids;
+    private final double[] halfWidth;
+    private final double[] halfHeight;
+    private final boolean[] pinned;
+    private final int[] edgeA;
+    private final int[] edgeB;
+    private final ForkJoinPool pool;
+
+    // Node centers, and the displacement accumulated in the current step
+    private final double[] x;
+    private final double[] y;
+    private final double[] dx;
+    private final double[] dy;
+    private final double k2 = IDEAL_EDGE_LENGTH * IDEAL_EDGE_LENGTH;
+    private final QuadTree tree = new QuadTree();
+    private double temperature;
+    private double lastMaxMove = Double.MAX_VALUE;
+    private int iterations;
+
+    private ForceDirectedLayout(String[] ids, double[] x, double[] y, double[] halfWidth, double[] halfHeight,
+                                boolean[] pinned, int[] edgeA, int[] edgeB, ForkJoinPool pool) {
+        this.n = ids.length;
+        this.ids = ids;
+        this.x = x;
+        this.y = y;
+        this.halfWidth = halfWidth;
+        this.halfHeight = halfHeight;
+        this.pinned = pinned;
+        this.edgeA = edgeA;
+        this.edgeB = edgeB;
+        this.pool = pool;
+        this.dx = new double[n];
+        this.dy = new double[n];
+        this.temperature = IDEAL_EDGE_LENGTH * Math.max(1, Math.sqrt(n) / 4);
+        spreadCoincidentStart();
+    }
+
+    /** Takes a snapshot of the diagram; call on the thread that owns it. */
+    public static ForceDirectedLayout of(FlowDiagram diagram) {
+        return of(diagram, ForkJoinPool.commonPool());
+    }
+
+    public static ForceDirectedLayout of(FlowDiagram diagram, ForkJoinPool pool) {
+        List<FlowNode> nodes = diagram.getNodes();
+        int n = nodes.size();
+        String[] ids = new String[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] hw = new double[n];
+        double[] hh = new double[n];
+        boolean[] pinned = new boolean[n];
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            FlowNode node = nodes.get(i);
+            ids[i] = node.getId();
+            hw[i] = node.getWidth() / 2.0;
+            hh[i] = node.getHeight() / 2.0;
+            x[i] = node.getX() + hw[i];
+            y[i] = node.getY() + hh[i];
+            pinned[i] = node.isPinned();
+            index.put(ids[i], i);
+        }
+        // Direction does not matter here; duplicates and self loops are dropped
+        Set<Long> seen = new HashSet<>();
+        int[] a = new int[diagram.getConnectionCount()];
+        int[] b = new int[a.length];
+        int count = 0;
+        for (FlowConnection c : diagram.getConnections()) {
+            Integer from = index.get(c.getFromNodeId());
+            Integer to = index.get(c.getToNodeId());
+            if (from == null || to == null || from.intValue() == to.intValue()) continue;
+            int lo = Math.min(from, to);
+            int hi = Math.max(from, to);
+            if (count < a.length && seen.add(((long) lo << 32) | hi)) {
+                a[count] = lo;
+                b[count++] = hi;
+            }
+        }
+        return new ForceDirectedLayout(ids, x, y, hw, hh, pinned, Arrays.copyOf(a, count), Arrays.copyOf(b, count), pool);
+    }
+
+    /**
+     * Freshly imported diagrams have every node at the origin, where no force has a direction; nodes that
+     * share their spot with another start scattered over a square sized for the ideal edge length instead.
+     * The scatter is a fixed hash of the node index, so repeated runs give the same layout.
+     */
+    private void spreadCoincidentStart() {
+        Map<Long, Integer> occupied = new HashMap<>();
+        double originX = Double.MAX_VALUE;
+        double originY = Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            occupied.merge(spot(i), 1, Integer::sum);
+            originX = Math.min(originX, x[i]);
+            originY = Math.min(originY, y[i]);
+        }
+        double side = IDEAL_EDGE_LENGTH * Math.sqrt(n);
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            double rx = random.nextDouble();
+            double ry = random.nextDouble();
+            if (pinned[i] || occupied.get(spot(i)) < 2) continue;
+            x[i] = originX + rx * side;
+            y[i] = originY + ry * side;
+        }
+    }
+
+    private long spot(int i) {
+        return Double.doubleToLongBits(x[i]) * 31 ^ Double.doubleToLongBits(y[i]);
+    }
+
+    /** Runs one step. Returns false once converged or out of iterations. */
+    public boolean step() {
+        if (isDone()) return false;
+        Arrays.fill(dx, 0);
+        Arrays.fill(dy, 0);
+        tree.build(x, y, n);
+        if (n >= FORCE_BATCH * 2) {
+            pool.invoke(new RepulsionTask(this, 0, n));
+        } else {
+            repulse(0, n);
+        }
+        attract();
+        lastMaxMove = move();
+        temperature *= COOLING;
+        iterations++;
+        return !isDone();
+    }
+
+    public boolean isDone() {
+        return n == 0 || iterations >= MAX_ITERATIONS || lastMaxMove < MIN_MOVE;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** Largest distance a node moved in the last step. */
+    public double getLastMaxMove() {
+        return lastMaxMove;
+    }
+
+    public int getNodeCount() {
+        return n;
+    }
+
+    public String getId(int i) { return ids[i]; }
+    public int getX(int i) { return (int) Math.round(x[i] - halfWidth[i]); }
+    public int getY(int i) { return (int) Math.round(y[i] - halfHeight[i]); }
+
+    /** Splits the repulsion of a range of nodes into fork-join tasks of at most {@value #FORCE_BATCH} nodes. */
+    private static final class RepulsionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ForceDirectedLayout layout;
+        private final int from;
+        private final int to;
+
+        RepulsionTask(ForceDirectedLayout layout, int from, int to) {
+            this.layout = layout;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FORCE_BATCH) {
+                layout.repulse(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RepulsionTask(layout, from, mid), new RepulsionTask(layout, mid, to));
+        }
+    }
+
+    /** Barnes-Hut repulsion for nodes {@code from} to {@code to - 1}; only writes their own slots. */
+    private void repulse(int from, int to) {
+        int[] stack = new int[64 * 4];
+        for (int i = from; i < to; i++) {
+            double px = x[i];
+            double py = y[i];
+            double fx = 0;
+            double fy = 0;
+            int depth = 0;
+            stack[depth++] = 0;
+            while (depth > 0) {
+                int cell = stack[--depth];
+                int count = tree.count[cell];
+                if (count == 0 || tree.body[cell] == i) continue;
+                // Skip cells entirely out of range
+                double ox = Math.max(0, Math.abs(px - tree.centerX[cell]) - tree.half[cell]);
+                double oy = Math.max(0, Math.abs(py - tree.centerY[cell]) - tree.half[cell]);
+                if (ox * ox + oy * oy > RANGE2) continue;
+                double ddx = px - tree.massX[cell] / count;
+                double ddy = py - tree.massY[cell] / count;
+                double d2 = ddx * ddx + ddy * ddy;
+                double size = tree.half[cell] * 2;
+                // Cells around the node itself are always opened, so it never repels itself
+                boolean far = (ox > 0 || oy > 0) && size * size < THETA * THETA * d2;
+                if (tree.body[cell] >= 0 || tree.body[cell] == QuadTree.CROWDED || far) {
+                    if (d2 > RANGE2) continue;
+                    if (d2 < 1e-6) {
+                        // Same spot: push apart in a direction that differs per node
+                        ddx = Math.cos(i);
+                        ddy = Math.sin(i);
+                        d2 = 1e-2;
+                    }
+                    // k^2 / d along the unit vector, for every body in the cell
+                    double f = k2 * count / d2;
+                    fx += ddx * f;
+                    fy += ddy * f;
+                } else {
+                    int first = tree.children[cell];
+                    if (depth + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                    for (int c = first; c < first + 4; c++) stack[depth++] = c;
+                }
+            }
+            dx[i] = fx;
+            dy[i] = fy;
+        }
+    }
+
+    private void attract() {
+        for (int e = 0; e < edgeA.length; e++) {
+            int a = edgeA[e];
+            int b = edgeB[e];
+            double ddx = x[a] - x[b];
+            double ddy = y[a] - y[b];
+            double d = Math.sqrt(ddx * ddx + ddy * ddy);
+            if (d < 1e-9) continue;
+            // d^2 / k along the unit vector
+            double f = d / IDEAL_EDGE_LENGTH;
+            dx[a] -= ddx * f;
+            dy[a] -= ddy * f;
+            dx[b] += ddx * f;
+            dy[b] += ddy * f;
+        }
+        double cx = 0;
+        double cy = 0;
+        for (int i = 0; i < n; i++) {
+            cx += x[i];
+            cy += y[i];
+        }
+        cx /= n;
+        cy /= n;
+        for (int i = 0; i < n; i++) {
+            dx[i] -= (x[i] - cx) * GRAVITY;
+            dy[i] -= (y[i] - cy) * GRAVITY;
+        }
+    }
+
+    private double move() {
+        double maxMove = 0;
+        for (int i = 0; i < n; i++) {
+            if (pinned[i]) continue;
+            double len = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+            if (len < 1e-9) continue;
+            double step = Math.min(len, temperature);
+            x[i] += dx[i] / len * step;
+            y[i] += dy[i] / len * step;
+            maxMove = Math.max(maxMove, step);
+        }
+        return maxMove;
+    }
+
+    /**
+     * Test hook, not used by the simulation: the resultant repulsion on node {@code i} without the
+     * Barnes-Hut approximation, to check {@link #approximateRepulsion(int)} against.
+     */
+    double[] exactRepulsion(int i) {
+        double fx = 0;
+        double fy = 0;
+        for (int j = 0; j < n; j++) {
+            if (j == i) continue;
+            double ddx = x[i] - x[j];
+            double ddy = y[i] - y[j];
+            double d2 = ddx * ddx + ddy * ddy;
+            if (d2 > RANGE2) continue;
+            fx += ddx * k2 / d2;
+            fy += ddy * k2 / d2;
+        }
+        return new double[]{fx, fy};
+    }
+
+    /** Test hook, not used by the simulation: the resultant repulsion on node {@code i} as a step computes it. */
+    double[] approximateRepulsion(int i) {
+        tree.build(x, y, n);
+        double saveX = dx[i];
+        double saveY = dy[i];
+        repulse(i, i + 1);
+        double[] f = {dx[i], dy[i]};
+        dx[i] = saveX;
+        dy[i] = saveY;
+        return f;
+    }
+
+    /** Moves the diagram's nodes to the current positions in one batch; pinned and removed nodes are skipped. */
+    public void applyTo(FlowDiagram diagram) {
+        int[] px = new int[n];
+        int[] py = new int[n];
+        for (int i = 0; i < n; i++) {
+            px[i] = getX(i);
+            py[i] = getY(i);
+        }
+        apply(diagram, px, py);
+    }
+
+    private void apply(FlowDiagram diagram, int[] px, int[] py) {
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (!pinned[i]) index.put(ids[i], i);
+        }
+        List<FlowNode> nodes = diagram.getNodes();
+        diagram.runBatch(() -> {
+            for (FlowNode node : nodes) {
+                Integer i = index.get(node.getId());
+                if (i != null) node.setPosition(px[i], py[i]);
+            }
+        });
+    }
+
+    /** Lays out the diagram, animating it through the UI executor; see {@link #start(FlowDiagram, Executor, Executor)}. */
+    public static LayoutJob<ForceDirectedLayout> start(FlowDiagram diagram, Executor uiExecutor) {
+        return start(diagram, WORKER, uiExecutor);
+    }
+
+    /**
+     * Snapshots the diagram on the calling thread and simulates on {@code worker} until converged. At most
+     * one frame of positions is in flight on {@code uiExecutor} at a time; steps continue meanwhile and the
+     * next frame carries the latest positions. The future completes after the final positions are applied.
+     */
+    public static LayoutJob<ForceDirectedLayout> start(FlowDiagram diagram, Executor worker, Executor uiExecutor) {
+        ForceDirectedLayout layout = of(diagram);
+        LayoutJob<ForceDirectedLayout> job = new LayoutJob<>();
+        AtomicBoolean frameInFlight = new AtomicBoolean();
+        CompletableFuture<ForceDirectedLayout> future = new CompletableFuture<>();
+        job.setFuture(future);
+        worker.execute(() -> {
+            try {
+                long lastFrame = System.nanoTime();
+                while (layout.step()) {
+                    if (job.isCancelled()) throw new CancellationException();
+                    long now = System.nanoTime();
+                    if (now - lastFrame >= FRAME_NANOS && frameInFlight.compareAndSet(false, true)) {
+                        lastFrame = now;
+                        int[][] frame = layout.positions();
+                        uiExecutor.execute(() -> {
+                            frameInFlight.set(false);
+                            if (!job.isCancelled()) layout.apply(diagram, frame[0], frame[1]);
+                        });
+                    }
+                }
+                int[][] last = layout.positions();
+                uiExecutor.execute(() -> {
+                    if (job.isCancelled()) return;
+                    layout.apply(diagram, last[0], last[1]);
+                    future.complete(layout);
+                });
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return job;
+    }
+
+    private int[][] positions() {
+        int[][] p = new int[2][n];
+        for (int i = 0; i < n; i++) {
+            p[0][i] = getX(i);
+            p[1][i] = getY(i);
+        }
+        return p;
+    }
+
+    /**
+     * Point-region quadtree in flat arrays. Cells hold their body count and summed positions (so the center
+     * of mass is sum / count); leaves hold one body, or several that share a spot at the depth limit.
+     */
+    static final class QuadTree {
+        static final int EMPTY = -1;
+        static final int INTERNAL = -2;
+        static final int CROWDED = -3;
+        private static final int MAX_DEPTH = 40;
+
+        int[] count = new int[64];
+        double[] massX = new double[64];
+        double[] massY = new double[64];
+        double[] centerX = new double[64];
+        double[] centerY = new double[64];
+        double[] half = new double[64];
+        int[] body = new int[64];
+        // Index of the first of four consecutive children
+        int[] children = new int[64];
+        int cells;
+
+        void build(double[] x, double[] y, int n) {
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            cells = 0;
+            newCell((minX + maxX) / 2, (minY + maxY) / 2, Math.max(1, Math.max(maxX - minX, maxY - minY) / 2 + 1));
+            for (int i = 0; i < n; i++) insert(i, x, y);
+        }
+
+        private int newCell(double cx, double cy, double h) {
+            if (cells + 4 > count.length) grow();
+            int c = cells++;
+            count[c] = 0;
+            massX[c] = 0;
+            massY[c] = 0;
+            centerX[c] = cx;
+            centerY[c] = cy;
+            half[c] = h;
+            body[c] = EMPTY;
+            return c;
+        }
+
+        private void grow() {
+            int size = count.length * 2;
+            count = Arrays.copyOf(count, size);
+            massX = Arrays.copyOf(massX, size);
+            massY = Arrays.copyOf(massY, size);
+            centerX = Arrays.copyOf(centerX, size);
+            centerY = Arrays.copyOf(centerY, size);
+            half = Arrays.copyOf(half, size);
+            body = Arrays.copyOf(body, size);
+            children = Arrays.copyOf(children, size);
+        }
+
+        private void split(int cell) {
+            double h = half[cell] / 2;
+            double cx = centerX[cell];
+            double cy = centerY[cell];
+            int first = newCell(cx - h, cy - h, h);
+            newCell(cx + h, cy - h, h);
+            newCell(cx - h, cy + h, h);
+            newCell(cx + h, cy + h, h);
+            children[cell] = first;
+        }
+
+        private int quadrant(int cell, double px, double py) {
+            return children[cell] + (px >= centerX[cell] ? 1 : 0) + (py >= centerY[cell] ? 2 : 0);
+        }
+
+        private void insert(int i, double[] x, double[] y) {
+            int cell = 0;
+            for (int depth = 0; ; depth++) {
+                int b = body[cell];
+                count[cell]++;
+                massX[cell] += x[i];
+                massY[cell] += y[i];
+                if (b == EMPTY) {
+                    body[cell] = i;
+                    return;
+                }
+                if (b == CROWDED) return;
+                if (b >= 0) {
+                    if (depth >= MAX_DEPTH) {
+                        body[cell] = CROWDED;
+                        return;
+                    }
+                    // Push the resident body one level down, then keep descending with the new one
+                    split(cell);
+                    body[cell] = INTERNAL;
+                    int q = quadrant(cell, x[b], y[b]);
+                    count[q] = 1;
+                    massX[q] = x[b];
+                    massY[q] = y[b];
+                    body[q] = b;
+                }
+                cell = quadrant(cell, x[i], y[i]);
+            }
+        }
+    }
+}
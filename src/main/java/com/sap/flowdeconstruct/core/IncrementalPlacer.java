@@ -0,0 +1,125 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Places single nodes into an arranged diagram without touching the rest of it.
+ * <p>
+ * A node goes to the right of its predecessors, at their mean height, or to the left of its successors if it
+ * has none. Taken spots are skipped by stacking the node downwards, as siblings added one after another
+ * would be. Only if the first few spots are all taken does it stay at its preferred spot and push the nodes
+ * it overlaps downwards, in turn pushing the nodes those land on. Pinned nodes are never pushed.
+ * <p>
+ * Every step is a query on the {@link DiagramSpatialIndex} around the node, so placing costs the same on
+ * large diagrams as on small ones. Positions are set one node at a time, which the index and the canvas
+ * handle incrementally; a batch would make them rebuild. Must be used from the thread that modifies the
+ * diagram.
+ */
+public final class IncrementalPlacer {
+
+    /** Horizontal space between a node and the node it follows. */
+    public static final int COLUMN_GAP = 40;
+    /** Vertical space between stacked nodes. */
+    public static final int ROW_GAP = 20;
+
+    private static final int MAX_PROBES = 6;
+    private static final int MAX_PUSHES = 64;
+
+    private final DiagramSpatialIndex index;
+
+    public IncrementalPlacer(DiagramSpatialIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Moves the node, which must already be in the diagram, next to its connected neighbours and clears the
+     * spot it lands on. A node without connections keeps its preferred position and only clears the spot.
+     */
+    public void place(FlowNode node) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        int predecessors = 0;
+        int successors = 0;
+        double maxRight = Double.NEGATIVE_INFINITY;
+        double minLeft = Double.POSITIVE_INFINITY;
+        double predecessorY = 0;
+        double successorY = 0;
+        for (FlowConnection conn : index.getConnectionsOf(node)) {
+            boolean incoming = node.getId().equals(conn.getToNodeId());
+            FlowNode other = index.getNode(incoming ? conn.getFromNodeId() : conn.getToNodeId());
+            if (other == null || other == node) continue;
+            if (incoming) {
+                predecessors++;
+                maxRight = Math.max(maxRight, other.getX() + other.getWidth());
+                predecessorY += other.getY();
+            } else {
+                successors++;
+                minLeft = Math.min(minLeft, other.getX());
+                successorY += other.getY();
+            }
+        }
+        if (predecessors > 0) {
+            x = (int) maxRight + COLUMN_GAP;
+            y = (int) Math.round(predecessorY / predecessors);
+        } else if (successors > 0) {
+            x = (int) minLeft - COLUMN_GAP - node.getWidth();
+            y = (int) Math.round(successorY / successors);
+        }
+
+        int step = node.getHeight() + ROW_GAP;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int py = y + probe * step;
+            if (isFree(node, x, py)) {
+                move(node, x, py);
+                return;
+            }
+        }
+        move(node, x, y);
+        pushAside(node);
+    }
+
+    private boolean isFree(FlowNode node, int x, int y) {
+        // Spots closer than the gaps count as taken, so placed nodes keep the usual spacing
+        return !index.intersectsAnyNode(x - COLUMN_GAP / 2.0, y - ROW_GAP / 2.0,
+                x + node.getWidth() + COLUMN_GAP / 2.0, y + node.getHeight() + ROW_GAP / 2.0, node);
+    }
+
+    /** Pushes nodes overlapping the given one below it, repeating for each pushed node. */
+    private void pushAside(FlowNode origin) {
+        Map<FlowNode, Boolean> moved = new IdentityHashMap<>();
+        moved.put(origin, Boolean.TRUE);
+        ArrayDeque<FlowNode> queue = new ArrayDeque<>();
+        queue.add(origin);
+        int pushes = 0;
+        while (!queue.isEmpty() && pushes < MAX_PUSHES) {
+            FlowNode pusher = queue.poll();
+            double bottom = pusher.getY() + pusher.getHeight() + ROW_GAP;
+            List<FlowNode> overlapping = new ArrayList<>();
+            index.forEachNodeIn(pusher.getX() - COLUMN_GAP / 2.0, pusher.getY(),
+                    pusher.getX() + pusher.getWidth() + COLUMN_GAP / 2.0, bottom, n -> {
+                if (!moved.containsKey(n) && !n.isPinned() && n.getY() < bottom) overlapping.add(n);
+                return true;
+            });
+            // Top to bottom, so that stacked nodes keep their order
+            Collections.sort(overlapping, (a, b) -> Double.compare(a.getY(), b.getY()));
+            for (FlowNode n : overlapping) {
+                if (pushes++ >= MAX_PUSHES) break;
+                moved.put(n, Boolean.TRUE);
+                move(n, (int) n.getX(), (int) bottom);
+                queue.add(n);
+            }
+        }
+    }
+
+    private static void move(FlowNode node, int x, int y) {
+        if ((int) node.getX() != x || (int) node.getY() != y) node.setPosition(x, y);
+    }
+}
@@ -0,0 +1,543 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sugiyama-style layered layout: flows read left to right, one column per layer.
+ * <p>
+ * The phases are the classic ones: cycles are broken by reversing DFS back edges, layers are assigned by
+ * longest path, edges spanning several layers get one dummy node per crossed layer, crossings are reduced
+ * with alternating barycenter sweeps (keeping the best ordering seen), and vertical coordinates are pulled
+ * towards neighbour barycenters while keeping the order and spacing within each column.
+ * <p>
+ * {@link #compute} works on an {@link Input} snapshot and touches no model objects, so it can run on any
+ * thread. {@link #start} takes the snapshot on the calling thread, computes on a background worker and
+ * applies the positions with one {@link FlowDiagram#runBatch batched} update on the UI executor.
+ */
+public final class LayeredLayout {
+
+    public static final int MARGIN = 50;
+    /** Horizontal gap between layer columns. */
+    public static final int LAYER_SPACING = 60;
+    /** Vertical gap between nodes of the same layer. */
+    public static final int NODE_SPACING = 30;
+
+    private static final int DUMMY_HEIGHT = 4;
+    private static final int ORDERING_SWEEPS = 12;
+    private static final int COORDINATE_PASSES = 4;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "LayeredLayout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private LayeredLayout() {
+    }
+
+    /** Immutable copy of the node sizes and connections, safe to hand to another thread. */
+    public static final class Input {
+        final String[] ids;
+        final int[] widths;
+        final int[] heights;
+        final int[] edgeFrom;
+        final int[] edgeTo;
+
+        Input(String[] ids, int[] widths, int[] heights, int[] edgeFrom, int[] edgeTo) {
+            this.ids = ids;
+            this.widths = widths;
+            this.heights = heights;
+            this.edgeFrom = edgeFrom;
+            this.edgeTo = edgeTo;
+        }
+
+        /** Takes the snapshot; call on the thread that owns the diagram. */
+        public static Input of(FlowDiagram diagram) {
+            List<FlowNode> nodes = diagram.getNodes();
+            int n = nodes.size();
+            String[] ids = new String[n];
+            int[] widths = new int[n];
+            int[] heights = new int[n];
+            Map<String, Integer> index = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                FlowNode node = nodes.get(i);
+                ids[i] = node.getId();
+                widths[i] = node.getWidth();
+                heights[i] = node.getHeight();
+                index.put(ids[i], i);
+            }
+            List<FlowConnection> connections = diagram.getConnections();
+            int[] from = new int[connections.size()];
+            int[] to = new int[connections.size()];
+            int count = 0;
+            for (FlowConnection c : connections) {
+                Integer a = index.get(c.getFromNodeId());
+                Integer b = index.get(c.getToNodeId());
+                if (a == null || b == null) continue;
+                from[count] = a;
+                to[count] = b;
+                count++;
+            }
+            return new Input(ids, widths, heights, Arrays.copyOf(from, count), Arrays.copyOf(to, count));
+        }
+
+        public int getNodeCount() {
+            return ids.length;
+        }
+    }
+
+    /** Computed top-left positions, by node id. */
+    public static final class Result {
+        private final String[] ids;
+        private final int[] x;
+        private final int[] y;
+        private final int[] layer;
+        private final int layerCount;
+        private final int crossings;
+        private final int reversedEdges;
+
+        Result(String[] ids, int[] x, int[] y, int[] layer, int layerCount, int crossings, int reversedEdges) {
+            this.ids = ids;
+            this.x = x;
+            this.y = y;
+            this.layer = layer;
+            this.layerCount = layerCount;
+            this.crossings = crossings;
+            this.reversedEdges = reversedEdges;
+        }
+
+        public int getNodeCount() { return ids.length; }
+        public String getId(int i) { return ids[i]; }
+        public int getX(int i) { return x[i]; }
+        public int getY(int i) { return y[i]; }
+        /** Column of the node, 0 for the leftmost. */
+        public int getLayer(int i) { return layer[i]; }
+        public int getLayerCount() { return layerCount; }
+        /** Edge crossings between adjacent layers in the chosen ordering, counting dummy segments. */
+        public int getCrossings() { return crossings; }
+        /** Connections drawn against the flow to break cycles. */
+        public int getReversedEdges() { return reversedEdges; }
+
+        /**
+         * Moves the diagram's nodes to the computed positions in one batch. Pinned nodes and nodes added
+         * since the snapshot keep their position; nodes removed since are skipped.
+         */
+        public void applyTo(FlowDiagram diagram) {
+            Map<String, Integer> index = new HashMap<>(ids.length * 2);
+            for (int i = 0; i < ids.length; i++) index.put(ids[i], i);
+            List<FlowNode> nodes = diagram.getNodes();
+            diagram.runBatch(() -> {
+                for (FlowNode node : nodes) {
+                    Integer i = index.get(node.getId());
+                    if (i != null && !node.isPinned()) node.setPosition(x[i], y[i]);
+                }
+            });
+        }
+    }
+
+    /** Lays out the diagram on the shared layout thread and applies the result on {@code uiExecutor}. */
+    public static LayoutJob<Result> start(FlowDiagram diagram, Executor uiExecutor) {
+        return start(diagram, WORKER, uiExecutor);
+    }
+
+    public static LayoutJob<Result> start(FlowDiagram diagram, Executor worker, Executor uiExecutor) {
+        Input input = Input.of(diagram);
+        LayoutJob<Result> job = new LayoutJob<>();
+        job.setFuture(CompletableFuture.supplyAsync(() -> compute(input, job::isCancelled), worker)
+                .thenApplyAsync(result -> {
+                    if (job.isCancelled()) throw new CancellationException();
+                    result.applyTo(diagram);
+                    return result;
+                }, uiExecutor));
+        return job;
+    }
+
+    public static Result compute(Input input) {
+        return compute(input, () -> false);
+    }
+
+    /**
+     * Computes the layout. {@code cancelled} is polled between phases and sweeps.
+     *
+     * @throws CancellationException if {@code cancelled} returned true
+     */
+    public static Result compute(Input input, BooleanSupplier cancelled) {
+        int n = input.ids.length;
+        if (n == 0) {
+            return new Result(input.ids, new int[0], new int[0], new int[0], 0, 0, 0);
+        }
+
+        // Phase 1: unique forward edges, with DFS back edges reversed and self loops dropped
+        int[][] out = adjacency(n, input.edgeFrom, input.edgeTo);
+        int[] edgeFrom = new int[input.edgeFrom.length];
+        int[] edgeTo = new int[input.edgeFrom.length];
+        int reversed = breakCycles(n, out, edgeFrom, edgeTo);
+        int edgeCount = countEdges(edgeFrom, edgeTo);
+        checkCancelled(cancelled);
+
+        // Phase 2: longest path layering, then sources pulled next to their first successor
+        int[] layer = assignLayers(n, edgeFrom, edgeTo, edgeCount);
+        checkCancelled(cancelled);
+
+        // Phase 3: dummy nodes so that every edge connects adjacent layers
+        int total = n;
+        for (int e = 0; e < edgeCount; e++) total += layer[edgeTo[e]] - layer[edgeFrom[e]] - 1;
+        int[] nodeLayer = Arrays.copyOf(layer, total);
+        int[] segFrom = new int[edgeCount + total - n];
+        int[] segTo = new int[segFrom.length];
+        int segments = 0;
+        int next = n;
+        for (int e = 0; e < edgeCount; e++) {
+            int prev = edgeFrom[e];
+            for (int l = layer[edgeFrom[e]] + 1; l < layer[edgeTo[e]]; l++) {
+                nodeLayer[next] = l;
+                segFrom[segments] = prev;
+                segTo[segments++] = next;
+                prev = next++;
+            }
+            segFrom[segments] = prev;
+            segTo[segments++] = edgeTo[e];
+        }
+        int layerCount = 0;
+        for (int l : nodeLayer) layerCount = Math.max(layerCount, l + 1);
+        int[][] up = neighbours(total, segTo, segFrom, segments);
+        int[][] down = neighbours(total, segFrom, segTo, segments);
+
+        // Phase 4: crossing reduction; initial order follows a DFS so that chains start out together
+        int[][] layers = initialOrder(total, nodeLayer, layerCount, down, up);
+        int[] pos = new int[total];
+        updatePositions(layers, pos);
+        int bestCrossings = countCrossings(layers, pos, down, total);
+        int[][] best = copy(layers);
+        double[] barycenter = new double[total];
+        for (int sweep = 0; sweep < ORDERING_SWEEPS && bestCrossings > 0; sweep++) {
+            checkCancelled(cancelled);
+            boolean downward = sweep % 2 == 0;
+            if (downward) {
+                for (int l = 1; l < layerCount; l++) reorder(layers[l], up, pos, barycenter);
+            } else {
+                for (int l = layerCount - 2; l >= 0; l--) reorder(layers[l], down, pos, barycenter);
+            }
+            int crossings = countCrossings(layers, pos, down, total);
+            if (crossings < bestCrossings) {
+                bestCrossings = crossings;
+                best = copy(layers);
+            }
+        }
+        layers = best;
+        updatePositions(layers, pos);
+        checkCancelled(cancelled);
+
+        // Phase 5: coordinates
+        int[] height = new int[total];
+        for (int v = 0; v < total; v++) height[v] = v < n ? input.heights[v] : DUMMY_HEIGHT;
+        double[] y = assignY(layers, up, down, height, barycenter);
+        checkCancelled(cancelled);
+
+        int[] columnX = new int[layerCount];
+        int[] columnWidth = new int[layerCount];
+        for (int v = 0; v < n; v++) columnWidth[layer[v]] = Math.max(columnWidth[layer[v]], input.widths[v]);
+        int x = MARGIN;
+        for (int l = 0; l < layerCount; l++) {
+            columnX[l] = x;
+            x += columnWidth[l] + LAYER_SPACING;
+        }
+        double minY = Double.MAX_VALUE;
+        for (int v = 0; v < total; v++) minY = Math.min(minY, y[v]);
+        int[] resultX = new int[n];
+        int[] resultY = new int[n];
+        for (int v = 0; v < n; v++) {
+            resultX[v] = columnX[layer[v]] + (columnWidth[layer[v]] - input.widths[v]) / 2;
+            resultY[v] = (int) Math.round(y[v] - minY) + MARGIN;
+        }
+        return new Result(input.ids, resultX, resultY, layer, layerCount, bestCrossings, reversed);
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) throw new CancellationException("layout cancelled");
+    }
+
+    /** Deduplicated successor lists, without self loops. */
+    private static int[][] adjacency(int n, int[] from, int[] to) {
+        int[] degree = new int[n];
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] != to[e]) degree[from[e]]++;
+        }
+        int[][] out = new int[n][];
+        for (int v = 0; v < n; v++) out[v] = new int[degree[v]];
+        Arrays.fill(degree, 0);
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] != to[e]) out[from[e]][degree[from[e]]++] = to[e];
+        }
+        for (int v = 0; v < n; v++) {
+            int[] s = out[v];
+            if (s.length < 2) continue;
+            Arrays.sort(s);
+            int k = 1;
+            for (int i = 1; i < s.length; i++) {
+                if (s[i] != s[k - 1]) s[k++] = s[i];
+            }
+            if (k < s.length) out[v] = Arrays.copyOf(s, k);
+        }
+        return out;
+    }
+
+    /**
+     * Iterative DFS in node order. Edges to a node still on the stack close a cycle and are written
+     * reversed; an edge whose reversal duplicates an existing one is dropped. Unused slots are -1.
+     * Returns the number of reversed edges.
+     */
+    private static int breakCycles(int n, int[][] out, int[] edgeFrom, int[] edgeTo) {
+        Arrays.fill(edgeFrom, -1);
+        byte[] state = new byte[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        Set<Long> seen = new HashSet<>();
+        int count = 0;
+        int reversed = 0;
+        for (int root = 0; root < n; root++) {
+            if (state[root] != 0) continue;
+            int depth = 0;
+            stack[depth++] = root;
+            state[root] = 1;
+            while (depth > 0) {
+                int v = stack[depth - 1];
+                if (cursor[v] == out[v].length) {
+                    state[v] = 2;
+                    depth--;
+                    continue;
+                }
+                int w = out[v][cursor[v]++];
+                int a = v;
+                int b = w;
+                if (state[w] == 1) {
+                    a = w;
+                    b = v;
+                    reversed++;
+                }
+                if (seen.add(((long) a << 32) | b)) {
+                    edgeFrom[count] = a;
+                    edgeTo[count++] = b;
+                }
+                if (state[w] == 0) {
+                    state[w] = 1;
+                    stack[depth++] = w;
+                }
+            }
+        }
+        return reversed;
+    }
+
+    private static int countEdges(int[] edgeFrom, int[] edgeTo) {
+        int count = 0;
+        while (count < edgeFrom.length && edgeFrom[count] >= 0) count++;
+        return count;
+    }
+
+    private static int[] assignLayers(int n, int[] edgeFrom, int[] edgeTo, int edgeCount) {
+        int[][] succ = neighbours(n, edgeFrom, edgeTo, edgeCount);
+        int[] inDegree = new int[n];
+        for (int e = 0; e < edgeCount; e++) inDegree[edgeTo[e]]++;
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) order[tail++] = v;
+        }
+        int[] layer = new int[n];
+        while (head < tail) {
+            int v = order[head++];
+            for (int w : succ[v]) {
+                layer[w] = Math.max(layer[w], layer[v] + 1);
+                if (--inDegree[w] == 0) order[tail++] = w;
+            }
+        }
+        // Longest path stacks every source in layer 0; move each right up to its nearest successor
+        boolean[] hasPredecessor = new boolean[n];
+        for (int e = 0; e < edgeCount; e++) hasPredecessor[edgeTo[e]] = true;
+        for (int v = 0; v < n; v++) {
+            if (hasPredecessor[v] || succ[v].length == 0) continue;
+            int nearest = Integer.MAX_VALUE;
+            for (int w : succ[v]) nearest = Math.min(nearest, layer[w]);
+            layer[v] = nearest - 1;
+        }
+        return layer;
+    }
+
+    /** Lists of {@code to[e]} by {@code from[e]}, for the first {@code count} edges. */
+    private static int[][] neighbours(int n, int[] from, int[] to, int count) {
+        int[] degree = new int[n];
+        for (int e = 0; e < count; e++) degree[from[e]]++;
+        int[][] lists = new int[n][];
+        for (int v = 0; v < n; v++) lists[v] = new int[degree[v]];
+        Arrays.fill(degree, 0);
+        for (int e = 0; e < count; e++) lists[from[e]][degree[from[e]]++] = to[e];
+        return lists;
+    }
+
+    private static int[][] initialOrder(int total, int[] nodeLayer, int layerCount, int[][] down, int[][] up) {
+        int[] size = new int[layerCount];
+        for (int v = 0; v < total; v++) size[nodeLayer[v]]++;
+        int[][] layers = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) layers[l] = new int[size[l]];
+        Arrays.fill(size, 0);
+        boolean[] placed = new boolean[total];
+        int[] stack = new int[total];
+        for (int root = 0; root < total; root++) {
+            if (placed[root] || up[root].length > 0) continue;
+            int depth = 0;
+            stack[depth++] = root;
+            placed[root] = true;
+            while (depth > 0) {
+                int v = stack[--depth];
+                layers[nodeLayer[v]][size[nodeLayer[v]]++] = v;
+                for (int i = down[v].length - 1; i >= 0; i--) {
+                    int w = down[v][i];
+                    if (!placed[w]) {
+                        placed[w] = true;
+                        stack[depth++] = w;
+                    }
+                }
+            }
+        }
+        return layers;
+    }
+
+    private static void updatePositions(int[][] layers, int[] pos) {
+        for (int[] nodes : layers) {
+            for (int i = 0; i < nodes.length; i++) pos[nodes[i]] = i;
+        }
+    }
+
+    private static int[][] copy(int[][] layers) {
+        int[][] c = new int[layers.length][];
+        for (int l = 0; l < layers.length; l++) c[l] = layers[l].clone();
+        return c;
+    }
+
+    /** Sorts one layer by the mean position of its neighbours in the fixed adjacent layer. */
+    private static void reorder(int[] nodes, int[][] fixed, int[] pos, double[] barycenter) {
+        for (int v : nodes) {
+            int[] adj = fixed[v];
+            if (adj.length == 0) {
+                // Nodes without neighbours there keep their slot
+                barycenter[v] = pos[v];
+                continue;
+            }
+            double sum = 0;
+            for (int w : adj) sum += pos[w];
+            barycenter[v] = sum / adj.length;
+        }
+        Integer[] boxed = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) boxed[i] = nodes[i];
+        Arrays.sort(boxed, (a, b) -> {
+            int c = Double.compare(barycenter[a], barycenter[b]);
+            return c != 0 ? c : Integer.compare(pos[a], pos[b]);
+        });
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = boxed[i];
+            pos[nodes[i]] = i;
+        }
+    }
+
+    /** Crossings between all adjacent layer pairs, counted with a Fenwick tree over target positions. */
+    private static int countCrossings(int[][] layers, int[] pos, int[][] down, int total) {
+        long crossings = 0;
+        int[] tree = new int[total + 1];
+        int[] targets = new int[16];
+        for (int l = 0; l + 1 < layers.length; l++) {
+            int width = layers[l + 1].length;
+            Arrays.fill(tree, 0, width + 1, 0);
+            int seen = 0;
+            for (int v : layers[l]) {
+                int[] adj = down[v];
+                if (targets.length < adj.length) targets = new int[adj.length * 2];
+                for (int i = 0; i < adj.length; i++) targets[i] = pos[adj[i]];
+                Arrays.sort(targets, 0, adj.length);
+                for (int i = 0; i < adj.length; i++) {
+                    int p = targets[i];
+                    // Earlier edges ending to the right of p cross this one
+                    int atOrBefore = 0;
+                    for (int k = p + 1; k > 0; k -= k & -k) atOrBefore += tree[k];
+                    crossings += seen - atOrBefore;
+                }
+                for (int i = 0; i < adj.length; i++) {
+                    for (int k = targets[i] + 1; k <= width; k += k & -k) tree[k]++;
+                    seen++;
+                }
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, crossings);
+    }
+
+    /**
+     * Vertical centers: each pass pulls nodes towards the mean center of their neighbours in the previous
+     * (then next) layer, placing them once top-down and once bottom-up with minimum spacing and averaging
+     * the two, which keeps the order and spacing without biasing the column in either direction.
+     */
+    private static double[] assignY(int[][] layers, int[][] up, int[][] down, int[] height, double[] desired) {
+        double[] center = new double[height.length];
+        for (int[] nodes : layers) {
+            double y = 0;
+            for (int v : nodes) {
+                center[v] = y + height[v] / 2.0;
+                y += height[v] + NODE_SPACING;
+            }
+        }
+        double[] forward = new double[height.length];
+        for (int pass = 0; pass < COORDINATE_PASSES * 2; pass++) {
+            boolean downward = pass % 2 == 0;
+            int[][] fixed = downward ? up : down;
+            for (int step = 1; step < layers.length; step++) {
+                int[] nodes = layers[downward ? step : layers.length - 1 - step];
+                for (int v : nodes) {
+                    int[] adj = fixed[v];
+                    if (adj.length == 0) {
+                        desired[v] = center[v];
+                        continue;
+                    }
+                    double sum = 0;
+                    for (int w : adj) sum += center[w];
+                    desired[v] = sum / adj.length;
+                }
+                double previous = -Double.MAX_VALUE;
+                int previousHeight = 0;
+                for (int v : nodes) {
+                    double min = previous == -Double.MAX_VALUE ? -Double.MAX_VALUE
+                            : previous + (previousHeight + height[v]) / 2.0 + NODE_SPACING;
+                    forward[v] = Math.max(desired[v], min);
+                    previous = forward[v];
+                    previousHeight = height[v];
+                }
+                previous = Double.MAX_VALUE;
+                for (int i = nodes.length - 1; i >= 0; i--) {
+                    int v = nodes[i];
+                    double max = previous == Double.MAX_VALUE ? Double.MAX_VALUE
+                            : previous - (previousHeight + height[v]) / 2.0 - NODE_SPACING;
+                    double backward = Math.min(desired[v], max);
+                    previous = backward;
+                    previousHeight = height[v];
+                    center[v] = (forward[v] + backward) / 2;
+                }
+            }
+        }
+        double[] top = new double[height.length];
+        for (int v = 0; v < height.length; v++) top[v] = center[v] - height[v] / 2.0;
+        return top;
+    }
+}
@@ -0,0 +1,37 @@
+package com.sap.flowdeconstruct.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A layout running in the background. Cancelling it stops the computation at its next check and
+ * keeps any positions not yet applied from reaching the diagram.
+ *
+ * @param <R> the layout's result
+ */
+public final class LayoutJob<R> {
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile CompletableFuture<R> future;
+
+    LayoutJob() {
+    }
+
+    void setFuture(CompletableFuture<R> future) {
+        this.future = future;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+        future.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /** Completes with the applied result, or exceptionally when cancelled. */
+    public CompletableFuture<R> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,241 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.export.MarkdownExporter;
+import com.sap.flowdeconstruct.importer.MarkdownImporter;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps a live diagram and a Markdown file in sync in both directions.
+ * <p>
+ * External edits are picked up by a {@link WatchService} on the file's directory, re-parsed and
+ * diffed against the last known file contents; only the changed nodes and connections are applied
+ * to the live diagram (by id), on the UI executor. Canvas edits are written back with a debounced,
+ * streaming export. A checksum of the last written/read contents suppresses the echo of our own writes.
+ * All file work happens on a single background thread, so reads and writes never overlap.
+ */
+public class MarkdownLiveSync implements AutoCloseable {
+
+    private static final long RELOAD_DEBOUNCE_MS = 150;
+    private static final long WRITE_DEBOUNCE_MS = 500;
+
+    private final FlowDiagram diagram;
+    private final Path file;
+    private final Executor uiExecutor;
+    private final SyncListener syncListener;
+    private final ScheduledExecutorService worker;
+    private final FlowDiagram.DiagramStateListener diagramListener;
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledFuture<?> pendingReload;
+    private ScheduledFuture<?> pendingWrite;
+
+    // Only touched on the worker thread
+    private DiagramDiff.Snapshot fileSnapshot;
+    private long lastFileCrc = -1;
+
+    // Only touched on the UI thread
+    private boolean applyingExternal;
+
+    private volatile boolean closed;
+
+    public MarkdownLiveSync(FlowDiagram diagram, Path file, Executor uiExecutor, SyncListener syncListener) {
+        this.diagram = diagram;
+        this.file = file.toAbsolutePath();
+        this.uiExecutor = uiExecutor;
+        this.syncListener = syncListener;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MarkdownSync");
+            t.setDaemon(true);
+            return t;
+        });
+        this.diagramListener = (d, event, oldValue, newValue) -> {
+            if (applyingExternal || "selectedNode".equals(event)) return;
+            scheduleWrite();
+        };
+    }
+
+    /**
+     * Starts watching. The current file contents are taken as the common base; if the file does
+     * not exist yet, the diagram is written to it first. Must be called on the UI thread.
+     */
+    public void start() throws IOException {
+        fileSnapshot = DiagramDiff.Snapshot.of(diagram);
+        if (Files.exists(file)) {
+            byte[] bytes = Files.readAllBytes(file);
+            lastFileCrc = crc(bytes);
+            fileSnapshot = DiagramDiff.Snapshot.of(parse(bytes));
+        } else {
+            final DiagramDiff.Snapshot initial = fileSnapshot;
+            worker.execute(() -> writeSnapshot(initial));
+        }
+
+        Path dir = file.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watchLoop, "MarkdownWatch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        diagram.addStateListener(diagramListener);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        diagram.removeStateListener(diagramListener);
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException ignored) {
+        }
+        // Let a pending write-back finish so the last canvas edit is not lost
+        worker.shutdown();
+    }
+
+    private void watchLoop() {
+        Path name = file.getFileName();
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean relevant = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                    relevant = true;
+                }
+            }
+            if (relevant) scheduleReload();
+            if (!key.reset()) return;
+        }
+    }
+
+    private synchronized void scheduleReload() {
+        if (closed) return;
+        if (pendingReload != null) pendingReload.cancel(false);
+        pendingReload = worker.schedule(this::reloadFromFile, RELOAD_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduleWrite() {
+        if (closed) return;
+        if (pendingWrite != null) pendingWrite.cancel(false);
+        pendingWrite = worker.schedule(this::writeBack, WRITE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void reloadFromFile() {
+        try {
+            if (!Files.exists(file)) return;
+            byte[] bytes = Files.readAllBytes(file);
+            long crc = crc(bytes);
+            if (crc == lastFileCrc) return; // our own write, or a touch without changes
+            lastFileCrc = crc;
+
+            DiagramDiff.Snapshot parsed = DiagramDiff.Snapshot.of(parse(bytes));
+            DiagramDiff diff = DiagramDiff.compute(fileSnapshot, parsed);
+            fileSnapshot = parsed;
+            if (diff.isEmpty()) return;
+
+            uiExecutor.execute(() -> {
+                if (closed) return;
+                applyingExternal = true;
+                try {
+                    diff.applyTo(diagram);
+                } finally {
+                    applyingExternal = false;
+                }
+                if (syncListener != null) syncListener.onExternalChangesApplied(diff.getChangeCount());
+            });
+        } catch (Exception e) {
+            reportError(e);
+        }
+    }
+
+    private void writeBack() {
+        try {
+            // Take the snapshot on the UI thread; export it here
+            DiagramDiff.Snapshot snapshot = CompletableFuture
+                    .supplyAsync(() -> DiagramDiff.Snapshot.of(diagram), uiExecutor)
+                    .get();
+            writeSnapshot(snapshot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            reportError(e);
+        }
+    }
+
+    private void writeSnapshot(DiagramDiff.Snapshot snapshot) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try {
+            try (CheckedOutputStream checked = new CheckedOutputStream(Files.newOutputStream(temp), checksum);
+                 Writer out = new BufferedWriter(new OutputStreamWriter(checked, Charset.defaultCharset()))) {
+                new MarkdownExporter().export(snapshot.toDiagram(), out, true, false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            lastFileCrc = checksum.getValue();
+            // The base for the next external edit is what the file now says, as the importer reads it
+            fileSnapshot = DiagramDiff.Snapshot.of(parse(Files.readAllBytes(file)));
+            if (syncListener != null) {
+                uiExecutor.execute(() -> syncListener.onWrittenBack(file));
+            }
+        } catch (IOException e) {
+            reportError(e);
+        }
+    }
+
+    private FlowDiagram parse(byte[] bytes) {
+        return new MarkdownImporter().importFlowFromString(new String(bytes, Charset.defaultCharset()));
+    }
+
+    private void reportError(Exception e) {
+        System.err.println("Markdown sync failed for " + file + ": " + e.getMessage());
+        if (syncListener != null) {
+            uiExecutor.execute(() -> syncListener.onSyncError(e));
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Sync notifications, delivered on the UI executor.
+     */
+    public interface SyncListener {
+        void onExternalChangesApplied(int changeCount);
+        void onWrittenBack(Path file);
+        void onSyncError(Exception error);
+    }
+}
@@ -0,0 +1,696 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Routes connections as horizontal and vertical segments around the other nodes.
+ * <p>
+ * A route leaves the source from the side facing the target and enters the target from the opposite side.
+ * Between the two, A* searches a sparse grid made of the borders of the obstacles (nodes grown by
+ * {@link #CLEARANCE}) in a band around the straight line between the ends, with a penalty per bend. The
+ * band is convex and every obstacle reaching into it is on the grid, so a route that stays inside the band
+ * cannot cross a node, and the grid grows with the nodes along the line rather than with all the nodes
+ * around both ends. Obstacles come from the {@link DiagramSpatialIndex}. If no route exists within the band
+ * it is widened once; if that fails as well, or the band holds more than {@link #MAX_OBSTACLES}, the
+ * straight segment is kept.
+ * <p>
+ * Routes are computed on first use and cached. The box around the widest band of each cached route is its
+ * corridor: when a node is added, removed, moved or resized, only the routes of its own connections and the
+ * routes whose corridor its old or new bounds touch are dropped. Attached with a worker, the search runs
+ * there on a copy of the obstacles, and a missing route is the straight segment until its search returns.
+ * Like the index, it must be used from the thread that modifies the diagram, and it must be attached after
+ * the index so that the index is updated first.
+ */
+public class OrthogonalRouter implements FlowDiagram.DiagramStateListener {
+
+    /** Space kept between routes and node borders. */
+    public static final int CLEARANCE = 12;
+    /** Routes never leave the bounds of their two nodes grown by this much. */
+    public static final int MAX_DETOUR = 480;
+
+    /** Routes whose band holds more obstacles than this stay straight, bounding the search grid. */
+    public static final int MAX_OBSTACLES = 160;
+
+    private static final int SEARCH_PAD = 120;
+    private static final int BEND_COST = 40;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "OrthogonalRouter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** A routed connection: a polyline from the source border to the target border, and its arrowheads. */
+    public static final class Route {
+        public final int[] xs;
+        public final int[] ys;
+        /** Arrowhead at the target end, pointing into the target node. */
+        public final int[] headX = new int[3];
+        public final int[] headY = new int[3];
+        /** Arrowhead at the source end, pointing into the source node. */
+        public final int[] tailX = new int[3];
+        public final int[] tailY = new int[3];
+        final Rectangle2D.Double corridor;
+        final boolean straight;
+        final boolean pending;
+
+        Route(int[] xs, int[] ys, Rectangle2D.Double corridor, boolean straight, boolean pending) {
+            this.xs = xs;
+            this.ys = ys;
+            this.corridor = corridor;
+            this.straight = straight;
+            this.pending = pending;
+            int n = xs.length;
+            ConnectionGeometry.arrowHead(xs[n - 2], ys[n - 2], xs[n - 1], ys[n - 1], headX, headY);
+            ConnectionGeometry.arrowHead(xs[1], ys[1], xs[0], ys[0], tailX, tailY);
+        }
+
+        public int getPointCount() {
+            return xs.length;
+        }
+
+        /** True if no orthogonal route was found and the straight segment is used instead. */
+        public boolean isStraight() {
+            return straight;
+        }
+
+        /** True while this is the straight stand-in for a route still being searched on the worker. */
+        public boolean isPending() {
+            return pending;
+        }
+
+        /** Bounds of the polyline. */
+        public Rectangle2D.Double getBounds() {
+            Rectangle2D.Double r = new Rectangle2D.Double(xs[0], ys[0], 0, 0);
+            for (int i = 1; i < xs.length; i++) r.add(xs[i], ys[i]);
+            return r;
+        }
+    }
+
+    /**
+     * What a route is computed from: the ports and the obstacles in the widest band, copied on the diagram
+     * thread so that the search can run on any thread.
+     */
+    private static final class RouteRequest {
+        final int[] fromPort;
+        final int[] toPort;
+        final Rectangle2D.Double ends;
+        final double[] segment;
+        // Node bounds grown by the clearance, as minX, minY, maxX, maxY
+        final List<double[]> obstacles = new ArrayList<>();
+        volatile boolean cancelled;
+
+        RouteRequest(int[] fromPort, int[] toPort, Rectangle2D.Double ends, double[] segment) {
+            this.fromPort = fromPort;
+            this.toPort = toPort;
+            this.ends = ends;
+            this.segment = segment;
+        }
+    }
+
+    private final DiagramSpatialIndex index;
+    private final Executor worker;
+    private final Executor uiExecutor;
+    private final Runnable onRouted;
+    private final Map<FlowConnection, Route> routes = new IdentityHashMap<>();
+    // Searches running on the worker, by connection; the route cached meanwhile is pending
+    private final Map<FlowConnection, RouteRequest> searching = new IdentityHashMap<>();
+    private final QuadTree<FlowConnection> corridors = new QuadTree<>();
+    // Node bounds as of the last event, so that a move can also invalidate around where the node was
+    private final Map<FlowNode, double[]> knownBounds = new IdentityHashMap<>();
+    // Dropped routes whose connection still exists, rerouted by takeDamage()
+    private final List<FlowConnection> rerouted = new ArrayList<>();
+    private Rectangle2D.Double damage;
+    private long routesComputed;
+
+    private OrthogonalRouter(DiagramSpatialIndex index, Executor worker, Executor uiExecutor, Runnable onRouted) {
+        this.index = index;
+        this.worker = worker;
+        this.uiExecutor = uiExecutor;
+        this.onRouted = onRouted;
+    }
+
+    /** Starts routing the index's diagram, until {@link #detach()} is called. Routes are searched on first use. */
+    public static OrthogonalRouter attach(DiagramSpatialIndex index) {
+        return attach(index, null, null, null);
+    }
+
+    /** Routes in the background; see {@link #attach(DiagramSpatialIndex, Executor, Executor, Runnable)}. */
+    public static OrthogonalRouter attach(DiagramSpatialIndex index, Executor uiExecutor, Runnable onRouted) {
+        return attach(index, WORKER, uiExecutor, onRouted);
+    }
+
+    /**
+     * Starts routing the index's diagram with the searches on {@code worker}. Found routes are cached on
+     * {@code uiExecutor}, which must run on the diagram's thread, and {@code onRouted} is run after each,
+     * with the change available from {@link #takeDamage()}.
+     */
+    public static OrthogonalRouter attach(DiagramSpatialIndex index, Executor worker, Executor uiExecutor,
+                                          Runnable onRouted) {
+        OrthogonalRouter router = new OrthogonalRouter(index, worker, uiExecutor, onRouted);
+        router.clear();
+        index.getDiagram().addStateListener(router);
+        return router;
+    }
+
+    public void detach() {
+        index.getDiagram().removeStateListener(this);
+        cancelSearches();
+    }
+
+    @Override
+    public void onDiagramStateChanged(FlowDiagram d, String event, Object oldValue, Object newValue) {
+        switch (event) {
+            case "nodeModified":
+                if ("position".equals(newValue) || "width".equals(newValue) || "height".equals(newValue)
+                        || "shape".equals(newValue)) {
+                    FlowNode node = (FlowNode) oldValue;
+                    invalidateAround(node, knownBounds.get(node));
+                    invalidateAround(node, remember(node));
+                }
+                break;
+            case "nodeAdded":
+                invalidateAround((FlowNode) newValue, remember((FlowNode) newValue));
+                break;
+            case "nodeRemoved": {
+                FlowNode node = (FlowNode) oldValue;
+                invalidateAround(node, knownBounds.remove(node));
+                // The diagram drops the node's connections without separate events
+                List<FlowConnection> gone = new ArrayList<>();
+                for (FlowConnection conn : routes.keySet()) {
+                    if (conn.connectsNode(node)) gone.add(conn);
+                }
+                for (FlowConnection conn : gone) invalidate(conn, false);
+                break;
+            }
+            case "connectionRemoved":
+                invalidate((FlowConnection) oldValue, false);
+                break;
+            case "nodes":
+            case "connections":
+            case "cleared":
+            case "batchUpdated":
+                clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void clear() {
+        cancelSearches();
+        routes.clear();
+        rerouted.clear();
+        damage = null;
+        corridors.clear();
+        knownBounds.clear();
+        for (FlowNode node : index.getDiagram().getNodes()) remember(node);
+    }
+
+    private double[] remember(FlowNode node) {
+        double[] b = {node.getX(), node.getY(), node.getX() + node.getWidth(), node.getY() + node.getHeight()};
+        knownBounds.put(node, b);
+        return b;
+    }
+
+    private void invalidateAround(FlowNode node, double[] b) {
+        for (FlowConnection conn : index.getConnectionsOf(node)) invalidate(conn, true);
+        if (b == null) return;
+        List<FlowConnection> touched = new ArrayList<>();
+        corridors.query(b[0] - CLEARANCE, b[1] - CLEARANCE, b[2] + CLEARANCE, b[3] + CLEARANCE, touched::add);
+        for (FlowConnection conn : touched) invalidate(conn, true);
+    }
+
+    private void cancelSearches() {
+        for (RouteRequest request : searching.values()) request.cancelled = true;
+        searching.clear();
+    }
+
+    private void invalidate(FlowConnection conn, boolean reroute) {
+        RouteRequest request = searching.remove(conn);
+        if (request != null) request.cancelled = true;
+        Route route = routes.remove(conn);
+        if (route == null) return;
+        corridors.remove(conn);
+        addDamage(route.getBounds());
+        if (reroute) rerouted.add(conn);
+    }
+
+    private void addDamage(Rectangle2D.Double area) {
+        if (damage == null) damage = new Rectangle2D.Double(area.x, area.y, area.width, area.height);
+        else damage.add(area);
+    }
+
+    /**
+     * Returns and resets the area where routes changed since the last call: the old and new bounds of every
+     * dropped route, which is routed again now. Null if no route changed; bulk changes of the diagram are
+     * not reported, as they repaint everything anyway.
+     */
+    public Rectangle2D.Double takeDamage() {
+        for (FlowConnection conn : rerouted) {
+            if (routes.containsKey(conn)) continue;
+            Route route = routeOf(conn);
+            if (route != null) addDamage(route.getBounds());
+        }
+        rerouted.clear();
+        Rectangle2D.Double d = damage;
+        damage = null;
+        return d;
+    }
+
+    /** Number of routes searched so far, for checking that unaffected routes are reused. */
+    public long getRoutesComputed() {
+        return routesComputed;
+    }
+
+    public boolean isCached(FlowConnection conn) {
+        return routes.containsKey(conn);
+    }
+
+    /**
+     * The connection's route, searched now if it is not cached, or with a worker the straight stand-in
+     * until the search returns; null if it is not in the diagram.
+     */
+    public Route routeOf(FlowConnection conn) {
+        Route route = routes.get(conn);
+        if (route != null) return route;
+        if (index.geometryOf(conn) == null) return null;
+        FlowNode from = index.getNode(conn.getFromNodeId());
+        FlowNode to = index.getNode(conn.getToNodeId());
+        if (from == null || to == null) return null;
+        RouteRequest request = request(from, to);
+        if (worker == null) {
+            route = route(request);
+            routesComputed++;
+        } else {
+            route = straight(request, true);
+            searching.put(conn, request);
+            CompletableFuture.supplyAsync(() -> request.cancelled ? null : route(request), worker)
+                    .thenAcceptAsync(found -> deliver(conn, request, found), uiExecutor);
+        }
+        cache(conn, route);
+        return route;
+    }
+
+    private void cache(FlowConnection conn, Route route) {
+        routes.put(conn, route);
+        Rectangle2D.Double c = route.corridor;
+        corridors.put(conn, c.x, c.y, c.x + c.width, c.y + c.height);
+    }
+
+    /** Replaces the stand-in with the found route, unless the connection changed since the search started. */
+    private void deliver(FlowConnection conn, RouteRequest request, Route found) {
+        if (found == null || searching.get(conn) != request) return;
+        searching.remove(conn);
+        routesComputed++;
+        Route standIn = routes.get(conn);
+        if (standIn != null) addDamage(standIn.getBounds());
+        addDamage(found.getBounds());
+        cache(conn, found);
+        if (onRouted != null) onRouted.run();
+    }
+
+    /**
+     * Visits the connections whose route may intersect the box, routing them as needed, until the visitor
+     * returns false.
+     */
+    public void forEachRouteIn(double minX, double minY, double maxX, double maxY, Predicate<FlowConnection> visitor) {
+        List<FlowConnection> candidates = new ArrayList<>();
+        index.forEachConnectionIn(minX - MAX_DETOUR, minY - MAX_DETOUR, maxX + MAX_DETOUR, maxY + MAX_DETOUR, candidates::add);
+        for (FlowConnection conn : candidates) {
+            Route route = routeOf(conn);
+            if (route == null) continue;
+            Rectangle2D.Double b = route.getBounds();
+            if (b.x > maxX || b.y > maxY || b.x + b.width < minX || b.y + b.height < minY) continue;
+            if (!visitor.test(conn)) return;
+        }
+    }
+
+    /**
+     * Returns the connection whose route passes nearest to the point, within {@code maxDistance}, or null.
+     * Unlike {@link DiagramSpatialIndex#findConnectionAt}, this tests the drawn polylines rather than the
+     * straight segments between the nodes.
+     */
+    public FlowConnection findConnectionAt(double x, double y, double maxDistance) {
+        FlowConnection[] best = new FlowConnection[1];
+        double[] bestDistance = {maxDistance};
+        forEachRouteIn(x - maxDistance, y - maxDistance, x + maxDistance, y + maxDistance, conn -> {
+            Route route = routes.get(conn);
+            for (int i = 0; i + 1 < route.xs.length; i++) {
+                double d = Line2D.ptSegDist(route.xs[i], route.ys[i], route.xs[i + 1], route.ys[i + 1], x, y);
+                if (d <= bestDistance[0]) {
+                    bestDistance[0] = d;
+                    best[0] = conn;
+                }
+            }
+            return true;
+        });
+        return best[0];
+    }
+
+    /** Copies what the search needs: the ports and the obstacles within the widest band. */
+    private RouteRequest request(FlowNode from, FlowNode to) {
+        double fcx = from.getX() + from.getWidth() / 2.0;
+        double fcy = from.getY() + from.getHeight() / 2.0;
+        double tcx = to.getX() + to.getWidth() / 2.0;
+        double tcy = to.getY() + to.getHeight() / 2.0;
+        boolean horizontal = Math.abs(tcx - fcx) >= Math.abs(tcy - fcy);
+        int[] fromPort = port(from, horizontal, horizontal ? tcx > fcx : tcy > fcy);
+        int[] toPort = port(to, horizontal, horizontal ? fcx > tcx : fcy > tcy);
+        Rectangle2D.Double ends = new Rectangle2D.Double(from.getX(), from.getY(), from.getWidth(), from.getHeight());
+        ends.add(new Rectangle2D.Double(to.getX(), to.getY(), to.getWidth(), to.getHeight()));
+        RouteRequest request = new RouteRequest(fromPort, toPort, ends, ConnectionGeometry.between(from, to).segment);
+
+        // Both end nodes included, so routes do not cut back through them
+        Rectangle2D.Double area = grow(ends, MAX_DETOUR);
+        index.forEachNodeIn(area.x - CLEARANCE, area.y - CLEARANCE, area.x + area.width + CLEARANCE,
+                area.y + area.height + CLEARANCE, node -> {
+            double[] o = {node.getX() - CLEARANCE, node.getY() - CLEARANCE,
+                    node.getX() + node.getWidth() + CLEARANCE, node.getY() + node.getHeight() + CLEARANCE};
+            if (distanceToStubLine(request, o) <= MAX_DETOUR) request.obstacles.add(o);
+            return true;
+        });
+        return request;
+    }
+
+    /** Searches the narrow band, then the wide one; falls back to the straight segment. Any thread. */
+    private static Route route(RouteRequest request) {
+        for (int pad : new int[]{SEARCH_PAD, MAX_DETOUR}) {
+            List<double[]> inBand = new ArrayList<>();
+            for (double[] o : request.obstacles) {
+                if (distanceToStubLine(request, o) <= pad) inBand.add(o);
+            }
+            // A wider band only holds more
+            if (inBand.size() > MAX_OBSTACLES) break;
+            Rectangle2D.Double area = grow(request.ends, pad);
+            int[][] path = search(area, pad, inBand, request.fromPort, request.toPort);
+            if (path != null) return new Route(path[0], path[1], area, false, false);
+        }
+        return straight(request, false);
+    }
+
+    /** The straight segment between the usual border anchors. */
+    private static Route straight(RouteRequest request, boolean pending) {
+        double[] g = request.segment;
+        int[] xs = {(int) g[0], (int) g[2]};
+        int[] ys = {(int) g[1], (int) g[3]};
+        return new Route(xs, ys, grow(request.ends, MAX_DETOUR), true, pending);
+    }
+
+    private static Rectangle2D.Double grow(Rectangle2D.Double r, int pad) {
+        return new Rectangle2D.Double(r.x - pad, r.y - pad, r.width + 2 * pad, r.height + 2 * pad);
+    }
+
+    /** Distance between a box and the line from the source stub to the target stub. */
+    private static double distanceToStubLine(RouteRequest request, double[] box) {
+        int[] f = request.fromPort;
+        int[] t = request.toPort;
+        return boxSegmentDistance(box, f[0] + f[2] * CLEARANCE, f[1] + f[3] * CLEARANCE,
+                t[0] + t[2] * CLEARANCE, t[1] + t[3] * CLEARANCE);
+    }
+
+    static double boxSegmentDistance(double[] box, double x1, double y1, double x2, double y2) {
+        if (new Rectangle2D.Double(box[0], box[1], box[2] - box[0], box[3] - box[1]).intersectsLine(x1, y1, x2, y2)
+                || (x1 >= box[0] && x1 <= box[2] && y1 >= box[1] && y1 <= box[3])) {
+            return 0;
+        }
+        double d = Math.min(QuadTree.boxDistance(box[0], box[1], box[2], box[3], x1, y1),
+                QuadTree.boxDistance(box[0], box[1], box[2], box[3], x2, y2));
+        d = Math.min(d, Line2D.ptSegDist(x1, y1, x2, y2, box[0], box[1]));
+        d = Math.min(d, Line2D.ptSegDist(x1, y1, x2, y2, box[2], box[1]));
+        d = Math.min(d, Line2D.ptSegDist(x1, y1, x2, y2, box[0], box[3]));
+        return Math.min(d, Line2D.ptSegDist(x1, y1, x2, y2, box[2], box[3]));
+    }
+
+    /** Midpoint of a node side as x, y, then the step direction out of the node as dx, dy. */
+    private static int[] port(FlowNode node, boolean horizontal, boolean positive) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        int w = node.getWidth();
+        int h = node.getHeight();
+        int sign = positive ? 1 : -1;
+        if (horizontal) return new int[]{positive ? x + w : x, y + h / 2, sign, 0};
+        return new int[]{x + w / 2, positive ? y + h : y, 0, sign};
+    }
+
+    /**
+     * A* from the source stub (the port moved out by the clearance) to the target stub over the grid of
+     * the borders of the obstacles, visiting only grid points within {@code pad} of the line between the
+     * stubs. Returns the simplified polyline from port to port, or null.
+     */
+    private static int[][] search(Rectangle2D.Double area, int pad, List<double[]> obstacles, int[] fromPort,
+                                  int[] toPort) {
+        int sx = fromPort[0] + fromPort[2] * CLEARANCE;
+        int sy = fromPort[1] + fromPort[3] * CLEARANCE;
+        int tx = toPort[0] + toPort[2] * CLEARANCE;
+        int ty = toPort[1] + toPort[3] * CLEARANCE;
+        double padSq = (double) pad * pad;
+
+        double[] gx = new double[obstacles.size() * 2 + 4];
+        double[] gy = new double[gx.length];
+        int count = 0;
+        gx[count] = sx;
+        gy[count++] = sy;
+        gx[count] = tx;
+        gy[count++] = ty;
+        gx[count] = area.x;
+        gy[count++] = area.y;
+        gx[count] = area.x + area.width;
+        gy[count++] = area.y + area.height;
+        for (double[] o : obstacles) {
+            gx[count] = clamp(o[0], area.x, area.x + area.width);
+            gy[count++] = clamp(o[1], area.y, area.y + area.height);
+            gx[count] = clamp(o[2], area.x, area.x + area.width);
+            gy[count++] = clamp(o[3], area.y, area.y + area.height);
+        }
+        double[] xs = distinctSorted(gx);
+        double[] ys = distinctSorted(gy);
+        int nx = xs.length;
+        int ny = ys.length;
+
+        // Blocked steps: east from (i, j) to (i + 1, j), and south from (i, j) to (i, j + 1)
+        boolean[] eastBlocked = new boolean[nx * ny];
+        boolean[] southBlocked = new boolean[nx * ny];
+        for (double[] o : obstacles) {
+            int x0 = Arrays.binarySearch(xs, clamp(o[0], area.x, area.x + area.width));
+            int x1 = Arrays.binarySearch(xs, clamp(o[2], area.x, area.x + area.width));
+            int y0 = Arrays.binarySearch(ys, clamp(o[1], area.y, area.y + area.height));
+            int y1 = Arrays.binarySearch(ys, clamp(o[3], area.y, area.y + area.height));
+            // Lines strictly inside the obstacle cannot be crossed or followed within it
+            for (int j = y0 + 1; j < y1; j++) {
+                for (int i = x0; i < x1; i++) eastBlocked[j * nx + i] = true;
+            }
+            for (int i = x0 + 1; i < x1; i++) {
+                for (int j = y0; j < y1; j++) southBlocked[j * nx + i] = true;
+            }
+        }
+
+        int start = Arrays.binarySearch(ys, sy) * nx + Arrays.binarySearch(xs, sx);
+        int goal = Arrays.binarySearch(ys, ty) * nx + Arrays.binarySearch(xs, tx);
+        int startDir = direction(fromPort[2], fromPort[3]);
+        // Arriving at the target stub heading into the node needs no final bend
+        int goalDir = direction(-toPort[2], -toPort[3]);
+
+        int states = nx * ny * 4;
+        double[] cost = new double[states];
+        Arrays.fill(cost, Double.MAX_VALUE);
+        int[] parent = new int[states];
+        boolean[] closed = new boolean[states];
+        Heap open = new Heap(Math.min(states, 1024));
+        int first = start * 4 + startDir;
+        cost[first] = 0;
+        parent[first] = -1;
+        open.push(first, heuristic(xs, ys, nx, start, goal));
+        int found = -1;
+        while (!open.isEmpty()) {
+            int state = open.pop();
+            if (closed[state]) continue;
+            closed[state] = true;
+            int cell = state >> 2;
+            int dir = state & 3;
+            if (cell == goal) {
+                if (dir == goalDir) {
+                    found = state;
+                    break;
+                }
+                // Turning into the target costs a bend; a straight arrival found later may still be cheaper
+                int straight = goal * 4 + goalDir;
+                double c = cost[state] + BEND_COST;
+                if (c < cost[straight]) {
+                    cost[straight] = c;
+                    parent[straight] = state;
+                    open.push(straight, c);
+                }
+                continue;
+            }
+            int i = cell % nx;
+            int j = cell / nx;
+            for (int d = 0; d < 4; d++) {
+                // No U-turns
+                if (d == (dir ^ 2)) continue;
+                int next;
+                double length;
+                switch (d) {
+                    case 0: // east
+                        if (i + 1 >= nx || eastBlocked[cell]) continue;
+                        next = cell + 1;
+                        length = xs[i + 1] - xs[i];
+                        break;
+                    case 1: // south
+                        if (j + 1 >= ny || southBlocked[cell]) continue;
+                        next = cell + nx;
+                        length = ys[j + 1] - ys[j];
+                        break;
+                    case 2: // west
+                        if (i == 0 || eastBlocked[cell - 1]) continue;
+                        next = cell - 1;
+                        length = xs[i] - xs[i - 1];
+                        break;
+                    default: // north
+                        if (j == 0 || southBlocked[cell - nx]) continue;
+                        next = cell - nx;
+                        length = ys[j] - ys[j - 1];
+                        break;
+                }
+                // The band is convex, so a step between two points inside it stays inside
+                if (Line2D.ptSegDistSq(sx, sy, tx, ty, xs[next % nx], ys[next / nx]) > padSq) continue;
+                int nextState = next * 4 + d;
+                double c = cost[state] + length + (d != dir ? BEND_COST : 0);
+                if (c < cost[nextState]) {
+                    cost[nextState] = c;
+                    parent[nextState] = state;
+                    open.push(nextState, c + heuristic(xs, ys, nx, next, goal));
+                }
+            }
+        }
+        if (found < 0) return null;
+
+        List<int[]> points = new ArrayList<>();
+        points.add(new int[]{toPort[0], toPort[1]});
+        for (int s = found; s >= 0; s = parent[s]) {
+            int cell = s >> 2;
+            points.add(new int[]{(int) xs[cell % nx], (int) ys[cell / nx]});
+        }
+        points.add(new int[]{fromPort[0], fromPort[1]});
+        return simplify(points);
+    }
+
+    private static int direction(int dx, int dy) {
+        if (dx > 0) return 0;
+        if (dy > 0) return 1;
+        if (dx < 0) return 2;
+        return 3;
+    }
+
+    private static double heuristic(double[] xs, double[] ys, int nx, int cell, int goal) {
+        return Math.abs(xs[cell % nx] - xs[goal % nx]) + Math.abs(ys[cell / nx] - ys[goal / nx]);
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    private static double[] distinctSorted(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int k = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (k == 0 || sorted[i] != sorted[k - 1]) sorted[k++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, k);
+    }
+
+    /** Reverses the target-to-source point list and drops repeated and collinear points. */
+    private static int[][] simplify(List<int[]> reversed) {
+        List<int[]> points = new ArrayList<>();
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            int[] p = reversed.get(i);
+            int n = points.size();
+            if (n > 0 && points.get(n - 1)[0] == p[0] && points.get(n - 1)[1] == p[1]) continue;
+            if (n >= 2) {
+                int[] a = points.get(n - 2);
+                int[] b = points.get(n - 1);
+                if ((a[0] == b[0] && b[0] == p[0]) || (a[1] == b[1] && b[1] == p[1])) {
+                    points.set(n - 1, p);
+                    continue;
+                }
+            }
+            points.add(p);
+        }
+        if (points.size() < 2) points.add(points.get(0).clone());
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i)[0];
+            ys[i] = points.get(i)[1];
+        }
+        return new int[][]{xs, ys};
+    }
+
+    /** Binary min-heap of search states by priority. Stale entries are skipped by the caller. */
+    private static final class Heap {
+        private int[] states;
+        private double[] priorities;
+        private int size;
+
+        Heap(int capacity) {
+            states = new int[capacity];
+            priorities = new double[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int state, double priority) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int p = (i - 1) >> 1;
+                if (priorities[p] <= priority) break;
+                states[i] = states[p];
+                priorities[i] = priorities[p];
+                i = p;
+            }
+            states[i] = state;
+            priorities[i] = priority;
+        }
+
+        int pop() {
+            int top = states[0];
+            int last = states[--size];
+            double lastPriority = priorities[size];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= size) break;
+                if (c + 1 < size && priorities[c + 1] < priorities[c]) c++;
+                if (priorities[c] >= lastPriority) break;
+                states[i] = states[c];
+                priorities[i] = priorities[c];
+                i = c;
+            }
+            states[i] = last;
+            priorities[i] = lastPriority;
+            return top;
+        }
+    }
+}
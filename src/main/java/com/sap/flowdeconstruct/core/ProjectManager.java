@@ -5,11 +5,13 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.sap.flowdeconstruct.model.FlowDiagram;
 import com.sap.flowdeconstruct.model.FlowNode;
 import com.sap.flowdeconstruct.export.MarkdownExporter;
+import com.sap.flowdeconstruct.importer.ImportReport;
 import com.sap.flowdeconstruct.importer.MarkdownImporter;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.prefs.Preferences;
 
 /**
@@ -32,6 +34,8 @@ public class ProjectManager {
     
     private FlowDiagram currentProject;
     private String currentProjectPath;
+    private String linkedMarkdownPath;
+    private MarkdownLiveSync markdownSync;
     private boolean hasUnsavedChanges;
     private List<ProjectStateListener> listeners;
     
@@ -110,6 +114,20 @@ public class ProjectManager {
         return currentProjectPath;
     }
     
+    /**
+     * The Markdown file the current project was loaded from or linked to, or null.
+     */
+    public String getLinkedMarkdownPath() {
+        return linkedMarkdownPath;
+    }
+    
+    public void setLinkedMarkdownPath(String linkedMarkdownPath) {
+        if (markdownSync != null && !Objects.equals(linkedMarkdownPath, this.linkedMarkdownPath)) {
+            stopMarkdownSync();
+        }
+        this.linkedMarkdownPath = linkedMarkdownPath;
+    }
+    
     public boolean hasUnsavedChanges() {
         return hasUnsavedChanges;
     }
@@ -251,6 +269,8 @@ public class ProjectManager {
     private void setCurrentProject(FlowDiagram project, String projectPath) {
         FlowDiagram oldProject = this.currentProject;
         
+        stopMarkdownSync();
+        this.linkedMarkdownPath = null;
         this.currentProject = project;
         this.currentProjectPath = projectPath;
         this.hasUnsavedChanges = false;
@@ -284,6 +304,7 @@ public class ProjectManager {
     }
     
     public void shutdown() {
+        stopMarkdownSync();
         if (autoSaveTimer != null) {
             autoSaveTimer.cancel();
         }
@@ -334,11 +355,25 @@ public class ProjectManager {
     }
 
     public FlowDiagram loadFromMarkdown(String filePath) {
+        return loadFromMarkdown(filePath, new ImportReport());
+    }
+
+    /**
+     * Loads a Markdown file as the current project, recording skipped lines and invalid values in
+     * {@code report} so they can be shown to the user.
+     */
+    public FlowDiagram loadFromMarkdown(String filePath, ImportReport report) {
         try {
             MarkdownImporter importer = new MarkdownImporter();
-            FlowDiagram flow = importer.importFlow(filePath);
+            FlowDiagram flow = importer.importFlow(filePath, report);
             System.out.println("Loading Markdown from: " + filePath);
-            setCurrentProject(flow, filePath);
+            if (report.hasProblems()) {
+                System.err.println("Markdown import of " + filePath + ": " + report);
+            }
+            // The project itself is auto-saved as JSON in the projects directory;
+            // the Markdown file stays linked for export and live sync
+            setCurrentProject(flow, null);
+            linkedMarkdownPath = filePath;
             System.out.println("Loaded flow with name: " + flow.getName());
             notifyListeners("projectLoaded", null, flow);
             return flow;
@@ -347,6 +382,69 @@ public class ProjectManager {
         }
     }
     
+    /**
+     * Starts two-way sync between the current project and its linked Markdown file.
+     * External edits are applied on {@code uiExecutor}; canvas edits are written back to the file.
+     */
+    public void startMarkdownSync(Executor uiExecutor, MarkdownLiveSync.SyncListener syncListener) throws IOException {
+        if (currentProject == null || linkedMarkdownPath == null) {
+            throw new IllegalStateException("No Markdown file linked to the current project");
+        }
+        stopMarkdownSync();
+        MarkdownLiveSync sync = new MarkdownLiveSync(currentProject, Paths.get(linkedMarkdownPath), uiExecutor, syncListener);
+        sync.start();
+        markdownSync = sync;
+        notifyListeners("markdownSyncChanged", null, linkedMarkdownPath);
+    }
+    
+    public void stopMarkdownSync() {
+        if (markdownSync != null) {
+            markdownSync.close();
+            markdownSync = null;
+            notifyListeners("markdownSyncChanged", linkedMarkdownPath, null);
+        }
+    }
+    
+    public boolean isMarkdownSyncActive() {
+        return markdownSync != null;
+    }
+    
+    /**
+     * Makes an already-parsed flow (e.g. from a batch import) the current project.
+     * The flow is not bound to a file yet; auto-save will give it a path in the projects directory.
+     */
+    public FlowDiagram openImportedFlow(FlowDiagram flow) {
+        if (flow == null) return null;
+        setCurrentProject(flow, null);
+        hasUnsavedChanges = true;
+        notifyListeners("projectLoaded", null, flow);
+        return flow;
+    }
+
+    /**
+     * Saves a flow as a new project file in the projects directory without changing the current project.
+     * A numeric suffix is added when a project with the same name already exists.
+     *
+     * @return the path of the written file, or null if saving failed
+     */
+    public synchronized String saveAsNewProject(FlowDiagram project) {
+        if (project == null) return null;
+        String baseName = sanitizeFileName(project.getName() != null ? project.getName() : "Untitled Project");
+        Path path = projectsPath.resolve(baseName + ".flowproj");
+        int suffix = 2;
+        while (Files.exists(path)) {
+            path = projectsPath.resolve(baseName + "-" + suffix++ + ".flowproj");
+        }
+        try {
+            String json = objectMapper.writeValueAsString(project);
+            Files.write(path, json.getBytes("UTF-8"));
+            return path.toString();
+        } catch (IOException e) {
+            System.err.println("Failed to save project: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Interface for listening to project state changes
      */
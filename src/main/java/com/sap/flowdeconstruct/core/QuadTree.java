@@ -0,0 +1,330 @@
+package com.sap.flowdeconstruct.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Region quadtree over axis-aligned bounding boxes. Each item lives in the smallest cell that fully
+ * contains its box, and cells split once they hold more than {@link #MAX_ITEMS_PER_CELL} items. The
+ * root grows outward when an item falls outside it, so no world bounds are needed up front.
+ * Items are tracked by identity; updating an item whose box stays inside its cell is O(1).
+ * Not thread-safe.
+ */
+public final class QuadTree<T> {
+
+    private static final int MAX_ITEMS_PER_CELL = 8;
+    private static final double MIN_CELL_SIZE = 16;
+    private static final double INITIAL_ROOT_SIZE = 1024;
+
+    /** Exact distance from a point to an item, used by {@link #nearest}. */
+    public interface DistanceFunction<T> {
+        double distance(T item, double x, double y);
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        double minX, minY, maxX, maxY;
+        Cell<T> cell;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private static final class Cell<T> {
+        Cell<T> parent;
+        final double minX, minY, size;
+        final List<Entry<T>> items = new ArrayList<>(4);
+        Cell<T>[] children;
+
+        Cell(Cell<T> parent, double minX, double minY, double size) {
+            this.parent = parent;
+            this.minX = minX;
+            this.minY = minY;
+            this.size = size;
+        }
+
+        /** Generic arrays cannot be created directly; every cell has four children or none. */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static <T> Cell<T>[] newChildren() {
+            return new Cell[4];
+        }
+
+        boolean contains(Entry<T> e) {
+            return e.minX >= minX && e.maxX <= minX + size && e.minY >= minY && e.maxY <= minY + size;
+        }
+
+        boolean intersects(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+            return qMinX <= minX + size && qMaxX >= minX && qMinY <= minY + size && qMaxY >= minY;
+        }
+
+        double distanceTo(double x, double y) {
+            return boxDistance(minX, minY, minX + size, minY + size, x, y);
+        }
+    }
+
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private Cell<T> root;
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public void clear() {
+        entries.clear();
+        root = null;
+    }
+
+    /**
+     * Inserts the item, or moves it if it is already present.
+     */
+    public void put(T item, double minX, double minY, double maxX, double maxY) {
+        if (!(Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(maxX) && Double.isFinite(maxY))) {
+            throw new IllegalArgumentException("Bounds must be finite");
+        }
+        Entry<T> e = entries.get(item);
+        if (e == null) {
+            e = new Entry<>(item);
+            entries.put(item, e);
+        } else {
+            Cell<T> cell = e.cell;
+            e.minX = minX; e.minY = minY; e.maxX = maxX; e.maxY = maxY;
+            // Still in the right cell: inside it, and not small enough to belong to a child
+            if (cell.contains(e) && (cell.children == null || childFor(cell, e) == null)) return;
+            detach(e);
+        }
+        e.minX = minX; e.minY = minY; e.maxX = maxX; e.maxY = maxY;
+        insert(e);
+    }
+
+    /** The item's box as minX, minY, maxX, maxY, or null if it is not in the tree. */
+    public double[] boundsOf(T item) {
+        Entry<T> e = entries.get(item);
+        return e != null ? new double[] { e.minX, e.minY, e.maxX, e.maxY } : null;
+    }
+
+    public boolean remove(T item) {
+        Entry<T> e = entries.remove(item);
+        if (e == null) return false;
+        detach(e);
+        return true;
+    }
+
+    /**
+     * Visits every item whose box intersects the query box (edges included) until the visitor returns false.
+     * Returns false if the visit was stopped early.
+     */
+    public boolean query(double minX, double minY, double maxX, double maxY, Predicate<? super T> visitor) {
+        if (root == null) return true;
+        Deque<Cell<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Cell<T> cell = stack.pop();
+            for (int i = 0; i < cell.items.size(); i++) {
+                Entry<T> e = cell.items.get(i);
+                if (e.minX <= maxX && e.maxX >= minX && e.minY <= maxY && e.maxY >= minY) {
+                    if (!visitor.test(e.item)) return false;
+                }
+            }
+            if (cell.children != null) {
+                for (Cell<T> child : cell.children) {
+                    if (child.intersects(minX, minY, maxX, maxY)) stack.push(child);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the item closest to (x, y) within {@code maxDistance}, or null. Cells and boxes are
+     * visited best-first, so only the neighbourhood of the point is examined.
+     */
+    public T nearest(double x, double y, double maxDistance, DistanceFunction<? super T> distance) {
+        double inf = Double.POSITIVE_INFINITY;
+        return nearest(x, y, maxDistance, -inf, -inf, inf, inf, distance);
+    }
+
+    /**
+     * Like {@link #nearest(double, double, double, DistanceFunction)}, but only examines cells intersecting
+     * the region, which may be unbounded. The distance function must not return less than the distance to
+     * the item's box, and should return infinity for items it rejects, such as those outside the region.
+     */
+    public T nearest(double x, double y, double maxDistance, double minX, double minY, double maxX, double maxY,
+                     DistanceFunction<? super T> distance) {
+        if (root == null || !root.intersects(minX, minY, maxX, maxY)) return null;
+        PriorityQueue<Object[]> queue = new PriorityQueue<>((a, b) -> Double.compare((Double) a[0], (Double) b[0]));
+        queue.add(new Object[] { root.distanceTo(x, y), root });
+        T best = null;
+        double bestDistance = maxDistance;
+        while (!queue.isEmpty()) {
+            Object[] top = queue.poll();
+            if ((Double) top[0] > bestDistance) break;
+            @SuppressWarnings("unchecked")
+            Cell<T> cell = (Cell<T>) top[1];
+            for (int i = 0; i < cell.items.size(); i++) {
+                Entry<T> e = cell.items.get(i);
+                if (boxDistance(e.minX, e.minY, e.maxX, e.maxY, x, y) > bestDistance) continue;
+                double d = distance.distance(e.item, x, y);
+                if (d < bestDistance || (d == bestDistance && best == null)) {
+                    bestDistance = d;
+                    best = e.item;
+                }
+            }
+            if (cell.children != null) {
+                for (Cell<T> child : cell.children) {
+                    if (!child.intersects(minX, minY, maxX, maxY)) continue;
+                    double d = child.distanceTo(x, y);
+                    if (d <= bestDistance) queue.add(new Object[] { d, child });
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Smallest box around all items as minX, minY, maxX, maxY, or null if the tree is empty. Each side is
+     * found by descending into the cells that could still extend it, nearest to that side first.
+     */
+    public double[] bounds() {
+        if (entries.isEmpty()) return null;
+        double[] b = new double[4];
+        for (int side = 0; side < 4; side++) {
+            double lowest = lowest(root, side, Double.POSITIVE_INFINITY);
+            b[side] = side < 2 ? lowest : -lowest;
+        }
+        return b;
+    }
+
+    // Child visiting order per side: the children along that side first
+    private static final int[][] SIDE_ORDER = { {0, 2, 1, 3}, {0, 1, 2, 3}, {1, 3, 0, 2}, {2, 3, 0, 1} };
+
+    /** Lowest value of minX, minY, -maxX or -maxY (side 0 to 3) in the cell, if lower than {@code best}. */
+    private static <T> double lowest(Cell<T> cell, int side, double best) {
+        double cellBound;
+        switch (side) {
+            case 0: cellBound = cell.minX; break;
+            case 1: cellBound = cell.minY; break;
+            case 2: cellBound = -(cell.minX + cell.size); break;
+            default: cellBound = -(cell.minY + cell.size); break;
+        }
+        if (cellBound >= best) return best;
+        for (int i = 0; i < cell.items.size(); i++) {
+            Entry<T> e = cell.items.get(i);
+            double v = side == 0 ? e.minX : side == 1 ? e.minY : side == 2 ? -e.maxX : -e.maxY;
+            if (v < best) best = v;
+        }
+        if (cell.children != null) {
+            for (int i : SIDE_ORDER[side]) best = lowest(cell.children[i], side, best);
+        }
+        return best;
+    }
+
+    private void insert(Entry<T> e) {
+        if (root == null) {
+            double size = INITIAL_ROOT_SIZE;
+            while (size < e.maxX - e.minX || size < e.maxY - e.minY) size *= 2;
+            root = new Cell<>(null, Math.floor(e.minX / size) * size, Math.floor(e.minY / size) * size, size);
+        }
+        while (!root.contains(e)) {
+            growRootTowards(e);
+        }
+        Cell<T> cell = root;
+        Cell<T> child;
+        while (cell.children != null && (child = childFor(cell, e)) != null) {
+            cell = child;
+        }
+        add(cell, e);
+    }
+
+    private void add(Cell<T> cell, Entry<T> e) {
+        cell.items.add(e);
+        e.cell = cell;
+        if (cell.children == null && cell.items.size() > MAX_ITEMS_PER_CELL && cell.size / 2 >= MIN_CELL_SIZE) {
+            split(cell);
+        }
+    }
+
+    private void split(Cell<T> cell) {
+        double half = cell.size / 2;
+        Cell<T>[] children = Cell.newChildren();
+        for (int i = 0; i < 4; i++) {
+            children[i] = new Cell<>(cell, cell.minX + (i % 2) * half, cell.minY + (i / 2) * half, half);
+        }
+        cell.children = children;
+        List<Entry<T>> items = new ArrayList<>(cell.items);
+        cell.items.clear();
+        for (Entry<T> e : items) {
+            Cell<T> target = cell;
+            Cell<T> child;
+            while (target.children != null && (child = childFor(target, e)) != null) {
+                target = child;
+            }
+            add(target, e);
+        }
+    }
+
+    private Cell<T> childFor(Cell<T> cell, Entry<T> e) {
+        for (Cell<T> child : cell.children) {
+            if (child.contains(e)) return child;
+        }
+        return null;
+    }
+
+    private void growRootTowards(Entry<T> e) {
+        Cell<T> old = root;
+        double size = old.size;
+        boolean left = e.minX < old.minX;
+        boolean up = e.minY < old.minY;
+        double minX = left ? old.minX - size : old.minX;
+        double minY = up ? old.minY - size : old.minY;
+        Cell<T> grown = new Cell<>(null, minX, minY, size * 2);
+        Cell<T>[] children = Cell.newChildren();
+        int oldIndex = (left ? 1 : 0) + (up ? 2 : 0);
+        for (int i = 0; i < 4; i++) {
+            if (i == oldIndex) continue;
+            children[i] = new Cell<>(grown, minX + (i % 2) * size, minY + (i / 2) * size, size);
+        }
+        // The old root keeps its contents; it only gets a parent
+        old.parent = grown;
+        children[oldIndex] = old;
+        grown.children = children;
+        root = grown;
+    }
+
+    private void detach(Entry<T> e) {
+        Cell<T> cell = e.cell;
+        cell.items.remove(e);
+        e.cell = null;
+        // Collapse subtrees that became empty so long-lived trees do not accumulate dead cells
+        while (cell != null) {
+            if (cell.children != null && allEmptyLeaves(cell.children)) {
+                cell.children = null;
+            }
+            if (!cell.items.isEmpty() || cell.children != null) break;
+            cell = cell.parent;
+        }
+    }
+
+    private static <T> boolean allEmptyLeaves(Cell<T>[] cells) {
+        for (Cell<T> c : cells) {
+            if (c.children != null || !c.items.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    static double boxDistance(double minX, double minY, double maxX, double maxY, double x, double y) {
+        double dx = x < minX ? minX - x : (x > maxX ? x - maxX : 0);
+        double dy = y < minY ? minY - y : (y > maxY ? y - maxY : 0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,117 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.i18n.I18n;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.IOException;
+
+/**
+ * Exports a flow as a Graphviz DOT digraph. Sub-flows become {@code cluster_} subgraphs.
+ */
+public class DotExporter extends GraphTextExporter {
+
+    @Override
+    public String getId() {
+        return "dot";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return I18n.t("export.dialog.format.dot");
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".dot";
+    }
+
+    @Override
+    protected void writeHeader(Context ctx, FlowDiagram flow) throws IOException {
+        ctx.out.write("digraph \"" + escape(flow.getName()) + "\" {\n");
+        ctx.out.write("    rankdir=LR;\n");
+        ctx.out.write("    node [fontname=\"Monospace\"];\n");
+        if (hasText(flow.getName())) {
+            ctx.out.write("    label=\"" + escape(flow.getName()) + "\";\n    labelloc=t;\n");
+        }
+    }
+
+    @Override
+    protected void writeNode(Context ctx, FlowNode node, String alias, int depth) throws IOException {
+        String shape;
+        switch (node.getShape() != null ? node.getShape() : FlowNode.NodeShape.RECTANGLE) {
+            case SQUARE: shape = "square"; break;
+            case CIRCLE: shape = "circle"; break;
+            case OVAL: shape = "ellipse"; break;
+            case DIAMOND: shape = "diamond"; break;
+            default: shape = "box"; break;
+        }
+        StringBuilder line = new StringBuilder(indent(depth))
+                .append(alias).append(" [label=\"").append(escape(node.getText()))
+                .append("\", shape=").append(shape);
+        if (hasText(node.getFillColorHex())) {
+            line.append(", style=filled, fillcolor=\"").append(node.getFillColorHex()).append('"');
+        }
+        if (hasText(node.getBorderColorHex())) {
+            line.append(", color=\"").append(node.getBorderColorHex()).append('"');
+        }
+        if (hasText(node.getTextColorHex())) {
+            line.append(", fontcolor=\"").append(node.getTextColorHex()).append('"');
+        }
+        if (ctx.includeNotes && hasText(node.getNotes())) {
+            line.append(", tooltip=\"").append(escape(node.getNotes())).append('"');
+        }
+        line.append("];\n");
+        ctx.out.write(line.toString());
+    }
+
+    @Override
+    protected void beginSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth) + "subgraph cluster_" + subgraphId + " {\n");
+        ctx.out.write(indent(depth + 1) + "label=\"" + escape(owner.getText()) + "\";\n");
+    }
+
+    @Override
+    protected void endSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth) + "}\n");
+    }
+
+    @Override
+    protected void writeConnection(Context ctx, FlowConnection conn, String fromAlias, String toAlias, int depth) throws IOException {
+        FlowConnection.DirectionStyle dir = conn.getDirectionStyle() != null ? conn.getDirectionStyle() : FlowConnection.DirectionStyle.FROM_TO;
+        FlowConnection.ConnectionType type = conn.getType() != null ? conn.getType() : FlowConnection.ConnectionType.NORMAL;
+
+        StringBuilder line = new StringBuilder(indent(depth))
+                .append(fromAlias).append(" -> ").append(toAlias).append(" [dir=");
+        switch (dir) {
+            case TO_FROM: line.append("back"); break;
+            case BIDIRECTIONAL: line.append("both"); break;
+            case NONE: line.append("none"); break;
+            default: line.append("forward"); break;
+        }
+        if (type == FlowConnection.ConnectionType.CONDITIONAL) {
+            line.append(", style=dashed");
+        } else if (type == FlowConnection.ConnectionType.ERROR) {
+            line.append(", style=bold, penwidth=2");
+        }
+        if (hasText(conn.getLineColorHex())) {
+            line.append(", color=\"").append(conn.getLineColorHex()).append('"');
+        }
+        if (hasText(conn.getProtocol())) {
+            line.append(", label=\"").append(escape(conn.getProtocol().trim())).append('"');
+        }
+        line.append("];\n");
+        ctx.out.write(line.toString());
+    }
+
+    @Override
+    protected void writeFooter(Context ctx, FlowDiagram flow) throws IOException {
+        ctx.out.write("}\n");
+    }
+
+    static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\r", "").replace("\n", "\\n");
+    }
+}
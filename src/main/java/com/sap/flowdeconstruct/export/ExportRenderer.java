@@ -1,31 +1,37 @@
 package com.sap.flowdeconstruct.export;
 
 import com.sap.flowdeconstruct.model.FlowDiagram;
-import com.sap.flowdeconstruct.model.FlowNode;
-import com.sap.flowdeconstruct.ui.components.FlowCanvas;
+import com.sap.flowdeconstruct.ui.components.DiagramRenderer;
 
-import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
 /**
  * Utility renderer to produce high-quality images of the flow and the timeline
- * by leveraging the existing FlowCanvas painting logic offscreen.
+ * with the same {@link DiagramRenderer} the canvas draws with, without any Swing component.
+ * The diagram is copied into a snapshot first, so rendering may run on any thread.
  */
 public class ExportRenderer {
 
     private static final int MARGIN = 24; // pixels around the flow content
 
+    private final DiagramRenderer renderer = new DiagramRenderer();
+
     /**
      * Renders the flow area (nodes + connections) into a BufferedImage that fits within maxWidth x maxHeight.
      * Keeps aspect ratio and adds a small margin around content.
      */
     public BufferedImage renderFlowImage(FlowDiagram diagram, int maxWidth, int maxHeight) {
         if (diagram == null) return emptyImage(Math.max(1, maxWidth), Math.max(1, maxHeight));
+        return renderFlowImage(DiagramRenderer.Snapshot.of(diagram), maxWidth, maxHeight);
+    }
 
+    /** Like {@link #renderFlowImage(FlowDiagram, int, int)}, for a snapshot taken earlier. */
+    public BufferedImage renderFlowImage(DiagramRenderer.Snapshot snapshot, int maxWidth, int maxHeight) {
         // Compute world bounds based on node positions and sizes
-        Bounds b = computeNodeBounds(diagram);
+        Bounds b = computeNodeBounds(snapshot);
         if (b.width <= 0 || b.height <= 0) {
             // No nodes to render, fallback to minimal image
             return emptyImage(Math.max(1, maxWidth), Math.max(1, maxHeight));
@@ -41,24 +47,16 @@ public class ExportRenderer {
         int outW = (int) Math.round(b.width * scale + 2 * MARGIN);
         int outH = (int) Math.round(b.height * scale + 2 * MARGIN);
 
-        // Prepare canvas
-        FlowCanvas canvas = new FlowCanvas();
-        canvas.setMode(FlowCanvas.Mode.FLOW_ONLY);
-        canvas.setFlowDiagram(diagram);
-        canvas.setZoomLevel(scale);
         // translate so that (minX, minY) maps to (MARGIN, MARGIN)
         double tx = MARGIN - (b.minX * scale);
         double ty = MARGIN - (b.minY * scale);
-        canvas.setViewOffset(tx, ty);
-        canvas.setSize(new Dimension(outW, outH));
+        DiagramRenderer.Viewport viewport = new DiagramRenderer.Viewport(tx, ty, scale, outW, outH);
 
         // Render offscreen
         BufferedImage img = new BufferedImage(outW, outH, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2 = img.createGraphics();
         try {
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            canvas.paint(g2);
+            renderer.render(g2, snapshot, viewport);
         } finally {
             g2.dispose();
         }
@@ -67,23 +65,28 @@ public class ExportRenderer {
 
     /**
      * Renders only the timeline area for the provided diagram at the given width.
-     * The height is determined by FlowCanvas timeline preferred height.
+     * The height is the timeline's preferred height on the canvas.
      */
     public BufferedImage renderTimelineImage(FlowDiagram diagram, int width) {
         if (diagram == null) return emptyImage(Math.max(1, width), 1);
+        return renderTimelineImage(DiagramRenderer.Snapshot.of(diagram), width);
+    }
 
-        FlowCanvas canvas = new FlowCanvas();
-        canvas.setMode(FlowCanvas.Mode.TIMELINE_ONLY);
-        canvas.setFlowDiagram(diagram);
-        int height = canvas.getTimelinePreferredHeight();
-        canvas.setSize(new Dimension(width, height));
+    /** Like {@link #renderTimelineImage(FlowDiagram, int)}, for a snapshot taken earlier. */
+    public BufferedImage renderTimelineImage(DiagramRenderer.Snapshot snapshot, int width) {
+        int height = DiagramRenderer.getTimelinePreferredHeight();
 
         BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2 = img.createGraphics();
         try {
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            canvas.paint(g2);
+            // The canvas fills its background before drawing the band
+            g2.setColor(DiagramRenderer.BACKGROUND_COLOR);
+            g2.fillRect(0, 0, width, height);
+            Rectangle band = new Rectangle(0, height - DiagramRenderer.TIMELINE_HEIGHT, width, DiagramRenderer.TIMELINE_HEIGHT);
+            renderer.paintTimelineBackground(g2, band);
+            renderer.paintTimeline(g2, snapshot.getTimelineEvents(), band);
         } finally {
             g2.dispose();
         }
@@ -96,28 +99,13 @@ public class ExportRenderer {
         return new BufferedImage(Math.max(1, w), Math.max(1, h), BufferedImage.TYPE_INT_ARGB);
     }
 
-    private Bounds computeNodeBounds(FlowDiagram diagram) {
-        double minX = Double.POSITIVE_INFINITY;
-        double minY = Double.POSITIVE_INFINITY;
-        double maxX = Double.NEGATIVE_INFINITY;
-        double maxY = Double.NEGATIVE_INFINITY;
-
-        for (FlowNode n : diagram.getNodes()) {
-            double x1 = n.getX();
-            double y1 = n.getY();
-            double x2 = x1 + n.getWidth();
-            double y2 = y1 + n.getHeight();
-            if (x1 < minX) minX = x1;
-            if (y1 < minY) minY = y1;
-            if (x2 > maxX) maxX = x2;
-            if (y2 > maxY) maxY = y2;
-        }
-
-        if (minX == Double.POSITIVE_INFINITY) {
+    private Bounds computeNodeBounds(DiagramRenderer.Snapshot snapshot) {
+        double[] b = snapshot.getNodeBounds();
+        if (b == null) {
             // No nodes
             return new Bounds(0, 0, 0, 0);
         }
-        return new Bounds(minX, minY, Math.max(1.0, maxX - minX), Math.max(1.0, maxY - minY));
+        return new Bounds(b[0], b[1], Math.max(1.0, b[2] - b[0]), Math.max(1.0, b[3] - b[1]));
     }
 
     private static class Bounds {
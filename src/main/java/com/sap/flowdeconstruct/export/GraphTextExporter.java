@@ -0,0 +1,100 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base class for graph-description text exporters. Walks the flow once, writing nodes, then
+ * sub-flows as nested subgraphs, then connections, straight to the writer. Node ids are replaced
+ * by short aliases (n1, n2, ...) that are valid identifiers in every target syntax.
+ */
+public abstract class GraphTextExporter implements TextExporter {
+
+    @Override
+    public void export(FlowDiagram flow, Writer out, boolean includeNotes, boolean includeSubflows) throws IOException {
+        if (flow == null) throw new IOException("No flow to export");
+        Context ctx = new Context(out, includeNotes, includeSubflows);
+        writeHeader(ctx, flow);
+        writeFlow(ctx, flow, 1);
+        writeFooter(ctx, flow);
+        out.flush();
+    }
+
+    private void writeFlow(Context ctx, FlowDiagram flow, int depth) throws IOException {
+        if (!ctx.visited.add(flow)) return; // guard against cyclic sub-flow references
+
+        Map<String, String> aliases = new HashMap<>();
+        for (FlowNode node : flow.getNodes()) {
+            String alias = "n" + (++ctx.nodeCounter);
+            aliases.put(node.getId(), alias);
+            writeNode(ctx, node, alias, depth);
+        }
+
+        if (ctx.includeSubflows) {
+            for (FlowNode node : flow.getNodes()) {
+                FlowDiagram sub = node.getSubFlow();
+                if (sub == null || sub.isEmpty()) continue;
+                String subgraphId = "sg" + (++ctx.subgraphCounter);
+                beginSubgraph(ctx, node, subgraphId, depth);
+                writeFlow(ctx, sub, depth + 1);
+                endSubgraph(ctx, node, subgraphId, depth);
+            }
+        }
+
+        for (FlowConnection conn : flow.getConnections()) {
+            String from = aliases.get(conn.getFromNodeId());
+            String to = aliases.get(conn.getToNodeId());
+            if (from == null || to == null) continue; // dangling reference
+            writeConnection(ctx, conn, from, to, depth);
+        }
+    }
+
+    protected abstract void writeHeader(Context ctx, FlowDiagram flow) throws IOException;
+
+    protected abstract void writeNode(Context ctx, FlowNode node, String alias, int depth) throws IOException;
+
+    protected abstract void beginSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException;
+
+    protected abstract void endSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException;
+
+    protected abstract void writeConnection(Context ctx, FlowConnection conn, String fromAlias, String toAlias, int depth) throws IOException;
+
+    protected abstract void writeFooter(Context ctx, FlowDiagram flow) throws IOException;
+
+    protected static String indent(int depth) {
+        StringBuilder sb = new StringBuilder(depth * 4);
+        for (int i = 0; i < depth; i++) sb.append("    ");
+        return sb.toString();
+    }
+
+    protected static boolean hasText(String s) {
+        return s != null && !s.trim().isEmpty();
+    }
+
+    /**
+     * Per-export state, so a single exporter instance can be shared between threads.
+     */
+    protected static final class Context {
+        public final Writer out;
+        public final boolean includeNotes;
+        public final boolean includeSubflows;
+        private final Set<FlowDiagram> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int nodeCounter;
+        private int subgraphCounter;
+
+        Context(Writer out, boolean includeNotes, boolean includeSubflows) {
+            this.out = out;
+            this.includeNotes = includeNotes;
+            this.includeSubflows = includeSubflows;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.i18n.I18n;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.IOException;
+
+/**
+ * Exports a flow as a Mermaid {@code flowchart}.
+ * Conditional connections are dotted, error connections thick; the protocol becomes the edge label.
+ */
+public class MermaidExporter extends GraphTextExporter {
+
+    @Override
+    public String getId() {
+        return "mermaid";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return I18n.t("export.dialog.format.mermaid");
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".mmd";
+    }
+
+    @Override
+    protected void writeHeader(Context ctx, FlowDiagram flow) throws IOException {
+        if (hasText(flow.getName())) {
+            ctx.out.write("---\ntitle: " + escape(flow.getName()) + "\n---\n");
+        }
+        ctx.out.write("flowchart LR\n");
+    }
+
+    @Override
+    protected void writeNode(Context ctx, FlowNode node, String alias, int depth) throws IOException {
+        String label = "\"" + escape(node.getText()) + "\"";
+        String shaped;
+        switch (node.getShape() != null ? node.getShape() : FlowNode.NodeShape.RECTANGLE) {
+            case CIRCLE: shaped = "((" + label + "))"; break;
+            case OVAL: shaped = "([" + label + "])"; break;
+            case DIAMOND: shaped = "{" + label + "}"; break;
+            default: shaped = "[" + label + "]"; break;
+        }
+        ctx.out.write(indent(depth) + alias + shaped + "\n");
+        if (ctx.includeNotes && hasText(node.getNotes())) {
+            ctx.out.write(indent(depth) + "%% " + alias + ": " + node.getNotes().replace('\n', ' ').replace('\r', ' ') + "\n");
+        }
+    }
+
+    @Override
+    protected void beginSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth) + "subgraph " + subgraphId + " [\"" + escape(owner.getText()) + "\"]\n");
+    }
+
+    @Override
+    protected void endSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth) + "end\n");
+    }
+
+    @Override
+    protected void writeConnection(Context ctx, FlowConnection conn, String fromAlias, String toAlias, int depth) throws IOException {
+        FlowConnection.DirectionStyle dir = conn.getDirectionStyle() != null ? conn.getDirectionStyle() : FlowConnection.DirectionStyle.FROM_TO;
+        FlowConnection.ConnectionType type = conn.getType() != null ? conn.getType() : FlowConnection.ConnectionType.NORMAL;
+
+        // Mermaid has no left-pointing arrow, so TO_FROM is written as a reversed edge
+        String a = fromAlias;
+        String b = toAlias;
+        if (dir == FlowConnection.DirectionStyle.TO_FROM) {
+            a = toAlias;
+            b = fromAlias;
+        }
+        boolean head = dir != FlowConnection.DirectionStyle.NONE;
+        boolean tail = dir == FlowConnection.DirectionStyle.BIDIRECTIONAL;
+
+        String arrow;
+        switch (type) {
+            case CONDITIONAL: arrow = (tail ? "<" : "") + "-.-" + (head ? ">" : ""); break;
+            case ERROR: arrow = (tail ? "<" : "") + "==" + (head ? ">" : "="); break;
+            default: arrow = (tail ? "<" : "") + "--" + (head ? ">" : "-"); break;
+        }
+
+        StringBuilder line = new StringBuilder(indent(depth)).append(a).append(' ').append(arrow);
+        if (hasText(conn.getProtocol())) {
+            line.append("|\"").append(escape(conn.getProtocol().trim())).append("\"|");
+        }
+        line.append(' ').append(b).append('\n');
+        ctx.out.write(line.toString());
+    }
+
+    @Override
+    protected void writeFooter(Context ctx, FlowDiagram flow) throws IOException {
+        // flowchart has no terminator
+    }
+
+    static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\"", "#quot;").replace("\r", "").replace("\n", "<br/>");
+    }
+}
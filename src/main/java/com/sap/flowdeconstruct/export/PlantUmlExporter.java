@@ -0,0 +1,107 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.i18n.I18n;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.IOException;
+
+/**
+ * Exports a flow as a PlantUML deployment-style diagram. Sub-flows become {@code package} blocks.
+ */
+public class PlantUmlExporter extends GraphTextExporter {
+
+    @Override
+    public String getId() {
+        return "plantuml";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return I18n.t("export.dialog.format.plantuml");
+    }
+
+    @Override
+    public String getFileExtension() {
+        return ".puml";
+    }
+
+    @Override
+    protected void writeHeader(Context ctx, FlowDiagram flow) throws IOException {
+        ctx.out.write("@startuml\n");
+        ctx.out.write("left to right direction\n");
+        if (hasText(flow.getName())) {
+            ctx.out.write("title " + escape(flow.getName()) + "\n");
+        }
+    }
+
+    @Override
+    protected void writeNode(Context ctx, FlowNode node, String alias, int depth) throws IOException {
+        String element;
+        String stereotype = "";
+        switch (node.getShape() != null ? node.getShape() : FlowNode.NodeShape.RECTANGLE) {
+            case CIRCLE: element = "circle"; break;
+            case OVAL: element = "usecase"; break;
+            case DIAMOND: element = "rectangle"; stereotype = " <<decision>>"; break;
+            default: element = "rectangle"; break;
+        }
+        StringBuilder line = new StringBuilder(indent(depth - 1))
+                .append(element).append(" \"").append(escape(node.getText())).append("\" as ").append(alias)
+                .append(stereotype);
+        if (hasText(node.getFillColorHex())) {
+            line.append(' ').append(node.getFillColorHex());
+        }
+        line.append('\n');
+        ctx.out.write(line.toString());
+        if (ctx.includeNotes && hasText(node.getNotes())) {
+            ctx.out.write(indent(depth - 1) + "note right of " + alias + " : " + escape(node.getNotes()) + "\n");
+        }
+    }
+
+    @Override
+    protected void beginSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth - 1) + "package \"" + escape(owner.getText()) + "\" as " + subgraphId + " {\n");
+    }
+
+    @Override
+    protected void endSubgraph(Context ctx, FlowNode owner, String subgraphId, int depth) throws IOException {
+        ctx.out.write(indent(depth - 1) + "}\n");
+    }
+
+    @Override
+    protected void writeConnection(Context ctx, FlowConnection conn, String fromAlias, String toAlias, int depth) throws IOException {
+        FlowConnection.DirectionStyle dir = conn.getDirectionStyle() != null ? conn.getDirectionStyle() : FlowConnection.DirectionStyle.FROM_TO;
+        FlowConnection.ConnectionType type = conn.getType() != null ? conn.getType() : FlowConnection.ConnectionType.NORMAL;
+
+        StringBuilder style = new StringBuilder();
+        if (hasText(conn.getLineColorHex())) style.append(conn.getLineColorHex());
+        if (type == FlowConnection.ConnectionType.CONDITIONAL) {
+            style.append(style.length() > 0 ? "," : "").append("dashed");
+        } else if (type == FlowConnection.ConnectionType.ERROR) {
+            style.append(style.length() > 0 ? "," : "").append("bold");
+        }
+        String body = style.length() > 0 ? "-[" + style + "]-" : "--";
+        boolean head = dir == FlowConnection.DirectionStyle.FROM_TO || dir == FlowConnection.DirectionStyle.BIDIRECTIONAL;
+        boolean tail = dir == FlowConnection.DirectionStyle.TO_FROM || dir == FlowConnection.DirectionStyle.BIDIRECTIONAL;
+        String arrow = (tail ? "<" : "") + body + (head ? ">" : "");
+
+        StringBuilder line = new StringBuilder(indent(depth - 1))
+                .append(fromAlias).append(' ').append(arrow).append(' ').append(toAlias);
+        if (hasText(conn.getProtocol())) {
+            line.append(" : ").append(escape(conn.getProtocol().trim()));
+        }
+        line.append('\n');
+        ctx.out.write(line.toString());
+    }
+
+    @Override
+    protected void writeFooter(Context ctx, FlowDiagram flow) throws IOException {
+        ctx.out.write("@enduml\n");
+    }
+
+    static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\"", "'").replace("\r", "").replace("\n", "\\n");
+    }
+}
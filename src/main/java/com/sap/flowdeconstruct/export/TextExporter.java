@@ -0,0 +1,42 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Exporter that writes a flow as plain text (diagram-as-code) to a {@link Writer}.
+ * <p>
+ * Implementations are discovered by {@link TextExporters}: the built-in formats are always
+ * available and further formats can be plugged in through {@link java.util.ServiceLoader}
+ * by listing the class in {@code META-INF/services/com.sap.flowdeconstruct.export.TextExporter}.
+ */
+public interface TextExporter {
+
+    /** Stable identifier, e.g. "mermaid". */
+    String getId();
+
+    /** Name shown in the export dialog. */
+    String getDisplayName();
+
+    /** File extension including the dot, e.g. ".mmd". */
+    String getFileExtension();
+
+    /**
+     * Streams the flow to the writer. The writer is flushed but not closed.
+     */
+    void export(FlowDiagram flow, Writer out, boolean includeNotes, boolean includeSubflows) throws IOException;
+
+    default void export(FlowDiagram flow, String filePath, boolean includeNotes, boolean includeSubflows) throws IOException {
+        if (flow == null) throw new IOException("No flow to export");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filePath)), StandardCharsets.UTF_8))) {
+            export(flow, out, includeNotes, includeSubflows);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.sap.flowdeconstruct.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the available {@link TextExporter}s: the built-in Mermaid, DOT and PlantUML
+ * exporters followed by any found on the classpath through {@link ServiceLoader}.
+ */
+public final class TextExporters {
+
+    private static List<TextExporter> available;
+
+    private TextExporters() {
+    }
+
+    public static synchronized List<TextExporter> getAvailable() {
+        if (available == null) {
+            Map<String, TextExporter> byId = new LinkedHashMap<>();
+            register(byId, new MermaidExporter());
+            register(byId, new DotExporter());
+            register(byId, new PlantUmlExporter());
+            try {
+                for (TextExporter exporter : ServiceLoader.load(TextExporter.class)) {
+                    register(byId, exporter);
+                }
+            } catch (ServiceConfigurationError e) {
+                System.err.println("Failed to load text exporter plugins: " + e.getMessage());
+            }
+            available = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+        }
+        return available;
+    }
+
+    public static TextExporter find(String id) {
+        for (TextExporter exporter : getAvailable()) {
+            if (exporter.getId().equalsIgnoreCase(id)) return exporter;
+        }
+        return null;
+    }
+
+    private static void register(Map<String, TextExporter> byId, TextExporter exporter) {
+        // First registration wins, so a plugin cannot silently replace a built-in format
+        if (exporter != null && exporter.getId() != null && !byId.containsKey(exporter.getId())) {
+            byId.put(exporter.getId(), exporter);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports many Markdown flow files at once, parsing them concurrently.
+ * Each file is parsed by its own {@link MarkdownImporter}; results are reported
+ * per file as they complete and returned in the original input order.
+ */
+public class BatchMarkdownImporter {
+
+    private static final int GRID_SPACING_X = 160;
+    private static final int GRID_SPACING_Y = 80;
+    private static final int GRID_MARGIN = 50;
+
+    private final int parallelism;
+    private volatile ExecutorService executor;
+    private volatile boolean cancelled;
+
+    public BatchMarkdownImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchMarkdownImporter(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Lists the Markdown files (*.md) directly inside the given directory, sorted by name.
+     */
+    public static List<Path> collectMarkdownFiles(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase().endsWith(".md"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Parses all files concurrently. The listener (if any) is called on the calling thread
+     * once per file, in completion order. Returns one result per input file, in input order.
+     */
+    public List<FileResult> importAll(List<Path> files, ProgressListener listener) {
+        if (files == null || files.isEmpty()) return Collections.emptyList();
+        cancelled = false;
+
+        int total = files.size();
+        FileResult[] results = new FileResult[total];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, total), r -> {
+            Thread t = new Thread(r, "BatchImport");
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor = pool;
+        try {
+            CompletionService<FileResult> completion = new ExecutorCompletionService<>(pool);
+            for (int i = 0; i < total; i++) {
+                final int index = i;
+                final Path file = files.get(i);
+                completion.submit(() -> parseOne(index, file));
+            }
+
+            int received = 0;
+            while (received < total && !cancelled) {
+                FileResult result;
+                try {
+                    Future<FileResult> done = completion.poll(100, TimeUnit.MILLISECONDS);
+                    if (done == null) continue;
+                    received++;
+                    result = done.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    // parseOne never throws; keep going with the remaining files
+                    continue;
+                }
+                results[result.index] = result;
+                if (listener != null) {
+                    listener.onFileImported(result, received, total);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            this.executor = null;
+        }
+
+        List<FileResult> ordered = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            if (results[i] != null) ordered.add(results[i]);
+        }
+        return ordered;
+    }
+
+    /**
+     * Requests cancellation of a running {@link #importAll} call. Files already parsed are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+        ExecutorService pool = executor;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    private FileResult parseOne(int index, Path file) {
+        long start = System.nanoTime();
+        try {
+            ImportReport report = new ImportReport();
+            FlowDiagram diagram = new MarkdownImporter().importFlow(file.toString(), report);
+            return new FileResult(index, file, diagram, report, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new FileResult(index, file, null, null, e, System.nanoTime() - start);
+        }
+    }
+
+    /** Number of files that were imported, leaving out the ones that failed. */
+    public static int countSuccessful(List<FileResult> results) {
+        int ok = 0;
+        for (FileResult r : results) {
+            if (r.isSuccess()) ok++;
+        }
+        return ok;
+    }
+
+    /**
+     * Builds a new root flow with one node per successfully imported file, each holding
+     * the imported flow as its sub-flow.
+     */
+    public static FlowDiagram mergeAsSubflows(String rootName, List<FileResult> results) {
+        FlowDiagram root = new FlowDiagram(rootName);
+        List<FileResult> ok = new ArrayList<>();
+        for (FileResult r : results) {
+            if (r.isSuccess()) ok.add(r);
+        }
+        int perRow = Math.max(1, (int) Math.ceil(Math.sqrt(ok.size())));
+        for (int i = 0; i < ok.size(); i++) {
+            FileResult r = ok.get(i);
+            FlowDiagram sub = r.getDiagram();
+            String label = (sub.getName() != null && !sub.getName().trim().isEmpty()) ? sub.getName() : r.getFileName();
+            int x = GRID_MARGIN + (i % perRow) * GRID_SPACING_X;
+            int y = GRID_MARGIN + (i / perRow) * GRID_SPACING_Y;
+            FlowNode node = new FlowNode(label, x, y);
+            node.setNotes(r.getPath().toString());
+            node.setSubFlow(sub);
+            root.addNode(node);
+        }
+        return root;
+    }
+
+    /**
+     * Outcome of importing a single file.
+     */
+    public static class FileResult {
+        private final int index;
+        private final Path path;
+        private final FlowDiagram diagram;
+        private final ImportReport report;
+        private final Exception error;
+        private final long elapsedNanos;
+
+        FileResult(int index, Path path, FlowDiagram diagram, ImportReport report, Exception error, long elapsedNanos) {
+            this.index = index;
+            this.path = path;
+            this.diagram = diagram;
+            this.report = report;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public FlowDiagram getDiagram() { return diagram; }
+        /** Diagnostics for a successful import; null if the file could not be read. */
+        public ImportReport getReport() { return report; }
+        public Exception getError() { return error; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public boolean isSuccess() { return error == null && diagram != null; }
+
+        public String getFileName() {
+            return path.getFileName() != null ? path.getFileName().toString() : path.toString();
+        }
+    }
+
+    /**
+     * Receives per-file progress. Called on the thread running {@link #importAll}.
+     */
+    public interface ProgressListener {
+        void onFileImported(FileResult result, int completed, int total);
+    }
+}
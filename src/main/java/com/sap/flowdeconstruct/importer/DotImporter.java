@@ -0,0 +1,347 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.importer.GraphTextTokenizer.Token;
+import com.sap.flowdeconstruct.importer.GraphTextTokenizer.Type;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports Graphviz DOT ({@code graph}/{@code digraph}) files in a single streaming pass.
+ * {@code subgraph cluster_*} blocks become sub-flows; other subgraphs only group statements.
+ * Recognized attributes: node {@code label}, {@code shape}, {@code fillcolor}, {@code color},
+ * {@code fontcolor}, {@code tooltip}; edge {@code label}, {@code dir}, {@code style}, {@code color}.
+ */
+public class DotImporter {
+
+    private GraphTextTokenizer tokens;
+    private GraphModelBuilder builder;
+    private boolean directed;
+    private List<String> groupMembers;
+    private int plainGroupDepth;
+
+    public FlowDiagram importFlow(String filePath) throws IOException {
+        try (Reader in = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            return importFlow(in);
+        }
+    }
+
+    public FlowDiagram importFlowFromString(String content) throws IOException {
+        return importFlow(new StringReader(content != null ? content : ""));
+    }
+
+    public FlowDiagram importFlow(Reader reader) throws IOException {
+        Reader in = reader instanceof BufferedReader || reader instanceof StringReader ? reader : new BufferedReader(reader);
+        tokens = new GraphTextTokenizer(in, false, new String[] { "//", "#" }, true, false);
+        builder = new GraphModelBuilder();
+        groupMembers = null;
+        plainGroupDepth = 0;
+
+        Token t = tokens.next();
+        if (t.type == Type.WORD && t.text.equalsIgnoreCase("strict")) t = tokens.next();
+        if (t.type != Type.WORD || !(t.text.equalsIgnoreCase("graph") || t.text.equalsIgnoreCase("digraph"))) {
+            throw new IOException("Line " + t.line + ": expected 'graph' or 'digraph'");
+        }
+        directed = t.text.equalsIgnoreCase("digraph");
+        if (!tokens.peek().isPunct('{')) {
+            builder.setName(tokens.next().text);
+        }
+        expectPunct('{');
+        parseStatements(builder.getRoot(), new Defaults(), true);
+        return builder.build();
+    }
+
+    /** Node and edge attribute defaults ({@code node [...]}, {@code edge [...]}), inherited by nested subgraphs. */
+    private static final class Defaults {
+        final Map<String, String> node = new HashMap<>();
+        final Map<String, String> edge = new HashMap<>();
+
+        Defaults copy() {
+            Defaults d = new Defaults();
+            d.node.putAll(node);
+            d.edge.putAll(edge);
+            return d;
+        }
+    }
+
+    private void parseStatements(GraphModelBuilder.Scope scope, Defaults defaults, boolean rootLevel) throws IOException {
+        while (true) {
+            Token t = tokens.peek();
+            if (t.type == Type.EOF) return;
+            if (t.isPunct('}')) {
+                tokens.next();
+                return;
+            }
+            if (t.isPunct(';') || t.isPunct(',')) {
+                tokens.next();
+                continue;
+            }
+            parseStatement(scope, defaults, rootLevel);
+        }
+    }
+
+    private void parseStatement(GraphModelBuilder.Scope scope, Defaults defaults, boolean rootLevel) throws IOException {
+        Token t = tokens.peek();
+        if (t.type == Type.WORD) {
+            String kw = t.text.toLowerCase();
+            if (kw.equals("node") || kw.equals("edge") || kw.equals("graph")) {
+                tokens.next();
+                if (tokens.peek().isPunct('[')) {
+                    Map<String, String> attrs = parseAttrList();
+                    if (kw.equals("node")) defaults.node.putAll(attrs);
+                    else if (kw.equals("edge")) defaults.edge.putAll(attrs);
+                    else applyGraphAttrs(scope, attrs, rootLevel);
+                }
+                return;
+            }
+        }
+
+        List<String> left = parseEndpoint(scope, defaults);
+        if (left == null) {
+            tokens.next(); // unknown token, skip it
+            return;
+        }
+
+        Token op = tokens.peek();
+        if (op.type == Type.OP && op.text.equals("=")) {
+            // ID '=' ID graph attribute, e.g. label="..."
+            tokens.next();
+            String value = readValue();
+            if (left.size() == 1) {
+                Map<String, String> attrs = new HashMap<>();
+                attrs.put(left.get(0).toLowerCase(), value);
+                applyGraphAttrs(scope, attrs, rootLevel);
+            }
+            return;
+        }
+
+        if (op.type == Type.OP && (op.text.equals("->") || op.text.equals("--"))) {
+            // Edge chain: a -> b -> {c d} [attrs]
+            List<List<String>> chain = new ArrayList<>();
+            chain.add(left);
+            while (tokens.peek().type == Type.OP && (tokens.peek().text.equals("->") || tokens.peek().text.equals("--"))) {
+                tokens.next();
+                List<String> right = parseEndpoint(scope, defaults);
+                if (right == null) break;
+                chain.add(right);
+            }
+            Map<String, String> attrs = new HashMap<>(defaults.edge);
+            if (tokens.peek().isPunct('[')) attrs.putAll(parseAttrList());
+            for (int i = 0; i + 1 < chain.size(); i++) {
+                for (String from : chain.get(i)) {
+                    for (String to : chain.get(i + 1)) {
+                        FlowConnection conn = builder.edge(from, to);
+                        if (conn != null) applyEdgeAttrs(conn, attrs);
+                    }
+                }
+            }
+            return;
+        }
+
+        // Plain node statement: a [attrs]
+        if (left.size() == 1 && tokens.peek().isPunct('[')) {
+            Map<String, String> attrs = parseAttrList();
+            applyNodeAttrs(builder.node(left.get(0), scope), attrs);
+        }
+    }
+
+    /**
+     * Parses a node id (with optional port) or a subgraph, creating nodes on first mention.
+     * Returns the names the endpoint stands for, or null if no endpoint starts here.
+     */
+    private List<String> parseEndpoint(GraphModelBuilder.Scope scope, Defaults defaults) throws IOException {
+        Token t = tokens.peek();
+        List<String> names = new ArrayList<>(1);
+        if (t.isPunct('{') || (t.type == Type.WORD && t.text.equalsIgnoreCase("subgraph"))) {
+            String subgraphId = null;
+            if (t.type == Type.WORD) {
+                tokens.next();
+                if (!tokens.peek().isPunct('{')) subgraphId = tokens.next().text;
+            }
+            expectPunct('{');
+            if (subgraphId != null && subgraphId.startsWith("cluster")) {
+                GraphModelBuilder.Scope child = builder.subgraph(subgraphId, null, scope);
+                int outerDepth = plainGroupDepth;
+                plainGroupDepth = 0;
+                try {
+                    parseStatements(child, defaults.copy(), false);
+                } finally {
+                    plainGroupDepth = outerDepth;
+                }
+                names.add(subgraphId);
+                if (groupMembers != null) groupMembers.add(subgraphId);
+            } else {
+                // Plain grouping ({a b} or a non-cluster subgraph): members stay in this scope,
+                // and an edge to the group reaches every member
+                List<String> outer = groupMembers;
+                List<String> members = new ArrayList<>();
+                groupMembers = members;
+                plainGroupDepth++;
+                try {
+                    parseStatements(scope, defaults.copy(), false);
+                } finally {
+                    plainGroupDepth--;
+                    groupMembers = outer;
+                }
+                if (outer != null) outer.addAll(members);
+                names.addAll(members);
+            }
+            return names;
+        }
+        if (t.type != Type.WORD && t.type != Type.STRING) return null;
+        tokens.next();
+        String id = t.text;
+        // Skip a port: a:port or a:port:compass
+        while (tokens.peek().isPunct(':')) {
+            tokens.next();
+            tokens.next();
+        }
+        if (!(tokens.peek().type == Type.OP && tokens.peek().text.equals("="))) {
+            boolean created = !builder.exists(id);
+            FlowNode node = builder.node(id, scope);
+            if (created && !defaults.node.isEmpty()) applyNodeAttrs(node, defaults.node);
+            if (groupMembers != null) groupMembers.add(id);
+        }
+        names.add(id);
+        return names;
+    }
+
+    private Map<String, String> parseAttrList() throws IOException {
+        Map<String, String> attrs = new HashMap<>();
+        while (tokens.peek().isPunct('[')) {
+            tokens.next();
+            while (true) {
+                Token t = tokens.next();
+                if (t.type == Type.EOF || t.isPunct(']')) break;
+                if (t.isPunct(',') || t.isPunct(';')) continue;
+                String key = t.text.toLowerCase();
+                if (tokens.peek().type == Type.OP && tokens.peek().text.equals("=")) {
+                    tokens.next();
+                    attrs.put(key, readValue());
+                } else {
+                    attrs.put(key, "true");
+                }
+            }
+        }
+        return attrs;
+    }
+
+    private String readValue() throws IOException {
+        Token v = tokens.next();
+        if (v.type == Type.OP && v.text.startsWith("<")) {
+            // HTML-like label: read up to the matching '>' and keep the text only
+            StringBuilder sb = new StringBuilder(v.text.substring(1));
+            int depth = 1 + countChar(v.text.substring(1), '<') - countChar(v.text.substring(1), '>');
+            while (depth > 0) {
+                int c = tokens.readChar();
+                if (c < 0) break;
+                if (c == '<') depth++;
+                else if (c == '>') depth--;
+                if (depth > 0) sb.append((char) c);
+            }
+            return sb.toString().replaceAll("<[^>]*>", " ").replaceAll("\\s+", " ").trim();
+        }
+        if (v.type == Type.OP && v.text.equals("-") && tokens.peek().type == Type.WORD) {
+            return "-" + tokens.next().text;
+        }
+        // A '+' concatenation of quoted strings
+        StringBuilder value = new StringBuilder(v.text);
+        while (tokens.peek().isPunct('+')) {
+            tokens.next();
+            value.append(tokens.next().text);
+        }
+        return value.toString();
+    }
+
+    private static int countChar(String s, char c) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == c) n++;
+        return n;
+    }
+
+    private void applyGraphAttrs(GraphModelBuilder.Scope scope, Map<String, String> attrs, boolean rootLevel) {
+        String label = attrs.get("label");
+        if (label == null || label.isEmpty() || plainGroupDepth > 0) return;
+        if (rootLevel) {
+            builder.setName(label);
+        } else if (scope.owner != null) {
+            scope.owner.setText(label);
+            scope.title = label;
+        }
+    }
+
+    private void applyNodeAttrs(FlowNode node, Map<String, String> attrs) {
+        String label = attrs.get("label");
+        if (label != null && !label.equals("\\N")) node.setText(label);
+        String shape = attrs.get("shape");
+        if (shape != null) node.setShape(mapShape(shape));
+        String fill = attrs.get("fillcolor");
+        if (isHexColor(fill)) node.setFillColorHex(fill);
+        String border = attrs.get("color");
+        if (isHexColor(border)) node.setBorderColorHex(border);
+        String font = attrs.get("fontcolor");
+        if (isHexColor(font)) node.setTextColorHex(font);
+        String tooltip = attrs.get("tooltip");
+        if (tooltip != null) node.setNotes(tooltip);
+    }
+
+    private void applyEdgeAttrs(FlowConnection conn, Map<String, String> attrs) {
+        String dir = attrs.get("dir");
+        if (dir == null) dir = directed ? "forward" : "none";
+        switch (dir.toLowerCase()) {
+            case "back": conn.setDirectionStyle(FlowConnection.DirectionStyle.TO_FROM); break;
+            case "both": conn.setDirectionStyle(FlowConnection.DirectionStyle.BIDIRECTIONAL); break;
+            case "none": conn.setDirectionStyle(FlowConnection.DirectionStyle.NONE); break;
+            default: conn.setDirectionStyle(FlowConnection.DirectionStyle.FROM_TO); break;
+        }
+        String style = attrs.get("style");
+        if (style != null) {
+            String s = style.toLowerCase();
+            if (s.contains("dashed") || s.contains("dotted")) conn.setType(FlowConnection.ConnectionType.CONDITIONAL);
+            else if (s.contains("bold")) conn.setType(FlowConnection.ConnectionType.ERROR);
+        }
+        String color = attrs.get("color");
+        if (isHexColor(color)) {
+            conn.setLineColorHex(color);
+            conn.setArrowColorHex(color);
+        }
+        String label = attrs.get("label");
+        if (label != null && !label.isEmpty()) conn.setProtocol(label);
+    }
+
+    private static FlowNode.NodeShape mapShape(String shape) {
+        switch (shape.toLowerCase()) {
+            case "square": return FlowNode.NodeShape.SQUARE;
+            case "circle":
+            case "doublecircle":
+            case "point": return FlowNode.NodeShape.CIRCLE;
+            case "ellipse":
+            case "oval": return FlowNode.NodeShape.OVAL;
+            case "diamond": return FlowNode.NodeShape.DIAMOND;
+            default: return FlowNode.NodeShape.RECTANGLE;
+        }
+    }
+
+    private static boolean isHexColor(String s) {
+        return s != null && s.matches("#[0-9a-fA-F]{6}");
+    }
+
+    private void expectPunct(char c) throws IOException {
+        Token t = tokens.next();
+        if (!t.isPunct(c)) {
+            throw new IOException("Line " + t.line + ": expected '" + c + "' but found '" + t.text + "'");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+
+import java.io.IOException;
+
+/**
+ * Picks the importer for a file from its extension: Mermaid (.mmd, .mermaid), Graphviz DOT
+ * (.dot, .gv) or, for anything else, Markdown.
+ */
+public final class FlowImporters {
+
+    private FlowImporters() {
+    }
+
+    public static boolean isMermaid(String filePath) {
+        String p = filePath.toLowerCase();
+        return p.endsWith(".mmd") || p.endsWith(".mermaid");
+    }
+
+    public static boolean isDot(String filePath) {
+        String p = filePath.toLowerCase();
+        return p.endsWith(".dot") || p.endsWith(".gv");
+    }
+
+    public static boolean isMarkdown(String filePath) {
+        return !isMermaid(filePath) && !isDot(filePath);
+    }
+
+    public static FlowDiagram importFile(String filePath) throws IOException {
+        if (isMermaid(filePath)) return new MermaidImporter().importFlow(filePath);
+        if (isDot(filePath)) return new DotImporter().importFlow(filePath);
+        return new MarkdownImporter().importFlow(filePath);
+    }
+}
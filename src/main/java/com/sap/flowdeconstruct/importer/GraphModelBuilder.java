@@ -0,0 +1,162 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects nodes, edges and subgraphs while a graph-description file is being parsed and turns
+ * them into a {@link FlowDiagram} tree at the end. Subgraphs become nodes whose sub-flow holds the
+ * subgraph's members. A node belongs to the scope it is first mentioned in; an edge is placed in the
+ * innermost scope containing both ends, with each end lifted to its ancestor in that scope.
+ * All lookups are hash based, so building is linear in the number of statements.
+ */
+final class GraphModelBuilder {
+
+    private static final int GRID_SPACING_X = 160;
+    private static final int GRID_SPACING_Y = 80;
+    private static final int GRID_MARGIN = 50;
+
+    static final class Scope {
+        final Scope parent;
+        final FlowNode owner;
+        final int depth;
+        final List<FlowNode> nodes = new ArrayList<>();
+        final List<FlowConnection> connections = new ArrayList<>();
+        final Set<String> connectionKeys = new HashSet<>();
+        String title;
+
+        Scope(Scope parent, FlowNode owner) {
+            this.parent = parent;
+            this.owner = owner;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+    }
+
+    private static final class Entry {
+        final FlowNode node;
+        final Scope scope;
+        Scope childScope;
+
+        Entry(FlowNode node, Scope scope) {
+            this.node = node;
+            this.scope = scope;
+        }
+    }
+
+    private final Scope root = new Scope(null, null);
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final List<Scope> subScopes = new ArrayList<>();
+    private String name;
+
+    Scope getRoot() {
+        return root;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the node with the given name, creating it in {@code scope} on first mention.
+     */
+    FlowNode node(String nodeName, Scope scope) {
+        Entry e = byName.get(nodeName);
+        if (e == null) {
+            FlowNode node = new FlowNode(nodeName);
+            e = new Entry(node, scope);
+            byName.put(nodeName, e);
+            scope.nodes.add(node);
+        }
+        return e.node;
+    }
+
+    boolean exists(String nodeName) {
+        return byName.containsKey(nodeName);
+    }
+
+    /**
+     * Opens a subgraph inside {@code parent}. The subgraph is represented by a node in the parent scope
+     * (reused if an edge already mentioned the name) and its members go into a new child scope.
+     */
+    Scope subgraph(String subgraphName, String title, Scope parent) {
+        FlowNode owner = node(subgraphName, parent);
+        Entry e = byName.get(subgraphName);
+        if (e.childScope == null) {
+            e.childScope = new Scope(e.scope, owner);
+            subScopes.add(e.childScope);
+        }
+        if (title != null && !title.isEmpty()) {
+            owner.setText(title);
+            e.childScope.title = title;
+        }
+        return e.childScope;
+    }
+
+    /**
+     * Adds an edge between two named nodes. Returns the connection, or null if it was a duplicate
+     * or both ends collapse onto the same node.
+     */
+    FlowConnection edge(String fromName, String toName) {
+        Entry a = byName.get(fromName);
+        Entry b = byName.get(toName);
+        if (a == null || b == null) return null;
+
+        Scope sa = a.scope;
+        Scope sb = b.scope;
+        FlowNode na = a.node;
+        FlowNode nb = b.node;
+        // Walk the deeper end up until both ends live in the same scope
+        while (sa != sb) {
+            if (sa.depth >= sb.depth) {
+                na = sa.owner;
+                sa = sa.parent;
+            } else {
+                nb = sb.owner;
+                sb = sb.parent;
+            }
+        }
+        if (na == nb) return null;
+
+        String key = na.getId() + "|" + nb.getId();
+        if (!sa.connectionKeys.add(key)) return null;
+        FlowConnection conn = new FlowConnection(na, nb);
+        sa.connections.add(conn);
+        return conn;
+    }
+
+    int getNodeCount() {
+        return byName.size();
+    }
+
+    /**
+     * Builds the diagram tree, adding each scope's contents through {@link FlowDiagram#addAll}.
+     */
+    FlowDiagram build() {
+        for (Scope scope : subScopes) {
+            FlowDiagram sub = new FlowDiagram(scope.title != null ? scope.title : scope.owner.getText());
+            place(scope.nodes);
+            sub.addAll(scope.nodes, scope.connections);
+            scope.owner.setSubFlow(sub);
+        }
+        FlowDiagram diagram = new FlowDiagram(name != null && !name.isEmpty() ? name : "Imported Flow");
+        place(root.nodes);
+        diagram.addAll(root.nodes, root.connections);
+        return diagram;
+    }
+
+    /** Text formats carry no coordinates; nodes are laid out on a grid in declaration order. */
+    private static void place(List<FlowNode> nodes) {
+        int perRow = Math.max(1, (int) Math.ceil(Math.sqrt(nodes.size())));
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.get(i).setPosition(GRID_MARGIN + (i % perRow) * GRID_SPACING_X, GRID_MARGIN + (i / perRow) * GRID_SPACING_Y);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.sap.flowdeconstruct.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming tokenizer shared by the graph-description importers (DOT, Mermaid).
+ * Reads one character at a time from a {@link Reader}, so input of any size is parsed in a single pass
+ * without being held in memory. Besides tokens, it offers raw reads ({@link #readRawUntil}) for the
+ * free-text parts of a syntax such as Mermaid node labels.
+ */
+final class GraphTextTokenizer {
+
+    enum Type { WORD, STRING, OP, PUNCT, NEWLINE, COMMENT, EOF }
+
+    static final class Token {
+        final Type type;
+        final String text;
+        final int line;
+
+        Token(Type type, String text, int line) {
+            this.type = type;
+            this.text = text;
+            this.line = line;
+        }
+
+        boolean is(Type t, String s) {
+            return type == t && text.equals(s);
+        }
+
+        boolean isPunct(char c) {
+            return type == Type.PUNCT && text.length() == 1 && text.charAt(0) == c;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(" + text + ")@" + line;
+        }
+    }
+
+    private static final String OP_CHARS = "-=.<>";
+
+    private final Reader in;
+    private final boolean newlines;
+    private final String[] lineComments;
+    private final boolean blockComments;
+    private final boolean emitComments;
+
+    private int pushedChar = -2;
+    private Token peeked;
+    private Token pending;
+    private int line = 1;
+    private boolean atLineStart = true;
+    private final StringBuilder buf = new StringBuilder(64);
+
+    /**
+     * @param newlines      emit {@link Type#NEWLINE} tokens (statement separators in Mermaid)
+     * @param lineComments  prefixes that start a comment running to the end of the line
+     * @param blockComments recognize C-style block comments
+     * @param emitComments  return line comments as {@link Type#COMMENT} tokens instead of dropping them
+     */
+    GraphTextTokenizer(Reader in, boolean newlines, String[] lineComments, boolean blockComments, boolean emitComments) {
+        this.in = in;
+        this.newlines = newlines;
+        this.lineComments = lineComments;
+        this.blockComments = blockComments;
+        this.emitComments = emitComments;
+    }
+
+    int getLine() {
+        return peeked != null ? peeked.line : line;
+    }
+
+    Token peek() throws IOException {
+        if (peeked == null) peeked = read();
+        return peeked;
+    }
+
+    Token next() throws IOException {
+        Token t = peek();
+        peeked = null;
+        return t;
+    }
+
+    /** Skips tokens up to and including the next statement separator (newline or ';'). */
+    void skipStatement() throws IOException {
+        while (true) {
+            Token t = next();
+            if (t.type == Type.EOF || t.type == Type.NEWLINE || t.isPunct(';')) return;
+        }
+    }
+
+    // ---- raw character access (only valid while no token is peeked) ----
+
+    int peekChar() throws IOException {
+        if (pushedChar == -2) pushedChar = in.read();
+        return pushedChar;
+    }
+
+    int readChar() throws IOException {
+        int c = peekChar();
+        pushedChar = -2;
+        if (c == '\n') {
+            line++;
+            atLineStart = true;
+        } else if (c != ' ' && c != '\t' && c != '\r') {
+            atLineStart = false;
+        }
+        return c;
+    }
+
+    /**
+     * Reads raw text until one of the closing sequences is found. The closer is consumed and its
+     * index is stored in {@code matched[0]} (or -1 at end of input). A leading quoted string is read
+     * verbatim, so closers inside quotes do not end the text.
+     */
+    String readRawUntil(String[] closers, int[] matched) throws IOException {
+        if (peeked != null) throw new IllegalStateException("Raw read after peek");
+        buf.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            int c = readChar();
+            if (c < 0) {
+                matched[0] = -1;
+                return buf.toString();
+            }
+            if (c == '"') quoted = !quoted;
+            buf.append((char) c);
+            if (quoted) continue;
+            for (int i = 0; i < closers.length; i++) {
+                String closer = closers[i];
+                int len = closer.length();
+                if (buf.length() >= len && endsWith(buf, closer)) {
+                    buf.setLength(buf.length() - len);
+                    matched[0] = i;
+                    return buf.toString();
+                }
+            }
+        }
+    }
+
+    private static boolean endsWith(StringBuilder sb, String s) {
+        int off = sb.length() - s.length();
+        for (int i = 0; i < s.length(); i++) {
+            if (sb.charAt(off + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ---- tokenizing ----
+
+    private Token read() throws IOException {
+        while (true) {
+            int c = peekChar();
+            if (c < 0) return new Token(Type.EOF, "", line);
+
+            if (c == '\n') {
+                int l = line;
+                readChar();
+                if (newlines) return new Token(Type.NEWLINE, "\n", l);
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                readChar();
+                continue;
+            }
+
+            boolean lineStart = atLineStart;
+            String comment = tryComment(lineStart);
+            if (comment != null) {
+                if (emitComments) return new Token(Type.COMMENT, comment, line);
+                continue;
+            }
+            if (pending != null) {
+                Token t = pending;
+                pending = null;
+                return t;
+            }
+
+            int l = line;
+            if (c == '"') {
+                readChar();
+                return new Token(Type.STRING, readQuoted(), l);
+            }
+            if (isWordChar(c)) {
+                buf.setLength(0);
+                boolean number = Character.isDigit(c);
+                while (true) {
+                    int d = peekChar();
+                    if (d >= 0 && (isWordChar(d) || (number && d == '.'))) {
+                        buf.append((char) readChar());
+                    } else {
+                        break;
+                    }
+                }
+                return new Token(Type.WORD, buf.toString(), l);
+            }
+            if (OP_CHARS.indexOf(c) >= 0) {
+                buf.setLength(0);
+                while (true) {
+                    int d = peekChar();
+                    if (d >= 0 && OP_CHARS.indexOf(d) >= 0) {
+                        buf.append((char) readChar());
+                    } else {
+                        break;
+                    }
+                }
+                return new Token(Type.OP, buf.toString(), l);
+            }
+            readChar();
+            return new Token(Type.PUNCT, String.valueOf((char) c), l);
+        }
+    }
+
+    /**
+     * Consumes a comment at the current position, returning its text, or returns null if none starts here.
+     * Only single-character lookahead is available, so two-character prefixes are confirmed after
+     * consuming the first character; on a mismatch that character is returned as punctuation by the caller.
+     */
+    private String tryComment(boolean lineStart) throws IOException {
+        int c = peekChar();
+        for (String prefix : lineComments) {
+            if (prefix.charAt(0) != c) continue;
+            if (prefix.length() == 1) {
+                // Single-character prefixes ('#' in DOT) only count at the start of a line
+                if (!lineStart) continue;
+                readChar();
+                return readLineRest();
+            }
+            readChar();
+            int d = peekChar();
+            if (d == prefix.charAt(1)) {
+                readChar();
+                return readLineRest();
+            }
+            if (blockComments && c == '/' && d == '*') {
+                readChar();
+                skipBlockComment();
+                return "";
+            }
+            // Not a comment: hand the consumed character back as its own token
+            pushBackToken(c);
+            return null;
+        }
+        return null;
+    }
+
+    private void pushBackToken(int c) {
+        Type type = OP_CHARS.indexOf(c) >= 0 ? Type.OP : Type.PUNCT;
+        pending = new Token(type, String.valueOf((char) c), line);
+    }
+
+    private String readLineRest() throws IOException {
+        buf.setLength(0);
+        while (true) {
+            int c = peekChar();
+            if (c < 0 || c == '\n') break;
+            buf.append((char) readChar());
+        }
+        return buf.toString().trim();
+    }
+
+    private void skipBlockComment() throws IOException {
+        int prev = 0;
+        while (true) {
+            int c = readChar();
+            if (c < 0 || (prev == '*' && c == '/')) return;
+            prev = c;
+        }
+    }
+
+    private String readQuoted() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = readChar();
+            if (c < 0 || c == '"') break;
+            if (c == '\\') {
+                int d = readChar();
+                if (d < 0) break;
+                if (d == 'n' || d == 'l' || d == 'r') {
+                    sb.append('\n');
+                } else if (d == '"' || d == '\\') {
+                    sb.append((char) d);
+                } else if (d == '\n') {
+                    // line continuation
+                } else {
+                    sb.append('\\').append((char) d);
+                }
+            } else {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isWordChar(int c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c > 127;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sap.flowdeconstruct.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diagnostics collected while importing a flow: lines that were skipped, values that could not be
+ * parsed and connections whose endpoints do not exist. Every problem is counted, but only the first
+ * {@link #MAX_ENTRIES} are kept with their details so that pathological input cannot exhaust memory.
+ */
+public class ImportReport {
+
+    public static final int MAX_ENTRIES = 500;
+    private static final int MAX_EXCERPT = 120;
+
+    public enum Kind {
+        /** A non-empty line that matched no known syntax. */
+        SKIPPED_LINE,
+        /** A known field whose value could not be parsed; the default was kept. */
+        INVALID_VALUE,
+        /** A node attribute line that appeared before any node. */
+        ORPHAN_ATTRIBUTE,
+        /** A node id that was already used; the later node was ignored. */
+        DUPLICATE_ID,
+        /** A connection line without both From: and To:. */
+        MALFORMED_CONNECTION,
+        /** A connection referencing a node id that does not exist. */
+        UNRESOLVED_REFERENCE,
+        /** A connection that repeats an earlier from/to pair, or connects a node to itself. */
+        DUPLICATE_CONNECTION
+    }
+
+    /**
+     * One diagnostic. Line numbers are 1-based and refer to the source file.
+     */
+    public static final class Entry {
+        private final Kind kind;
+        private final int line;
+        private final String message;
+        private final String excerpt;
+
+        Entry(Kind kind, int line, String message, String excerpt) {
+            this.kind = kind;
+            this.line = line;
+            this.message = message;
+            this.excerpt = excerpt;
+        }
+
+        public Kind getKind() { return kind; }
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+        public String getExcerpt() { return excerpt; }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + kind + " - " + message + (excerpt.isEmpty() ? "" : " [" + excerpt + "]");
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Kind, Integer> counts = new EnumMap<>(Kind.class);
+    private int linesRead;
+    private int nodesImported;
+    private int connectionsImported;
+    private long elapsedNanos;
+
+    void add(Kind kind, int line, String message, String source) {
+        counts.merge(kind, 1, Integer::sum);
+        if (entries.size() < MAX_ENTRIES) {
+            entries.add(new Entry(kind, line, message, excerpt(source)));
+        }
+    }
+
+    void setLinesRead(int linesRead) { this.linesRead = linesRead; }
+    void setNodesImported(int nodesImported) { this.nodesImported = nodesImported; }
+    void setConnectionsImported(int connectionsImported) { this.connectionsImported = connectionsImported; }
+    void setElapsedNanos(long elapsedNanos) { this.elapsedNanos = elapsedNanos; }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public List<Entry> getEntries(Kind kind) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry e : entries) {
+            if (e.kind == kind) result.add(e);
+        }
+        return result;
+    }
+
+    /** Total number of problems of the given kind, including those beyond {@link #MAX_ENTRIES}. */
+    public int getCount(Kind kind) {
+        Integer n = counts.get(kind);
+        return n != null ? n : 0;
+    }
+
+    public int getProblemCount() {
+        int total = 0;
+        for (int n : counts.values()) total += n;
+        return total;
+    }
+
+    public boolean hasProblems() {
+        return !counts.isEmpty();
+    }
+
+    public List<Entry> getSkippedLines() {
+        return getEntries(Kind.SKIPPED_LINE);
+    }
+
+    public List<Entry> getUnresolvedReferences() {
+        return getEntries(Kind.UNRESOLVED_REFERENCE);
+    }
+
+    public int getLinesRead() { return linesRead; }
+    public int getNodesImported() { return nodesImported; }
+    public int getConnectionsImported() { return connectionsImported; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /** One-line summary, e.g. for a status bar or log. */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(nodesImported).append(" nodes, ").append(connectionsImported).append(" connections from ")
+          .append(linesRead).append(" lines");
+        if (hasProblems()) {
+            sb.append("; ").append(getProblemCount()).append(" problem(s):");
+            for (Map.Entry<Kind, Integer> e : counts.entrySet()) {
+                sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getSummary());
+        for (Entry e : entries) {
+            sb.append('\n').append(e);
+        }
+        if (getProblemCount() > entries.size()) {
+            sb.append("\n... ").append(getProblemCount() - entries.size()).append(" more");
+        }
+        return sb.toString();
+    }
+
+    private static String excerpt(String s) {
+        if (s == null) return "";
+        return s.length() <= MAX_EXCERPT ? s : s.substring(0, MAX_EXCERPT) + "...";
+    }
+}
@@ -1,9 +1,11 @@
 package com.sap.flowdeconstruct.importer;
 
+import com.sap.flowdeconstruct.importer.ImportReport.Kind;
 import com.sap.flowdeconstruct.model.FlowDiagram;
 import com.sap.flowdeconstruct.model.FlowNode;
 import com.sap.flowdeconstruct.model.FlowConnection;
 import org.commonmark.node.*;
+import org.commonmark.parser.IncludeSourceSpans;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.text.TextContentRenderer;
 import java.io.IOException;
@@ -11,280 +13,568 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 
+/**
+ * Imports the Markdown format written by {@code MarkdownExporter}. The document is read line by line;
+ * anything that cannot be interpreted is recorded in an {@link ImportReport} with its source line
+ * instead of being dropped silently. Connections are resolved after all nodes are known, so they may
+ * refer to nodes declared further down. Every step is linear in the input size.
+ */
 public class MarkdownImporter {
 
+    /** A logical line of the document together with its 1-based source line number. */
+    private static final class Line {
+        final int number;
+        final String text;
+
+        Line(int number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    /** A connection read from the Connections section, resolved once all nodes are known. */
+    private static final class PendingConnection {
+        final int line;
+        final String source;
+        final String from;
+        final String to;
+        String type = "NORMAL";
+        String direction;
+        String protocol;
+        String lineColor;
+        String arrowColor;
+
+        PendingConnection(int line, String source, String from, String to) {
+            this.line = line;
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final TextContentRenderer renderer = TextContentRenderer.builder().build();
+
     public FlowDiagram importFlow(String filePath) throws IOException {
+        return importFlow(filePath, new ImportReport());
+    }
+
+    /**
+     * Imports a file, recording skipped lines, invalid values and unresolved references in {@code report}.
+     */
+    public FlowDiagram importFlow(String filePath, ImportReport report) throws IOException {
         String content = new String(Files.readAllBytes(Paths.get(filePath)));
-        Parser parser = Parser.builder().build();
-        Node document = parser.parse(content);
-        return parseDocument(document);
+        return importFlowFromString(content, report);
     }
 
-    private FlowDiagram parseDocument(Node document) {
-        FlowDiagram currentFlow = new FlowDiagram();
-        List<String> lines = getAllLines(document);
+    /**
+     * Parses Markdown content that is already in memory (e.g. read by a file watcher).
+     */
+    public FlowDiagram importFlowFromString(String content) {
+        return importFlowFromString(content, new ImportReport());
+    }
+
+    public FlowDiagram importFlowFromString(String content, ImportReport report) {
+        long start = System.nanoTime();
+        List<String> sourceLines = new ArrayList<>();
+        BitSet escapedLines = new BitSet();
+        String normalized = stripIndentation(content != null ? content : "", sourceLines, escapedLines);
+        Parser parser = Parser.builder().includeSourceSpans(IncludeSourceSpans.BLOCKS).build();
+        Node document = parser.parse(normalized);
+        FlowDiagram flow = parseDocument(getAllLines(document, sourceLines, escapedLines, report), report);
+        report.setLinesRead(sourceLines.size());
+        report.setNodesImported(flow.getNodeCount());
+        report.setConnectionsImported(flow.getConnectionCount());
+        report.setElapsedNanos(System.nanoTime() - start);
+        return flow;
+    }
+
+    private FlowDiagram parseDocument(List<Line> lines, ImportReport report) {
+        String name = null;
+        Map<String, FlowNode> nodesById = new LinkedHashMap<>();
+        List<PendingConnection> pending = new ArrayList<>();
         boolean inConnectionsSection = false;
         FlowNode currentNode = null;
 
-        for (String rawLine : lines) {
-            String trimmed = rawLine.trim();
+        for (Line line : lines) {
+            String trimmed = line.text.trim();
             if (trimmed.isEmpty()) continue;
 
             // Remove possíveis marcadores de lista antes de analisar ("- ", "* ", "1. ", etc.)
             String normalized = stripListMarker(trimmed);
 
             if (normalized.startsWith("# ")) {
-                currentFlow.setName(normalized.substring(2).trim());
+                // Sub-flows are flattened into the main flow; their headings do not rename it
+                if (name == null) name = normalized.substring(2).trim();
                 inConnectionsSection = false;
             } else if (isConnectionsHeading(normalized)) {
                 inConnectionsSection = true;
-            } else if (!inConnectionsSection) {
-                // Parse node
-                if (normalized.startsWith("[")) {
-                    int idEnd = normalized.indexOf("]");
-                    if (idEnd != -1) {
-                        String id = normalized.substring(1, idEnd).trim();
-                        String text = normalized.substring(idEnd + 1).trim();
-                        // Accept any valid ID format, not just UUID
-                        if (id.length() > 0 && !id.contains("[") && !id.contains("]")) {
-                            String unescapedText = unescapeMarkdown(text);
-                            FlowNode flowNode = new FlowNode(unescapedText);
-                            flowNode.setId(id);
-                            currentFlow.addNode(flowNode);
-                            currentNode = flowNode;
-                        }
-                    }
-                } else if ((normalized.startsWith("Position:")) && currentNode != null) {
-                    // Parse position line: Position: x, y
-                    try {
-                        String coords = normalized.substring("Position:".length()).trim();
-                        String[] parts = coords.split(",");
-                        if (parts.length >= 2) {
-                            int x = Integer.parseInt(parts[0].trim());
-                            int y = Integer.parseInt(parts[1].trim());
-                            currentNode.setPosition(x, y);
-                        }
-                    } catch (Exception ignore) {
-                        // If parsing fails, keep default position (0,0)
-                    }
-                } else if ((normalized.startsWith("Size:")) && currentNode != null) {
-                    // Parse size line: Size: w, h
-                    try {
-                        String dims = normalized.substring("Size:".length()).trim();
-                        String[] parts = dims.split(",");
-                        if (parts.length >= 2) {
-                            int w = Integer.parseInt(parts[0].trim());
-                            int h = Integer.parseInt(parts[1].trim());
-                            currentNode.setWidth(w);
-                            currentNode.setHeight(h);
-                        }
-                    } catch (Exception ignore) {
-                        // keep defaults
-                    }
-                } else if ((normalized.startsWith("Shape:")) && currentNode != null) {
-                    try {
-                        String shapeStr = normalized.substring("Shape:".length()).trim();
-                        // aceitar sinônimo comum
-                        if ("ELLIPSE".equalsIgnoreCase(shapeStr)) {
-                            shapeStr = "OVAL";
-                        }
-                        currentNode.setShape(FlowNode.NodeShape.valueOf(shapeStr));
-                    } catch (Exception ignore) {
-                        // keep default RECTANGLE
-                    }
-                } else if ((normalized.startsWith("FillColor:")) && currentNode != null) {
-                    String color = normalized.substring("FillColor:".length()).trim();
-                    currentNode.setFillColorHex(color);
-                } else if ((normalized.startsWith("BorderColor:")) && currentNode != null) {
-                    String color = normalized.substring("BorderColor:".length()).trim();
-                    currentNode.setBorderColorHex(color);
-                } else if ((normalized.startsWith("TextColor:")) && currentNode != null) {
-                    String color = normalized.substring("TextColor:".length()).trim();
-                    currentNode.setTextColorHex(color);
-                } else if ((normalized.startsWith("TextFontFamily:")) && currentNode != null) {
-                    String fam = normalized.substring("TextFontFamily:".length()).trim();
-                    currentNode.setTextFontFamily(fam);
-                } else if ((normalized.startsWith("TextFontSize:")) && currentNode != null) {
-                    String szStr = normalized.substring("TextFontSize:".length()).trim();
-                    try { currentNode.setTextFontSize(Integer.parseInt(szStr)); } catch (Exception ignore) {}
-                } else if ((normalized.startsWith("TextFontBold:")) && currentNode != null) {
-                    String val = normalized.substring("TextFontBold:".length()).trim();
-                    boolean bold = Boolean.parseBoolean(val);
-                    int style = currentNode.getTextFontStyle();
-                    if (bold) style |= java.awt.Font.BOLD; else style &= ~java.awt.Font.BOLD;
-                    currentNode.setTextFontStyle(style);
-                } else if ((normalized.startsWith("TextFontItalic:")) && currentNode != null) {
-                    String val = normalized.substring("TextFontItalic:".length()).trim();
-                    boolean italic = Boolean.parseBoolean(val);
-                    int style = currentNode.getTextFontStyle();
-                    if (italic) style |= java.awt.Font.ITALIC; else style &= ~java.awt.Font.ITALIC;
-                    currentNode.setTextFontStyle(style);
-                } else if ((normalized.startsWith("*Notes:") || normalized.startsWith("Notes:")) && currentNode != null) {
-                    // Parse note line
-                    String noteText = normalized;
-                    if (noteText.startsWith("*Notes:")) {
-                        noteText = noteText.substring(7).trim();
-                        if (noteText.endsWith("*")) {
-                            noteText = noteText.substring(0, noteText.length() - 1);
-                        }
-                    } else if (noteText.startsWith("Notes:")) {
-                        noteText = noteText.substring(6).trim();
-                    }
-                    // Unescape markdown to match exporter
-                    String unescaped = unescapeMarkdown(noteText);
-                    currentNode.setNotes(unescaped.trim());
+            } else if (normalized.startsWith("#")) {
+                report.add(Kind.SKIPPED_LINE, line.number, "Unrecognized heading", trimmed);
+            } else if (normalized.startsWith("[")) {
+                // A node after a Connections section belongs to the parent flow of a flattened sub-flow
+                inConnectionsSection = false;
+                currentNode = parseNode(normalized, line, nodesById, report);
+            } else if (inConnectionsSection) {
+                PendingConnection conn = parseConnection(normalized, line, report);
+                if (conn != null) pending.add(conn);
+            } else if (!parseAttribute(normalized, line, currentNode, report)) {
+                report.add(Kind.SKIPPED_LINE, line.number, "Unrecognized line", trimmed);
+            }
+        }
+
+        List<FlowConnection> connections = resolveConnections(pending, nodesById, report);
+        FlowDiagram flow = new FlowDiagram();
+        if (name != null) flow.setName(name);
+        flow.addAll(nodesById.values(), connections);
+        return flow;
+    }
+
+    /**
+     * Parses a {@code [id] text} line. Returns the node that following attribute lines apply to,
+     * or null if the line is not a valid node.
+     */
+    private FlowNode parseNode(String normalized, Line line, Map<String, FlowNode> nodesById, ImportReport report) {
+        int idEnd = normalized.indexOf(']');
+        String id = idEnd != -1 ? normalized.substring(1, idEnd).trim() : "";
+        // Accept any valid ID format, not just UUID
+        if (id.isEmpty() || id.indexOf('[') != -1) {
+            report.add(Kind.SKIPPED_LINE, line.number, "Invalid node id", normalized);
+            return null;
+        }
+        String text = normalized.substring(idEnd + 1).trim();
+        FlowNode flowNode = new FlowNode(unescapeMarkdown(text));
+        flowNode.setId(id);
+        if (nodesById.containsKey(id)) {
+            // Attributes that follow still go to this node so they do not overwrite the first one
+            report.add(Kind.DUPLICATE_ID, line.number, "Node id already used: " + id, normalized);
+        } else {
+            nodesById.put(id, flowNode);
+        }
+        return flowNode;
+    }
+
+    /**
+     * Applies a node attribute line such as {@code Position: 10, 20}. Returns false if the line is
+     * not an attribute at all.
+     */
+    private boolean parseAttribute(String normalized, Line line, FlowNode currentNode, ImportReport report) {
+        int colon = normalized.indexOf(':');
+        if (colon <= 0) return false;
+        String key = normalized.substring(0, colon);
+        String value = normalized.substring(colon + 1).trim();
+        boolean italicNotes = key.equals("*Notes");
+        if (!isAttributeKey(key) && !italicNotes) return false;
+        if (currentNode == null) {
+            report.add(Kind.ORPHAN_ATTRIBUTE, line.number, key + " before any node", normalized);
+            return true;
+        }
+
+        switch (italicNotes ? "Notes" : key) {
+            case "Position": {
+                int[] xy = parseIntPair(value);
+                if (xy != null) currentNode.setPosition(xy[0], xy[1]);
+                else report.add(Kind.INVALID_VALUE, line.number, "Expected 'Position: x, y'", normalized);
+                break;
+            }
+            case "Size": {
+                int[] wh = parseIntPair(value);
+                if (wh != null) {
+                    currentNode.setWidth(wh[0]);
+                    currentNode.setHeight(wh[1]);
+                } else {
+                    report.add(Kind.INVALID_VALUE, line.number, "Expected 'Size: width, height'", normalized);
+                }
+                break;
+            }
+            case "Shape": {
+                // aceitar sinônimo comum
+                String shapeStr = "ELLIPSE".equalsIgnoreCase(value) ? "OVAL" : value;
+                FlowNode.NodeShape shape = parseEnum(FlowNode.NodeShape.class, shapeStr);
+                if (shape != null) currentNode.setShape(shape);
+                else report.add(Kind.INVALID_VALUE, line.number, "Unknown shape: " + value, normalized);
+                break;
+            }
+            case "FillColor":
+                currentNode.setFillColorHex(value);
+                break;
+            case "BorderColor":
+                currentNode.setBorderColorHex(value);
+                break;
+            case "TextColor":
+                currentNode.setTextColorHex(value);
+                break;
+            case "TextFontFamily":
+                currentNode.setTextFontFamily(value);
+                break;
+            case "TextFontSize": {
+                Integer size = parseInt(value);
+                if (size != null) currentNode.setTextFontSize(size);
+                else report.add(Kind.INVALID_VALUE, line.number, "Expected an integer font size", normalized);
+                break;
+            }
+            case "TextFontBold":
+            case "TextFontItalic": {
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    report.add(Kind.INVALID_VALUE, line.number, "Expected true or false", normalized);
+                    break;
+                }
+                int flag = key.equals("TextFontBold") ? java.awt.Font.BOLD : java.awt.Font.ITALIC;
+                int style = currentNode.getTextFontStyle();
+                if (Boolean.parseBoolean(value)) style |= flag; else style &= ~flag;
+                currentNode.setTextFontStyle(style);
+                break;
+            }
+            case "Pinned":
+            case "AutoFit": {
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    report.add(Kind.INVALID_VALUE, line.number, "Expected true or false", normalized);
+                    break;
+                }
+                if (key.equals("Pinned")) currentNode.setPinned(Boolean.parseBoolean(value));
+                else currentNode.setAutoFit(Boolean.parseBoolean(value));
+                break;
+            }
+            default: {
+                // Notes, either plain or as the exporter's "*Notes: ...*" when not parsed as emphasis
+                String noteText = value;
+                if (italicNotes && noteText.endsWith("*")) {
+                    noteText = noteText.substring(0, noteText.length() - 1);
                 }
+                // Unescape markdown to match exporter
+                currentNode.setNotes(unescapeMarkdown(noteText).trim());
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the line is a node, attribute or connection line, which the importer reads itself and
+     * which are therefore passed to the Markdown parser escaped. Only lines whose text after the list
+     * marker starts with a letter, {@code [} or {@code *} qualify, so escaping cannot change the block
+     * a line belongs to; {@code [label]:} lines stay link reference definitions.
+     */
+    private static boolean isFormatLine(String body) {
+        if (body.isEmpty()) return false;
+        char first = body.charAt(0);
+        if (first == '[') {
+            int close = body.indexOf(']');
+            return close == -1 || close + 1 >= body.length() || body.charAt(close + 1) != ':';
+        }
+        if (!Character.isLetter(first) && first != '*') return false;
+        if (body.contains("From:") || body.contains("To:")) return true;
+        int colon = body.indexOf(':');
+        if (colon <= 0) return false;
+        String key = body.substring(0, colon);
+        return isAttributeKey(key) || key.equals("*Notes");
+    }
+
+    /** Backslash-escapes every ASCII punctuation character, which Markdown then reads as literal text. */
+    private static void appendEscaped(StringBuilder sb, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128 && c > ' ' && !Character.isLetterOrDigit(c)) sb.append('\\');
+            sb.append(c);
+        }
+    }
+
+    private static boolean isAttributeKey(String key) {
+        switch (key) {
+            case "Position":
+            case "Size":
+            case "Shape":
+            case "FillColor":
+            case "BorderColor":
+            case "TextColor":
+            case "TextFontFamily":
+            case "TextFontSize":
+            case "TextFontBold":
+            case "TextFontItalic":
+            case "Pinned":
+            case "AutoFit":
+            case "Notes":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parses {@code From: a To: b (TYPE) Direction: d LineColor: c ArrowColor: c Protocol: text}.
+     * Fields are separated by runs of whitespace; the protocol is the raw rest of the line.
+     */
+    private PendingConnection parseConnection(String connLine, Line line, ImportReport report) {
+        boolean hasFrom = connLine.contains("From:");
+        boolean hasTo = connLine.contains("To:");
+        if (!hasFrom && !hasTo) {
+            report.add(Kind.SKIPPED_LINE, line.number, "Unrecognized line in Connections section", connLine);
+            return null;
+        }
+
+        String from = null;
+        String to = null;
+        String type = null;
+        String direction = null;
+        String protocol = null;
+        String lineColor = null;
+        String arrowColor = null;
+        int pos = 0;
+        int len = connLine.length();
+        while (pos < len) {
+            int tokenStart = skipWhitespace(connLine, pos);
+            if (tokenStart >= len) break;
+            int tokenEnd = skipToken(connLine, tokenStart);
+            String p = connLine.substring(tokenStart, tokenEnd);
+            pos = tokenEnd;
+            if (p.equals("Protocol:")) {
+                // Protocol may contain spaces; it is the last field on the line
+                protocol = connLine.substring(pos).trim();
+                break;
+            }
+            if (p.startsWith("(") && p.endsWith(")") && p.length() >= 2) {
+                type = p.substring(1, p.length() - 1);
+                continue;
+            }
+            if (!p.equals("From:") && !p.equals("To:") && !p.equals("Direction:")
+                    && !p.equals("LineColor:") && !p.equals("ArrowColor:")) {
+                continue;
+            }
+            int valueStart = skipWhitespace(connLine, pos);
+            if (valueStart >= len) break;
+            pos = skipToken(connLine, valueStart);
+            String value = connLine.substring(valueStart, pos);
+            switch (p) {
+                case "From:": from = value; break;
+                case "To:": to = value; break;
+                case "Direction:": direction = value; break;
+                case "LineColor:": lineColor = value; break;
+                default: arrowColor = value; break;
+            }
+        }
+
+        if (from == null || to == null) {
+            report.add(Kind.MALFORMED_CONNECTION, line.number, "Connection needs both 'From: id' and 'To: id'", connLine);
+            return null;
+        }
+        PendingConnection conn = new PendingConnection(line.number, connLine, from, to);
+        if (type != null) conn.type = type;
+        conn.direction = direction;
+        conn.protocol = protocol;
+        conn.lineColor = lineColor;
+        conn.arrowColor = arrowColor;
+        return conn;
+    }
+
+    private List<FlowConnection> resolveConnections(List<PendingConnection> pending, Map<String, FlowNode> nodesById, ImportReport report) {
+        List<FlowConnection> result = new ArrayList<>(pending.size());
+        Set<String> keys = new HashSet<>();
+        for (PendingConnection p : pending) {
+            FlowNode fromNode = nodesById.get(p.from);
+            FlowNode toNode = nodesById.get(p.to);
+            if (fromNode == null || toNode == null) {
+                String missing = fromNode == null ? p.from : p.to;
+                report.add(Kind.UNRESOLVED_REFERENCE, p.line, "Unknown node id: " + missing, p.source);
+                continue;
+            }
+            if (fromNode == toNode || !keys.add(p.from + "|" + p.to)) {
+                report.add(Kind.DUPLICATE_CONNECTION, p.line,
+                        fromNode == toNode ? "Connection from a node to itself" : "Connection already defined", p.source);
+                continue;
+            }
+
+            FlowConnection conn = new FlowConnection(fromNode, toNode);
+            FlowConnection.ConnectionType type = parseEnum(FlowConnection.ConnectionType.class, p.type.toUpperCase());
+            if (type != null) {
+                conn.setType(type);
             } else {
-                // Parse connection
-                String connLine = normalized;
-                if (connLine.contains("From:") && connLine.contains("To:")) {
-                    try {
-                        String from = null;
-                        String to = null;
-                        String type = "NORMAL";
-                        String direction = null;
-                        String protocol = null;
-                        String lineColor = null;
-                        String arrowColor = null;
-
-                        // Tokenize by spaces but keep simple parsing for labeled fields
-                        String[] parts = connLine.split(" ");
-                        for (int i = 0; i < parts.length; i++) {
-                            String p = parts[i];
-                            if ("From:".equals(p) && i + 1 < parts.length) {
-                                from = parts[++i];
-                            } else if ("To:".equals(p) && i + 1 < parts.length) {
-                                to = parts[++i];
-                            } else if (p.startsWith("(") && p.endsWith(")")) {
-                                type = p.substring(1, p.length() - 1);
-                            } else if ("Direction:".equals(p) && i + 1 < parts.length) {
-                                direction = parts[++i];
-                            } else if ("LineColor:".equals(p) && i + 1 < parts.length) {
-                                lineColor = parts[++i];
-                            } else if ("ArrowColor:".equals(p) && i + 1 < parts.length) {
-                                arrowColor = parts[++i];
-                            } else if ("Protocol:".equals(p) && i + 1 < parts.length) {
-                                // Protocol may contain spaces; capture the rest of the line after this token
-                                StringBuilder protoSb = new StringBuilder();
-                                for (int j = i + 1; j < parts.length; j++) {
-                                    if (protoSb.length() > 0) protoSb.append(" ");
-                                    protoSb.append(parts[j]);
-                                }
-                                protocol = protoSb.toString().trim();
-                                break; // protocol is last meaningful field
-                            }
-                        }
-                        if (from != null && to != null) {
-                            FlowNode fromNode = currentFlow.findNodeById(from);
-                            FlowNode toNode = currentFlow.findNodeById(to);
-                            if (fromNode != null && toNode != null) {
-                                FlowConnection conn = currentFlow.addConnection(fromNode, toNode);
-                                if (conn != null) {
-                                    try {
-                                        conn.setType(FlowConnection.ConnectionType.valueOf(type.toUpperCase()));
-                                    } catch (IllegalArgumentException e) {
-                                        conn.setType(FlowConnection.ConnectionType.NORMAL);
-                                    }
-                                    // Direction style (tolerar sinônimos comuns)
-                                    if (direction != null) {
-                                        try {
-                                            String dirUp = direction.toUpperCase();
-                                            if ("FORWARD".equals(dirUp)) {
-                                                dirUp = "FROM_TO";
-                                            } else if ("BACKWARD".equals(dirUp) || "REVERSE".equals(dirUp)) {
-                                                dirUp = "TO_FROM";
-                                            }
-                                            conn.setDirectionStyle(FlowConnection.DirectionStyle.valueOf(dirUp));
-                                        } catch (IllegalArgumentException e) {
-                                            // default already set in model
-                                        }
-                                    }
-                                    if (lineColor != null) {
-                                        conn.setLineColorHex(lineColor);
-                                    }
-                                    if (arrowColor != null) {
-                                        conn.setArrowColorHex(arrowColor);
-                                    }
-                                    // Protocol
-                                    if (protocol != null) {
-                                        // Unescape markdown special characters similar to exporter
-                                        String unescaped = unescapeMarkdown(protocol);
-                                        conn.setProtocol(unescaped);
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error parsing connection: " + connLine);
-                    }
+                conn.setType(FlowConnection.ConnectionType.NORMAL);
+                report.add(Kind.INVALID_VALUE, p.line, "Unknown connection type: " + p.type, p.source);
+            }
+            // Direction style (tolerar sinônimos comuns)
+            if (p.direction != null) {
+                String dirUp = p.direction.toUpperCase();
+                if ("FORWARD".equals(dirUp)) {
+                    dirUp = "FROM_TO";
+                } else if ("BACKWARD".equals(dirUp) || "REVERSE".equals(dirUp)) {
+                    dirUp = "TO_FROM";
                 }
+                FlowConnection.DirectionStyle dir = parseEnum(FlowConnection.DirectionStyle.class, dirUp);
+                if (dir != null) conn.setDirectionStyle(dir);
+                else report.add(Kind.INVALID_VALUE, p.line, "Unknown direction: " + p.direction, p.source);
+            }
+            if (p.lineColor != null) {
+                conn.setLineColorHex(p.lineColor);
+            }
+            if (p.arrowColor != null) {
+                conn.setArrowColorHex(p.arrowColor);
             }
+            if (p.protocol != null) {
+                // Unescape markdown special characters similar to exporter
+                conn.setProtocol(unescapeMarkdown(p.protocol));
+            }
+            result.add(conn);
         }
-        return currentFlow;
+        return result;
     }
 
-    private List<String> getAllLines(Node document) {
-        List<String> lines = new ArrayList<>();
+    /**
+     * Removes leading whitespace from every line and collects the resulting lines. The format does
+     * not depend on indentation, and dropping it keeps the Markdown parser from building deeply nested
+     * list or indented-code structures whose cost grows with nesting depth. Line numbers are unchanged.
+     * <p>
+     * Format lines are escaped after their list marker and marked in {@code escapedLines}: inline
+     * parsing then reads them back as the literal text, and commonmark's emphasis and link scanning,
+     * which grows superlinearly on long lines full of brackets and parentheses as LLM output has, has
+     * nothing to match.
+     */
+    private static String stripIndentation(String content, List<String> sourceLines, BitSet escapedLines) {
+        StringBuilder sb = new StringBuilder(content.length());
+        int len = content.length();
+        int pos = 0;
+        while (pos < len) {
+            int start = pos;
+            while (start < len && (content.charAt(start) == ' ' || content.charAt(start) == '\t')) start++;
+            int end = content.indexOf('\n', start);
+            if (end == -1) end = len;
+            int textEnd = end > start && content.charAt(end - 1) == '\r' ? end - 1 : end;
+            String line = content.substring(start, textEnd);
+            String body = stripListMarker(line);
+            if (isFormatLine(body)) {
+                escapedLines.set(sourceLines.size());
+                sb.append(line, 0, line.length() - body.length());
+                appendEscaped(sb, body);
+            } else {
+                sb.append(line);
+            }
+            sb.append('\n');
+            sourceLines.add(line);
+            pos = end + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Flattens the leaf blocks of the document into lines, without recursion so that nesting depth
+     * cannot exhaust the stack. Paragraph lines are mapped back to source lines through source spans.
+     */
+    private List<Line> getAllLines(Node document, List<String> sourceLines, BitSet escapedLines, ImportReport report) {
+        List<Line> lines = new ArrayList<>();
+        Deque<Node> pendingSiblings = new ArrayDeque<>();
         Node node = document.getFirstChild();
         while (node != null) {
-            if (node instanceof Heading) {
+            Node next = node.getNext();
+            if ((node instanceof ListBlock || node instanceof ListItem) && node.getFirstChild() != null) {
+                if (next != null) pendingSiblings.push(next);
+                next = node.getFirstChild();
+            } else if (node instanceof Heading) {
                 Heading h = (Heading) node;
                 StringBuilder hashes = new StringBuilder();
                 for (int i = 0; i < h.getLevel(); i++) hashes.append('#');
-                String text = getTextContent(node);
-                lines.add(hashes.toString() + " " + text);
+                lines.add(new Line(firstLine(node), hashes + " " + getTextContent(node)));
             } else if (node instanceof Paragraph) {
-                String para = getTextContent(node);
-                for (String l : para.split("\n")) {
-                    String s = l.trim();
-                    if (!s.isEmpty()) lines.add(s);
-                }
-            } else if (node instanceof BulletList) {
-                Node item = node.getFirstChild();
-                while (item != null) {
-                    String itemText = getTextContent(item);
-                    for (String l : itemText.split("\n")) {
-                        String s = l.trim();
-                        if (!s.isEmpty()) lines.add(s);
-                    }
-                    item = item.getNext();
-                }
-            } else if (node instanceof OrderedList) {
-                Node item = node.getFirstChild();
-                while (item != null) {
-                    String itemText = getTextContent(item);
-                    for (String l : itemText.split("\n")) {
-                        String s = l.trim();
-                        if (!s.isEmpty()) lines.add(s);
-                    }
-                    item = item.getNext();
-                }
+                addParagraphLines(node, lines);
             } else if (node instanceof FencedCodeBlock) {
-                FencedCodeBlock cb = (FencedCodeBlock) node;
-                String literal = cb.getLiteral();
-                for (String l : literal.split("\n")) {
-                    String s = l.trim();
-                    if (!s.isEmpty()) lines.add(s);
-                }
+                // The literal starts on the line after the opening fence
+                addLiteralLines(((FencedCodeBlock) node).getLiteral(), firstLine(node) + 1, sourceLines, escapedLines, lines);
             } else if (node instanceof IndentedCodeBlock) {
-                IndentedCodeBlock cb = (IndentedCodeBlock) node;
-                String literal = cb.getLiteral();
-                for (String l : literal.split("\n")) {
-                    String s = l.trim();
-                    if (!s.isEmpty()) lines.add(s);
+                addLiteralLines(((IndentedCodeBlock) node).getLiteral(), firstLine(node), sourceLines, escapedLines, lines);
+            } else if (!(node instanceof ThematicBreak) && !(node instanceof ListBlock) && !(node instanceof ListItem)) {
+                // Block quotes, HTML blocks, link definitions: not part of the format
+                for (SourceSpan span : node.getSourceSpans()) {
+                    String text = sourceLines.get(span.getLineIndex());
+                    if (!text.trim().isEmpty()) {
+                        report.add(Kind.SKIPPED_LINE, span.getLineIndex() + 1, "Unsupported Markdown block", text);
+                    }
                 }
             }
-            node = node.getNext();
+            node = next != null ? next : pendingSiblings.poll();
         }
         return lines;
     }
 
+    private void addParagraphLines(Node paragraph, List<Line> lines) {
+        List<SourceSpan> spans = paragraph.getSourceSpans();
+        String text = getTextContent(paragraph);
+        int lineCount = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') lineCount++;
+        }
+        // Soft line breaks keep a one-to-one mapping; inline content spanning lines does not
+        boolean mapped = lineCount == spans.size();
+        int first = firstLine(paragraph);
+        int start = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int end = text.indexOf('\n', start);
+            if (end == -1) end = text.length();
+            String l = text.substring(start, end).trim();
+            if (!l.isEmpty()) {
+                lines.add(new Line(mapped ? spans.get(i).getLineIndex() + 1 : first, l));
+            }
+            start = end + 1;
+        }
+    }
+
+    /** Adds the lines of a code block; escaped format lines are taken from the source instead. */
+    private static void addLiteralLines(String literal, int firstLine, List<String> sourceLines, BitSet escapedLines,
+                                        List<Line> lines) {
+        int start = 0;
+        int number = firstLine;
+        while (start < literal.length()) {
+            int end = literal.indexOf('\n', start);
+            if (end == -1) end = literal.length();
+            boolean escaped = number > 0 && escapedLines.get(number - 1);
+            String l = (escaped ? sourceLines.get(number - 1) : literal.substring(start, end)).trim();
+            if (!l.isEmpty()) lines.add(new Line(number, l));
+            start = end + 1;
+            number++;
+        }
+    }
+
+    private static int firstLine(Node node) {
+        List<SourceSpan> spans = node.getSourceSpans();
+        return spans.isEmpty() ? 0 : spans.get(0).getLineIndex() + 1;
+    }
+
     private String getTextContent(Node node) {
-        TextContentRenderer renderer = TextContentRenderer.builder().build();
         return renderer.render(node).trim();
     }
 
-    private String stripListMarker(String s) {
+    private static int skipWhitespace(String s, int pos) {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static int skipToken(String s, int pos) {
+        while (pos < s.length() && !Character.isWhitespace(s.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static int[] parseIntPair(String value) {
+        int comma = value.indexOf(',');
+        if (comma == -1) return null;
+        Integer a = parseInt(value.substring(0, comma));
+        int secondEnd = value.indexOf(',', comma + 1);
+        Integer b = parseInt(secondEnd == -1 ? value.substring(comma + 1) : value.substring(comma + 1, secondEnd));
+        return a != null && b != null ? new int[] { a, b } : null;
+    }
+
+    private static Integer parseInt(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String stripListMarker(String s) {
         // Remove marcadores comuns de lista/enumeração no início da linha
         return s.replaceFirst("^(?:[-*]\\s+|\\d+\\.\\s+)", "");
     }
@@ -310,4 +600,4 @@ public class MarkdownImporter {
         if (s == null) return null;
         return s.replace("<br>", "\n").replace("\\*", "*").replace("\\_", "_");
     }
-}
\ No newline at end of file
+}
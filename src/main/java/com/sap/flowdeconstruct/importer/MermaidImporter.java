@@ -0,0 +1,288 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.importer.GraphTextTokenizer.Token;
+import com.sap.flowdeconstruct.importer.GraphTextTokenizer.Type;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Imports Mermaid {@code flowchart}/{@code graph} text in a single streaming pass.
+ * {@code subgraph ... end} blocks become sub-flows. Dotted links map to conditional connections,
+ * thick links to error connections, and link text to the connection protocol.
+ * Styling statements ({@code classDef}, {@code style}, {@code click}, ...) are skipped.
+ */
+public class MermaidImporter {
+
+    private static final Set<String> SKIPPED_STATEMENTS = new HashSet<>(Arrays.asList(
+            "classdef", "class", "style", "linkstyle", "click", "direction", "acctitle", "accdescr"));
+    private static final Pattern SUBGRAPH_HEADER = Pattern.compile("^(\\S+?)\\s*\\[(.*)\\]$");
+    private static final Pattern NOTE_COMMENT = Pattern.compile("^(\\S+):\\s?(.*)$");
+    private static final String[] LABELED_ARROW_CLOSERS = { "--", "==", ".-" };
+    private static final String[] PIPE = { "|" };
+    private static final String[] END_OF_LINE = { "\n" };
+
+    private GraphTextTokenizer tokens;
+    private GraphModelBuilder builder;
+    private final int[] matched = new int[1];
+
+    public FlowDiagram importFlow(String filePath) throws IOException {
+        try (Reader in = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            return importFlow(in);
+        }
+    }
+
+    public FlowDiagram importFlowFromString(String content) throws IOException {
+        return importFlow(new StringReader(content != null ? content : ""));
+    }
+
+    public FlowDiagram importFlow(Reader reader) throws IOException {
+        Reader in = reader instanceof BufferedReader || reader instanceof StringReader ? reader : new BufferedReader(reader);
+        tokens = new GraphTextTokenizer(in, true, new String[] { "%%" }, false, true);
+        builder = new GraphModelBuilder();
+        Map<String, String> notes = new LinkedHashMap<>();
+        Deque<GraphModelBuilder.Scope> scopes = new ArrayDeque<>();
+        scopes.push(builder.getRoot());
+
+        while (true) {
+            Token t = tokens.peek();
+            if (t.type == Type.EOF) break;
+            if (t.type == Type.NEWLINE || t.isPunct(';')) {
+                tokens.next();
+                continue;
+            }
+            if (t.type == Type.COMMENT) {
+                tokens.next();
+                Matcher m = NOTE_COMMENT.matcher(t.text);
+                if (m.matches()) notes.put(m.group(1), m.group(2));
+                continue;
+            }
+            if (t.type == Type.OP && t.text.equals("---")) {
+                tokens.next();
+                parseFrontMatter();
+                continue;
+            }
+            if (t.type == Type.WORD) {
+                String kw = t.text.toLowerCase();
+                if (kw.equals("flowchart") || kw.equals("graph") || SKIPPED_STATEMENTS.contains(kw)) {
+                    tokens.skipStatement();
+                    continue;
+                }
+                if (kw.equals("subgraph")) {
+                    tokens.next();
+                    scopes.push(parseSubgraphHeader(scopes.peek()));
+                    continue;
+                }
+                if (kw.equals("end")) {
+                    tokens.next();
+                    if (scopes.size() > 1) scopes.pop();
+                    continue;
+                }
+            }
+            parseChain(scopes.peek());
+        }
+
+        for (Map.Entry<String, String> note : notes.entrySet()) {
+            if (builder.exists(note.getKey())) {
+                builder.node(note.getKey(), builder.getRoot()).setNotes(note.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    private void parseFrontMatter() throws IOException {
+        String yaml = tokens.readRawUntil(new String[] { "---" }, matched);
+        for (String line : yaml.split("\n")) {
+            String l = line.trim();
+            if (l.startsWith("title:")) {
+                builder.setName(unquote(l.substring("title:".length()).trim()));
+            }
+        }
+    }
+
+    private GraphModelBuilder.Scope parseSubgraphHeader(GraphModelBuilder.Scope parent) throws IOException {
+        String header = tokens.readRawUntil(END_OF_LINE, matched).trim();
+        String id;
+        String title;
+        Matcher m = SUBGRAPH_HEADER.matcher(header);
+        if (m.matches()) {
+            id = m.group(1);
+            title = unescape(m.group(2).trim());
+        } else {
+            id = header.isEmpty() ? "subgraph" + (builder.getNodeCount() + 1) : header;
+            title = unescape(header);
+        }
+        return builder.subgraph(id, title, parent);
+    }
+
+    /** A statement of the form {@code a & b --> c -.->|text| d}. */
+    private void parseChain(GraphModelBuilder.Scope scope) throws IOException {
+        List<String> left = parseNodeGroup(scope);
+        if (left.isEmpty()) {
+            tokens.skipStatement();
+            return;
+        }
+        while (tokens.peek().type == Type.OP) {
+            Arrow arrow = parseArrow(tokens.next().text);
+            if (arrow == null) break;
+            List<String> right = parseNodeGroup(scope);
+            if (right.isEmpty()) break;
+            for (String from : left) {
+                for (String to : right) {
+                    FlowConnection conn = builder.edge(from, to);
+                    if (conn != null) arrow.applyTo(conn);
+                }
+            }
+            left = right;
+        }
+        Token end = tokens.peek();
+        if (end.type != Type.EOF && end.type != Type.NEWLINE && !end.isPunct(';')) {
+            tokens.skipStatement();
+        }
+    }
+
+    private List<String> parseNodeGroup(GraphModelBuilder.Scope scope) throws IOException {
+        List<String> names = new ArrayList<>(1);
+        while (true) {
+            String name = parseNode(scope);
+            if (name == null) break;
+            names.add(name);
+            if (!tokens.peek().isPunct('&')) break;
+            tokens.next();
+        }
+        return names;
+    }
+
+    private String parseNode(GraphModelBuilder.Scope scope) throws IOException {
+        Token t = tokens.peek();
+        if (t.type != Type.WORD && t.type != Type.STRING) return null;
+        tokens.next();
+        String id = t.text;
+
+        // The shape must follow the id directly, so look at raw characters rather than tokens
+        String label = null;
+        FlowNode.NodeShape shape = FlowNode.NodeShape.RECTANGLE;
+        int c = tokens.peekChar();
+        if (c == '[' || c == '(' || c == '{' || c == '>') {
+            tokens.readChar();
+            int d = tokens.peekChar();
+            String closer;
+            if (c == '[') {
+                if (d == '[') { tokens.readChar(); closer = "]]"; }
+                else if (d == '(') { tokens.readChar(); closer = ")]"; }
+                else closer = "]";
+            } else if (c == '(') {
+                if (d == '(') { tokens.readChar(); closer = "))"; shape = FlowNode.NodeShape.CIRCLE; }
+                else if (d == '[') { tokens.readChar(); closer = "])"; shape = FlowNode.NodeShape.OVAL; }
+                else closer = ")";
+            } else if (c == '{') {
+                if (d == '{') { tokens.readChar(); closer = "}}"; }
+                else { closer = "}"; shape = FlowNode.NodeShape.DIAMOND; }
+            } else {
+                closer = "]";
+            }
+            label = unescape(tokens.readRawUntil(new String[] { closer }, matched).trim());
+        }
+
+        FlowNode node = builder.node(id, scope);
+        if (label != null) {
+            node.setText(label);
+            node.setShape(shape);
+        }
+
+        // :::className shorthand
+        if (tokens.peek().isPunct(':')) {
+            while (tokens.peek().isPunct(':')) tokens.next();
+            if (tokens.peek().type == Type.WORD) tokens.next();
+        }
+        return id;
+    }
+
+    private static final class Arrow {
+        boolean head;
+        boolean tail;
+        FlowConnection.ConnectionType type = FlowConnection.ConnectionType.NORMAL;
+        String label;
+
+        void applyTo(FlowConnection conn) {
+            conn.setType(type);
+            if (head && tail) conn.setDirectionStyle(FlowConnection.DirectionStyle.BIDIRECTIONAL);
+            else if (head) conn.setDirectionStyle(FlowConnection.DirectionStyle.FROM_TO);
+            else if (tail) conn.setDirectionStyle(FlowConnection.DirectionStyle.TO_FROM);
+            else conn.setDirectionStyle(FlowConnection.DirectionStyle.NONE);
+            if (label != null && !label.isEmpty()) conn.setProtocol(label);
+        }
+    }
+
+    /**
+     * Interprets an operator token as a link, reading a {@code |text|} or {@code -- text -->} label if present.
+     * Returns null if the operator is not a link.
+     */
+    private Arrow parseArrow(String op) throws IOException {
+        Arrow arrow = new Arrow();
+        String body = op;
+        if (body.startsWith("<")) {
+            arrow.tail = true;
+            body = body.substring(1);
+        }
+        if (body.length() < 2) return null;
+
+        boolean labeled = body.equals("--") || body.equals("==") || body.equals("-.");
+        if (labeled) {
+            // Link text between the two halves: A -- text --> B, A -. text .-> B, A == text ==> B
+            arrow.label = unescape(tokens.readRawUntil(LABELED_ARROW_CLOSERS, matched).trim());
+            while (tokens.peekChar() == '-' || tokens.peekChar() == '=' || tokens.peekChar() == '.') tokens.readChar();
+            if (tokens.peekChar() == '>') {
+                tokens.readChar();
+                arrow.head = true;
+            }
+        } else {
+            if (body.endsWith(">")) {
+                arrow.head = true;
+                body = body.substring(0, body.length() - 1);
+            }
+            for (int i = 0; i < body.length(); i++) {
+                char ch = body.charAt(i);
+                if (ch != '-' && ch != '=' && ch != '.') return null;
+            }
+            if (tokens.peek().isPunct('|')) {
+                tokens.next();
+                arrow.label = unescape(tokens.readRawUntil(PIPE, matched).trim());
+            }
+        }
+        if (body.contains("=")) arrow.type = FlowConnection.ConnectionType.ERROR;
+        else if (body.contains(".")) arrow.type = FlowConnection.ConnectionType.CONDITIONAL;
+        return arrow;
+    }
+
+    private static String unquote(String s) {
+        if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) return s.substring(1, s.length() - 1);
+        return s;
+    }
+
+    private static String unescape(String s) {
+        return unquote(s)
+                .replace("#quot;", "\"")
+                .replace("<br/>", "\n")
+                .replace("<br>", "\n");
+    }
+}
@@ -27,6 +27,12 @@ public class FlowDiagram {
     private List<DiagramStateListener> listeners;
     @JsonIgnore
     private final FlowNode.NodeStateListener nodeStateListener;
+    @JsonIgnore
+    private int batchDepth;
+    @JsonIgnore
+    private boolean batchDirty;
+    @JsonIgnore
+    private long version;
     
     public FlowDiagram() {
         this.id = UUID.randomUUID().toString();
@@ -38,7 +44,9 @@ public class FlowDiagram {
         this.modifiedAt = new Date();
         this.listeners = new ArrayList<>();
         this.nodeStateListener = (n, property, oldValue, newValue) -> {
-            if ("text".equals(property) || "notes".equals(property) || "position".equals(property) || "width".equals(property) || "height".equals(property)) {
+            if ("text".equals(property) || "notes".equals(property) || "position".equals(property) || "width".equals(property) || "height".equals(property)
+                    || "shape".equals(property) || "pinned".equals(property) || "autoFit".equals(property)
+                    || "textFontFamily".equals(property) || "textFontSize".equals(property) || "textFontStyle".equals(property)) {
                 updateModifiedTime();
                 notifyListeners("nodeModified", n, property);
             }
@@ -318,6 +326,47 @@ public class FlowDiagram {
         return connection;
     }
     
+    /**
+     * Adds many nodes and connections in one batch, e.g. from an importer.
+     * Nodes whose id is already present, self-loops, connections to unknown nodes and
+     * duplicate from/to pairs are skipped. Duplicate checks use hash lookups, so this stays
+     * linear in the input size where repeated {@link #addConnection} calls would not.
+     */
+    public void addAll(Collection<FlowNode> newNodes, Collection<FlowConnection> newConnections) {
+        runBatch(() -> {
+            Set<String> ids = new HashSet<>();
+            for (FlowNode n : nodes) ids.add(n.getId());
+            boolean changed = false;
+            if (newNodes != null) {
+                for (FlowNode node : newNodes) {
+                    if (node != null && ids.add(node.getId())) {
+                        nodes.add(node);
+                        node.addStateListener(this.nodeStateListener);
+                        changed = true;
+                    }
+                }
+            }
+            if (newConnections != null) {
+                Set<String> keys = new HashSet<>();
+                for (FlowConnection c : connections) keys.add(c.getFromNodeId() + "|" + c.getToNodeId());
+                for (FlowConnection conn : newConnections) {
+                    if (conn == null) continue;
+                    String from = conn.getFromNodeId();
+                    String to = conn.getToNodeId();
+                    if (from == null || from.equals(to) || !ids.contains(from) || !ids.contains(to)) continue;
+                    if (keys.add(from + "|" + to)) {
+                        connections.add(conn);
+                        changed = true;
+                    }
+                }
+            }
+            if (changed) {
+                updateModifiedTime();
+                notifyListeners("nodes", null, nodes);
+            }
+        });
+    }
+    
     public boolean removeConnection(FlowConnection connection) {
         boolean removed = connections.remove(connection);
         if (removed) {
@@ -392,6 +441,48 @@ public class FlowDiagram {
         this.modifiedAt = new Date();
     }
     
+    // Batch updates
+    /**
+     * Runs a group of changes as one update: listeners are not notified for each change,
+     * and a single "batchUpdated" event is fired at the end if anything changed.
+     * Batches may be nested; only the outermost one notifies.
+     */
+    public void runBatch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            endBatch();
+        }
+    }
+    
+    public void beginBatch() {
+        batchDepth++;
+    }
+    
+    public void endBatch() {
+        if (batchDepth == 0) return;
+        batchDepth--;
+        if (batchDepth == 0 && batchDirty) {
+            batchDirty = false;
+            notifyListeners("batchUpdated", null, this);
+        }
+    }
+    
+    @JsonIgnore
+    public boolean isInBatch() {
+        return batchDepth > 0;
+    }
+    
+    /**
+     * Counts changes to the diagram's content, including those inside a batch; selection changes do not
+     * count. Caches of anything derived from the diagram can compare it to tell whether they are stale.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+    
     // Listener management
     public void addStateListener(DiagramStateListener listener) {
         if (listeners == null) {
@@ -400,7 +491,18 @@ public class FlowDiagram {
         listeners.add(listener);
     }
     
+    public void removeStateListener(DiagramStateListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+    
     private void notifyListeners(String event, Object oldValue, Object newValue) {
+        if (!"selectedNode".equals(event)) version++;
+        if (batchDepth > 0) {
+            batchDirty = true;
+            return;
+        }
         if (listeners == null) return;
         for (DiagramStateListener l : new ArrayList<>(listeners)) {
             try {
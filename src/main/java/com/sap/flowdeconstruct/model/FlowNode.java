@@ -38,6 +38,8 @@ public class FlowNode {
     private String textFontFamily; // e.g. "Monospaced"
     private int textFontSize;      // e.g. 12
     private int textFontStyle;     // Font.PLAIN, Font.BOLD, Font.ITALIC (or combination)
+    private boolean pinned;        // kept in place by automatic layouts
+    private boolean autoFit;       // size follows the text
 
     // UI state (not persisted)
     @JsonIgnore
@@ -221,6 +223,28 @@ public class FlowNode {
         notifyListeners("height", old, newVal);
     }
     
+    /** Pinned nodes keep their position when the diagram is laid out automatically. */
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        boolean old = this.pinned;
+        this.pinned = pinned;
+        notifyListeners("pinned", old, pinned);
+    }
+    
+    /** Auto-fit nodes are sized to their text whenever the text or its font changes. */
+    public boolean isAutoFit() {
+        return autoFit;
+    }
+
+    public void setAutoFit(boolean autoFit) {
+        boolean old = this.autoFit;
+        this.autoFit = autoFit;
+        notifyListeners("autoFit", old, autoFit);
+    }
+    
     // Listener management
     public void addStateListener(NodeStateListener listener) {
         if (listeners == null) {
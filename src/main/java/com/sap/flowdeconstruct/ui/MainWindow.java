@@ -1,9 +1,11 @@
 package com.sap.flowdeconstruct.ui;
 
+import com.sap.flowdeconstruct.core.MarkdownLiveSync;
 import com.sap.flowdeconstruct.core.ProjectManager;
 import com.sap.flowdeconstruct.model.FlowDiagram;
 import com.sap.flowdeconstruct.model.FlowNode;
 import com.sap.flowdeconstruct.ui.components.FlowCanvas;
+import com.sap.flowdeconstruct.ui.components.MinimapPanel;
 import com.sap.flowdeconstruct.ui.dialogs.ExportDialog;
 import com.sap.flowdeconstruct.ui.dialogs.NoteDialog;
 import com.sap.flowdeconstruct.ui.dialogs.TranscriptionPromptDialog;
@@ -13,14 +15,21 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.JButton;
 import java.util.Stack;
+import java.util.List;
 import java.io.File;
+import java.nio.file.Path;
 
 import com.sap.flowdeconstruct.ui.components.FlowCanvas;
 import com.sap.flowdeconstruct.export.MarkdownExporter;
 import com.sap.flowdeconstruct.export.PdfExporter;
 import com.sap.flowdeconstruct.export.PptxExporter;
+import com.sap.flowdeconstruct.export.TextExporter;
 import com.sap.flowdeconstruct.importer.MarkdownImporter;
+import com.sap.flowdeconstruct.importer.FlowImporters;
+import com.sap.flowdeconstruct.importer.ImportReport;
 import com.sap.flowdeconstruct.ui.dialogs.ImportDialog;
+import com.sap.flowdeconstruct.ui.dialogs.BatchImportDialog;
+import com.sap.flowdeconstruct.importer.BatchMarkdownImporter;
 import com.sap.flowdeconstruct.i18n.I18n;
 import com.sap.flowdeconstruct.ui.dialogs.SettingsDialog;
 
@@ -40,6 +49,11 @@ public class MainWindow extends JFrame implements KeyListener {
     private JLabel breadcrumbLabel;
     private JLabel helpHintLabel;
     private JButton settingsButton;
+    private JCheckBoxMenuItem liveSyncItem;
+    private JCheckBoxMenuItem orthogonalRoutingItem;
+    private JCheckBoxMenuItem minimapItem;
+    private JCheckBoxMenuItem hudItem;
+    private MinimapPanel minimap;
     private JPanel helpOverlay;
     private boolean helpVisible = false;
     
@@ -99,9 +113,40 @@ public class MainWindow extends JFrame implements KeyListener {
         saveMdItem.addActionListener(e -> saveAsMarkdown());
         JMenuItem loadMdItem = new JMenuItem(I18n.t("menu.file.loadMd"));
         loadMdItem.addActionListener(e -> importFlow());
+        JMenuItem batchImportItem = new JMenuItem(I18n.t("menu.file.batchImport"));
+        batchImportItem.addActionListener(e -> batchImportFlows());
+        liveSyncItem = new JCheckBoxMenuItem(I18n.t("menu.file.liveSync"));
+        liveSyncItem.addActionListener(e -> toggleMarkdownSync());
         fileMenu.add(saveMdItem);
         fileMenu.add(loadMdItem);
+        fileMenu.add(batchImportItem);
+        fileMenu.add(liveSyncItem);
         menuBar.add(fileMenu);
+        JMenu layoutMenu = new JMenu(I18n.t("menu.layout"));
+        JMenuItem arrangeItem = new JMenuItem(I18n.t("menu.layout.arrange"));
+        arrangeItem.addActionListener(e -> canvas.arrangeNodes());
+        layoutMenu.add(arrangeItem);
+        JMenuItem forceItem = new JMenuItem(I18n.t("menu.layout.force"));
+        forceItem.addActionListener(e -> canvas.arrangeNodesForceDirected());
+        layoutMenu.add(forceItem);
+        orthogonalRoutingItem = new JCheckBoxMenuItem(I18n.t("menu.layout.orthogonal"));
+        orthogonalRoutingItem.addActionListener(e -> canvas.setOrthogonalRouting(orthogonalRoutingItem.isSelected()));
+        layoutMenu.add(orthogonalRoutingItem);
+        JMenuItem autoFitItem = new JMenuItem(I18n.t("menu.layout.autoFit"));
+        autoFitItem.addActionListener(e -> canvas.autoFitAllNodes());
+        layoutMenu.add(autoFitItem);
+        menuBar.add(layoutMenu);
+        JMenu viewMenu = new JMenu(I18n.t("menu.view"));
+        minimapItem = new JCheckBoxMenuItem(I18n.t("menu.view.minimap"));
+        minimapItem.addActionListener(e -> minimap.setVisible(minimapItem.isSelected()));
+        viewMenu.add(minimapItem);
+        hudItem = new JCheckBoxMenuItem(I18n.t("menu.view.hud"));
+        hudItem.addActionListener(e -> canvas.setHudVisible(hudItem.isSelected()));
+        viewMenu.add(hudItem);
+        JMenuItem saveFrameStatsItem = new JMenuItem(I18n.t("menu.view.saveFrameStats"));
+        saveFrameStatsItem.addActionListener(e -> saveFrameStats());
+        viewMenu.add(saveFrameStatsItem);
+        menuBar.add(viewMenu);
         setJMenuBar(menuBar);
         
         // Top bar with breadcrumb and help hint
@@ -121,6 +166,7 @@ public class MainWindow extends JFrame implements KeyListener {
         // Main canvas
         canvas = new FlowCanvas();
         canvas.setBackground(BACKGROUND_COLOR);
+        orthogonalRoutingItem.setSelected(canvas.isOrthogonalRouting());
         System.out.println("MainWindow: Canvas created");
         
         // Set current flow on canvas if it exists
@@ -133,7 +179,23 @@ public class MainWindow extends JFrame implements KeyListener {
         scrollPane.setBackground(BACKGROUND_COLOR);
         scrollPane.getViewport().setBackground(BACKGROUND_COLOR);
         scrollPane.setBorder(null);
-        add(scrollPane, BorderLayout.CENTER);
+        
+        // Minimap floating over the bottom-right corner of the canvas (initially hidden)
+        minimap = new MinimapPanel(canvas);
+        minimap.setVisible(false);
+        minimapItem.setSelected(false);
+        hudItem.setSelected(canvas.isHudVisible());
+        JLayeredPane canvasPane = new JLayeredPane() {
+            @Override
+            public void doLayout() {
+                scrollPane.setBounds(0, 0, getWidth(), getHeight());
+                Dimension size = minimap.getPreferredSize();
+                minimap.setBounds(getWidth() - size.width - 16, getHeight() - size.height - 16, size.width, size.height);
+            }
+        };
+        canvasPane.add(scrollPane, JLayeredPane.DEFAULT_LAYER);
+        canvasPane.add(minimap, JLayeredPane.PALETTE_LAYER);
+        add(canvasPane, BorderLayout.CENTER);
         System.out.println("MainWindow: ScrollPane added to center");
         
         // Help overlay (initially hidden)
@@ -339,7 +401,9 @@ public class MainWindow extends JFrame implements KeyListener {
             I18n.t("help.shortcuts.8"),
             I18n.t("help.shortcuts.9"),
             I18n.t("help.shortcuts.10"),
-            I18n.t("help.shortcuts.11")
+            I18n.t("help.shortcuts.11"),
+            I18n.t("help.shortcuts.12"),
+            I18n.t("help.shortcuts.13")
         };
         
         for (String shortcut : shortcuts) {
@@ -496,18 +560,20 @@ public class MainWindow extends JFrame implements KeyListener {
             boolean includeFlow = dialog.isIncludeFlow();
             boolean includeTimeline = dialog.isIncludeTimeline();
             ExportDialog.ExportFormat fmt = dialog.getSelectedFormat();
+            TextExporter textExporter = dialog.getSelectedTextExporter();
 
             try {
                 // Normaliza caminho e extensão
                 if (filePath == null || filePath.trim().isEmpty()) {
-                    String ext = 
+                    String ext = (textExporter != null) ? textExporter.getFileExtension() :
                         (fmt == ExportDialog.ExportFormat.MARKDOWN) ? ".md" :
                         (fmt == ExportDialog.ExportFormat.PDF) ? ".pdf" : ".pptx";
                     filePath = System.getProperty("user.home") + File.separator + "flow_diagram" + ext;
                 } else {
                     int lastSep = Math.max(filePath.lastIndexOf(File.separatorChar), filePath.lastIndexOf('/'));
                     int dotIdx = filePath.lastIndexOf('.');
-                    String wantExt = (fmt == ExportDialog.ExportFormat.MARKDOWN) ? ".md" :
+                    String wantExt = (textExporter != null) ? textExporter.getFileExtension() :
+                                     (fmt == ExportDialog.ExportFormat.MARKDOWN) ? ".md" :
                                      (fmt == ExportDialog.ExportFormat.PDF) ? ".pdf" : ".pptx";
                     if (dotIdx <= lastSep) {
                         filePath = filePath + wantExt;
@@ -530,7 +596,11 @@ public class MainWindow extends JFrame implements KeyListener {
                 System.out.println(String.format("[Export] Start: fmt=%s, path=%s, notes=%b, subflows=%b, flow=%b, timeline=%b",
                         fmt, filePath, includeNotes, includeSubflows, includeFlow, includeTimeline));
 
-                if (fmt == ExportDialog.ExportFormat.MARKDOWN || (filePath != null && filePath.toLowerCase().endsWith(".md"))) {
+                if (textExporter != null) {
+                    textExporter.export(currentFlow, filePath, includeNotes, includeSubflows);
+                    System.out.println("[Export] " + textExporter.getId() + " written -> " + filePath);
+                    JOptionPane.showMessageDialog(this, I18n.t("export.success") + ":\n" + filePath, textExporter.getDisplayName(), JOptionPane.INFORMATION_MESSAGE);
+                } else if (fmt == ExportDialog.ExportFormat.MARKDOWN || (filePath != null && filePath.toLowerCase().endsWith(".md"))) {
                     projectManager.saveToMarkdown(filePath, includeNotes, includeSubflows);
                     System.out.println("[Export] Markdown written -> " + filePath);
                     JOptionPane.showMessageDialog(this, I18n.t("export.success") + ":\n" + filePath, I18n.t("menu.file.saveMd"), JOptionPane.INFORMATION_MESSAGE);
@@ -639,15 +709,120 @@ public class MainWindow extends JFrame implements KeyListener {
         if (dialog.isConfirmed()) {
             String filePath = dialog.getFilePath();
             try {
-                FlowDiagram importedFlow = projectManager.loadFromMarkdown(filePath);
+                ImportReport report = new ImportReport();
+                FlowDiagram importedFlow = FlowImporters.isMarkdown(filePath)
+                        ? projectManager.loadFromMarkdown(filePath, report)
+                        : projectManager.openImportedFlow(FlowImporters.importFile(filePath));
                 setCurrentFlow(importedFlow);
-                JOptionPane.showMessageDialog(this, I18n.t("import.success"), I18n.t("menu.file.loadMd"), JOptionPane.INFORMATION_MESSAGE);
+                if (report.hasProblems()) {
+                    showImportProblems(report);
+                } else {
+                    JOptionPane.showMessageDialog(this, I18n.t("import.success"), I18n.t("menu.file.loadMd"), JOptionPane.INFORMATION_MESSAGE);
+                }
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, I18n.t("import.error", ex.getMessage()), I18n.t("menu.file.loadMd"), JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    /** Tells the user which lines a lenient import skipped or could not apply. */
+    private void showImportProblems(ImportReport report) {
+        JTextArea details = new JTextArea(report.toString(), 12, 60);
+        details.setEditable(false);
+        details.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        details.setCaretPosition(0);
+        Object[] message = { I18n.t("import.success.problems", report.getProblemCount()), new JScrollPane(details) };
+        JOptionPane.showMessageDialog(this, message, I18n.t("menu.file.loadMd"), JOptionPane.WARNING_MESSAGE);
+    }
+    
+    private void batchImportFlows() {
+        if (canvas != null && canvas.isEditingNode()) {
+            canvas.finishEditingNode();
+        }
+
+        BatchImportDialog dialog = new BatchImportDialog(this);
+        dialog.setVisible(true);
+        if (!dialog.isConfirmed()) return;
+
+        List<BatchMarkdownImporter.FileResult> results = dialog.getResults();
+        try {
+            if (dialog.getMergeMode() == BatchImportDialog.MergeMode.SUBFLOWS) {
+                FlowDiagram root = BatchMarkdownImporter.mergeAsSubflows(I18n.t("batch.import.root.name",
+                        BatchMarkdownImporter.countSuccessful(results)), results);
+                navigationStack.clear();
+                projectManager.openImportedFlow(root);
+            } else {
+                FlowDiagram first = null;
+                int saved = 0;
+                for (BatchMarkdownImporter.FileResult r : results) {
+                    if (!r.isSuccess()) continue;
+                    if (projectManager.saveAsNewProject(r.getDiagram()) != null) saved++;
+                    if (first == null) first = r.getDiagram();
+                }
+                if (first != null) {
+                    navigationStack.clear();
+                    projectManager.openImportedFlow(first);
+                }
+                JOptionPane.showMessageDialog(this, I18n.t("batch.import.saved", saved), I18n.t("batch.import.title"), JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, I18n.t("import.error", ex.getMessage()), I18n.t("batch.import.title"), JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void toggleMarkdownSync() {
+        if (projectManager.isMarkdownSyncActive()) {
+            projectManager.stopMarkdownSync();
+            return;
+        }
+        if (projectManager.getCurrentProject() == null) {
+            liveSyncItem.setSelected(false);
+            JOptionPane.showMessageDialog(this, I18n.t("save.none"), I18n.t("menu.file.liveSync"), JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (canvas != null && canvas.isEditingNode()) {
+            canvas.finishEditingNode();
+        }
+        
+        if (projectManager.getLinkedMarkdownPath() == null) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle(I18n.t("live.sync.choose"));
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Markdown", "md"));
+            if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                liveSyncItem.setSelected(false);
+                return;
+            }
+            String filePath = fileChooser.getSelectedFile().getPath();
+            if (!filePath.endsWith(".md")) {
+                filePath += ".md";
+            }
+            projectManager.setLinkedMarkdownPath(filePath);
+        }
+        
+        try {
+            projectManager.startMarkdownSync(SwingUtilities::invokeLater, new MarkdownLiveSync.SyncListener() {
+                @Override
+                public void onExternalChangesApplied(int changeCount) {
+                    helpHintLabel.setText(I18n.t("live.sync.applied", changeCount));
+                    if (canvas != null) canvas.repaint();
+                }
+                
+                @Override
+                public void onWrittenBack(Path file) {
+                    helpHintLabel.setText(I18n.t("live.sync.written", file.getFileName()));
+                }
+                
+                @Override
+                public void onSyncError(Exception error) {
+                    helpHintLabel.setText(I18n.t("live.sync.error", error.getMessage()));
+                }
+            });
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, I18n.t("live.sync.error", ex.getMessage()), I18n.t("menu.file.liveSync"), JOptionPane.ERROR_MESSAGE);
+        }
+        liveSyncItem.setSelected(projectManager.isMarkdownSyncActive());
+    }
+    
     private void saveAsMarkdown() {
         if (currentFlow == null) {
             JOptionPane.showMessageDialog(this, I18n.t("save.none"), I18n.t("menu.file.saveMd"), JOptionPane.WARNING_MESSAGE);
@@ -673,6 +848,23 @@ public class MainWindow extends JFrame implements KeyListener {
         }
     }
     
+    private void saveFrameStats() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(I18n.t("menu.view.saveFrameStats"));
+        fileChooser.setSelectedFile(new File("frame-stats.csv"));
+        
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                canvas.getFrameStats().dump(fileChooser.getSelectedFile().toPath());
+                JOptionPane.showMessageDialog(this, I18n.t("frameStats.saved", fileChooser.getSelectedFile().getPath()),
+                        I18n.t("menu.view.saveFrameStats"), JOptionPane.INFORMATION_MESSAGE);
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, I18n.t("frameStats.error", ex.getMessage()),
+                        I18n.t("menu.view.saveFrameStats"), JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     @Override
     public void setVisible(boolean visible) {
         super.setVisible(visible);
@@ -739,6 +931,27 @@ public class MainWindow extends JFrame implements KeyListener {
             case KeyEvent.VK_DOWN:
                 navigateNodes(keyCode);
                 break;
+            case KeyEvent.VK_0:
+            case KeyEvent.VK_NUMPAD0:
+                if (ctrl && canvas != null) canvas.zoomToFit();
+                break;
+            case KeyEvent.VK_1:
+            case KeyEvent.VK_NUMPAD1:
+                if (ctrl && canvas != null) canvas.zoomToSelection();
+                break;
+            case KeyEvent.VK_2:
+            case KeyEvent.VK_NUMPAD2:
+                if (ctrl && canvas != null) canvas.zoomToNode();
+                break;
+            case KeyEvent.VK_EQUALS:
+            case KeyEvent.VK_PLUS:
+            case KeyEvent.VK_ADD:
+                if (ctrl && canvas != null) canvas.zoomIn();
+                break;
+            case KeyEvent.VK_MINUS:
+            case KeyEvent.VK_SUBTRACT:
+                if (ctrl && canvas != null) canvas.zoomOut();
+                break;
             case KeyEvent.VK_M: // Ctrl+M cycles mode: Flow -> Timeline -> Both -> Flow
                 if (ctrl) {
                     FlowCanvas.Mode m = canvas != null ? canvas.getMode() : FlowCanvas.Mode.FLOW_ONLY;
@@ -755,17 +968,20 @@ public class MainWindow extends JFrame implements KeyListener {
 
     @Override
     public void keyTyped(KeyEvent e) {
+        // Ctrl shortcuts such as Ctrl+0 may still type their digit; AltGr, reported as Ctrl+Alt, types text
+        int modifiers = e.getModifiersEx();
+        if ((modifiers & KeyEvent.CTRL_DOWN_MASK) != 0 && (modifiers & KeyEvent.ALT_DOWN_MASK) == 0) return;
         if (currentFlow != null && canvas != null) {
             if (currentFlow.getSelectedNode() != null && !canvas.isEditingNode()) {
                 char keyChar = e.getKeyChar();
                 if (!Character.isISOControl(keyChar)) {
                     startEditingSelectedNode();
-                    canvas.handleKeyTyped(keyChar);
+                    canvas.handleKeyTyped(keyChar, e.getWhen());
                 }
             } else if (canvas.isEditingNode()) {
                 char keyChar = e.getKeyChar();
                 if (!Character.isISOControl(keyChar)) {
-                    canvas.handleKeyTyped(keyChar);
+                    canvas.handleKeyTyped(keyChar, e.getWhen());
                 }
             }
         }
@@ -787,9 +1003,14 @@ public class MainWindow extends JFrame implements KeyListener {
                         ? (FlowDiagram) newValue
                         : projectManager.getCurrentProject();
                 SwingUtilities.invokeLater(() -> setCurrentFlow(flow));
+            } else if ("markdownSyncChanged".equals(event)) {
+                if (liveSyncItem != null) {
+                    SwingUtilities.invokeLater(() -> liveSyncItem.setSelected(projectManager.isMarkdownSyncActive()));
+                }
             } else if ("projectModified".equals(event) || "nodeModified".equals(event)) {
                 if (canvas != null) {
-                    SwingUtilities.invokeLater(() -> canvas.repaint());
+                    // The canvas coalesces repaints into frames, from any thread
+                    canvas.repaint();
                 }
             }
         });
@@ -828,11 +1049,28 @@ public class MainWindow extends JFrame implements KeyListener {
     JMenu fileMenu = mb.getMenu(0);
     if (fileMenu != null) {
     fileMenu.setText(I18n.t("menu.file"));
-    if (fileMenu.getItemCount() >= 2) {
+    if (fileMenu.getItemCount() >= 4) {
     fileMenu.getItem(0).setText(I18n.t("menu.file.saveMd"));
     fileMenu.getItem(1).setText(I18n.t("menu.file.loadMd"));
+    fileMenu.getItem(2).setText(I18n.t("menu.file.batchImport"));
+    fileMenu.getItem(3).setText(I18n.t("menu.file.liveSync"));
+    }
+    }
     }
+    if (mb != null && mb.getMenuCount() > 1) {
+    JMenu layoutMenu = mb.getMenu(1);
+    layoutMenu.setText(I18n.t("menu.layout"));
+    layoutMenu.getItem(0).setText(I18n.t("menu.layout.arrange"));
+    layoutMenu.getItem(1).setText(I18n.t("menu.layout.force"));
+    layoutMenu.getItem(2).setText(I18n.t("menu.layout.orthogonal"));
+    layoutMenu.getItem(3).setText(I18n.t("menu.layout.autoFit"));
     }
+    if (mb != null && mb.getMenuCount() > 2) {
+    JMenu viewMenu = mb.getMenu(2);
+    viewMenu.setText(I18n.t("menu.view"));
+    viewMenu.getItem(0).setText(I18n.t("menu.view.minimap"));
+    viewMenu.getItem(1).setText(I18n.t("menu.view.hud"));
+    viewMenu.getItem(2).setText(I18n.t("menu.view.saveFrameStats"));
     }
     
     revalidate();
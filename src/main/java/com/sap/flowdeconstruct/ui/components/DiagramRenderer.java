@@ -0,0 +1,477 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.core.ConnectionGeometry;
+import com.sap.flowdeconstruct.core.OrthogonalRouter;
+import com.sap.flowdeconstruct.i18n.I18n;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import com.sap.flowdeconstruct.model.TimelineEvent;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws diagrams onto any {@link Graphics2D}, independent of Swing components. {@link #render} paints a
+ * whole {@link Snapshot} through an explicit {@link Viewport}, for exports; the node, connection and
+ * timeline primitives are also used by {@link FlowCanvas}, which adds culling, sprites and levels of detail
+ * on top. The renderer holds no mutable state and may be used from several threads at once; snapshots are
+ * immutable, so one can be rendered concurrently while the diagram it was taken from keeps changing.
+ */
+public final class DiagramRenderer {
+
+    public static final Color BACKGROUND_COLOR = new Color(0x2d, 0x2d, 0x2d);
+    public static final Color NODE_COLOR = new Color(0x3a, 0x3a, 0x3a);
+    public static final Color NODE_EDITING_COLOR = new Color(0x4a, 0x4a, 0x4a);
+    public static final Color TEXT_COLOR = new Color(0xcc, 0xcc, 0xcc);
+    public static final Color CONNECTION_COLOR = new Color(0x66, 0x66, 0x66);
+    public static final Color SUBFLOW_INDICATOR_COLOR = new Color(0x5f, 0x9e, 0xa0);
+    public static final Font MONO_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    public static final int TIMELINE_HEIGHT = 120;
+    public static final int TIMELINE_PADDING = 16;
+    public static final int TIMELINE_TRACK_HEIGHT = 6;
+    public static final int TIMELINE_EVENT_RADIUS = 7;
+
+    private static final Font TIMELINE_FONT = MONO_FONT.deriveFont(10f);
+    private static final Stroke CONNECTION_STROKE = new BasicStroke(2f);
+    private static final Color TIMELINE_BG = new Color(0x24, 0x24, 0x24);
+    private static final Color TIMELINE_TRACK = new Color(0x55, 0x55, 0x55);
+    private static final Color TIMELINE_EVENT = new Color(0x5f, 0x9e, 0xa0);
+    private static final String TIMESTAMP_PATTERN = "dd/MM/yyyy HH:mm";
+    // Space kept between node labels and the edge of the box they are wrapped to
+    private static final int TEXT_PADDING = 6;
+
+    /** Maps world coordinates to device pixels: {@code device = world * zoom + offset}. */
+    public static final class Viewport {
+        public final double offsetX;
+        public final double offsetY;
+        public final double zoom;
+        public final int width;
+        public final int height;
+
+        public Viewport(double offsetX, double offsetY, double zoom, int width, int height) {
+            if (!(zoom > 0)) throw new IllegalArgumentException("zoom must be positive: " + zoom);
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.zoom = zoom;
+            this.width = width;
+            this.height = height;
+        }
+
+        public double worldMinX() { return -offsetX / zoom; }
+        public double worldMinY() { return -offsetY / zoom; }
+        public double worldMaxX() { return (width - offsetX) / zoom; }
+        public double worldMaxY() { return (height - offsetY) / zoom; }
+    }
+
+    /**
+     * Immutable copy of everything {@link #render} draws. Take it on the thread that owns the diagram;
+     * afterwards it can be rendered from any thread.
+     */
+    public static final class Snapshot {
+        private final List<FlowNode> nodes;
+        private final List<FlowConnection> connections;
+        private final List<TimelineEvent> timelineEvents;
+        private final Map<String, FlowNode> nodesById;
+        private final String selectedNodeId;
+
+        private Snapshot(List<FlowNode> nodes, List<FlowConnection> connections, List<TimelineEvent> timelineEvents,
+                         String selectedNodeId) {
+            this.nodes = Collections.unmodifiableList(nodes);
+            this.connections = Collections.unmodifiableList(connections);
+            this.timelineEvents = Collections.unmodifiableList(timelineEvents);
+            Map<String, FlowNode> byId = new HashMap<>();
+            for (FlowNode n : nodes) byId.put(n.getId(), n);
+            this.nodesById = byId;
+            this.selectedNodeId = selectedNodeId;
+        }
+
+        public static Snapshot of(FlowDiagram diagram) {
+            List<FlowNode> nodes = new ArrayList<>();
+            for (FlowNode n : diagram.getNodes()) nodes.add(copyOf(n));
+            List<FlowConnection> connections = new ArrayList<>();
+            for (FlowConnection c : diagram.getConnections()) connections.add(copyOf(c));
+            List<TimelineEvent> events = new ArrayList<>();
+            for (TimelineEvent e : diagram.getTimelineEvents()) {
+                events.add(new TimelineEvent(e.getLabel(), e.getPosition(), e.getTimestamp()));
+            }
+            FlowNode selected = diagram.getSelectedNode();
+            return new Snapshot(nodes, connections, events, selected != null ? selected.getId() : null);
+        }
+
+        private static FlowNode copyOf(FlowNode n) {
+            FlowNode c = new FlowNode(n.getText(), (int) n.getX(), (int) n.getY());
+            c.setId(n.getId());
+            c.setShape(n.getShape());
+            c.setWidth(n.getWidth());
+            c.setHeight(n.getHeight());
+            c.setFillColorHex(n.getFillColorHex());
+            c.setBorderColorHex(n.getBorderColorHex());
+            c.setTextColorHex(n.getTextColorHex());
+            c.setTextFontFamily(n.getTextFontFamily());
+            c.setTextFontSize(n.getTextFontSize());
+            c.setTextFontStyle(n.getTextFontStyle());
+            // Only its presence is drawn
+            c.setSubFlow(n.getSubFlow());
+            return c;
+        }
+
+        private static FlowConnection copyOf(FlowConnection c) {
+            FlowConnection copy = new FlowConnection(c.getFromNodeId(), c.getToNodeId());
+            copy.setId(c.getId());
+            copy.setDirectionStyle(c.getDirectionStyle());
+            copy.setLineColorHex(c.getLineColorHex());
+            copy.setArrowColorHex(c.getArrowColorHex());
+            return copy;
+        }
+
+        public List<FlowNode> getNodes() { return nodes; }
+        public List<FlowConnection> getConnections() { return connections; }
+        public List<TimelineEvent> getTimelineEvents() { return timelineEvents; }
+        public FlowNode getNode(String id) { return nodesById.get(id); }
+
+        /** World bounds of all nodes as {minX, minY, maxX, maxY}, or null without nodes. */
+        public double[] getNodeBounds() {
+            if (nodes.isEmpty()) return null;
+            double[] b = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+            for (FlowNode n : nodes) {
+                b[0] = Math.min(b[0], n.getX());
+                b[1] = Math.min(b[1], n.getY());
+                b[2] = Math.max(b[2], n.getX() + n.getWidth());
+                b[3] = Math.max(b[3], n.getY() + n.getHeight());
+            }
+            return b;
+        }
+    }
+
+    private final StyleCache styleCache;
+    private final TextLayoutCache textLayouts;
+
+    public DiagramRenderer() {
+        this(StyleCache.shared());
+    }
+
+    public DiagramRenderer(StyleCache styleCache) {
+        this(styleCache, TextLayoutCache.shared());
+    }
+
+    public DiagramRenderer(StyleCache styleCache, TextLayoutCache textLayouts) {
+        this.styleCache = styleCache;
+        this.textLayouts = textLayouts;
+    }
+
+    /**
+     * Fills the viewport with the background and draws the connections and then the nodes visible in it,
+     * at full detail.
+     */
+    public void render(Graphics2D g, Snapshot snapshot, Viewport viewport) {
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            g2d.setColor(BACKGROUND_COLOR);
+            g2d.fillRect(0, 0, viewport.width, viewport.height);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.translate(viewport.offsetX, viewport.offsetY);
+            g2d.scale(viewport.zoom, viewport.zoom);
+
+            // Generous margin for strokes, arrowheads and text wider than its node
+            double margin = 24 / viewport.zoom + ConnectionGeometry.ARROW_SIZE;
+            double minX = viewport.worldMinX() - margin;
+            double minY = viewport.worldMinY() - margin;
+            double maxX = viewport.worldMaxX() + margin;
+            double maxY = viewport.worldMaxY() + margin;
+
+            for (FlowConnection c : snapshot.getConnections()) {
+                FlowNode from = snapshot.getNode(c.getFromNodeId());
+                FlowNode to = snapshot.getNode(c.getToNodeId());
+                if (from == null || to == null) continue;
+                ConnectionGeometry geometry = ConnectionGeometry.between(from, to);
+                double[] s = geometry.segment;
+                if (Math.max(s[0], s[2]) < minX || Math.min(s[0], s[2]) > maxX
+                        || Math.max(s[1], s[3]) < minY || Math.min(s[1], s[3]) > maxY) continue;
+                drawConnection(g2d, geometry, c);
+            }
+            for (FlowNode n : snapshot.getNodes()) {
+                if (n.getX() + n.getWidth() < minX || n.getX() > maxX || n.getY() + n.getHeight() < minY || n.getY() > maxY) continue;
+                StyleCache.NodeStyle style = nodeStyle(n);
+                Color border = n.getId() != null && n.getId().equals(snapshot.selectedNodeId) ? SUBFLOW_INDICATOR_COLOR : style.border;
+                paintNode(g2d, n, style.fill, border, style, n.getText());
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /** The node's resolved colors and font, with the renderer's defaults. */
+    public StyleCache.NodeStyle nodeStyle(FlowNode node) {
+        return styleCache.nodeStyle(node, NODE_COLOR, CONNECTION_COLOR, TEXT_COLOR, MONO_FONT);
+    }
+
+    /** Draws a connection with its stroke and the arrowheads its direction style asks for, in world coordinates. */
+    public void drawConnection(Graphics2D g2d, ConnectionGeometry geometry, FlowConnection connection) {
+        double[] seg = geometry.segment;
+
+        // Colors and stroke
+        StyleCache.ConnectionStyle style = styleCache.connectionStyle(connection, CONNECTION_COLOR);
+        Stroke old = g2d.getStroke();
+        g2d.setStroke(CONNECTION_STROKE);
+        g2d.setColor(style.line);
+        g2d.drawLine((int) seg[0], (int) seg[1], (int) seg[2], (int) seg[3]);
+
+        // Arrowheads according to direction style
+        g2d.setColor(style.arrow);
+        FlowConnection.DirectionStyle ds = connection.getDirectionStyle();
+        if (ds == FlowConnection.DirectionStyle.FROM_TO || ds == FlowConnection.DirectionStyle.BIDIRECTIONAL) {
+            g2d.fillPolygon(geometry.headX, geometry.headY, 3);
+        }
+        if (ds == FlowConnection.DirectionStyle.TO_FROM || ds == FlowConnection.DirectionStyle.BIDIRECTIONAL) {
+            g2d.fillPolygon(geometry.tailX, geometry.tailY, 3);
+        }
+        g2d.setStroke(old);
+    }
+
+    /** Draws a connection along its orthogonal route, like {@link #drawConnection}, in world coordinates. */
+    public void drawRoute(Graphics2D g2d, OrthogonalRouter.Route route, FlowConnection connection) {
+        StyleCache.ConnectionStyle style = styleCache.connectionStyle(connection, CONNECTION_COLOR);
+        Stroke old = g2d.getStroke();
+        g2d.setStroke(CONNECTION_STROKE);
+        g2d.setColor(style.line);
+        g2d.drawPolyline(route.xs, route.ys, route.getPointCount());
+
+        g2d.setColor(style.arrow);
+        FlowConnection.DirectionStyle ds = connection.getDirectionStyle();
+        if (ds == FlowConnection.DirectionStyle.FROM_TO || ds == FlowConnection.DirectionStyle.BIDIRECTIONAL) {
+            g2d.fillPolygon(route.headX, route.headY, 3);
+        }
+        if (ds == FlowConnection.DirectionStyle.TO_FROM || ds == FlowConnection.DirectionStyle.BIDIRECTIONAL) {
+            g2d.fillPolygon(route.tailX, route.tailY, 3);
+        }
+        g2d.setStroke(old);
+    }
+
+    /**
+     * Draws a connection as a one-pixel line without arrowheads, on a graphics with identity transform;
+     * {@code toDevice} maps its world coordinates. {@code scratch} must hold four values.
+     */
+    public void drawHairline(Graphics2D device, AffineTransform toDevice, ConnectionGeometry geometry,
+                             FlowConnection connection, double[] scratch) {
+        toDevice.transform(geometry.segment, 0, scratch, 0, 2);
+        device.setColor(styleCache.connectionStyle(connection, CONNECTION_COLOR).line);
+        device.drawLine((int) scratch[0], (int) scratch[1], (int) scratch[2], (int) scratch[3]);
+    }
+
+    /** Draws a filled arrowhead at (x2, y2), pointing from (x1, y1). */
+    public void drawArrowHead(Graphics2D g2d, double x1, double y1, double x2, double y2) {
+        int[] xs = new int[3];
+        int[] ys = new int[3];
+        ConnectionGeometry.arrowHead(x1, y1, x2, y2, xs, ys);
+        g2d.fillPolygon(xs, ys, 3);
+    }
+
+    /** Draws the node's bounds as a plain rectangle, for low levels of detail. */
+    public void paintSimpleNode(Graphics2D g2d, FlowNode node, Color fill, Color border) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        g2d.setColor(fill);
+        g2d.fillRect(x, y, node.getWidth(), node.getHeight());
+        g2d.setColor(border);
+        g2d.drawRect(x, y, node.getWidth(), node.getHeight());
+    }
+
+    /** Draws the node's shape, centered text (skipped when {@code text} is null) and subflow marker. */
+    public void paintNode(Graphics2D g2d, FlowNode node, Color fill, Color border, StyleCache.NodeStyle nodeStyle, String text) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        int w = node.getWidth();
+        int h = node.getHeight();
+
+        // Draw shape based on node shape
+        FlowNode.NodeShape shape = node.getShape();
+        g2d.setColor(fill);
+        switch (shape) {
+            case RECTANGLE:
+                g2d.fillRoundRect(x, y, w, h, 12, 12);
+                g2d.setColor(border);
+                g2d.drawRoundRect(x, y, w, h, 12, 12);
+                break;
+            case SQUARE: {
+                int side = Math.min(w, h);
+                g2d.fillRect(x, y, side, side);
+                g2d.setColor(border);
+                g2d.drawRect(x, y, side, side);
+                break;
+            }
+            case OVAL:
+                g2d.fillOval(x, y, w, h);
+                g2d.setColor(border);
+                g2d.drawOval(x, y, w, h);
+                break;
+            case CIRCLE: {
+                int diameter = Math.min(w, h);
+                int cx = x + (w - diameter) / 2;
+                int cy = y + (h - diameter) / 2;
+                g2d.fillOval(cx, cy, diameter, diameter);
+                g2d.setColor(border);
+                g2d.drawOval(cx, cy, diameter, diameter);
+                break;
+            }
+            case DIAMOND: {
+                int cx = x + w / 2;
+                int cy = y + h / 2;
+                Polygon p = new Polygon(
+                    new int[]{cx, x + w, cx, x},
+                    new int[]{y, cy, y + h, cy},
+                    4
+                );
+                g2d.fillPolygon(p);
+                g2d.setColor(border);
+                g2d.drawPolygon(p);
+                break;
+            }
+            default:
+                g2d.fillRoundRect(x, y, w, h, 12, 12);
+                g2d.setColor(border);
+                g2d.drawRoundRect(x, y, w, h, 12, 12);
+        }
+
+        // Node text, left out at low levels of detail
+        if (text != null) {
+            g2d.setColor(nodeStyle.text);
+            Rectangle box = shapeBounds(node);
+            textBlock(node, nodeStyle, text).draw(g2d, box.x + box.width / 2f, box.y + box.height / 2f);
+        }
+
+        // Subflow indicator
+        if (node.hasSubFlow()) {
+            int indicatorSize = 8;
+            int indicatorX = x + w - indicatorSize - 6;
+            int indicatorY = y + h - indicatorSize - 6;
+            g2d.setColor(SUBFLOW_INDICATOR_COLOR);
+            g2d.fillOval(indicatorX, indicatorY, indicatorSize, indicatorSize);
+        }
+    }
+
+    /**
+     * The text wrapped to the box it gets inside the node's shape, which it never exceeds, from the
+     * shared layout cache.
+     */
+    public TextLayoutCache.TextBlock textBlock(FlowNode node, StyleCache.NodeStyle nodeStyle, String text) {
+        Rectangle box = shapeBounds(node);
+        double inset = textInset(node.getShape());
+        return textLayouts.layout(text, nodeStyle.font, box.width * inset - 2 * TEXT_PADDING,
+                box.height * inset - TEXT_PADDING);
+    }
+
+    /**
+     * Smallest node size whose shape holds the text wrapped to at most {@code maxTextWidth}, with at most
+     * {@code maxTextHeight} of lines. Squares and circles get equal sides.
+     */
+    public Dimension fittedSize(FlowNode node, StyleCache.NodeStyle nodeStyle, String text, int maxTextWidth, int maxTextHeight) {
+        TextLayoutCache.TextBlock block = textLayouts.layout(text, nodeStyle.font, maxTextWidth, maxTextHeight);
+        double inset = textInset(node.getShape());
+        // A pixel to spare, so that wrapping the text to the fitted box gives the same lines
+        int w = (int) Math.ceil((Math.ceil(block.getWidth()) + 2 * TEXT_PADDING + 1) / inset);
+        int h = (int) Math.ceil((Math.ceil(block.getHeight()) + TEXT_PADDING + 1) / inset);
+        if (node.getShape() == FlowNode.NodeShape.SQUARE || node.getShape() == FlowNode.NodeShape.CIRCLE) {
+            w = h = Math.max(w, h);
+        }
+        return new Dimension(w, h);
+    }
+
+    /** Share of the shape's bounds that text may use: round shapes leave the inscribed rectangle, a diamond half. */
+    private static double textInset(FlowNode.NodeShape shape) {
+        switch (shape) {
+            case OVAL:
+            case CIRCLE:
+                return Math.sqrt(0.5);
+            case DIAMOND:
+                return 0.5;
+            default:
+                return 1;
+        }
+    }
+
+    /** Bounds of the shape actually drawn, which squares and circles keep square. */
+    private static Rectangle shapeBounds(FlowNode node) {
+        int x = (int) node.getX();
+        int y = (int) node.getY();
+        int w = node.getWidth();
+        int h = node.getHeight();
+        switch (node.getShape()) {
+            case SQUARE: {
+                int side = Math.min(w, h);
+                return new Rectangle(x, y, side, side);
+            }
+            case CIRCLE: {
+                int diameter = Math.min(w, h);
+                return new Rectangle(x + (w - diameter) / 2, y + (h - diameter) / 2, diameter, diameter);
+            }
+            default:
+                return new Rectangle(x, y, w, h);
+        }
+    }
+
+    // --- Timeline
+
+    /** Total height of the timeline band, paddings included. */
+    public static int getTimelinePreferredHeight() {
+        return TIMELINE_HEIGHT + 2 * TIMELINE_PADDING;
+    }
+
+    public void paintTimelineBackground(Graphics2D g, Rectangle bounds) {
+        g.setColor(TIMELINE_BG);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /** Draws the timeline track, events with their labels, and the usage hint inside the band. */
+    public void paintTimeline(Graphics2D g2d, List<TimelineEvent> events, Rectangle r) {
+        int trackY = r.y + TIMELINE_PADDING + (TIMELINE_HEIGHT / 2) - (TIMELINE_TRACK_HEIGHT / 2);
+        int trackX = r.x + TIMELINE_PADDING;
+        int trackW = r.width - 2 * TIMELINE_PADDING;
+
+        // Track
+        g2d.setColor(TIMELINE_TRACK);
+        g2d.fillRoundRect(trackX, trackY, trackW, TIMELINE_TRACK_HEIGHT, TIMELINE_TRACK_HEIGHT, TIMELINE_TRACK_HEIGHT);
+
+        // Events; formats are not thread-safe, so each call has its own
+        SimpleDateFormat timestampFormat = new SimpleDateFormat(TIMESTAMP_PATTERN);
+        for (TimelineEvent ev : events) {
+            int ex = trackX + (int) Math.round(ev.getPosition() * trackW);
+            int ey = trackY + TIMELINE_TRACK_HEIGHT / 2;
+            // point
+            g2d.setColor(TIMELINE_EVENT);
+            g2d.fillOval(ex - TIMELINE_EVENT_RADIUS, ey - TIMELINE_EVENT_RADIUS, TIMELINE_EVENT_RADIUS * 2, TIMELINE_EVENT_RADIUS * 2);
+            // label
+            g2d.setFont(MONO_FONT);
+            g2d.setColor(TEXT_COLOR);
+            String label = ev.getLabel();
+            Date ts = ev.getTimestamp();
+            String labelText = (ts != null ? (timestampFormat.format(ts) + " - ") : "") + (label != null ? label : "");
+            int strW = g2d.getFontMetrics().stringWidth(labelText);
+            int lx = Math.max(trackX, Math.min(ex - strW / 2, trackX + trackW - strW));
+            int ly = ey - TIMELINE_EVENT_RADIUS - 6;
+            g2d.drawString(labelText, lx, ly);
+        }
+
+        // Hint
+        g2d.setFont(TIMELINE_FONT);
+        g2d.setColor(TEXT_COLOR.darker());
+        g2d.drawString(I18n.t("canvas.timeline.hint"), trackX, trackY + TIMELINE_TRACK_HEIGHT + 18);
+    }
+}
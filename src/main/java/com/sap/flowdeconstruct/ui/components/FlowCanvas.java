@@ -1,5 +1,12 @@
 package com.sap.flowdeconstruct.ui.components;
 
+import com.sap.flowdeconstruct.core.ConnectionGeometry;
+import com.sap.flowdeconstruct.core.DiagramSpatialIndex;
+import com.sap.flowdeconstruct.core.ForceDirectedLayout;
+import com.sap.flowdeconstruct.core.IncrementalPlacer;
+import com.sap.flowdeconstruct.core.LayeredLayout;
+import com.sap.flowdeconstruct.core.LayoutJob;
+import com.sap.flowdeconstruct.core.OrthogonalRouter;
 import com.sap.flowdeconstruct.model.FlowConnection;
 import com.sap.flowdeconstruct.model.FlowDiagram;
 import com.sap.flowdeconstruct.model.FlowNode;
@@ -13,10 +20,15 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Date;
-import java.text.SimpleDateFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Canvas component for rendering and interacting with flow diagrams
@@ -25,27 +37,118 @@ import java.text.SimpleDateFormat;
 public class FlowCanvas extends JPanel implements MouseListener, MouseMotionListener, KeyListener, FocusListener {
     
     // Design constants from design.md
-    private static final Color BACKGROUND_COLOR = new Color(0x2d, 0x2d, 0x2d);
-    private static final Color NODE_COLOR = new Color(0x3a, 0x3a, 0x3a);
+    private static final Color BACKGROUND_COLOR = DiagramRenderer.BACKGROUND_COLOR;
+    private static final Color NODE_COLOR = DiagramRenderer.NODE_COLOR;
     private static final Color NODE_SELECTED_COLOR = new Color(0x5f, 0x9e, 0xa0);
-    private static final Color NODE_EDITING_COLOR = new Color(0x4a, 0x4a, 0x4a);
-    private static final Color TEXT_COLOR = new Color(0xcc, 0xcc, 0xcc);
-    private static final Color CONNECTION_COLOR = new Color(0x66, 0x66, 0x66);
-    private static final Color SUBFLOW_INDICATOR_COLOR = new Color(0x5f, 0x9e, 0xa0);
-    private static final SimpleDateFormat TIMESTAMP_FMT = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-    private static final Font MONO_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color NODE_EDITING_COLOR = DiagramRenderer.NODE_EDITING_COLOR;
+    private static final Color TEXT_COLOR = DiagramRenderer.TEXT_COLOR;
+    private static final Color CONNECTION_COLOR = DiagramRenderer.CONNECTION_COLOR;
+    private static final Color SUBFLOW_INDICATOR_COLOR = DiagramRenderer.SUBFLOW_INDICATOR_COLOR;
+    private static final Font MONO_FONT = DiagramRenderer.MONO_FONT;
+    private static final Font WELCOME_FONT = MONO_FONT.deriveFont(16f);
+    private static final Stroke CONNECT_PREVIEW_STROKE = new BasicStroke(1.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0f, new float[]{6f, 6f}, 0f);
     private static final int NODE_WIDTH = 120;
     private static final int NODE_HEIGHT = 40;
     private static final int NODE_SPACING_X = 160;
-    private static final int NODE_SPACING_Y = 80;
     private static final int CANVAS_MARGIN = 50;
+    // Screen pixels around the viewport still drawn, for strokes, arrowheads and text wider than its node
+    private static final int CULL_MARGIN = 24;
+    // World units added around damaged areas for antialiasing, stroke width and arrowheads
+    private static final int DAMAGE_MARGIN = 12;
+    // Screen pixels rendered around the viewport into the pan layer, so small pans are a plain blit
+    private static final int PAN_LAYER_MARGIN = 256;
+    // Screen pixels per cell when nodes are aggregated at the lowest level of detail
+    private static final int AGGREGATE_CELL_PIXELS = 6;
+    // Aggregated block colors, from sparse to dense cells
+    private static final Color[] AGGREGATE_COLORS = aggregateColors(6);
+    private static final double MIN_ZOOM = 0.1;
+    private static final double MAX_ZOOM = 4.0;
+    // Factor per zoom in or out step
+    private static final double ZOOM_STEP = 1.25;
+    // Screen pixels left around the nodes when zooming to fit them
+    private static final int FIT_PADDING = 40;
+    // Fitting a few small nodes should not blow them up
+    private static final double MAX_FIT_ZOOM = 2.0;
+    private static final int VIEW_ANIMATION_MILLIS = 250;
+    // A pan released faster than this, in screen pixels per millisecond, keeps gliding
+    private static final double MIN_FLING_SPEED = 0.5;
+    // A pan held still this long before the release does not glide
+    private static final int FLING_IDLE_MILLIS = 60;
+    private static final int FLING_MILLIS = 600;
+    /** Property fired when another diagram is shown. */
+    public static final String FLOW_DIAGRAM_PROPERTY = "flowDiagram";
+    /** Property fired whenever the zoom or view offset changes, e.g. for overviews tracking the view. */
+    public static final String VIEW_PROPERTY = "view";
+    // How often the HUD measures the event queue delay and refreshes itself
+    private static final int HUD_PROBE_MILLIS = 100;
+    private static final Font HUD_FONT = MONO_FONT.deriveFont(11f);
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 180);
+    private static final Color HUD_TEXT_COLOR = new Color(0x9a, 0xe6, 0x9a);
+    // Posts the HUD's queue delay probes; the probes themselves run on the event dispatch thread
+    private static final ScheduledExecutorService HUD_PROBE = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "FlowCanvas HUD probe");
+        t.setDaemon(true);
+        return t;
+    });
     private static String getDefaultNodeText() {
         return I18n.t("canvas.default.node");
     }
     
     private FlowDiagram flowDiagram;
+    private DiagramSpatialIndex spatialIndex;
+    // Routes connections around nodes when orthogonal routing is on; null otherwise
+    private OrthogonalRouter router;
+    private boolean orthogonalRouting = Boolean.getBoolean("flowdeconstruct.orthogonalRoutes");
+    // Puts new nodes next to their neighbours without moving the rest of the diagram
+    private IncrementalPlacer placer;
+    // Sizes auto-fit nodes to their text
+    private NodeAutoFitter autoFitter;
+    private final FlowDiagram.DiagramStateListener diagramListener = this::onDiagramStateChanged;
+    private final RenderStats renderStats = new RenderStats();
+    // Recent frame timings and input latencies, shown by the HUD
+    private final FrameStats frameStats = new FrameStats();
+    private boolean hudVisible;
+    private ScheduledFuture<?> hudProbe;
+    // Device area the HUD was last painted in
+    private Rectangle hudBounds = new Rectangle();
+    // When the first key typed since the last paint was posted, on the System.nanoTime() clock, or 0
+    private long keyTypedNanos;
+    private final StyleCache styleCache = StyleCache.shared();
+    // All node, connection and timeline drawing; the canvas adds culling, sprites, levels of detail and layers
+    private final DiagramRenderer renderer = new DiagramRenderer(styleCache);
+    private final NodeSpriteCache nodeSprites = new NodeSpriteCache();
+    private boolean nodeSpritesEnabled = !"false".equalsIgnoreCase(System.getProperty("flowdeconstruct.nodeSprites"));
     private FlowNode editingNode;
     private String editingText = "";
+    // Set while the canvas changes the model and repaints the damaged area itself
+    private boolean repaintingLocally;
+    // Drags (node moves and pans) paint from a cached layer of everything they leave unchanged
+    private boolean layeredRenderingEnabled = !"false".equalsIgnoreCase(System.getProperty("flowdeconstruct.layeredDrag"));
+    private boolean layeredDrag;
+    private StaticLayer staticLayer;
+    // Zoomed far out, text, shapes and finally single nodes are simplified away
+    private final LevelOfDetail levelOfDetail = new LevelOfDetail();
+    private LevelOfDetail.Tier detailTier = LevelOfDetail.Tier.FULL;
+    // Repaint requests and model events are coalesced into at most one paint per display frame
+    private final FrameScheduler frameScheduler = new FrameScheduler(
+            (x, y, w, h) -> FlowCanvas.super.repaint(0, x, y, w, h), this::beforeFrame,
+            Integer.getInteger("flowdeconstruct.maxFps", FrameScheduler.DEFAULT_MAX_FPS));
+    // Set by node additions and removals, checked once per frame
+    private volatile boolean layoutCheckPending;
+    // Nodes added at the origin, e.g. by an import or sync, placed at the next frame once connected
+    private final List<FlowNode> pendingPlacement = new ArrayList<>();
+    // Layout computing in the background, applied on the event dispatch thread
+    private LayoutJob<?> layoutJob;
+    // Animated zooms and pans paint from world tiles, rendered once per zoom level and reused until they change
+    private final TileCache tileCache = new TileCache();
+    private boolean tiledViewEnabled = !"false".equalsIgnoreCase(System.getProperty("flowdeconstruct.tiles"));
+    private ViewAnimation viewAnimation;
+    // Pan velocity in screen pixels per millisecond, smoothed over the last drag events, for the fling
+    private double panVelocityX;
+    private double panVelocityY;
+    private long lastPanWhen;
+    private boolean panning;
+    private final Timer animationTimer = new Timer(1000 / FrameScheduler.DEFAULT_MAX_FPS, e -> stepViewAnimation());
     
     // Canvas state
     private Point2D.Double viewOffset = new Point2D.Double(0, 0);
@@ -61,13 +164,10 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     // Timeline state
     public enum Mode { FLOW_ONLY, TIMELINE_ONLY, BOTH }
     private Mode mode = Mode.FLOW_ONLY;
-    private static final int TIMELINE_HEIGHT = 120;
-    private static final int TIMELINE_PADDING = 16;
-    private static final int TIMELINE_TRACK_HEIGHT = 6;
-    private static final int TIMELINE_EVENT_RADIUS = 7;
-    private static final Color TIMELINE_BG = new Color(0x24, 0x24, 0x24);
-    private static final Color TIMELINE_TRACK = new Color(0x55, 0x55, 0x55);
-    private static final Color TIMELINE_EVENT = new Color(0x5f, 0x9e, 0xa0);
+    private static final int TIMELINE_HEIGHT = DiagramRenderer.TIMELINE_HEIGHT;
+    private static final int TIMELINE_PADDING = DiagramRenderer.TIMELINE_PADDING;
+    private static final int TIMELINE_TRACK_HEIGHT = DiagramRenderer.TIMELINE_TRACK_HEIGHT;
+    private static final int TIMELINE_EVENT_RADIUS = DiagramRenderer.TIMELINE_EVENT_RADIUS;
 
     // Interação com eventos da timeline
     private TimelineEvent draggingEvent = null;
@@ -92,6 +192,10 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
                 requestFocusInWindow();
             }
         });
+        
+        if (Boolean.getBoolean("flowdeconstruct.hud")) {
+            setHudVisible(true);
+        }
     }
 
     public void setMode(Mode m) {
@@ -109,7 +213,30 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     public void setFlowDiagram(FlowDiagram diagram) {
         System.out.println("FlowCanvas.setFlowDiagram: Setting diagram: " + 
                           (diagram != null ? diagram.getName() : "null"));
+        FlowDiagram previous = this.flowDiagram;
+        if (previous != null) {
+            previous.removeStateListener(diagramListener);
+        }
         this.flowDiagram = diagram;
+        cancelLayout();
+        stopViewAnimation();
+        nodeSprites.clear();
+        tileCache.clear();
+        dropStaticLayer();
+        if (router != null) {
+            router.detach();
+            router = null;
+        }
+        if (spatialIndex != null) {
+            spatialIndex.detach();
+            spatialIndex = null;
+        }
+        placer = null;
+        if (autoFitter != null) {
+            autoFitter.detach();
+            autoFitter = null;
+        }
+        pendingPlacement.clear();
         
         if (diagram != null) {
             System.out.println("FlowCanvas.setFlowDiagram: Diagram has " + diagram.getNodes().size() + " nodes");
@@ -117,21 +244,13 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
             if (allNodesUnpositioned()) {
                 autoLayoutNodes();
             }
+            spatialIndex = DiagramSpatialIndex.attach(diagram);
+            placer = new IncrementalPlacer(spatialIndex);
+            autoFitter = NodeAutoFitter.attach(diagram, renderer);
+            if (orthogonalRouting) router = OrthogonalRouter.attach(spatialIndex, SwingUtilities::invokeLater, this::onRoutesFound);
             
             // Add listener for diagram changes
-            diagram.addStateListener((d, event, oldValue, newValue) -> {
-                System.out.println("FlowCanvas: Diagram event: " + event);
-                SwingUtilities.invokeLater(() -> {
-                    // Avoid resetting user-arranged positions. Only auto-layout if all nodes are still unpositioned.
-                    if (("nodeAdded".equals(event) || "nodeRemoved".equals(event)) && allNodesUnpositioned()) {
-                        autoLayoutNodes();
-                    }
-                    // Don't repaint during text editing to avoid interrupting the editing process
-                    if (editingNode == null || !"nodeModified".equals(event)) {
-                        repaint();
-                    }
-                });
-            });
+            diagram.addStateListener(diagramListener);
         } else {
             System.out.println("FlowCanvas.setFlowDiagram: Diagram is null");
         }
@@ -155,28 +274,202 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
             requestFocusInWindow();
             System.out.println("FlowCanvas.setFlowDiagram: Requested focus again");
         });
+        firePropertyChange(FLOW_DIAGRAM_PROPERTY, previous, diagram);
+    }
+    
+    private void onDiagramStateChanged(FlowDiagram d, String event, Object oldValue, Object newValue) {
+        // The caches below belong to the event dispatch thread
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> onDiagramStateChanged(d, event, oldValue, newValue));
+            return;
+        }
+        // Events queued before another diagram was shown
+        if (d != flowDiagram) return;
+        if (repaintingLocally && "nodeModified".equals(event)) return;
+        dropStaticLayer();
+        Rectangle2D.Double damage = eventDamage(event, oldValue, newValue);
+        if (damage == null) {
+            // A bulk change may be anywhere, also in tiles out of sight
+            tileCache.clear();
+            if (spatialIndex != null) spatialIndex.takeDamage();
+            if (router != null) router.takeDamage();
+        }
+        if ("nodeAdded".equals(event) || "nodeRemoved".equals(event)) {
+            if ("nodeAdded".equals(event)) {
+                FlowNode added = (FlowNode) newValue;
+                if (added.getX() == 0 && added.getY() == 0 && !added.isPinned()) pendingPlacement.add(added);
+            }
+            layoutCheckPending = true;
+            frameScheduler.requestFrame();
+        }
+        // Don't repaint during text editing to avoid interrupting the editing process
+        if (editingNode == null || !"nodeModified".equals(event)) {
+            if (damage == null) repaint();
+            else repaintWorld(damage);
+        } else if (damage != null) {
+            invalidateTiles(damage);
+        }
+    }
+    
+    /**
+     * World area whose drawing an incremental model event changed: the nodes it names, with their text and
+     * connections, and where the index and the router saw nodes, segments and routes go or come.
+     * Null for bulk events and those not known to stay local.
+     */
+    private Rectangle2D.Double eventDamage(String event, Object oldValue, Object newValue) {
+        Rectangle2D.Double damage = null;
+        switch (event) {
+            case "nodeModified":
+            case "nodeRemoved":
+                damage = nodeDamage((FlowNode) oldValue, true);
+                break;
+            case "nodeAdded":
+                damage = nodeDamage((FlowNode) newValue, true);
+                break;
+            case "selectedNode":
+                damage = nodeDamage((FlowNode) oldValue, false);
+                Rectangle2D.Double selected = nodeDamage((FlowNode) newValue, false);
+                if (damage == null) damage = selected;
+                else if (selected != null) damage.add(selected);
+                break;
+            case "connectionAdded":
+            case "connectionRemoved":
+                break;
+            default:
+                return null;
+        }
+        Rectangle2D.Double indexDamage = spatialIndex != null ? spatialIndex.takeDamage() : null;
+        Rectangle2D.Double routeDamage = router != null ? router.takeDamage() : null;
+        for (Rectangle2D.Double area : new Rectangle2D.Double[] { indexDamage, routeDamage }) {
+            if (area == null) continue;
+            if (damage == null) damage = area;
+            else damage.add(area);
+        }
+        return damage != null ? damage : new Rectangle2D.Double();
+    }
+    
+    private Rectangle2D.Double nodeDamage(FlowNode node, boolean withConnections) {
+        if (node == null) return null;
+        return nodeDamage(node, node == editingNode ? editingText : node.getText(), withConnections);
+    }
+    
+    /** Repaints where routes searched in the background replaced their straight stand-ins. */
+    private void onRoutesFound() {
+        if (router != null) repaintWorld(router.takeDamage());
+    }
+    
+    public FlowDiagram getFlowDiagram() {
+        return flowDiagram;
+    }
+    
+    /** Runs on the event dispatch thread before each coalesced frame. */
+    private void beforeFrame() {
+        if (!layoutCheckPending) return;
+        layoutCheckPending = false;
+        // Avoid resetting user-arranged positions. Only auto-layout if all nodes are still unpositioned.
+        if (flowDiagram != null && allNodesUnpositioned()) {
+            autoLayoutNodes();
+        } else if (placer != null) {
+            for (FlowNode node : pendingPlacement) {
+                // Skip nodes removed or moved since they were added
+                if (spatialIndex.getNode(node.getId()) == node && node.getX() == 0 && node.getY() == 0) placer.place(node);
+            }
+        }
+        pendingPlacement.clear();
+    }
+    
+    /**
+     * Queues the area for the next frame of the {@link FrameScheduler} instead of repainting it directly,
+     * so bursts of model events and repaint calls cost at most one paint per display frame.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // Called by the Swing constructors before the scheduler exists
+        if (frameScheduler == null) {
+            super.repaint(tm, x, y, width, height);
+            return;
+        }
+        // The tiles belong to the event dispatch thread, and so does the view they are invalidated in
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> repaint(tm, x, y, width, height));
+            return;
+        }
+        // Whatever is repainted may look different now, at any zoom level
+        if (tileCache.size() > 0 && width > 0 && height > 0) {
+            double m = DAMAGE_MARGIN / MIN_ZOOM;
+            tileCache.invalidate((x - viewOffset.x) / zoomLevel - m, (y - viewOffset.y) / zoomLevel - m,
+                    (x + width - viewOffset.x) / zoomLevel + m, (y + height - viewOffset.y) / zoomLevel + m);
+        }
+        frameScheduler.invalidate(x, y, width, height);
+    }
+    
+    /** Repaints everything for a change of the view alone, which leaves the tiles valid. */
+    private void repaintView() {
+        frameScheduler.invalidate(0, 0, getWidth(), getHeight());
+    }
+    
+    /**
+     * Caps how often the canvas repaints, e.g. 60 or 120 frames per second; 0 or less only coalesces.
+     * The default is 60, or the system property {@code flowdeconstruct.maxFps}.
+     */
+    public void setMaxFrameRate(int fps) {
+        frameScheduler.setMaxFps(fps);
+    }
+    
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
     }
     
     private void autoLayoutNodes() {
         if (flowDiagram == null || flowDiagram.getNodes().isEmpty()) {
             return;
         }
-        
-        List<FlowNode> nodes = flowDiagram.getNodes();
-        
-        // Simple grid layout
-        int nodesPerRow = Math.max(1, (int) Math.ceil(Math.sqrt(nodes.size())));
-        
-        for (int i = 0; i < nodes.size(); i++) {
-            FlowNode node = nodes.get(i);
-            
-            int row = i / nodesPerRow;
-            int col = i % nodesPerRow;
-            
-            double x = CANVAS_MARGIN + col * NODE_SPACING_X;
-            double y = CANVAS_MARGIN + row * NODE_SPACING_Y;
-            
-            node.setPosition((int)x, (int)y);
+        arrangeNodes();
+    }
+    
+    /**
+     * Arranges all nodes with the {@link LayeredLayout} along their connections. The layout is computed
+     * off the event dispatch thread and applied as one batch; a newer request or another diagram
+     * cancels a layout still in progress.
+     */
+    public void arrangeNodes() {
+        cancelLayout();
+        if (flowDiagram == null) return;
+        LayoutJob<LayeredLayout.Result> job = LayeredLayout.start(flowDiagram, SwingUtilities::invokeLater);
+        layoutJob = job;
+        job.getFuture().whenComplete((result, error) -> {
+            // Without an error this runs on the event dispatch thread, after the positions were applied
+            if (error == null && layoutJob == job) layoutJob = null;
+        });
+    }
+    
+    /**
+     * Switches every node to auto-fit and sizes it to its text, as one batched update, e.g. after an import.
+     */
+    public void autoFitAllNodes() {
+        if (autoFitter == null) return;
+        autoFitter.fitAll();
+    }
+    
+    /**
+     * Arranges all nodes with the {@link ForceDirectedLayout}, for maps that are not hierarchies. The
+     * simulation runs in the background and the canvas shows it converging; pinned nodes stay put, and
+     * grabbing a node stops it.
+     */
+    public void arrangeNodesForceDirected() {
+        cancelLayout();
+        if (flowDiagram == null) return;
+        LayoutJob<ForceDirectedLayout> job = ForceDirectedLayout.start(flowDiagram, SwingUtilities::invokeLater);
+        layoutJob = job;
+        job.getFuture().whenComplete((result, error) -> {
+            if (error == null && layoutJob == job) layoutJob = null;
+        });
+    }
+    
+    private void cancelLayout() {
+        if (layoutJob != null) {
+            layoutJob.cancel();
+            layoutJob = null;
         }
     }
     
@@ -212,31 +505,331 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
             return;
         }
         
+        long paintStart = System.nanoTime();
+        Rectangle clip = g.getClipBounds() != null ? g.getClipBounds() : new Rectangle(0, 0, getWidth(), getHeight());
+        // Routes around the dragged node change as it moves, so they cannot come from a cached layer
+        int[] drawn;
+        if (viewAnimation != null && tiledViewEnabled) {
+            drawn = paintTiled(g, clip);
+        } else if (layeredDrag && layeredRenderingEnabled && connectStartNode == null && router == null) {
+            drawn = paintLayered(g, clip);
+        } else {
+            drawn = paintFlow(g, clip, null, null);
+        }
+        long paintNanos = System.nanoTime() - paintStart;
+        renderStats.record(drawn[1], flowDiagram.getNodeCount(), drawn[0], flowDiagram.getConnectionCount(), paintNanos);
+        
+        if (mode == Mode.BOTH) {
+            paintTimeline((Graphics2D) g);
+        }
+        
+        // Frames that only refresh the HUD would skew its own numbers
+        if (!hudVisible || !hudBounds.contains(clip)) {
+            frameStats.recordFrame(paintNanos, renderStats.getNodesDrawn(), renderStats.getNodesCulled(),
+                    renderStats.getConnectionsDrawn(), renderStats.getConnectionsCulled());
+        }
+        if (keyTypedNanos != 0) {
+            frameStats.recordKeyLatency(System.nanoTime() - keyTypedNanos);
+            keyTypedNanos = 0;
+        }
+        if (hudVisible) {
+            paintHud((Graphics2D) g, clip);
+        }
+    }
+    
+    /** Draws the HUD in the top left corner of the visible area, in device coordinates, over everything else. */
+    private void paintHud(Graphics2D g, Rectangle clip) {
+        List<String> lines = frameStats.summary();
+        g.setFont(HUD_FONT);
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) width = Math.max(width, fm.stringWidth(line));
+        // The canvas scrolls inside the main window, so the corner moves with the visible rectangle
+        Rectangle visible = getVisibleRect();
+        Rectangle bounds = new Rectangle(visible.x + 8, visible.y + 8, width + 16, lines.size() * fm.getHeight() + 12);
+        // Text only partly repainted would mix old and new numbers
+        if (clip.intersects(bounds) && !clip.contains(bounds)) {
+            frameScheduler.invalidate(bounds.x, bounds.y, bounds.width, bounds.height);
+        }
+        if (!bounds.equals(hudBounds)) {
+            Rectangle old = hudBounds;
+            hudBounds = bounds;
+            frameScheduler.invalidate(old.x, old.y, old.width, old.height);
+        }
+        g.setColor(HUD_BACKGROUND);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(HUD_TEXT_COLOR);
+        int y = bounds.y + 6 + fm.getAscent();
+        for (String line : lines) {
+            g.drawString(line, bounds.x + 8, y);
+            y += fm.getHeight();
+        }
+    }
+
+    /**
+     * Paints connections and nodes inside the device rectangle, leaving out the connections of {@code exclude}
+     * and the nodes in {@code excludeNodes}. Returns the number of connections and nodes drawn.
+     */
+    private int[] paintFlow(Graphics g, Rectangle area, FlowNode exclude, List<FlowNode> excludeNodes) {
+        return paintFlow(g, area, viewOffset.x, viewOffset.y, zoomLevel, exclude, excludeNodes);
+    }
+    
+    /** Like {@link #paintFlow(Graphics, Rectangle, FlowNode, List)}, for the given view instead of the current one. */
+    private int[] paintFlow(Graphics g, Rectangle area, double offsetX, double offsetY, double zoom,
+                            FlowNode exclude, List<FlowNode> excludeNodes) {
+        if (area.isEmpty()) return new int[2];
+        Graphics2D g2d = flowGraphics(g, area, offsetX, offsetY, zoom);
+        try {
+            // Only what intersects the visible world rectangle is drawn
+            double margin = CULL_MARGIN / zoom;
+            double minX = (area.x - offsetX) / zoom - margin;
+            double minY = (area.y - offsetY) / zoom - margin;
+            double maxX = (area.x + area.width - offsetX) / zoom + margin;
+            double maxY = (area.y + area.height - offsetY) / zoom + margin;
+            
+            // Draw connections first (behind nodes)
+            int connectionsDrawn = drawConnections(g2d, minX, minY, maxX, maxY, exclude);
+            
+            // Draw nodes
+            int nodesDrawn = detailTier == LevelOfDetail.Tier.AGGREGATED
+                    ? drawAggregatedNodes(g2d, minX, minY, maxX, maxY, excludeNodes)
+                    : drawNodes(g2d, minX, minY, maxX, maxY, excludeNodes);
+            return new int[] { connectionsDrawn, nodesDrawn };
+        } finally {
+            g2d.dispose();
+        }
+    }
+    
+    /**
+     * A copy of the graphics clipped to the device rectangle, with antialiasing and the view transform applied.
+     * Also picks the level of detail for the current zoom.
+     */
+    private Graphics2D flowGraphics(Graphics g, Rectangle area) {
+        return flowGraphics(g, area, viewOffset.x, viewOffset.y, zoomLevel);
+    }
+    
+    private Graphics2D flowGraphics(Graphics g, Rectangle area, double offsetX, double offsetY, double zoom) {
         Graphics2D g2d = (Graphics2D) g.create();
+        g2d.clipRect(area.x, area.y, area.width, area.height);
+        detailTier = levelOfDetail.tierFor(zoom);
         
-        // Enable antialiasing
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // Enable antialiasing, unless shapes are only a few pixels wide anyway
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, isHairlineDetail() ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         
-        // Apply zoom and pan transformations
-        AffineTransform transform = new AffineTransform();
-        transform.translate(viewOffset.x, viewOffset.y);
-        transform.scale(zoomLevel, zoomLevel);
-        g2d.setTransform(transform);
+        // Apply zoom and pan on top of the device transform, so offscreen layers and HiDPI screens line up
+        g2d.translate(offsetX, offsetY);
+        g2d.scale(zoom, zoom);
+        return g2d;
+    }
+    
+    /**
+     * Paints an animation frame from the tile cache. Tiles are rendered at the lower of the animation's two
+     * zoom levels and scaled to the current one, so a zoom renders each tile once rather than every frame.
+     */
+    private int[] paintTiled(Graphics g, Rectangle clip) {
+        int[] drawn = new int[2];
+        tileCache.paint((Graphics2D) g, clip, viewOffset.x, viewOffset.y, zoomLevel, viewAnimation.tileZoom,
+                getGraphicsConfiguration(), (tile, area, zoom) -> addCounts(drawn, paintFlow(tile, area, 0, 0, zoom, null, null)));
+        return drawn;
+    }
+    
+    /**
+     * Paints a drag frame from the static layer: the cached image of everything the drag does not change,
+     * placed according to any pan, plus, for node drags, the dragged node's connections and then the
+     * dragged node and its neighbours on top. Drawing the
+     * neighbours late keeps the connection ends underneath them, as in normal painting.
+     */
+    private int[] paintLayered(Graphics g, Rectangle clip) {
+        FlowNode moving = draggingNode;
+        Rectangle visible = getVisibleRect();
+        if (staticLayer == null || !staticLayer.isReusable(moving, zoomLevel, visible, viewOffset)) {
+            staticLayer = renderStaticLayer(moving, visible);
+        }
+        int[] drawn = new int[2];
+        int dx = (int) (viewOffset.x - staticLayer.offsetX);
+        int dy = (int) (viewOffset.y - staticLayer.offsetY);
+        int margin = staticLayer.margin;
+        if (Math.abs(dx) > margin || Math.abs(dy) > margin) {
+            addCounts(drawn, scrollStaticLayer(dx, dy, visible));
+            dx = 0;
+            dy = 0;
+        }
+        g.drawImage(staticLayer.image, visible.x - margin + dx, visible.y - margin + dy, null);
         
-        // Draw connections first (behind nodes)
-        drawConnections(g2d);
+        if (moving != null) {
+            Graphics2D g2d = flowGraphics(g, clip);
+            try {
+                if (isHairlineDetail()) {
+                    AffineTransform toDevice = g2d.getTransform();
+                    Graphics2D device = (Graphics2D) g2d.create();
+                    device.setTransform(new AffineTransform());
+                    double[] pts = new double[4];
+                    try {
+                        for (FlowConnection conn : spatialIndex.getConnectionsOf(moving)) {
+                            ConnectionGeometry geometry = spatialIndex.geometryOf(conn);
+                            if (geometry != null) {
+                                renderer.drawHairline(device, toDevice, geometry, conn, pts);
+                                drawn[0]++;
+                            }
+                        }
+                    } finally {
+                        device.dispose();
+                    }
+                } else {
+                    for (FlowConnection conn : spatialIndex.getConnectionsOf(moving)) {
+                        ConnectionGeometry geometry = spatialIndex.geometryOf(conn);
+                        if (geometry != null) {
+                            renderer.drawConnection(g2d, geometry, conn);
+                            drawn[0]++;
+                        }
+                    }
+                }
+                for (FlowNode node : staticLayer.dynamicNodes) {
+                    drawNode(g2d, node);
+                    drawn[1]++;
+                }
+            } finally {
+                g2d.dispose();
+            }
+        }
+        return drawn;
+    }
+    
+    private StaticLayer renderStaticLayer(FlowNode exclude, Rectangle visible) {
+        if (staticLayer != null) staticLayer.image.flush();
+        List<FlowNode> dynamicNodes = new ArrayList<>();
+        if (exclude != null) {
+            dynamicNodes.add(exclude);
+            for (FlowConnection conn : spatialIndex.getConnectionsOf(exclude)) {
+                String otherId = exclude.getId().equals(conn.getFromNodeId()) ? conn.getToNodeId() : conn.getFromNodeId();
+                FlowNode other = spatialIndex.getNode(otherId);
+                if (other != null && !dynamicNodes.contains(other)) dynamicNodes.add(other);
+            }
+            spatialIndex.sortInListOrder(dynamicNodes);
+        }
+        // Node drags do not pan, so only pans need the layer to reach beyond the viewport
+        int margin = exclude == null ? PAN_LAYER_MARGIN : 0;
+        Rectangle area = new Rectangle(visible.x - margin, visible.y - margin,
+                Math.max(1, visible.width) + 2 * margin, Math.max(1, visible.height) + 2 * margin);
+        int w = area.width;
+        int h = area.height;
+        // Without the timeline underneath, the layer can include the background and be copied rather than blended
+        boolean opaque = mode == Mode.FLOW_ONLY && isOpaque();
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(w, h, opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT)
+                : new BufferedImage(w, h, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            if (opaque) {
+                g.setColor(getBackground());
+                g.fillRect(0, 0, w, h);
+            }
+            // Layer pixels map to the visible rectangle grown by the margin
+            g.translate(-area.x, -area.y);
+            paintFlow(g, area, exclude, dynamicNodes);
+        } finally {
+            g.dispose();
+        }
+        return new StaticLayer(image, opaque, new Rectangle(visible), margin, viewOffset.x, viewOffset.y, zoomLevel,
+                exclude, dynamicNodes);
+    }
+    
+    /**
+     * Re-centers the layer on the view after a pan beyond its margin, by shifting its pixels in place and
+     * painting only the strips that came into range, the vertical strip first. Returns the number of
+     * connections and nodes drawn.
+     */
+    private int[] scrollStaticLayer(int dx, int dy, Rectangle visible) {
+        StaticLayer layer = staticLayer;
+        int w = layer.image.getWidth();
+        int h = layer.image.getHeight();
+        List<Rectangle> strips = new ArrayList<>(2);
+        if (dx != 0) {
+            strips.add(dx > 0 ? new Rectangle(0, 0, dx, h) : new Rectangle(w + dx, 0, -dx, h));
+        }
+        if (dy != 0) {
+            int stripX = Math.max(0, dx);
+            int stripW = w - Math.abs(dx);
+            strips.add(dy > 0 ? new Rectangle(stripX, 0, stripW, dy) : new Rectangle(stripX, h + dy, stripW, -dy));
+        }
         
-        // Draw nodes
-        drawNodes(g2d);
+        int[] drawn = new int[2];
+        Graphics2D g = layer.image.createGraphics();
+        try {
+            g.copyArea(0, 0, w, h, dx, dy);
+            g.setComposite(AlphaComposite.Src);
+            g.setColor(layer.opaque ? getBackground() : new Color(0, 0, 0, 0));
+            for (Rectangle strip : strips) g.fill(strip);
+            g.setComposite(AlphaComposite.SrcOver);
+            // Layer pixels map to the visible rectangle grown by the margin
+            int originX = visible.x - layer.margin;
+            int originY = visible.y - layer.margin;
+            g.translate(-originX, -originY);
+            for (Rectangle strip : strips) {
+                strip.translate(originX, originY);
+                addCounts(drawn, paintFlow(g, strip, layer.excluded, layer.dynamicNodes));
+            }
+        } finally {
+            g.dispose();
+        }
+        layer.offsetX += dx;
+        layer.offsetY += dy;
+        return drawn;
+    }
+    
+    private static void addCounts(int[] total, int[] counts) {
+        total[0] += counts[0];
+        total[1] += counts[1];
+    }
+    
+    private void dropStaticLayer() {
+        if (staticLayer != null) {
+            staticLayer.image.flush();
+            staticLayer = null;
+        }
+    }
+    
+    /**
+     * Everything a drag leaves unchanged, rendered once for the visible rectangle plus a margin at the given zoom.
+     * Pans within the margin just move the blit; larger ones scroll the pixels, see {@link #scrollStaticLayer}.
+     */
+    private static final class StaticLayer {
+        final BufferedImage image;
+        final boolean opaque;
+        final Rectangle bounds;
+        final int margin;
+        // View offset the pixels currently correspond to
+        double offsetX;
+        double offsetY;
+        final double zoom;
+        final FlowNode excluded;
+        // The dragged node and its neighbours, painted on top of the layer every frame
+        final List<FlowNode> dynamicNodes;
         
-        g2d.dispose();
+        StaticLayer(BufferedImage image, boolean opaque, Rectangle bounds, int margin, double offsetX, double offsetY,
+                    double zoom, FlowNode excluded, List<FlowNode> dynamicNodes) {
+            this.image = image;
+            this.opaque = opaque;
+            this.bounds = bounds;
+            this.margin = margin;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.zoom = zoom;
+            this.excluded = excluded;
+            this.dynamicNodes = dynamicNodes;
+        }
         
-        if (mode == Mode.BOTH) {
-            paintTimeline((Graphics2D) g);
+        boolean isReusable(FlowNode exclude, double zoomLevel, Rectangle visible, Point2D.Double viewOffset) {
+            double dx = viewOffset.x - offsetX;
+            double dy = viewOffset.y - offsetY;
+            return excluded == exclude && zoom == zoomLevel && bounds.equals(visible)
+                    && dx == Math.rint(dx) && dy == Math.rint(dy)
+                    && Math.abs(dx) < image.getWidth() && Math.abs(dy) < image.getHeight();
         }
     }
-
+    
     private Rectangle getTimelineBounds() {
         int h = TIMELINE_HEIGHT;
         Rectangle vr = getVisibleRect();
@@ -245,46 +838,12 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     }
 
     private void paintTimelineBackground(Graphics g) {
-        Rectangle r = getTimelineBounds();
-        g.setColor(TIMELINE_BG);
-        g.fillRect(r.x, r.y, r.width, r.height);
+        renderer.paintTimelineBackground((Graphics2D) g, getTimelineBounds());
     }
 
     private void paintTimeline(Graphics2D g2d) {
         if (flowDiagram == null) return;
-        Rectangle r = getTimelineBounds();
-        int trackY = r.y + TIMELINE_PADDING + (TIMELINE_HEIGHT / 2) - (TIMELINE_TRACK_HEIGHT / 2);
-        int trackX = r.x + TIMELINE_PADDING;
-        int trackW = r.width - 2 * TIMELINE_PADDING;
-
-        // Track
-        g2d.setColor(TIMELINE_TRACK);
-        g2d.fillRoundRect(trackX, trackY, trackW, TIMELINE_TRACK_HEIGHT, TIMELINE_TRACK_HEIGHT, TIMELINE_TRACK_HEIGHT);
-
-        // Events
-        List<TimelineEvent> events = flowDiagram.getTimelineEvents();
-        for (TimelineEvent ev : events) {
-            int ex = trackX + (int) Math.round(ev.getPosition() * trackW);
-            int ey = trackY + TIMELINE_TRACK_HEIGHT / 2;
-            // point
-            g2d.setColor(TIMELINE_EVENT);
-            g2d.fillOval(ex - TIMELINE_EVENT_RADIUS, ey - TIMELINE_EVENT_RADIUS, TIMELINE_EVENT_RADIUS * 2, TIMELINE_EVENT_RADIUS * 2);
-            // label
-            g2d.setFont(MONO_FONT);
-            g2d.setColor(TEXT_COLOR);
-            String label = ev.getLabel();
-            Date ts = ev.getTimestamp();
-            String labelText = (ts != null ? (TIMESTAMP_FMT.format(ts) + " - ") : "") + (label != null ? label : "");
-            int strW = g2d.getFontMetrics().stringWidth(labelText);
-            int lx = Math.max(trackX, Math.min(ex - strW / 2, trackX + trackW - strW));
-            int ly = ey - TIMELINE_EVENT_RADIUS - 6;
-            g2d.drawString(labelText, lx, ly);
-        }
-
-        // Hint
-        g2d.setFont(MONO_FONT.deriveFont(10f));
-        g2d.setColor(TEXT_COLOR.darker());
-        g2d.drawString(I18n.t("canvas.timeline.hint"), trackX, trackY + TIMELINE_TRACK_HEIGHT + 18);
+        renderer.paintTimeline(g2d, flowDiagram.getTimelineEvents(), getTimelineBounds());
     }
 
     private TimelineEvent findTimelineEventAt(Point p) {
@@ -327,7 +886,7 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         
         g2d.setColor(TEXT_COLOR.darker());
-        g2d.setFont(MONO_FONT.deriveFont(16f));
+        g2d.setFont(WELCOME_FONT);
         
         String message = I18n.t("canvas.welcome.hint");
         FontMetrics fm = g2d.getFontMetrics();
@@ -337,15 +896,34 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         g2d.drawString(message, x, y);
     }
     
-    private void drawConnections(Graphics2D g2d) {
-        if (flowDiagram == null) return;
+    private int drawConnections(Graphics2D g2d, double minX, double minY, double maxX, double maxY, FlowNode exclude) {
+        if (flowDiagram == null || spatialIndex == null) return 0;
         
-        for (FlowConnection connection : flowDiagram.getConnections()) {
-            FlowNode fromNode = flowDiagram.findNodeById(connection.getFromNodeId());
-            FlowNode toNode = flowDiagram.findNodeById(connection.getToNodeId());
-            if (fromNode == null || toNode == null) continue;
-            
-            drawConnection(g2d, fromNode, toNode, connection);
+        int[] drawn = new int[1];
+        if (isHairlineDetail()) {
+            drawn[0] = drawHairlineConnections(g2d, minX, minY, maxX, maxY, exclude);
+        } else if (router != null) {
+            router.forEachRouteIn(minX, minY, maxX, maxY, connection -> {
+                OrthogonalRouter.Route route = router.routeOf(connection);
+                FlowNode fromNode = spatialIndex.getNode(connection.getFromNodeId());
+                FlowNode toNode = spatialIndex.getNode(connection.getToNodeId());
+                if (route != null && fromNode != exclude && toNode != exclude) {
+                    renderer.drawRoute(g2d, route, connection);
+                    drawn[0]++;
+                }
+                return true;
+            });
+        } else {
+            spatialIndex.forEachConnectionIn(minX, minY, maxX, maxY, connection -> {
+                FlowNode fromNode = spatialIndex.getNode(connection.getFromNodeId());
+                FlowNode toNode = spatialIndex.getNode(connection.getToNodeId());
+                ConnectionGeometry geometry = spatialIndex.geometryOf(connection);
+                if (geometry != null && fromNode != exclude && toNode != exclude) {
+                    renderer.drawConnection(g2d, geometry, connection);
+                    drawn[0]++;
+                }
+                return true;
+            });
         }
         
         // Pré-visualização de conexão (modo conectar)
@@ -368,112 +946,55 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
             // Desenha linha tracejada com seta
             Stroke oldStroke = g2d.getStroke();
             g2d.setColor(SUBFLOW_INDICATOR_COLOR);
-            g2d.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0f, new float[]{6f, 6f}, 0f));
+            g2d.setStroke(CONNECT_PREVIEW_STROKE);
             g2d.drawLine((int) fromPt.x, (int) fromPt.y, (int) connectMouseWorld.x, (int) connectMouseWorld.y);
             // seta
-            drawArrowHead(g2d, fromPt.x, fromPt.y, connectMouseWorld.x, connectMouseWorld.y);
+            renderer.drawArrowHead(g2d, fromPt.x, fromPt.y, connectMouseWorld.x, connectMouseWorld.y);
             g2d.setStroke(oldStroke);
         }
+        return drawn[0];
     }
 
-    // --- Added helpers for drawing and hit-testing connections ---
-    private void drawConnection(Graphics2D g2d, FlowNode fromNode, FlowNode toNode, FlowConnection connection) {
-        // Determine anchor points on node borders towards each other
-        Point2D.Double toCenter = new Point2D.Double(toNode.getX() + toNode.getWidth() / 2.0, toNode.getY() + toNode.getHeight() / 2.0);
-        Point2D.Double fromCenter = new Point2D.Double(fromNode.getX() + fromNode.getWidth() / 2.0, fromNode.getY() + fromNode.getHeight() / 2.0);
-        Point2D.Double fromPt = anchorPointTowards(fromNode, toCenter.x, toCenter.y);
-        Point2D.Double toPt = anchorPointTowards(toNode, fromCenter.x, fromCenter.y);
-
-        // Colors and stroke
-        Color lineColor = parseHexColor(connection.getLineColorHex(), CONNECTION_COLOR);
-        Color arrowColor = parseHexColor(connection.getArrowColorHex(), lineColor);
-        Stroke old = g2d.getStroke();
-        g2d.setStroke(new BasicStroke(2f));
-        g2d.setColor(lineColor);
-        g2d.drawLine((int) fromPt.x, (int) fromPt.y, (int) toPt.x, (int) toPt.y);
-
-        // Arrowheads according to direction style
-        g2d.setColor(arrowColor);
-        FlowConnection.DirectionStyle ds = connection.getDirectionStyle();
-        if (ds == FlowConnection.DirectionStyle.FROM_TO) {
-            drawArrowHead(g2d, fromPt.x, fromPt.y, toPt.x, toPt.y);
-        } else if (ds == FlowConnection.DirectionStyle.TO_FROM) {
-            drawArrowHead(g2d, toPt.x, toPt.y, fromPt.x, fromPt.y);
-        } else if (ds == FlowConnection.DirectionStyle.BIDIRECTIONAL) {
-            drawArrowHead(g2d, fromPt.x, fromPt.y, toPt.x, toPt.y);
-            drawArrowHead(g2d, toPt.x, toPt.y, fromPt.x, fromPt.y);
+    /**
+     * Draws connections as one-pixel lines between their anchors, without arrowheads, for low levels of
+     * detail. The lines are drawn in device space, where thin unscaled lines take Java2D's fast path.
+     */
+    private int drawHairlineConnections(Graphics2D g2d, double minX, double minY, double maxX, double maxY, FlowNode exclude) {
+        AffineTransform toDevice = g2d.getTransform();
+        Graphics2D device = (Graphics2D) g2d.create();
+        device.setTransform(new AffineTransform());
+        double[] pts = new double[4];
+        int[] drawn = new int[1];
+        try {
+            spatialIndex.forEachConnectionIn(minX, minY, maxX, maxY, connection -> {
+                FlowNode fromNode = spatialIndex.getNode(connection.getFromNodeId());
+                FlowNode toNode = spatialIndex.getNode(connection.getToNodeId());
+                ConnectionGeometry geometry = spatialIndex.geometryOf(connection);
+                if (geometry == null || fromNode == exclude || toNode == exclude) return true;
+                renderer.drawHairline(device, toDevice, geometry, connection, pts);
+                drawn[0]++;
+                return true;
+            });
+        } finally {
+            device.dispose();
         }
-        g2d.setStroke(old);
+        return drawn[0];
     }
 
-    private void drawArrowHead(Graphics2D g2d, double x1, double y1, double x2, double y2) {
-        // Draw a filled triangle arrow head at (x2,y2), pointing from (x1,y1) -> (x2,y2)
-        double angle = Math.atan2(y2 - y1, x2 - x1);
-        int size = 10;
-        int xA = (int) x2;
-        int yA = (int) y2;
-        int xB = (int) (x2 - size * Math.cos(angle - Math.PI / 6));
-        int yB = (int) (y2 - size * Math.sin(angle - Math.PI / 6));
-        int xC = (int) (x2 - size * Math.cos(angle + Math.PI / 6));
-        int yC = (int) (y2 - size * Math.sin(angle + Math.PI / 6));
-        g2d.fillPolygon(new int[]{xA, xB, xC}, new int[]{yA, yB, yC}, 3);
+    /** True when the current level of detail draws connections as hairlines and nodes as plain rectangles. */
+    private boolean isHairlineDetail() {
+        return detailTier == LevelOfDetail.Tier.SIMPLE_SHAPES || detailTier == LevelOfDetail.Tier.AGGREGATED;
     }
 
+    // --- Added helpers for hit-testing connections ---
     private FlowConnection findConnectionAt(Point2D.Double worldPos) {
-        if (flowDiagram == null) return null;
+        if (spatialIndex == null) return null;
         double threshold = 6.0; // pixels in world space
-        FlowConnection best = null;
-        double bestDist = Double.MAX_VALUE;
-        for (FlowConnection connection : flowDiagram.getConnections()) {
-            FlowNode fromNode = flowDiagram.findNodeById(connection.getFromNodeId());
-            FlowNode toNode = flowDiagram.findNodeById(connection.getToNodeId());
-            if (fromNode == null || toNode == null) continue;
-            Point2D.Double toCenter = new Point2D.Double(toNode.getX() + toNode.getWidth() / 2.0, toNode.getY() + toNode.getHeight() / 2.0);
-            Point2D.Double fromCenter = new Point2D.Double(fromNode.getX() + fromNode.getWidth() / 2.0, fromNode.getY() + fromNode.getHeight() / 2.0);
-            Point2D.Double fromPt = anchorPointTowards(fromNode, toCenter.x, toCenter.y);
-            Point2D.Double toPt = anchorPointTowards(toNode, fromCenter.x, fromCenter.y);
-
-            double d = distancePointToSegment(worldPos.x, worldPos.y, fromPt.x, fromPt.y, toPt.x, toPt.y);
-            if (d < threshold && d < bestDist) {
-                bestDist = d;
-                best = connection;
-            }
+        // Test what is drawn: routes, unless connections are simplified to straight hairlines
+        if (router != null && !isHairlineDetail()) {
+            return router.findConnectionAt(worldPos.x, worldPos.y, threshold);
         }
-        return best;
-    }
-
-    private Point2D.Double anchorPointTowards(FlowNode node, double tx, double ty) {
-        int x = (int) node.getX();
-        int y = (int) node.getY();
-        int w = node.getWidth();
-        int h = node.getHeight();
-        double cx = x + w / 2.0;
-        double cy = y + h / 2.0;
-        double dx = tx - cx;
-        double dy = ty - cy;
-        if (Math.abs(dx) > Math.abs(dy)) {
-            return new Point2D.Double(dx >= 0 ? x + w : x, cy);
-        } else {
-            return new Point2D.Double(cx, dy >= 0 ? y + h : y);
-        }
-    }
-
-    private double distancePointToSegment(double px, double py, double x1, double y1, double x2, double y2) {
-        double dx = x2 - x1;
-        double dy = y2 - y1;
-        if (dx == 0 && dy == 0) {
-            // It's a point not a segment.
-            dx = px - x1;
-            dy = py - y1;
-            return Math.sqrt(dx * dx + dy * dy);
-        }
-        double t = ((px - x1) * dx + (py - y1) * dy) / (dx * dx + dy * dy);
-        t = Math.max(0, Math.min(1, t));
-        double projX = x1 + t * dx;
-        double projY = y1 + t * dy;
-        double ddx = px - projX;
-        double ddy = py - projY;
-        return Math.sqrt(ddx * ddx + ddy * ddy);
+        return spatialIndex.findConnectionAt(worldPos.x, worldPos.y, threshold);
     }
 @Override
     public void mouseClicked(MouseEvent e) {
@@ -569,6 +1090,11 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     public void mousePressed(MouseEvent e) {
         requestFocusInWindow();
         if (flowDiagram == null) return;
+        if (viewAnimation != null) {
+            // The user takes over the view where the animation got to
+            stopViewAnimation();
+            repaintView();
+        }
         
         // Timeline drag start has priority
         if (mode != Mode.FLOW_ONLY && isOnTimelineTrack(e.getPoint()) && SwingUtilities.isLeftMouseButton(e)) {
@@ -588,12 +1114,18 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         Point2D.Double worldPos = screenToWorld(e.getPoint());
         FlowNode clickedNode = findNodeAt(worldPos);
         if (clickedNode != null) {
+            // The user takes over; a running layout would move the node away under the cursor
+            cancelLayout();
             dragging = true;
             draggingNode = clickedNode;
             lastMousePos = e.getPoint();
         } else {
             // Start panning
             lastMousePos = e.getPoint();
+            panVelocityX = 0;
+            panVelocityY = 0;
+            lastPanWhen = e.getWhen();
+            panning = true;
         }
     }
     
@@ -617,21 +1149,32 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
             
             // Prevent overlapping too tightly
             if (!wouldOverlap(draggingNode, newX, newY)) {
-                draggingNode.setPosition(newX, newY);
-                repaint();
+                layeredDrag = true;
+                moveNode(draggingNode, newX, newY);
             }
         } else if (lastMousePos != null) {
             int dx = e.getX() - lastMousePos.x;
             int dy = e.getY() - lastMousePos.y;
+            layeredDrag = true;
             viewOffset.x += dx;
             viewOffset.y += dy;
+            long dt = e.getWhen() - lastPanWhen;
+            if (dt > 0) {
+                // Mostly the latest movement, so that slowing down before the release shows
+                panVelocityX = 0.7 * dx / dt + 0.3 * panVelocityX;
+                panVelocityY = 0.7 * dy / dt + 0.3 * panVelocityY;
+                lastPanWhen = e.getWhen();
+            }
             repaint();
+            fireViewChanged();
         }
         
         // Atualiza posição do mouse em coordenadas do mundo para a pré-visualização de conexão
         if (connectStartNode != null) {
+            Rectangle2D.Double damage = connectPreviewDamage();
             connectMouseWorld = screenToWorld(e.getPoint());
-            repaint();
+            if (damage != null) damage.add(connectPreviewDamage());
+            repaintWorld(damage != null ? damage : connectPreviewDamage());
         }
         
         lastMousePos = e.getPoint();
@@ -641,6 +1184,16 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     // In mouseReleased
     @Override
     public void mouseReleased(MouseEvent e) {
+        if (layeredDrag) {
+            // Back to normal painting, where the dragged node takes its usual place in the stacking order
+            layeredDrag = false;
+            dropStaticLayer();
+            repaint();
+        }
+        if (panning) {
+            panning = false;
+            flingView(e.getWhen());
+        }
         // Finish timeline drag if any
         if (draggingEvent != null) {
             // Ajusta timestamp conforme nova posição e normaliza
@@ -670,20 +1223,85 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         draggingNode = null;
     }
     
+    /**
+     * Moves a node and repaints only its old and new area, including its connections.
+     */
+    void moveNode(FlowNode node, int x, int y) {
+        Rectangle2D.Double damage = nodeDamage(node, node.getText(), true);
+        repaintingLocally = true;
+        try {
+            node.setPosition(x, y);
+        } finally {
+            repaintingLocally = false;
+        }
+        damage.add(nodeDamage(node, node.getText(), true));
+        Rectangle2D.Double indexDamage = spatialIndex != null ? spatialIndex.takeDamage() : null;
+        if (indexDamage != null) damage.add(indexDamage);
+        Rectangle2D.Double routeDamage = router != null ? router.takeDamage() : null;
+        if (routeDamage != null) damage.add(routeDamage);
+        repaintWorld(damage);
+    }
+    
+    /**
+     * World area painted for the node: its bounds, the given text where it overflows them and,
+     * optionally, the segments of its connections.
+     */
+    private Rectangle2D.Double nodeDamage(FlowNode node, String text, boolean withConnections) {
+        int w = node.getWidth();
+        int h = node.getHeight();
+        Rectangle2D.Double damage = new Rectangle2D.Double((int) node.getX(), (int) node.getY(), w, h);
+        if (text != null && !text.isEmpty()) {
+            // Text is wrapped into the drawn shape; only a single character or ellipsis may be wider
+            TextLayoutCache.TextBlock block = renderer.textBlock(node, renderer.nodeStyle(node), text);
+            int side = Math.min(w, h);
+            double overflowX = Math.max(0, (Math.ceil(block.getWidth()) - side) / 2.0);
+            double overflowY = Math.max(0, (Math.ceil(block.getHeight()) - side) / 2.0);
+            damage.add(new Rectangle2D.Double(damage.x - overflowX, damage.y - overflowY, w + 2 * overflowX, h + 2 * overflowY));
+        }
+        if (withConnections && spatialIndex != null) {
+            double[] segment = new double[4];
+            for (FlowConnection conn : spatialIndex.getConnectionsOf(node)) {
+                if (spatialIndex.segmentOf(conn, segment)) {
+                    damage.add(segment[0], segment[1]);
+                    damage.add(segment[2], segment[3]);
+                }
+            }
+        }
+        return damage;
+    }
+    
+    private Rectangle2D.Double connectPreviewDamage() {
+        if (connectStartNode == null || connectMouseWorld == null) return null;
+        Rectangle2D.Double damage = new Rectangle2D.Double(connectStartNode.getX(), connectStartNode.getY(),
+                connectStartNode.getWidth(), connectStartNode.getHeight());
+        damage.add(connectMouseWorld);
+        return damage;
+    }
+    
+    /** Repaints the screen area showing the world rectangle, grown by {@link #DAMAGE_MARGIN}. */
+    private void repaintWorld(Rectangle2D.Double world) {
+        if (world == null) return;
+        double m = DAMAGE_MARGIN;
+        int x = (int) Math.floor((world.x - m) * zoomLevel + viewOffset.x);
+        int y = (int) Math.floor((world.y - m) * zoomLevel + viewOffset.y);
+        int x2 = (int) Math.ceil((world.x + world.width + m) * zoomLevel + viewOffset.x);
+        int y2 = (int) Math.ceil((world.y + world.height + m) * zoomLevel + viewOffset.y);
+        repaint(x, y, x2 - x + 1, y2 - y + 1);
+    }
+    
+    /** Drops the tiles showing the world rectangle without repainting it, with the margin of {@link #repaintWorld}. */
+    private void invalidateTiles(Rectangle2D.Double world) {
+        double m = DAMAGE_MARGIN;
+        tileCache.invalidate(world.x - m, world.y - m, world.x + world.width + m, world.y + world.height + m);
+    }
+    
     // New method
     public boolean wouldOverlap(FlowNode movingNode, int newX, int newY) {
-        for (FlowNode node : flowDiagram.getNodes()) {
-            if (node == movingNode) continue;
-            int minDistance = 10; // Minimum distance between nodes
-            int mw = movingNode.getWidth();
-            int mh = movingNode.getHeight();
-            int ow = node.getWidth();
-            int oh = node.getHeight();
-            Rectangle rMoving = new Rectangle(newX - minDistance / 2, newY - minDistance / 2, mw + minDistance, mh + minDistance);
-            Rectangle rOther = new Rectangle((int) node.getX() - minDistance / 2, (int) node.getY() - minDistance / 2, ow + minDistance, oh + minDistance);
-            if (rMoving.intersects(rOther)) return true;
-        }
-        return false;
+        if (spatialIndex == null) return false;
+        int minDistance = 10; // Minimum distance between nodes
+        // Both rectangles grow by half the distance on each side, so the moving one grows by all of it
+        return spatialIndex.intersectsAnyNode(newX - minDistance, newY - minDistance,
+                newX + movingNode.getWidth() + minDistance, newY + movingNode.getHeight() + minDistance, movingNode);
     }
     
     @Override
@@ -709,47 +1327,49 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     }
     
     private FlowNode findNodeAt(Point2D.Double worldPos) {
-        if (flowDiagram == null) return null;
-        
-        for (FlowNode node : flowDiagram.getNodes()) {
-            double x = node.getX();
-            double y = node.getY();
-            
-            if (worldPos.x >= x && worldPos.x <= x + node.getWidth() &&
-                worldPos.y >= y && worldPos.y <= y + node.getHeight()) {
-                return node;
-            }
-        }
-        
-        return null;
+        if (spatialIndex == null) return null;
+        return spatialIndex.findNodeAt(worldPos.x, worldPos.y);
     }
     
     // Handle text input for editing
     public void handleKeyTyped(char keyChar) {
+        handleKeyTyped(keyChar, System.currentTimeMillis());
+    }
+    
+    /**
+     * Handles a key typed at {@code when}, in {@link System#currentTimeMillis()} time as given by
+     * {@link KeyEvent#getWhen()}, so that the key latency includes the wait in the event queue.
+     */
+    public void handleKeyTyped(char keyChar, long when) {
         if (editingNode != null) {
-            System.out.println("FlowCanvas.handleKeyTyped: Processing key '" + keyChar + "' (code: " + (int)keyChar + ")");
+            if (keyTypedNanos == 0) {
+                long queued = Math.max(0, System.currentTimeMillis() - when);
+                keyTypedNanos = System.nanoTime() - queued * 1_000_000L;
+            }
+            FlowNode edited = editingNode;
+            dropStaticLayer();
+            Rectangle2D.Double damage = nodeDamage(edited, editingText, false);
             if (keyChar == '\b') { // Backspace
                 if (!editingText.isEmpty()) {
                     editingText = editingText.substring(0, editingText.length() - 1);
-                    System.out.println("FlowCanvas.handleKeyTyped: After backspace, editingText: '" + editingText + "'");
                 }
             } else if (keyChar == '\n' || keyChar == '\r') { // Enter
-                System.out.println("FlowCanvas.handleKeyTyped: Enter pressed, finishing edit");
                 finishEditingNode();
             } else if (Character.isISOControl(keyChar)) {
                 // Ignore other control characters
-                System.out.println("FlowCanvas.handleKeyTyped: Ignoring control character");
             } else {
                 editingText += keyChar;
-                System.out.println("FlowCanvas.handleKeyTyped: After adding char, editingText: '" + editingText + "'");
             }
-            repaint();
+            // Only the edited node and the old and new extent of its text change
+            damage.add(nodeDamage(edited, editingNode == edited ? editingText : edited.getText(), false));
+            repaintWorld(damage);
         }
     }
     
     public void handleEscapeKey() {
         if (editingNode != null) {
             // Cancel editing - node text remains unchanged
+            dropStaticLayer();
             editingNode = null;
             editingText = "";
             repaint();
@@ -784,7 +1404,7 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     @Override
     public void keyTyped(KeyEvent e) {
         if (editingNode != null) {
-            handleKeyTyped(e.getKeyChar());
+            handleKeyTyped(e.getKeyChar(), e.getWhen());
         }
     }
     
@@ -817,6 +1437,7 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     private void startEditingNode(FlowNode node) {
         if (node == null) return;
         finishEditingNode(); // Finish any current editing
+        dropStaticLayer();
         editingNode = node;
         String currentText = node.getText();
         editingText = getDefaultNodeText().equals(currentText) ? "" : currentText;
@@ -824,6 +1445,7 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     }
 
     public void finishEditingNode() {
+        dropStaticLayer();
         if (editingNode != null) {
             editingNode.setText(editingText);
             editingNode = null;
@@ -844,20 +1466,11 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
                 (int)selectedNode.getX() + NODE_SPACING_X,
                 (int)selectedNode.getY());
             flowDiagram.addConnection(selectedNode, newNode);
+            // Next to the selected node, below any children it already has
+            if (placer != null) placer.place(newNode);
         } else {
             // Create first node or new isolated node with a sensible position
-            List<FlowNode> nodes = flowDiagram.getNodes();
-            if (nodes.isEmpty()) {
-                newNode = flowDiagram.addNode(getDefaultNodeText(), CANVAS_MARGIN, CANVAS_MARGIN);
-            } else {
-                int maxX = Integer.MIN_VALUE;
-                int minY = Integer.MAX_VALUE;
-                for (FlowNode n : nodes) {
-                    maxX = Math.max(maxX, (int) n.getX());
-                    minY = Math.min(minY, (int) n.getY());
-                }
-                newNode = flowDiagram.addNode(getDefaultNodeText(), maxX + NODE_SPACING_X, minY);
-            }
+            newNode = addNodeBesideDiagram();
         }
         
         flowDiagram.selectNode(newNode);
@@ -871,21 +1484,13 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         FlowNode selectedNode = flowDiagram.getSelectedNode();
         FlowNode newNode;
 
-        List<FlowNode> nodes = flowDiagram.getNodes();
-        if (nodes.isEmpty()) {
-            newNode = flowDiagram.addNode(getDefaultNodeText(), CANVAS_MARGIN, CANVAS_MARGIN);
-        } else if (selectedNode != null) {
+        if (selectedNode != null && flowDiagram.getNodeCount() > 0) {
             newNode = flowDiagram.addNode(getDefaultNodeText(),
                     (int) selectedNode.getX() + NODE_SPACING_X,
                     (int) selectedNode.getY());
+            if (placer != null) placer.place(newNode);
         } else {
-            int maxX = Integer.MIN_VALUE;
-            int minY = Integer.MAX_VALUE;
-            for (FlowNode n : nodes) {
-                maxX = Math.max(maxX, (int) n.getX());
-                minY = Math.min(minY, (int) n.getY());
-            }
-            newNode = flowDiagram.addNode(getDefaultNodeText(), maxX + NODE_SPACING_X, minY);
+            newNode = addNodeBesideDiagram();
         }
 
         flowDiagram.selectNode(newNode);
@@ -893,137 +1498,230 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
         repaint();
     }
 
-    private void drawNodes(Graphics2D g2d) {
-        if (flowDiagram == null) return;
+    /**
+     * Adds a node at the top right of the diagram, a column gap right of its rightmost edge, or at the
+     * margin of an empty one. The extent comes from the spatial index rather than a scan of every node.
+     */
+    private FlowNode addNodeBesideDiagram() {
+        double[] bounds = spatialIndex != null ? spatialIndex.getNodeBounds() : null;
+        if (bounds == null) return flowDiagram.addNode(getDefaultNodeText(), CANVAS_MARGIN, CANVAS_MARGIN);
+        return flowDiagram.addNode(getDefaultNodeText(), (int) bounds[2] + IncrementalPlacer.COLUMN_GAP, (int) bounds[1]);
+    }
+
+    private int drawNodes(Graphics2D g2d, double minX, double minY, double maxX, double maxY, List<FlowNode> exclude) {
+        if (flowDiagram == null || spatialIndex == null) return 0;
         
-        for (FlowNode node : flowDiagram.getNodes()) {
+        // Drawn in list order so that overlapping nodes stack as before
+        List<FlowNode> visible = spatialIndex.findNodesInListOrder(minX, minY, maxX, maxY);
+        int drawn = 0;
+        for (FlowNode node : visible) {
+            if (exclude != null && !exclude.isEmpty() && exclude.contains(node)) continue;
             drawNode(g2d, node);
+            drawn++;
         }
+        return drawn;
     }
     
-    private void drawNode(Graphics2D g2d, FlowNode node) {
-        int x = (int) node.getX();
-        int y = (int) node.getY();
-        int w = node.getWidth();
-        int h = node.getHeight();
-        
-        boolean isSelected = flowDiagram.getSelectedNode() == node;
-        boolean isEditing = (editingNode == node);
+    /**
+     * Draws the visible nodes binned into small screen cells: a cell holding a single node shows it as a
+     * plain rectangle, a cell holding several becomes one block shaded by how many it holds. Returns the
+     * number of nodes represented.
+     */
+    private int drawAggregatedNodes(Graphics2D g2d, double minX, double minY, double maxX, double maxY, List<FlowNode> exclude) {
+        if (flowDiagram == null || spatialIndex == null) return 0;
         
-        // Colors
-        Color fill = parseHexColor(node.getFillColorHex(), NODE_COLOR);
-        if (isEditing) {
-            fill = NODE_EDITING_COLOR;
-        }
-        Color border = isSelected ? SUBFLOW_INDICATOR_COLOR : parseHexColor(node.getBorderColorHex(), CONNECTION_COLOR);
+        double cell = AGGREGATE_CELL_PIXELS / zoomLevel;
+        int cols = (int) Math.ceil((maxX - minX) / cell) + 1;
+        int rows = (int) Math.ceil((maxY - minY) / cell) + 1;
+        int[] counts = new int[cols * rows];
+        FlowNode[] firsts = new FlowNode[cols * rows];
+        int[] drawn = new int[1];
+        spatialIndex.forEachNodeIn(minX, minY, maxX, maxY, node -> {
+            if (exclude != null && !exclude.isEmpty() && exclude.contains(node)) return true;
+            // Binned by center, which may lie just outside the queried rectangle
+            int col = (int) ((node.getX() + node.getWidth() / 2.0 - minX) / cell);
+            int row = (int) ((node.getY() + node.getHeight() / 2.0 - minY) / cell);
+            int i = Math.max(0, Math.min(rows - 1, row)) * cols + Math.max(0, Math.min(cols - 1, col));
+            if (counts[i]++ == 0) firsts[i] = node;
+            drawn[0]++;
+            return true;
+        });
         
-        // Draw shape based on node shape
-        FlowNode.NodeShape shape = node.getShape();
-        g2d.setColor(fill);
-        switch (shape) {
-            case RECTANGLE:
-                g2d.fillRoundRect(x, y, w, h, 12, 12);
-                g2d.setColor(border);
-                g2d.drawRoundRect(x, y, w, h, 12, 12);
-                break;
-            case SQUARE: {
-                int side = Math.min(w, h);
-                g2d.fillRect(x, y, side, side);
-                g2d.setColor(border);
-                g2d.drawRect(x, y, side, side);
-                break;
-            }
-            case OVAL:
-                g2d.fillOval(x, y, w, h);
-                g2d.setColor(border);
-                g2d.drawOval(x, y, w, h);
-                break;
-            case CIRCLE: {
-                int diameter = Math.min(w, h);
-                int cx = x + (w - diameter) / 2;
-                int cy = y + (h - diameter) / 2;
-                g2d.fillOval(cx, cy, diameter, diameter);
-                g2d.setColor(border);
-                g2d.drawOval(cx, cy, diameter, diameter);
-                break;
+        // Blocks go into an image with one pixel per cell, scaled up in a single draw
+        BufferedImage blocks = null;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 1) {
+                if (blocks == null) blocks = new BufferedImage(cols, rows, BufferedImage.TYPE_INT_ARGB);
+                int shade = Math.min(AGGREGATE_COLORS.length - 1, 31 - Integer.numberOfLeadingZeros(counts[i] - 1));
+                blocks.setRGB(i % cols, i / cols, AGGREGATE_COLORS[shade].getRGB());
             }
-            case DIAMOND: {
-                int cx = x + w / 2;
-                int cy = y + h / 2;
-                Polygon p = new Polygon(
-                    new int[]{cx, x + w, cx, x},
-                    new int[]{y, cy, y + h, cy},
-                    4
-                );
-                g2d.fillPolygon(p);
-                g2d.setColor(border);
-                g2d.drawPolygon(p);
-                break;
+        }
+        if (blocks != null) {
+            Graphics2D bg = (Graphics2D) g2d.create();
+            try {
+                bg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                AffineTransform place = AffineTransform.getTranslateInstance(minX, minY);
+                place.scale(cell, cell);
+                bg.drawImage(blocks, place, null);
+            } finally {
+                bg.dispose();
             }
-            default:
-                g2d.fillRoundRect(x, y, w, h, 12, 12);
-                g2d.setColor(border);
-                g2d.drawRoundRect(x, y, w, h, 12, 12);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 1) drawNode(g2d, firsts[i]);
         }
         
-        // Node text
-        Color textColor = parseHexColor(node.getTextColorHex(), TEXT_COLOR);
-        g2d.setColor(textColor);
-        // Use per-node font if available
-        String family = (node.getTextFontFamily() != null && !node.getTextFontFamily().trim().isEmpty()) ? node.getTextFontFamily() : Font.MONOSPACED;
-        int size = node.getTextFontSize() > 0 ? node.getTextFontSize() : 12;
-        int style = node.getTextFontStyle();
-        Font nodeFont;
-        try {
-            nodeFont = new Font(family, style, size);
-            if (nodeFont == null) nodeFont = MONO_FONT;
-        } catch (Exception ex) {
-            nodeFont = MONO_FONT;
+        FlowNode selected = flowDiagram.getSelectedNode();
+        // Keep the selection visible inside its block
+        if (selected != null && selected != editingNode && spatialIndex.getNode(selected.getId()) == selected
+                && (exclude == null || !exclude.contains(selected))
+                && selected.getX() <= maxX && selected.getX() + selected.getWidth() >= minX
+                && selected.getY() <= maxY && selected.getY() + selected.getHeight() >= minY) {
+            drawNode(g2d, selected);
+        }
+        return drawn[0];
+    }
+    
+    /** Block colors blending the node color towards the text color; each step doubles the node count. */
+    private static Color[] aggregateColors(int steps) {
+        Color[] colors = new Color[steps];
+        for (int i = 0; i < steps; i++) {
+            double t = (i + 1) / (double) (steps + 1);
+            colors[i] = new Color(
+                    (int) Math.round(NODE_COLOR.getRed() + (TEXT_COLOR.getRed() - NODE_COLOR.getRed()) * t),
+                    (int) Math.round(NODE_COLOR.getGreen() + (TEXT_COLOR.getGreen() - NODE_COLOR.getGreen()) * t),
+                    (int) Math.round(NODE_COLOR.getBlue() + (TEXT_COLOR.getBlue() - NODE_COLOR.getBlue()) * t));
+        }
+        return colors;
+    }
+    
+    /** Zoom thresholds below which text, shapes and single nodes are simplified away. */
+    public LevelOfDetail getLevelOfDetail() {
+        return levelOfDetail;
+    }
+    
+    /**
+     * Enables or disables drawing unchanged nodes from cached sprites. On by default; the system property
+     * {@code flowdeconstruct.nodeSprites=false} turns it off.
+     */
+    public void setNodeSpritesEnabled(boolean enabled) {
+        this.nodeSpritesEnabled = enabled;
+        if (!enabled) nodeSprites.clear();
+        repaint();
+    }
+    
+    /**
+     * Enables or disables painting drags from a cached static layer. On by default; the system property
+     * {@code flowdeconstruct.layeredDrag=false} turns it off.
+     */
+    public void setLayeredRenderingEnabled(boolean enabled) {
+        this.layeredRenderingEnabled = enabled;
+        if (!enabled) dropStaticLayer();
+        repaint();
+    }
+    
+    /**
+     * Draws connections as horizontal and vertical segments routed around other nodes instead of straight
+     * lines. Off by default; the system property {@code flowdeconstruct.orthogonalRoutes=true} turns it on.
+     * Far zoomed out, connections are still drawn straight, and so is each connection whose route is still
+     * being searched in the background.
+     */
+    public void setOrthogonalRouting(boolean enabled) {
+        this.orthogonalRouting = enabled;
+        if (router != null) {
+            router.detach();
+            router = null;
+        }
+        if (enabled && spatialIndex != null) {
+            router = OrthogonalRouter.attach(spatialIndex, SwingUtilities::invokeLater, this::onRoutesFound);
+            // Hear diagram events after the router, so that their route damage is ready
+            flowDiagram.removeStateListener(diagramListener);
+            flowDiagram.addStateListener(diagramListener);
+        }
+        dropStaticLayer();
+        repaint();
+    }
+    
+    public boolean isOrthogonalRouting() {
+        return orthogonalRouting;
+    }
+    
+    public NodeSpriteCache getNodeSpriteCache() {
+        return nodeSprites;
+    }
+    
+    /** Counters for the last painted frame. */
+    public RenderStats getRenderStats() {
+        return renderStats;
+    }
+    
+    /** Timings of the recent frames and typed keys. */
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+    
+    /**
+     * Shows or hides the performance HUD: paint time percentiles, nodes and connections drawn and culled,
+     * the event queue delay and the key-to-paint latency. Frames are timed whether or not it is shown; the
+     * queue delay is only measured while it is. Shown at start with the system property
+     * {@code flowdeconstruct.hud=true}.
+     */
+    public void setHudVisible(boolean visible) {
+        if (visible == hudVisible) return;
+        hudVisible = visible;
+        if (visible) {
+            hudProbe = HUD_PROBE.scheduleWithFixedDelay(() -> {
+                long posted = System.nanoTime();
+                SwingUtilities.invokeLater(() -> {
+                    frameStats.recordEdtDelay(System.nanoTime() - posted);
+                    if (hudVisible) frameScheduler.invalidate(hudBounds.x, hudBounds.y, hudBounds.width, hudBounds.height);
+                });
+            }, 0, HUD_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+            frameScheduler.invalidate(0, 0, getWidth(), getHeight());
+        } else {
+            hudProbe.cancel(false);
+            hudProbe = null;
+            frameScheduler.invalidate(hudBounds.x, hudBounds.y, hudBounds.width, hudBounds.height);
+            hudBounds = new Rectangle();
         }
-        g2d.setFont(nodeFont);
+    }
+    
+    public boolean isHudVisible() {
+        return hudVisible;
+    }
+    
+    private void drawNode(Graphics2D g2d, FlowNode node) {
+        boolean isSelected = flowDiagram.getSelectedNode() == node;
+        boolean isEditing = (editingNode == node);
         
-        String text = isEditing ? editingText : node.getText();
-        FontMetrics fm = g2d.getFontMetrics();
+        // Colors and font, resolved once per style change
+        StyleCache.NodeStyle nodeStyle = renderer.nodeStyle(node);
+        Color border = isSelected ? SUBFLOW_INDICATOR_COLOR : nodeStyle.border;
         
-        // Determine bounds for centering text based on shape actually drawn
-        int boundsX = x;
-        int boundsY = y;
-        int boundsW = w;
-        int boundsH = h;
-        switch (shape) {
-            case SQUARE: {
-                int side = Math.min(w, h);
-                boundsW = side;
-                boundsH = side;
-                break;
-            }
-            case CIRCLE: {
-                int diameter = Math.min(w, h);
-                boundsW = diameter;
-                boundsH = diameter;
-                boundsX = x + (w - diameter) / 2;
-                boundsY = y + (h - diameter) / 2;
-                break;
-            }
+        if (isEditing) {
+            // The text changes with every keystroke, so the node being edited is always painted directly
+            renderer.paintNode(g2d, node, NODE_EDITING_COLOR, border, nodeStyle, editingText);
+            return;
+        }
+        switch (detailTier) {
+            case NO_TEXT:
+                // Text would be a few pixels high; sprites only hold full-detail nodes
+                renderer.paintNode(g2d, node, nodeStyle.fill, border, nodeStyle, null);
+                return;
+            case SIMPLE_SHAPES:
+            case AGGREGATED:
+                renderer.paintSimpleNode(g2d, node, nodeStyle.fill, border);
+                return;
             default:
-                // RECTANGLE, OVAL, DIAMOND already use w x h
                 break;
         }
-        
-        int textX = boundsX + (boundsW - fm.stringWidth(text)) / 2;
-        int textY = boundsY + (boundsH + fm.getAscent() - fm.getDescent()) / 2;
-        g2d.drawString(text, textX, textY);
-        
-        // Subflow indicator
-        if (node.hasSubFlow()) {
-            int indicatorSize = 8;
-            int indicatorX = x + w - indicatorSize - 6;
-            int indicatorY = y + h - indicatorSize - 6;
-            g2d.setColor(SUBFLOW_INDICATOR_COLOR);
-            g2d.fillOval(indicatorX, indicatorY, indicatorSize, indicatorSize);
+        if (nodeSpritesEnabled && nodeSprites.draw(g2d, node, nodeStyle, border,
+                (g, n) -> renderer.paintNode(g, n, nodeStyle.fill, border, nodeStyle, n.getText()))) {
+            return;
         }
+        renderer.paintNode(g2d, node, nodeStyle.fill, border, nodeStyle, node.getText());
     }
-
+    
     // ---------- Connection editing helpers ----------
     private void openConnectionDialog(FlowConnection connection) {
         Window window = SwingUtilities.getWindowAncestor(this);
@@ -1166,66 +1864,42 @@ public class FlowCanvas extends JPanel implements MouseListener, MouseMotionList
     }
     
     // Keyboard navigation between nodes (used by MainWindow)
+    /**
+     * Selects the next node in the arrow key's direction. Nodes connected to the selected one come first,
+     * following outgoing before incoming connections; then the nearest node ahead, then the nearest at all.
+     */
     public void navigateNodes(int keyCode) {
-        if (flowDiagram == null) return;
-        java.util.List<FlowNode> nodes = flowDiagram.getNodes();
-        if (nodes.isEmpty()) return;
+        if (flowDiagram == null || spatialIndex == null || flowDiagram.isEmpty()) return;
+        int dx = 0;
+        int dy = 0;
+        switch (keyCode) {
+            case KeyEvent.VK_RIGHT:
+                dx = 1;
+                break;
+            case KeyEvent.VK_LEFT:
+                dx = -1;
+                break;
+            case KeyEvent.VK_UP:
+                dy = -1;
+                break;
+            case KeyEvent.VK_DOWN:
+                dy = 1;
+                break;
+            default:
+                return; // unsupported key
+        }
     
         FlowNode current = flowDiagram.getSelectedNode();
         if (current == null) {
-            flowDiagram.selectNode(nodes.get(0));
+            flowDiagram.selectNode(flowDiagram.getNodes().get(0));
             repaint();
             return;
         }
     
-        double cx = current.getX() + current.getWidth() / 2.0;
-        double cy = current.getY() + current.getHeight() / 2.0;
-    
-        FlowNode best = null;
-        double bestDist = Double.MAX_VALUE;
-        FlowNode fallback = null;
-        double fallbackDist = Double.MAX_VALUE;
-    
-        for (FlowNode n : nodes) {
-            if (n == current) continue;
-            double nx = n.getX() + n.getWidth() / 2.0;
-            double ny = n.getY() + n.getHeight() / 2.0;
-            double dx = nx - cx;
-            double dy = ny - cy;
-            double dist = Math.hypot(dx, dy);
-    
-            boolean inDirection = false;
-            switch (keyCode) {
-                case KeyEvent.VK_RIGHT:
-                    inDirection = dx > 0;
-                    break;
-                case KeyEvent.VK_LEFT:
-                    inDirection = dx < 0;
-                    break;
-                case KeyEvent.VK_UP:
-                    inDirection = dy < 0;
-                    break;
-                case KeyEvent.VK_DOWN:
-                    inDirection = dy > 0;
-                    break;
-                default:
-                    return; // unsupported key
-            }
-    
-            if (inDirection) {
-                if (dist < bestDist) {
-                    bestDist = dist;
-                    best = n;
-                }
-            }
-            // Always compute nearest for fallback
-            if (dist < fallbackDist) {
-                fallbackDist = dist;
-                fallback = n;
-            }
-        }
-    
-        FlowNode target = (best != null) ? best : fallback;
+        FlowNode target = spatialIndex.findConnectedInDirection(current, dx, dy, true);
+        if (target == null) target = spatialIndex.findConnectedInDirection(current, dx, dy, false);
+        if (target == null) target = spatialIndex.findNearestInDirection(current, dx, dy);
+        if (target == null) target = spatialIndex.findNearestNode(current);
         if (target != null) {
             flowDiagram.selectNode(target);
             repaint();
@@ -1318,20 +1992,26 @@ private void showNodePopup(int x, int y, FlowNode node) {
     // Resize submenu
     JMenu sizeMenu = new JMenu(I18n.t("canvas.size"));
 
+    JCheckBoxMenuItem autoFitItem = new JCheckBoxMenuItem(I18n.t("canvas.size.autoFit"), node.isAutoFit());
+    autoFitItem.addActionListener(ev -> { node.setAutoFit(autoFitItem.isSelected()); repaint(); });
+    sizeMenu.add(autoFitItem);
+    sizeMenu.addSeparator();
+
+    // Sizing a node by hand ends auto-fit
     JMenuItem incW = new JMenuItem(I18n.t("canvas.size.incW"));
-    incW.addActionListener(ev -> { node.setWidth(node.getWidth() + 10); repaint(); });
+    incW.addActionListener(ev -> { node.setAutoFit(false); node.setWidth(node.getWidth() + 10); repaint(); });
     sizeMenu.add(incW);
 
     JMenuItem decW = new JMenuItem(I18n.t("canvas.size.decW"));
-    decW.addActionListener(ev -> { node.setWidth(node.getWidth() - 10); repaint(); });
+    decW.addActionListener(ev -> { node.setAutoFit(false); node.setWidth(node.getWidth() - 10); repaint(); });
     sizeMenu.add(decW);
 
     JMenuItem incH = new JMenuItem(I18n.t("canvas.size.incH"));
-    incH.addActionListener(ev -> { node.setHeight(node.getHeight() + 10); repaint(); });
+    incH.addActionListener(ev -> { node.setAutoFit(false); node.setHeight(node.getHeight() + 10); repaint(); });
     sizeMenu.add(incH);
 
     JMenuItem decH = new JMenuItem(I18n.t("canvas.size.decH"));
-    decH.addActionListener(ev -> { node.setHeight(node.getHeight() - 10); repaint(); });
+    decH.addActionListener(ev -> { node.setAutoFit(false); node.setHeight(node.getHeight() - 10); repaint(); });
     sizeMenu.add(decH);
 
     sizeMenu.addSeparator();
@@ -1345,6 +2025,7 @@ private void showNodePopup(int x, int y, FlowNode node) {
         try {
             int wv = Integer.parseInt(wStr.trim());
             int hv = Integer.parseInt(hStr.trim());
+            node.setAutoFit(false);
             node.setWidth(wv);
             node.setHeight(hv);
             repaint();
@@ -1356,6 +2037,10 @@ private void showNodePopup(int x, int y, FlowNode node) {
 
     popup.add(sizeMenu);
 
+    JCheckBoxMenuItem pinItem = new JCheckBoxMenuItem(I18n.t("canvas.pin"), node.isPinned());
+    pinItem.addActionListener(ev -> node.setPinned(pinItem.isSelected()));
+    popup.add(pinItem);
+
     JMenuItem resetColors = new JMenuItem(I18n.t("canvas.reset.colors"));
     resetColors.addActionListener(ev -> {
         node.setFillColorHex("#3a3a3a");
@@ -1383,12 +2068,7 @@ private boolean maybeShowNodePopup(MouseEvent e) {
 
 // Helpers for color handling
 private Color parseHexColor(String hex, Color fallback) {
-    try {
-        if (hex == null || hex.isEmpty()) return fallback;
-        return Color.decode(hex);
-    } catch (Exception ex) {
-        return fallback;
-    }
+    return styleCache.color(hex, fallback);
 }
 
 private String colorToHex(Color c) {
@@ -1489,15 +2169,261 @@ private Color chooseColor(String title, Color initial) {
 
     // Exposed for offscreen export rendering
     public void setViewOffset(double x, double y) {
+        stopViewAnimation();
         this.viewOffset.x = x;
         this.viewOffset.y = y;
-        repaint();
+        repaintView();
+        fireViewChanged();
     }
 
     public void setZoomLevel(double zoom) {
+        stopViewAnimation();
         // clamp to a sensible range
-        this.zoomLevel = Math.max(0.1, Math.min(4.0, zoom));
-        repaint();
+        this.zoomLevel = clampZoom(zoom);
+        repaintView();
+        fireViewChanged();
+    }
+    
+    public double getZoomLevel() {
+        return zoomLevel;
+    }
+    
+    public Point2D.Double getViewOffset() {
+        return new Point2D.Double(viewOffset.x, viewOffset.y);
+    }
+    
+    private static double clampZoom(double zoom) {
+        return Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+    }
+    
+    /** Zooms in one step around the center of the view. */
+    public void zoomIn() {
+        zoomAroundCenter(ZOOM_STEP);
+    }
+    
+    /** Zooms out one step around the center of the view. */
+    public void zoomOut() {
+        zoomAroundCenter(1 / ZOOM_STEP);
+    }
+    
+    private void zoomAroundCenter(double factor) {
+        // Steps during an animation continue from where it is heading
+        double zoom = viewAnimation != null ? viewAnimation.toZoom : zoomLevel;
+        double offsetX = viewAnimation != null ? viewAnimation.toOffsetX : viewOffset.x;
+        double offsetY = viewAnimation != null ? viewAnimation.toOffsetY : viewOffset.y;
+        double target = clampZoom(zoom * factor);
+        Rectangle view = flowViewport();
+        double cx = view.x + view.width / 2.0;
+        double cy = view.y + view.height / 2.0;
+        animateView(target, cx - (cx - offsetX) * target / zoom, cy - (cy - offsetY) * target / zoom);
+    }
+    
+    /** Zooms and pans so that every node is in view. */
+    public void zoomToFit() {
+        if (flowDiagram == null || flowDiagram.isEmpty()) return;
+        zoomToNodes(flowDiagram.getNodes(), MAX_FIT_ZOOM);
+    }
+    
+    /** Zooms and pans to the selected node and the nodes it is connected to; to all nodes without a selection. */
+    public void zoomToSelection() {
+        FlowNode selected = flowDiagram != null ? flowDiagram.getSelectedNode() : null;
+        if (selected == null || spatialIndex == null) {
+            zoomToFit();
+            return;
+        }
+        List<FlowNode> nodes = new ArrayList<>();
+        nodes.add(selected);
+        for (FlowConnection conn : spatialIndex.getConnectionsOf(selected)) {
+            FlowNode other = spatialIndex.getNode(selected.getId().equals(conn.getFromNodeId())
+                    ? conn.getToNodeId() : conn.getFromNodeId());
+            if (other != null) nodes.add(other);
+        }
+        zoomToNodes(nodes, MAX_FIT_ZOOM);
+    }
+    
+    /** Centers the selected node at actual size. */
+    public void zoomToNode() {
+        FlowNode selected = flowDiagram != null ? flowDiagram.getSelectedNode() : null;
+        if (selected == null) return;
+        Rectangle view = flowViewport();
+        double cx = selected.getX() + selected.getWidth() / 2.0;
+        double cy = selected.getY() + selected.getHeight() / 2.0;
+        animateView(1.0, view.x + view.width / 2.0 - cx, view.y + view.height / 2.0 - cy);
+    }
+    
+    private void zoomToNodes(List<FlowNode> nodes, double maxZoom) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (FlowNode n : nodes) {
+            minX = Math.min(minX, n.getX());
+            minY = Math.min(minY, n.getY());
+            maxX = Math.max(maxX, n.getX() + n.getWidth());
+            maxY = Math.max(maxY, n.getY() + n.getHeight());
+        }
+        Rectangle view = flowViewport();
+        double zoom = Math.min((view.width - 2.0 * FIT_PADDING) / (maxX - minX), (view.height - 2.0 * FIT_PADDING) / (maxY - minY));
+        zoom = clampZoom(Math.min(maxZoom, zoom));
+        animateView(zoom, view.x + view.width / 2.0 - (minX + maxX) / 2 * zoom,
+                view.y + view.height / 2.0 - (minY + maxY) / 2 * zoom);
+    }
+    
+    /** Centers the view on the world point at the current zoom, without animating. */
+    public void centerViewOn(double worldX, double worldY) {
+        Rectangle view = flowViewport();
+        setViewOffset(view.x + view.width / 2.0 - worldX * zoomLevel, view.y + view.height / 2.0 - worldY * zoomLevel);
+    }
+    
+    /** The world rectangle currently in view. */
+    public Rectangle2D.Double getVisibleWorldBounds() {
+        Rectangle view = flowViewport();
+        return new Rectangle2D.Double((view.x - viewOffset.x) / zoomLevel, (view.y - viewOffset.y) / zoomLevel,
+                view.width / zoomLevel, view.height / zoomLevel);
+    }
+    
+    /** The part of the canvas showing the flow, above the timeline when both are shown. */
+    private Rectangle flowViewport() {
+        Rectangle view = getVisibleRect();
+        if (view.isEmpty()) view = new Rectangle(0, 0, getWidth(), getHeight());
+        if (mode == Mode.BOTH) view.height = Math.max(1, view.height - TIMELINE_HEIGHT);
+        return view;
+    }
+    
+    /**
+     * Lets a released pan glide on, from the tile cache like the other view animations. The ease-out starts
+     * at the speed the pan was released at, so the view does not jump or stop dead.
+     */
+    private void flingView(long releaseWhen) {
+        double speed = Math.hypot(panVelocityX, panVelocityY);
+        if (releaseWhen - lastPanWhen > FLING_IDLE_MILLIS || speed < MIN_FLING_SPEED) return;
+        // The cubic ease-out starts at three times the average speed
+        double distance = FLING_MILLIS / 3.0;
+        animateView(zoomLevel, viewOffset.x + panVelocityX * distance, viewOffset.y + panVelocityY * distance, FLING_MILLIS);
+    }
+    
+    /**
+     * Moves the view to the zoom and offset over {@value #VIEW_ANIMATION_MILLIS} ms, one step per display
+     * frame. Jumps directly when the canvas is not showing.
+     */
+    public void animateView(double zoom, double offsetX, double offsetY) {
+        animateView(zoom, offsetX, offsetY, VIEW_ANIMATION_MILLIS);
+    }
+    
+    private void animateView(double zoom, double offsetX, double offsetY, int millis) {
+        zoom = clampZoom(zoom);
+        if (!isShowing()) {
+            stopViewAnimation();
+            zoomLevel = zoom;
+            viewOffset.x = offsetX;
+            viewOffset.y = offsetY;
+            repaintView();
+            fireViewChanged();
+            return;
+        }
+        Rectangle view = flowViewport();
+        viewAnimation = new ViewAnimation(zoomLevel, viewOffset.x, viewOffset.y, zoom, offsetX, offsetY,
+                view.x + view.width / 2.0, view.y + view.height / 2.0, System.nanoTime(), millis * 1_000_000L);
+        animationTimer.start();
+    }
+    
+    private void stepViewAnimation() {
+        ViewAnimation animation = viewAnimation;
+        if (animation == null) {
+            animationTimer.stop();
+            return;
+        }
+        long now = System.nanoTime();
+        double[] view = animation.at(now);
+        zoomLevel = view[0];
+        viewOffset.x = view[1];
+        viewOffset.y = view[2];
+        if (animation.isDone(now)) {
+            // The last frame is painted normally, at full quality
+            stopViewAnimation();
+        }
+        repaintView();
+        fireViewChanged();
+    }
+    
+    private void fireViewChanged() {
+        firePropertyChange(VIEW_PROPERTY, null, null);
+    }
+    
+    private void stopViewAnimation() {
+        viewAnimation = null;
+        animationTimer.stop();
+    }
+    
+    public boolean isViewAnimating() {
+        return viewAnimation != null;
+    }
+    
+    /**
+     * Enables or disables painting view animations from the tile cache. On by default; the system property
+     * {@code flowdeconstruct.tiles=false} turns it off, and animation frames are then painted directly.
+     */
+    public void setTiledViewEnabled(boolean enabled) {
+        this.tiledViewEnabled = enabled;
+        if (!enabled) tileCache.clear();
+    }
+    
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+    
+    /**
+     * A move of the view between two zoom levels and offsets. The zoom changes geometrically, so each frame
+     * zooms by the same factor, and the world point at the viewport center moves in a straight line; both
+     * ease out.
+     */
+    static final class ViewAnimation {
+        final double fromZoom;
+        final double toZoom;
+        final double toOffsetX;
+        final double toOffsetY;
+        // Tiles come from the lower zoom, as fewer of them cover the view at both ends
+        final double tileZoom;
+        private final double centerX;
+        private final double centerY;
+        private final double fromWorldX;
+        private final double fromWorldY;
+        private final double toWorldX;
+        private final double toWorldY;
+        private final long start;
+        private final long duration;
+        
+        ViewAnimation(double fromZoom, double fromOffsetX, double fromOffsetY, double toZoom, double toOffsetX,
+                      double toOffsetY, double centerX, double centerY, long start, long duration) {
+            this.fromZoom = fromZoom;
+            this.toZoom = toZoom;
+            this.toOffsetX = toOffsetX;
+            this.toOffsetY = toOffsetY;
+            this.tileZoom = Math.min(fromZoom, toZoom);
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.fromWorldX = (centerX - fromOffsetX) / fromZoom;
+            this.fromWorldY = (centerY - fromOffsetY) / fromZoom;
+            this.toWorldX = (centerX - toOffsetX) / toZoom;
+            this.toWorldY = (centerY - toOffsetY) / toZoom;
+            this.start = start;
+            this.duration = Math.max(1, duration);
+        }
+        
+        boolean isDone(long now) {
+            return now - start >= duration;
+        }
+        
+        /** Zoom and offset x and y at the time. */
+        double[] at(long now) {
+            if (isDone(now)) return new double[] { toZoom, toOffsetX, toOffsetY };
+            double t = Math.max(0, (double) (now - start) / duration);
+            double s = 1 - Math.pow(1 - t, 3);
+            double zoom = fromZoom * Math.pow(toZoom / fromZoom, s);
+            double worldX = fromWorldX + (toWorldX - fromWorldX) * s;
+            double worldY = fromWorldY + (toWorldY - fromWorldY) * s;
+            return new double[] { zoom, centerX - worldX * zoom, centerY - worldY * zoom };
+        }
     }
 
     /**
@@ -1505,6 +2431,6 @@ private Color chooseColor(String title, Color initial) {
      * including paddings, matching the on-screen layout.
      */
     public int getTimelinePreferredHeight() {
-        return TIMELINE_HEIGHT + 2 * TIMELINE_PADDING;
+        return DiagramRenderer.getTimelinePreferredHeight();
     }
 }
\ No newline at end of file
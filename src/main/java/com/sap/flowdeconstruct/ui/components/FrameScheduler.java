@@ -0,0 +1,118 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Rectangle;
+
+/**
+ * Coalesces repaint requests into at most one repaint per display frame. Requests may come from any
+ * thread; they are merged into a single dirty rectangle, requests already covered by it are dropped, and
+ * the merged area is handed to the {@link RegionRepainter} on the event dispatch thread no sooner than one
+ * frame period after the previous frame. Work that should happen once per frame rather than once per
+ * model event can be given as {@code beforeFrame}; repaints it requests join the frame being flushed.
+ */
+public class FrameScheduler {
+
+    /** Receives the merged dirty area, on the event dispatch thread. */
+    public interface RegionRepainter {
+        void repaint(int x, int y, int width, int height);
+    }
+
+    public static final int DEFAULT_MAX_FPS = 60;
+
+    private final RegionRepainter repainter;
+    private final Runnable beforeFrame;
+    private final Timer timer;
+    private long framePeriodNanos;
+    private long lastFrameNanos;
+    private boolean scheduled;
+    private Rectangle dirty;
+    private long requests;
+    private long dropped;
+    private long frames;
+
+    public FrameScheduler(RegionRepainter repainter, Runnable beforeFrame, int maxFps) {
+        this.repainter = repainter;
+        this.beforeFrame = beforeFrame;
+        this.timer = new Timer(0, e -> flush());
+        this.timer.setRepeats(false);
+        setMaxFps(maxFps);
+    }
+
+    /** Caps the frame rate, e.g. 60 or 120; 0 or less only coalesces, without pacing. */
+    public synchronized void setMaxFps(int maxFps) {
+        this.framePeriodNanos = maxFps > 0 ? 1_000_000_000L / maxFps : 0;
+    }
+
+    public synchronized int getMaxFps() {
+        return framePeriodNanos > 0 ? (int) Math.round(1_000_000_000.0 / framePeriodNanos) : 0;
+    }
+
+    /** Adds the rectangle to the next frame's dirty area. Empty rectangles are ignored. */
+    public void invalidate(int x, int y, int width, int height) {
+        long delay;
+        synchronized (this) {
+            requests++;
+            if (width <= 0 || height <= 0) return;
+            if (dirty == null) {
+                dirty = new Rectangle(x, y, width, height);
+            } else if (dirty.contains(x, y, width, height)) {
+                dropped++;
+            } else {
+                dirty.add(new Rectangle(x, y, width, height));
+            }
+            if (scheduled) return;
+            delay = scheduleLocked();
+        }
+        start(delay);
+    }
+
+    /** Schedules a frame even without a dirty area, so that {@code beforeFrame} runs. */
+    public void requestFrame() {
+        long delay;
+        synchronized (this) {
+            requests++;
+            if (scheduled) {
+                dropped++;
+                return;
+            }
+            delay = scheduleLocked();
+        }
+        start(delay);
+    }
+
+    private long scheduleLocked() {
+        scheduled = true;
+        return Math.max(0, lastFrameNanos + framePeriodNanos - System.nanoTime());
+    }
+
+    private void start(long delayNanos) {
+        if (delayNanos <= 0) {
+            SwingUtilities.invokeLater(this::flush);
+        } else {
+            timer.setInitialDelay((int) Math.max(1, delayNanos / 1_000_000));
+            timer.restart();
+        }
+    }
+
+    private void flush() {
+        // Still marked scheduled, so repaints requested here join this frame
+        if (beforeFrame != null) beforeFrame.run();
+        Rectangle area;
+        synchronized (this) {
+            scheduled = false;
+            area = dirty;
+            dirty = null;
+            lastFrameNanos = System.nanoTime();
+            frames++;
+        }
+        if (area != null) repainter.repaint(area.x, area.y, area.width, area.height);
+    }
+
+    /** Repaint requests received, including dropped ones. */
+    public synchronized long getRequests() { return requests; }
+    /** Requests already covered by a pending frame. */
+    public synchronized long getDropped() { return dropped; }
+    /** Frames flushed to the repainter. */
+    public synchronized long getFrames() { return frames; }
+}
@@ -0,0 +1,216 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recent frame and input timings of a {@link FlowCanvas}: the paint time and drawn and culled counts of
+ * each frame, how long events waited in the event dispatch queue, and how long typed keys took to reach
+ * the screen. Samples are kept in fixed-size rings, so recording never allocates and old samples are
+ * simply overwritten; the performance HUD shows their percentiles and {@link #dump(Path)} saves them for
+ * a bug report.
+ * <p>
+ * Recorded and read on the event dispatch thread.
+ */
+public final class FrameStats {
+
+    public static final int DEFAULT_CAPACITY = 600;
+
+    /** Rows of a fixed number of columns, the oldest overwritten once the ring is full. */
+    static final class Ring {
+        private final long[] values;
+        private final int columns;
+        private final int capacity;
+        private int next;
+        private int size;
+
+        Ring(int capacity, int columns) {
+            this.values = new long[capacity * columns];
+            this.columns = columns;
+            this.capacity = capacity;
+        }
+
+        // Fixed arities rather than varargs, so that recording does not allocate an array per sample
+        void add(long a, long b) {
+            int row = claim();
+            values[row] = a;
+            values[row + 1] = b;
+        }
+
+        void add(long a, long b, long c, long d, long e, long f) {
+            int row = claim();
+            values[row] = a;
+            values[row + 1] = b;
+            values[row + 2] = c;
+            values[row + 3] = d;
+            values[row + 4] = e;
+            values[row + 5] = f;
+        }
+
+        /** Takes the next row, the oldest once the ring is full, and returns its offset in the values. */
+        private int claim() {
+            int row = next * columns;
+            next = (next + 1) % capacity;
+            if (size < capacity) size++;
+            return row;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Value of a column of the i-th row, oldest first. */
+        long get(int i, int column) {
+            int row = (next - size + i + capacity) % capacity;
+            return values[row * columns + column];
+        }
+
+        /** Nearest-rank percentile of a column, e.g. 0.95, or -1 while the ring is empty. */
+        long percentile(int column, double p) {
+            if (size == 0) return -1;
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) sorted[i] = get(i, column);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * size);
+            return sorted[Math.max(0, Math.min(size - 1, rank - 1))];
+        }
+
+        void clear() {
+            next = 0;
+            size = 0;
+        }
+    }
+
+    // Frame columns; times are wall-clock milliseconds, durations nanoseconds
+    private static final int TIME = 0;
+    private static final int PAINT = 1;
+    private static final int NODES_DRAWN = 2;
+    private static final int NODES_CULLED = 3;
+    private static final int CONNECTIONS_DRAWN = 4;
+    private static final int CONNECTIONS_CULLED = 5;
+    // Delay columns
+    private static final int DELAY = 1;
+
+    private final Ring frames;
+    private final Ring edtDelays;
+    private final Ring keyLatencies;
+
+    public FrameStats() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FrameStats(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        frames = new Ring(capacity, 6);
+        edtDelays = new Ring(capacity, 2);
+        keyLatencies = new Ring(capacity, 2);
+    }
+
+    public void recordFrame(long paintNanos, int nodesDrawn, int nodesCulled, int connectionsDrawn, int connectionsCulled) {
+        frames.add(System.currentTimeMillis(), paintNanos, nodesDrawn, nodesCulled, connectionsDrawn, connectionsCulled);
+    }
+
+    /** Time between posting an event to the dispatch queue and the event running. */
+    public void recordEdtDelay(long nanos) {
+        edtDelays.add(System.currentTimeMillis(), nanos);
+    }
+
+    /** Time between handling a typed key and the end of the first paint after it. */
+    public void recordKeyLatency(long nanos) {
+        keyLatencies.add(System.currentTimeMillis(), nanos);
+    }
+
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    public int getEdtDelayCount() {
+        return edtDelays.size();
+    }
+
+    public int getKeyLatencyCount() {
+        return keyLatencies.size();
+    }
+
+    /** Paint time percentile of the recorded frames in nanoseconds, or -1 before the first frame. */
+    public long getPaintPercentile(double p) {
+        return frames.percentile(PAINT, p);
+    }
+
+    public long getEdtDelayPercentile(double p) {
+        return edtDelays.percentile(DELAY, p);
+    }
+
+    public long getKeyLatencyPercentile(double p) {
+        return keyLatencies.percentile(DELAY, p);
+    }
+
+    public void clear() {
+        frames.clear();
+        edtDelays.clear();
+        keyLatencies.clear();
+    }
+
+    /** The lines shown by the HUD: percentiles of the recorded samples and the counts of the last frame. */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add("paint     " + percentiles(frames, PAINT) + "  (" + frames.size() + " frames)");
+        if (frames.size() > 0) {
+            int last = frames.size() - 1;
+            lines.add("nodes     " + frames.get(last, NODES_DRAWN) + " drawn / " + frames.get(last, NODES_CULLED) + " culled");
+            lines.add("edges     " + frames.get(last, CONNECTIONS_DRAWN) + " drawn / "
+                    + frames.get(last, CONNECTIONS_CULLED) + " culled");
+        } else {
+            lines.add("nodes     -");
+            lines.add("edges     -");
+        }
+        lines.add("EDT delay " + percentiles(edtDelays, DELAY));
+        lines.add("key>paint " + percentiles(keyLatencies, DELAY));
+        return lines;
+    }
+
+    private static String percentiles(Ring ring, int column) {
+        if (ring.size() == 0) return "-";
+        return "p50 " + millis(ring.percentile(column, 0.5)) + "  p95 " + millis(ring.percentile(column, 0.95));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Writes the summary and every recorded sample, oldest first, as comma-separated lines. Durations are
+     * in microseconds and times in milliseconds since the epoch.
+     */
+    public void dump(Path file) throws IOException {
+        List<String> out = new ArrayList<>();
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ", Locale.ROOT);
+        out.add("# FlowDeconstruct frame stats, " + iso.format(new Date()));
+        out.add("# java " + System.getProperty("java.version") + ", " + System.getProperty("os.name")
+                + " " + System.getProperty("os.version"));
+        for (String line : summary()) out.add("# " + line);
+        out.add("frame,time,paintMicros,nodesDrawn,nodesCulled,connectionsDrawn,connectionsCulled");
+        for (int i = 0; i < frames.size(); i++) {
+            out.add("frame," + frames.get(i, TIME) + "," + frames.get(i, PAINT) / 1000 + "," + frames.get(i, NODES_DRAWN)
+                    + "," + frames.get(i, NODES_CULLED) + "," + frames.get(i, CONNECTIONS_DRAWN)
+                    + "," + frames.get(i, CONNECTIONS_CULLED));
+        }
+        out.add("edtDelay,time,micros");
+        for (int i = 0; i < edtDelays.size(); i++) {
+            out.add("edtDelay," + edtDelays.get(i, TIME) + "," + edtDelays.get(i, DELAY) / 1000);
+        }
+        out.add("keyLatency,time,micros");
+        for (int i = 0; i < keyLatencies.size(); i++) {
+            out.add("keyLatency," + keyLatencies.get(i, TIME) + "," + keyLatencies.get(i, DELAY) / 1000);
+        }
+        Files.write(file, out, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.sap.flowdeconstruct.ui.components;
+
+/**
+ * Zoom thresholds at which {@link FlowCanvas} simplifies what it draws. Zoomed far out, text cannot be
+ * read and shapes are a few pixels wide, so the canvas drops text first, then draws nodes as plain
+ * rectangles without antialiasing, and finally draws dense regions as shaded blocks.
+ */
+public class LevelOfDetail {
+
+    public enum Tier {
+        /** Everything: shapes, text, arrowheads, antialiasing. */
+        FULL,
+        /** Shapes without text. */
+        NO_TEXT,
+        /** Plain rectangles and thin lines, no arrowheads or antialiasing. */
+        SIMPLE_SHAPES,
+        /** Nodes binned into small screen cells; cells holding several nodes become one shaded block. */
+        AGGREGATED
+    }
+
+    public static final double DEFAULT_TEXT_THRESHOLD = 0.4;
+    public static final double DEFAULT_SHAPE_THRESHOLD = 0.25;
+    public static final double DEFAULT_AGGREGATE_THRESHOLD = 0.15;
+
+    private double textThreshold = DEFAULT_TEXT_THRESHOLD;
+    private double shapeThreshold = DEFAULT_SHAPE_THRESHOLD;
+    private double aggregateThreshold = DEFAULT_AGGREGATE_THRESHOLD;
+
+    /**
+     * Sets the zoom levels below which text is skipped, shapes are simplified and nodes are aggregated.
+     * Pass 0 to disable a tier.
+     *
+     * @throws IllegalArgumentException unless {@code text >= shape >= aggregate >= 0}
+     */
+    public void setThresholds(double text, double shape, double aggregate) {
+        if (!(aggregate >= 0 && shape >= aggregate && text >= shape)) {
+            throw new IllegalArgumentException("Thresholds must satisfy text >= shape >= aggregate >= 0: "
+                    + text + ", " + shape + ", " + aggregate);
+        }
+        this.textThreshold = text;
+        this.shapeThreshold = shape;
+        this.aggregateThreshold = aggregate;
+    }
+
+    /** Draws everything at every zoom level. */
+    public void disable() {
+        setThresholds(0, 0, 0);
+    }
+
+    public Tier tierFor(double zoom) {
+        if (zoom < aggregateThreshold) return Tier.AGGREGATED;
+        if (zoom < shapeThreshold) return Tier.SIMPLE_SHAPES;
+        if (zoom < textThreshold) return Tier.NO_TEXT;
+        return Tier.FULL;
+    }
+
+    public double getTextThreshold() { return textThreshold; }
+    public double getShapeThreshold() { return shapeThreshold; }
+    public double getAggregateThreshold() { return aggregateThreshold; }
+}
@@ -0,0 +1,315 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Overview of the whole diagram shown on a {@link FlowCanvas}, with the canvas's view outlined.
+ * <p>
+ * The diagram is drawn from a low-resolution image that is only rendered again once the diagram's
+ * {@linkplain FlowDiagram#getVersion() version} has changed, at most every {@value #REFRESH_MILLIS} ms. The
+ * event dispatch thread only copies node bounds and connection ends into a snapshot; the image is rendered
+ * from it on a background thread. Moving the view only redraws the outline. Pressing or dragging the mouse
+ * centers the canvas on the point, without animating.
+ */
+public class MinimapPanel extends JComponent {
+
+    public static final int DEFAULT_WIDTH = 240;
+    public static final int DEFAULT_HEIGHT = 160;
+
+    private static final int REFRESH_MILLIS = 150;
+    // Pixels left between the diagram and the edge of the minimap
+    private static final int PADDING = 6;
+    private static final Color BACKGROUND_COLOR = new Color(0x24, 0x24, 0x24);
+    private static final Color BORDER_COLOR = DiagramRenderer.SUBFLOW_INDICATOR_COLOR;
+    private static final Color NODE_COLOR = new Color(0x80, 0x80, 0x80);
+    private static final Color CONNECTION_COLOR = DiagramRenderer.CONNECTION_COLOR;
+    private static final Color VIEWPORT_COLOR = DiagramRenderer.SUBFLOW_INDICATOR_COLOR;
+    private static final Color VIEWPORT_FILL = new Color(0x5f, 0x9e, 0xa0, 0x30);
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Minimap");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Node bounds and connection ends of one diagram version, and where they go in the minimap. Built on the
+     * event dispatch thread, then only read.
+     */
+    static final class Snapshot {
+        final long version;
+        final int width;
+        final int height;
+        // x, y, width and height of each node
+        final double[] nodes;
+        // Start and end centers of each connection
+        final double[] connections;
+        // World to minimap pixels: (world - min) * scale + offset
+        final double minX;
+        final double minY;
+        final double scale;
+        final double offsetX;
+        final double offsetY;
+
+        Snapshot(long version, int width, int height, double[] nodes, double[] connections,
+                 double minX, double minY, double scale, double offsetX, double offsetY) {
+            this.version = version;
+            this.width = width;
+            this.height = height;
+            this.nodes = nodes;
+            this.connections = connections;
+            this.minX = minX;
+            this.minY = minY;
+            this.scale = scale;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+        }
+
+        double toMinimapX(double worldX) {
+            return (worldX - minX) * scale + offsetX;
+        }
+
+        double toMinimapY(double worldY) {
+            return (worldY - minY) * scale + offsetY;
+        }
+
+        double toWorldX(double x) {
+            return (x - offsetX) / scale + minX;
+        }
+
+        double toWorldY(double y) {
+            return (y - offsetY) / scale + minY;
+        }
+    }
+
+    private final FlowCanvas canvas;
+    private final FlowDiagram.DiagramStateListener diagramListener = (d, event, oldValue, newValue) -> {
+        if (!"selectedNode".equals(event)) requestRefresh();
+    };
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    private FlowDiagram diagram;
+    // The image and the snapshot it was rendered from, replaced together on the event dispatch thread
+    private BufferedImage image;
+    private Snapshot rendered;
+    private boolean rendering;
+    private int renders;
+
+    public MinimapPanel(FlowCanvas canvas) {
+        this.canvas = canvas;
+        setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT));
+        setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        refreshTimer.setRepeats(false);
+
+        canvas.addPropertyChangeListener(FlowCanvas.FLOW_DIAGRAM_PROPERTY, e -> setDiagram(canvas.getFlowDiagram()));
+        canvas.addPropertyChangeListener(FlowCanvas.VIEW_PROPERTY, e -> repaint());
+        canvas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                repaint();
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                requestRefresh();
+            }
+        });
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                centerCanvasAt(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                centerCanvasAt(e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        setDiagram(canvas.getFlowDiagram());
+    }
+
+    private void setDiagram(FlowDiagram diagram) {
+        if (this.diagram == diagram) return;
+        if (this.diagram != null) this.diagram.removeStateListener(diagramListener);
+        this.diagram = diagram;
+        if (diagram != null) diagram.addStateListener(diagramListener);
+        image = null;
+        rendered = null;
+        requestRefresh();
+        repaint();
+    }
+
+    /** Renders the image again soon, unless it is up to date or the minimap is not showing. */
+    private void requestRefresh() {
+        if (isShowing() && !refreshTimer.isRunning()) refreshTimer.start();
+    }
+
+    private boolean isStale() {
+        if (diagram == null) return false;
+        return rendered == null || rendered.version != diagram.getVersion()
+                || rendered.width != getWidth() || rendered.height != getHeight();
+    }
+
+    private void refresh() {
+        // One render at a time; the one running asks again when it is done
+        if (rendering || !isStale() || getWidth() <= 0 || getHeight() <= 0) return;
+        Snapshot snapshot = snapshot(diagram, getWidth(), getHeight());
+        FlowDiagram source = diagram;
+        rendering = true;
+        WORKER.execute(() -> {
+            BufferedImage result = render(snapshot);
+            SwingUtilities.invokeLater(() -> {
+                rendering = false;
+                renders++;
+                if (source == diagram) {
+                    image = result;
+                    rendered = snapshot;
+                    repaint();
+                }
+                if (isStale()) requestRefresh();
+            });
+        });
+    }
+
+    static Snapshot snapshot(FlowDiagram diagram, int width, int height) {
+        List<FlowNode> nodeList = diagram.getNodes();
+        double[] nodes = new double[nodeList.size() * 4];
+        Map<String, Integer> indexById = new HashMap<>(nodeList.size() * 2);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < nodeList.size(); i++) {
+            FlowNode n = nodeList.get(i);
+            nodes[i * 4] = n.getX();
+            nodes[i * 4 + 1] = n.getY();
+            nodes[i * 4 + 2] = n.getWidth();
+            nodes[i * 4 + 3] = n.getHeight();
+            indexById.put(n.getId(), i);
+            minX = Math.min(minX, n.getX());
+            minY = Math.min(minY, n.getY());
+            maxX = Math.max(maxX, n.getX() + n.getWidth());
+            maxY = Math.max(maxY, n.getY() + n.getHeight());
+        }
+        List<FlowConnection> connectionList = diagram.getConnections();
+        double[] connections = new double[connectionList.size() * 4];
+        int count = 0;
+        for (FlowConnection c : connectionList) {
+            Integer from = indexById.get(c.getFromNodeId());
+            Integer to = indexById.get(c.getToNodeId());
+            if (from == null || to == null) continue;
+            connections[count++] = nodes[from * 4] + nodes[from * 4 + 2] / 2;
+            connections[count++] = nodes[from * 4 + 1] + nodes[from * 4 + 3] / 2;
+            connections[count++] = nodes[to * 4] + nodes[to * 4 + 2] / 2;
+            connections[count++] = nodes[to * 4 + 1] + nodes[to * 4 + 3] / 2;
+        }
+        if (count < connections.length) connections = Arrays.copyOf(connections, count);
+        if (nodeList.isEmpty()) {
+            minX = minY = 0;
+            maxX = maxY = 1;
+        }
+        double scale = Math.min((width - 2.0 * PADDING) / Math.max(1, maxX - minX),
+                (height - 2.0 * PADDING) / Math.max(1, maxY - minY));
+        scale = Math.max(scale, 1e-6);
+        double offsetX = (width - (maxX - minX) * scale) / 2;
+        double offsetY = (height - (maxY - minY) * scale) / 2;
+        return new Snapshot(diagram.getVersion(), width, height, nodes, connections, minX, minY, scale, offsetX, offsetY);
+    }
+
+    /** Draws the snapshot; touches nothing but the snapshot, so it may run on any thread. */
+    static BufferedImage render(Snapshot s) {
+        BufferedImage img = new BufferedImage(s.width, s.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setColor(BACKGROUND_COLOR);
+            g.fillRect(0, 0, s.width, s.height);
+            g.setColor(CONNECTION_COLOR);
+            for (int i = 0; i + 3 < s.connections.length; i += 4) {
+                g.drawLine((int) s.toMinimapX(s.connections[i]), (int) s.toMinimapY(s.connections[i + 1]),
+                        (int) s.toMinimapX(s.connections[i + 2]), (int) s.toMinimapY(s.connections[i + 3]));
+            }
+            // At least a pixel per node, so that small nodes of large diagrams stay visible
+            g.setColor(NODE_COLOR);
+            for (int i = 0; i + 3 < s.nodes.length; i += 4) {
+                int x = (int) s.toMinimapX(s.nodes[i]);
+                int y = (int) s.toMinimapY(s.nodes[i + 1]);
+                g.fillRect(x, y, Math.max(1, (int) Math.round(s.nodes[i + 2] * s.scale)),
+                        Math.max(1, (int) Math.round(s.nodes[i + 3] * s.scale)));
+            }
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    private void centerCanvasAt(int x, int y) {
+        Snapshot s = rendered;
+        if (s == null || diagram == null) return;
+        canvas.centerViewOn(s.toWorldX(x), s.toWorldY(y));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(BACKGROUND_COLOR);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            Snapshot s = rendered;
+            if (image != null && s != null) {
+                g2.drawImage(image, 0, 0, null);
+                Rectangle2D.Double view = canvas.getVisibleWorldBounds();
+                double x0 = Math.max(0, s.toMinimapX(view.x));
+                double y0 = Math.max(0, s.toMinimapY(view.y));
+                double x1 = Math.min(getWidth() - 1, s.toMinimapX(view.x + view.width));
+                double y1 = Math.min(getHeight() - 1, s.toMinimapY(view.y + view.height));
+                if (x1 > x0 && y1 > y0) {
+                    Rectangle2D.Double outline = new Rectangle2D.Double(x0, y0, x1 - x0, y1 - y0);
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2.setColor(VIEWPORT_FILL);
+                    g2.fill(outline);
+                    g2.setColor(VIEWPORT_COLOR);
+                    g2.setStroke(new BasicStroke(1.5f));
+                    g2.draw(outline);
+                }
+            }
+            g2.setColor(BORDER_COLOR);
+            g2.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
+        } finally {
+            g2.dispose();
+        }
+        // Shown after changes made while hidden
+        if (isStale()) requestRefresh();
+    }
+
+    /** Number of images rendered so far. */
+    public int getRenderCount() {
+        return renders;
+    }
+}
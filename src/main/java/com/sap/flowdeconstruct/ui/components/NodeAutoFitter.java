@@ -0,0 +1,93 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.awt.Dimension;
+
+/**
+ * Keeps {@linkplain FlowNode#isAutoFit() auto-fit} nodes sized to their text. A node is measured when it
+ * is added, switched to auto-fit, or its text, font or shape changes, through the renderer's shared
+ * {@link TextLayoutCache}, so fitting costs one layout per edit and the layout is then reused for painting.
+ * Lines are wrapped at {@value #MAX_TEXT_WIDTH} world units, so long labels grow downwards rather than
+ * into one wide node. Moves and manual resizes are left alone.
+ * <p>
+ * Like the model, it must be used from the thread that modifies the diagram.
+ */
+public final class NodeAutoFitter implements FlowDiagram.DiagramStateListener {
+
+    /** Width that text is wrapped at, in world units. */
+    public static final int MAX_TEXT_WIDTH = 240;
+    /** Height of the lines kept before the text is ellipsized, in world units. */
+    public static final int MAX_TEXT_HEIGHT = 240;
+    public static final int MIN_WIDTH = 60;
+    public static final int MIN_HEIGHT = 40;
+
+    private final FlowDiagram diagram;
+    private final DiagramRenderer renderer;
+
+    private NodeAutoFitter(FlowDiagram diagram, DiagramRenderer renderer) {
+        this.diagram = diagram;
+        this.renderer = renderer;
+    }
+
+    /** Fits the diagram's auto-fit nodes and keeps them fitted until {@link #detach()} is called. */
+    public static NodeAutoFitter attach(FlowDiagram diagram, DiagramRenderer renderer) {
+        NodeAutoFitter fitter = new NodeAutoFitter(diagram, renderer);
+        diagram.runBatch(() -> {
+            for (FlowNode node : diagram.getNodes()) {
+                if (node.isAutoFit()) fitter.fit(node);
+            }
+        });
+        diagram.addStateListener(fitter);
+        return fitter;
+    }
+
+    public void detach() {
+        diagram.removeStateListener(this);
+    }
+
+    @Override
+    public void onDiagramStateChanged(FlowDiagram d, String event, Object oldValue, Object newValue) {
+        FlowNode node;
+        if ("nodeModified".equals(event)) {
+            String property = (String) newValue;
+            if (!"text".equals(property) && !"autoFit".equals(property) && !"shape".equals(property)
+                    && !"textFontFamily".equals(property) && !"textFontSize".equals(property)
+                    && !"textFontStyle".equals(property)) return;
+            node = (FlowNode) oldValue;
+        } else if ("nodeAdded".equals(event)) {
+            node = (FlowNode) newValue;
+        } else {
+            return;
+        }
+        if (node.isAutoFit()) fit(node);
+    }
+
+    /**
+     * Switches every node of the diagram to auto-fit and sizes it, as one batched update, e.g. after an
+     * import.
+     */
+    public void fitAll() {
+        diagram.runBatch(() -> {
+            for (FlowNode node : diagram.getNodes()) {
+                node.setAutoFit(true);
+                fit(node);
+            }
+        });
+    }
+
+    /** Sizes the node to its text, whether or not it is in auto-fit mode. */
+    public void fit(FlowNode node) {
+        String text = node.getText() != null ? node.getText() : "";
+        Dimension size = renderer.fittedSize(node, renderer.nodeStyle(node), text, MAX_TEXT_WIDTH, MAX_TEXT_HEIGHT);
+        int width = Math.max(MIN_WIDTH, size.width);
+        int height = Math.max(MIN_HEIGHT, size.height);
+        if (node.getShape() == FlowNode.NodeShape.SQUARE || node.getShape() == FlowNode.NodeShape.CIRCLE) {
+            width = height = Math.max(width, height);
+        }
+        // Unchanged sizes send no events
+        if (node.getWidth() != width) node.setWidth(width);
+        if (node.getHeight() != height) node.setHeight(height);
+    }
+}
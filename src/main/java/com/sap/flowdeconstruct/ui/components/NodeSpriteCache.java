@@ -0,0 +1,214 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Offscreen images of rendered nodes, so that nodes which did not change since the last frame are
+ * drawn with a single {@code drawImage} instead of being re-rasterized. Each node has at most one
+ * sprite, tagged with everything that affects its look (style, shape, text, size, selection border,
+ * subflow marker and zoom bucket) and re-rendered when any of it differs. Sprites are evicted least
+ * recently used first once their total size exceeds the memory budget.
+ * Must be used from the painting thread.
+ */
+public class NodeSpriteCache {
+
+    /** Paints a node in world coordinates onto the given graphics. */
+    public interface NodePainter {
+        void paint(Graphics2D g2d, FlowNode node);
+    }
+
+    static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    // Room for the antialiased border outside the node bounds, in world units
+    private static final int PAD = 2;
+    // Larger sprites (huge nodes, deep zoom) are painted directly rather than cached
+    private static final long MAX_SPRITE_BYTES = 4L * 1024 * 1024;
+    // Zoom is bucketed to whole percent, close enough that resampling is invisible
+    private static final double ZOOM_BUCKETS_PER_UNIT = 100.0;
+
+    private static final class Sprite {
+        final StyleCache.NodeStyle style;
+        final FlowNode.NodeShape shape;
+        final String text;
+        final int width;
+        final int height;
+        final Color border;
+        final boolean subFlow;
+        final int zoomBucket;
+        // Sprite origin relative to the node origin, in world units
+        final double offsetX;
+        final double offsetY;
+        final BufferedImage image;
+
+        Sprite(StyleCache.NodeStyle style, FlowNode node, Color border, int zoomBucket,
+               double offsetX, double offsetY, BufferedImage image) {
+            this.style = style;
+            this.shape = node.getShape();
+            this.text = node.getText();
+            this.width = node.getWidth();
+            this.height = node.getHeight();
+            this.border = border;
+            this.subFlow = node.hasSubFlow();
+            this.zoomBucket = zoomBucket;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.image = image;
+        }
+
+        boolean matches(StyleCache.NodeStyle style, FlowNode node, Color border, int zoomBucket) {
+            return this.style == style && this.border == border && this.zoomBucket == zoomBucket
+                    && width == node.getWidth() && height == node.getHeight() && shape == node.getShape()
+                    && subFlow == node.hasSubFlow() && Objects.equals(text, node.getText());
+        }
+
+        long bytes() {
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Sprite> sprites = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    public NodeSpriteCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public NodeSpriteCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Draws the node from its sprite, rendering the sprite first if it is missing or stale. Returns false,
+     * without drawing anything, when the node cannot be cached (no id, rotated or sheared transform, or
+     * too large at this zoom); the caller then paints the node directly.
+     *
+     * @param style  the node's resolved style
+     * @param border the border color actually used, which differs from the style's while selected
+     */
+    public boolean draw(Graphics2D g2d, FlowNode node, StyleCache.NodeStyle style, Color border, NodePainter painter) {
+        AffineTransform at = g2d.getTransform();
+        int type = at.getType() & ~AffineTransform.TYPE_TRANSLATION;
+        if (node.getId() == null || (type != AffineTransform.TYPE_IDENTITY && type != AffineTransform.TYPE_UNIFORM_SCALE)) {
+            return false;
+        }
+        double scale = at.getScaleX();
+        if (!(scale > 0)) return false;
+        int zoomBucket = (int) Math.round(scale * ZOOM_BUCKETS_PER_UNIT);
+        if (zoomBucket <= 0) return false;
+
+        Sprite sprite = sprites.get(node.getId());
+        if (sprite == null || !sprite.matches(style, node, border, zoomBucket)) {
+            if (sprite != null) remove(node.getId());
+            sprite = render(g2d, node, style, border, zoomBucket, painter);
+            if (sprite == null) return false;
+            misses++;
+            sprites.put(node.getId(), sprite);
+            usedBytes += sprite.bytes();
+            evict();
+        } else {
+            hits++;
+        }
+
+        // Snap to whole device pixels so the sprite is copied 1:1 when the zoom matches its bucket
+        Point2D.Double origin = new Point2D.Double((int) node.getX() + sprite.offsetX, (int) node.getY() + sprite.offsetY);
+        at.transform(origin, origin);
+        double resample = scale / (sprite.zoomBucket / ZOOM_BUCKETS_PER_UNIT);
+        AffineTransform saved = g2d.getTransform();
+        try {
+            g2d.setTransform(new AffineTransform());
+            if (Math.abs(resample - 1.0) < 1e-9) {
+                g2d.drawImage(sprite.image, (int) Math.round(origin.x), (int) Math.round(origin.y), null);
+            } else {
+                AffineTransform place = AffineTransform.getTranslateInstance(Math.round(origin.x), Math.round(origin.y));
+                place.scale(resample, resample);
+                g2d.drawImage(sprite.image, place, null);
+            }
+        } finally {
+            g2d.setTransform(saved);
+        }
+        return true;
+    }
+
+    private Sprite render(Graphics2D target, FlowNode node, StyleCache.NodeStyle style, Color border,
+                          int zoomBucket, NodePainter painter) {
+        double scale = zoomBucket / ZOOM_BUCKETS_PER_UNIT;
+        // Text is wrapped inside its node, but a single line or character may still be taller or wider; wrapped
+        // to the whole node it is at least as large as wrapped to the box inside the shape
+        String text = node.getText() != null ? node.getText() : "";
+        TextLayoutCache.TextBlock block = TextLayoutCache.shared().layout(text, style.font, node.getWidth(), node.getHeight());
+        double extraX = Math.max(0, (Math.ceil(block.getWidth()) - node.getWidth()) / 2.0 + 1);
+        double extraY = Math.max(0, (Math.ceil(block.getHeight()) - node.getHeight()) / 2.0 + 1);
+        double offsetX = -(PAD + Math.ceil(extraX));
+        double offsetY = -(PAD + Math.ceil(extraY));
+        int w = (int) Math.ceil((node.getWidth() - 2 * offsetX + 1) * scale);
+        int h = (int) Math.ceil((node.getHeight() - 2 * offsetY + 1) * scale);
+        if (w <= 0 || h <= 0 || (long) w * h * 4 > MAX_SPRITE_BYTES || (long) w * h * 4 > budgetBytes) return null;
+
+        GraphicsConfiguration gc = target.getDeviceConfiguration();
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, target.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, target.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING));
+            g.setStroke(target.getStroke());
+            g.scale(scale, scale);
+            g.translate(-((int) node.getX() + offsetX), -((int) node.getY() + offsetY));
+            painter.paint(g, node);
+        } finally {
+            g.dispose();
+        }
+        return new Sprite(style, node, border, zoomBucket, offsetX, offsetY, image);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Sprite>> it = sprites.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Sprite eldest = it.next().getValue();
+            usedBytes -= eldest.bytes();
+            eldest.image.flush();
+            it.remove();
+        }
+    }
+
+    private void remove(String id) {
+        Sprite sprite = sprites.remove(id);
+        if (sprite != null) {
+            usedBytes -= sprite.bytes();
+            sprite.image.flush();
+        }
+    }
+
+    /** Drops the sprite of one node, e.g. while it is being edited. */
+    public void invalidate(FlowNode node) {
+        if (node != null && node.getId() != null) remove(node.getId());
+    }
+
+    public void clear() {
+        for (Sprite sprite : sprites.values()) sprite.image.flush();
+        sprites.clear();
+        usedBytes = 0;
+    }
+
+    public int size() { return sprites.size(); }
+    public long getUsedBytes() { return usedBytes; }
+    public long getBudgetBytes() { return budgetBytes; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+}
@@ -0,0 +1,43 @@
+package com.sap.flowdeconstruct.ui.components;
+
+/**
+ * Counters for the last painted frame of a {@link FlowCanvas}: how many nodes and connections were
+ * drawn, how many were culled because they lay outside the visible area, and how long painting took.
+ * Set the system property {@code flowdeconstruct.renderStats=true} to log them after every frame.
+ */
+public class RenderStats {
+
+    static final boolean LOG = Boolean.getBoolean("flowdeconstruct.renderStats");
+
+    private int nodesDrawn;
+    private int nodesCulled;
+    private int connectionsDrawn;
+    private int connectionsCulled;
+    private long paintNanos;
+    private long frames;
+
+    void record(int nodesDrawn, int nodeTotal, int connectionsDrawn, int connectionTotal, long paintNanos) {
+        this.nodesDrawn = nodesDrawn;
+        this.nodesCulled = Math.max(0, nodeTotal - nodesDrawn);
+        this.connectionsDrawn = connectionsDrawn;
+        this.connectionsCulled = Math.max(0, connectionTotal - connectionsDrawn);
+        this.paintNanos = paintNanos;
+        this.frames++;
+        if (LOG) {
+            System.out.println("FlowCanvas: " + this);
+        }
+    }
+
+    public int getNodesDrawn() { return nodesDrawn; }
+    public int getNodesCulled() { return nodesCulled; }
+    public int getConnectionsDrawn() { return connectionsDrawn; }
+    public int getConnectionsCulled() { return connectionsCulled; }
+    public long getPaintNanos() { return paintNanos; }
+    public long getFrames() { return frames; }
+
+    @Override
+    public String toString() {
+        return "frame " + frames + ": nodes " + nodesDrawn + " drawn / " + nodesCulled + " culled, connections "
+                + connectionsDrawn + " drawn / " + connectionsCulled + " culled, " + (paintNanos / 1000) + " us";
+    }
+}
@@ -0,0 +1,143 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowNode;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the style fields of nodes and connections (hex colors, font family/style/size) into ready
+ * {@link Color} and {@link Font} objects for painting. Each node or connection keeps its resolved style,
+ * keyed by id and checked against the current field values on every lookup, so edits are picked up
+ * without change events and the steady-state paint loop neither parses nor allocates.
+ * Thread-safe, so offscreen export rendering can share the instance with the canvas.
+ */
+public final class StyleCache {
+
+    private static final StyleCache SHARED = new StyleCache();
+    // Ids of deleted elements are not tracked; the maps are simply reset when they grow this large
+    private static final int MAX_ENTRIES = 20_000;
+    private static final Color INVALID_COLOR = new Color(0, 0, 0, 0);
+
+    /** Resolved look of a node. Colors fall back to the defaults passed to {@link #nodeStyle}. */
+    public static final class NodeStyle {
+        final String fillHex;
+        final String borderHex;
+        final String textHex;
+        final String fontFamily;
+        final int fontStyle;
+        final int fontSize;
+        public final Color fill;
+        public final Color border;
+        public final Color text;
+        public final Font font;
+
+        NodeStyle(FlowNode node, Color fill, Color border, Color text, Font font) {
+            this.fillHex = node.getFillColorHex();
+            this.borderHex = node.getBorderColorHex();
+            this.textHex = node.getTextColorHex();
+            this.fontFamily = node.getTextFontFamily();
+            this.fontStyle = node.getTextFontStyle();
+            this.fontSize = node.getTextFontSize();
+            this.fill = fill;
+            this.border = border;
+            this.text = text;
+            this.font = font;
+        }
+
+        boolean matches(FlowNode node) {
+            return fontStyle == node.getTextFontStyle() && fontSize == node.getTextFontSize()
+                    && Objects.equals(fillHex, node.getFillColorHex())
+                    && Objects.equals(borderHex, node.getBorderColorHex())
+                    && Objects.equals(textHex, node.getTextColorHex())
+                    && Objects.equals(fontFamily, node.getTextFontFamily());
+        }
+    }
+
+    /** Resolved colors of a connection; the arrow falls back to the line color. */
+    public static final class ConnectionStyle {
+        final String lineHex;
+        final String arrowHex;
+        public final Color line;
+        public final Color arrow;
+
+        ConnectionStyle(FlowConnection connection, Color line, Color arrow) {
+            this.lineHex = connection.getLineColorHex();
+            this.arrowHex = connection.getArrowColorHex();
+            this.line = line;
+            this.arrow = arrow;
+        }
+
+        boolean matches(FlowConnection connection) {
+            return Objects.equals(lineHex, connection.getLineColorHex()) && Objects.equals(arrowHex, connection.getArrowColorHex());
+        }
+    }
+
+    private final ConcurrentHashMap<String, Color> colors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, NodeStyle> nodeStyles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConnectionStyle> connectionStyles = new ConcurrentHashMap<>();
+
+    public static StyleCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the node's resolved style. Callers sharing a cache must pass the same defaults.
+     */
+    public NodeStyle nodeStyle(FlowNode node, Color defaultFill, Color defaultBorder, Color defaultText, Font defaultFont) {
+        NodeStyle style = node.getId() != null ? nodeStyles.get(node.getId()) : null;
+        if (style != null && style.matches(node)) return style;
+        // Use per-node font if available
+        String family = (node.getTextFontFamily() != null && !node.getTextFontFamily().trim().isEmpty()) ? node.getTextFontFamily() : defaultFont.getFamily();
+        int size = node.getTextFontSize() > 0 ? node.getTextFontSize() : defaultFont.getSize();
+        Font font = new Font(family, node.getTextFontStyle(), size);
+        style = new NodeStyle(node,
+                color(node.getFillColorHex(), defaultFill),
+                color(node.getBorderColorHex(), defaultBorder),
+                color(node.getTextColorHex(), defaultText),
+                font);
+        put(nodeStyles, node.getId(), style);
+        return style;
+    }
+
+    public ConnectionStyle connectionStyle(FlowConnection connection, Color defaultLine) {
+        ConnectionStyle style = connection.getId() != null ? connectionStyles.get(connection.getId()) : null;
+        if (style != null && style.matches(connection)) return style;
+        Color line = color(connection.getLineColorHex(), defaultLine);
+        style = new ConnectionStyle(connection, line, color(connection.getArrowColorHex(), line));
+        put(connectionStyles, connection.getId(), style);
+        return style;
+    }
+
+    /**
+     * Decodes a hex color such as {@code #3a3a3a}, returning {@code fallback} for null, empty or invalid values.
+     */
+    public Color color(String hex, Color fallback) {
+        if (hex == null || hex.isEmpty()) return fallback;
+        Color c = colors.get(hex);
+        if (c == null) {
+            try {
+                c = Color.decode(hex);
+            } catch (NumberFormatException ex) {
+                c = INVALID_COLOR;
+            }
+            put(colors, hex, c);
+        }
+        return c == INVALID_COLOR ? fallback : c;
+    }
+
+    public void clear() {
+        colors.clear();
+        nodeStyles.clear();
+        connectionStyles.clear();
+    }
+
+    private static <V> void put(ConcurrentHashMap<String, V> map, String key, V value) {
+        if (key == null) return;
+        if (map.size() >= MAX_ENTRIES) map.clear();
+        map.put(key, value);
+    }
+}
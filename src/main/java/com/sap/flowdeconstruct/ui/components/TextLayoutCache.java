@@ -0,0 +1,215 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineBreakMeasurer;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Word-wrapped labels, laid out once per text, font and box size and reused by every frame and export
+ * that draws them. Lines break at word boundaries, or inside words longer than the box, and explicit line
+ * breaks are kept. Text that needs more lines than fit the box ends with an ellipsis on the last line.
+ * <p>
+ * Blocks are keyed by the text, the font, the box width in whole world units and the number of lines the
+ * box height allows; nothing about the graphics they are drawn on is part of the key. That holds because
+ * wrapping is measured in world units with one fixed antialiased, fractional-metrics context: zooming
+ * scales the drawn block as a whole, so line breaks never depend on the zoom. The map is concurrent, as
+ * the PDF and PowerPoint exports may lay out their labels on another thread than the canvas.
+ */
+public final class TextLayoutCache {
+
+    private static final TextLayoutCache SHARED = new TextLayoutCache();
+    // Every intermediate text typed into a node gets its own block, so the map fills up while editing
+    // and starts over at this size rather than aging out single entries
+    private static final int MAX_ENTRIES = 20_000;
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    /** Lines of a label, each centered horizontally; the block is centered on the point it is drawn at. */
+    public static final class TextBlock {
+        private final String[] lines;
+        private final TextLayout[] layouts;
+        private final float[] advances;
+        private final float ascent;
+        private final float descent;
+        private final float leading;
+        private final boolean truncated;
+
+        TextBlock(String[] lines, TextLayout[] layouts, float[] advances, LineMetrics metrics, boolean truncated) {
+            this.lines = lines;
+            this.layouts = layouts;
+            this.advances = advances;
+            this.ascent = metrics.getAscent();
+            this.descent = metrics.getDescent();
+            this.leading = metrics.getLeading();
+            this.truncated = truncated;
+        }
+
+        public int getLineCount() {
+            return lines.length;
+        }
+
+        public String getLine(int i) {
+            return lines[i];
+        }
+
+        /** Whether text was left out and the last line ends with an ellipsis. */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /** Width of the longest line, trailing spaces excluded. */
+        public float getWidth() {
+            float width = 0;
+            for (float advance : advances) width = Math.max(width, advance);
+            return width;
+        }
+
+        public float getHeight() {
+            if (lines.length == 0) return 0;
+            return lines.length * (ascent + descent) + (lines.length - 1) * leading;
+        }
+
+        /** Draws the lines with the graphics' current color, centered on the point. */
+        public void draw(Graphics2D g, float centerX, float centerY) {
+            float y = centerY - getHeight() / 2 + ascent;
+            for (int i = 0; i < layouts.length; i++) {
+                if (layouts[i] != null) layouts[i].draw(g, centerX - advances[i] / 2, y);
+                y += ascent + descent + leading;
+            }
+        }
+    }
+
+    private static final class Key {
+        final String text;
+        final Font font;
+        final int width;
+        final int maxLines;
+
+        Key(String text, Font font, int width, int maxLines) {
+            this.text = text;
+            this.font = font;
+            this.width = width;
+            this.maxLines = maxLines;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return width == k.width && maxLines == k.maxLines && text.equals(k.text) && font.equals(k.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, font, width, maxLines);
+        }
+    }
+
+    private final ConcurrentHashMap<Key, TextBlock> blocks = new ConcurrentHashMap<>();
+
+    public static TextLayoutCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the text wrapped to lines at most {@code maxWidth} wide, with as many lines as fit
+     * {@code maxHeight} but at least one.
+     */
+    public TextBlock layout(String text, Font font, double maxWidth, double maxHeight) {
+        int width = Math.max(1, (int) maxWidth);
+        LineMetrics metrics = font.getLineMetrics("Ag", FRC);
+        float lineHeight = metrics.getAscent() + metrics.getDescent() + metrics.getLeading();
+        int maxLines = Math.max(1, (int) ((maxHeight + metrics.getLeading()) / lineHeight));
+        Key key = new Key(text, font, width, maxLines);
+        TextBlock block = blocks.get(key);
+        if (block == null) {
+            block = wrap(text, font, width, maxLines, metrics);
+            if (blocks.size() >= MAX_ENTRIES) blocks.clear();
+            blocks.put(key, block);
+        }
+        return block;
+    }
+
+    private static TextBlock wrap(String text, Font font, int width, int maxLines, LineMetrics metrics) {
+        List<String> lines = new ArrayList<>();
+        List<TextLayout> layouts = new ArrayList<>();
+        boolean truncated = false;
+        String[] paragraphs = text.split("\r?\n", -1);
+        outer:
+        for (int p = 0; p < paragraphs.length; p++) {
+            String paragraph = paragraphs[p];
+            boolean laterParagraphs = p < paragraphs.length - 1;
+            if (paragraph.isEmpty()) {
+                if (lines.size() == maxLines - 1 && laterParagraphs) {
+                    addEllipsized(lines, layouts, "", font, width);
+                    truncated = true;
+                    break;
+                }
+                lines.add("");
+                layouts.add(null);
+                continue;
+            }
+            AttributedString attributed = new AttributedString(paragraph);
+            attributed.addAttribute(TextAttribute.FONT, font);
+            LineBreakMeasurer measurer = new LineBreakMeasurer(attributed.getIterator(), FRC);
+            while (measurer.getPosition() < paragraph.length()) {
+                int start = measurer.getPosition();
+                TextLayout layout = measurer.nextLayout(width);
+                int end = measurer.getPosition();
+                if (lines.size() == maxLines - 1 && (end < paragraph.length() || laterParagraphs)) {
+                    addEllipsized(lines, layouts, paragraph.substring(start), font, width);
+                    truncated = true;
+                    break outer;
+                }
+                lines.add(paragraph.substring(start, end));
+                layouts.add(layout);
+            }
+        }
+        float[] advances = new float[layouts.size()];
+        for (int i = 0; i < advances.length; i++) {
+            advances[i] = layouts.get(i) != null ? layouts.get(i).getVisibleAdvance() : 0;
+        }
+        return new TextBlock(lines.toArray(new String[0]), layouts.toArray(new TextLayout[0]), advances, metrics, truncated);
+    }
+
+    /** Adds the longest start of the text that fits the width with an ellipsis appended. */
+    private static void addEllipsized(List<String> lines, List<TextLayout> layouts, String text, Font font, int width) {
+        String ellipsis = font.canDisplay('…') ? "…" : "...";
+        // Binary search on the number of characters kept
+        int lo = 0;
+        int hi = text.length();
+        while (lo < hi) {
+            int mid = (lo + hi + 1) / 2;
+            if (font.getStringBounds(trimEnd(text.substring(0, mid)) + ellipsis, FRC).getWidth() <= width) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        String line = trimEnd(text.substring(0, lo)) + ellipsis;
+        lines.add(line);
+        layouts.add(new TextLayout(line, font, FRC));
+    }
+
+    private static String trimEnd(String s) {
+        int end = s.length();
+        while (end > 0 && Character.isWhitespace(s.charAt(end - 1))) end--;
+        return s.substring(0, end);
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    public void clear() {
+        blocks.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rendered {@value #TILE_SIZE}-pixel square tiles of the world, kept per zoom level so that moving the view
+ * only renders the tiles that come into sight. Tile (column, row) at zoom {@code z} holds the world rectangle
+ * starting at {@code (column, row) * TILE_SIZE / z}, rendered at that zoom. {@link #paint} draws the view from
+ * tiles of any zoom, scaling them when it differs from the view's, which lets zoom animations run on tiles
+ * rendered once. Tiles touching a changed world region are dropped with {@link #invalidate}, and the least
+ * recently used are evicted once their total size exceeds the memory budget.
+ * Must be used from the painting thread.
+ */
+public class TileCache {
+
+    /** Renders the flow onto a tile graphics, whose pixels correspond to the given zoomed world area. */
+    public interface TileRenderer {
+        /**
+         * @param g    graphics translated so that zoomed world coordinates, {@code world * zoom}, map to tile pixels
+         * @param area the tile's rectangle in zoomed world coordinates
+         */
+        void render(Graphics2D g, Rectangle area, double zoom);
+    }
+
+    public static final int TILE_SIZE = 256;
+    static final long DEFAULT_BUDGET_BYTES = 48L * 1024 * 1024;
+    private static final long TILE_BYTES = 4L * TILE_SIZE * TILE_SIZE;
+
+    private static final class Key {
+        final double zoom;
+        final int column;
+        final int row;
+
+        Key(double zoom, int column, int row) {
+            this.zoom = zoom;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return k.zoom == zoom && k.column == column && k.row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return (Double.hashCode(zoom) * 31 + column) * 31 + row;
+        }
+
+        boolean intersects(double minX, double minY, double maxX, double maxY) {
+            double size = TILE_SIZE / zoom;
+            return column * size <= maxX && (column + 1) * size >= minX && row * size <= maxY && (row + 1) * size >= minY;
+        }
+    }
+
+    // Access order, so iteration starts at the least recently used tile
+    private final LinkedHashMap<Key, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final long budgetBytes;
+    private long hits;
+    private long misses;
+
+    public TileCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public TileCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Draws the part of the world inside the device rectangle {@code clip}, for a view mapping world points to
+     * {@code world * zoom + offset}, from tiles rendered at {@code tileZoom}. Missing tiles are rendered first.
+     * Returns the number of tiles rendered.
+     */
+    public int paint(Graphics2D g, Rectangle clip, double offsetX, double offsetY, double zoom, double tileZoom,
+                     GraphicsConfiguration gc, TileRenderer renderer) {
+        if (clip.isEmpty() || !(zoom > 0) || !(tileZoom > 0)) return 0;
+        // Device pixels per tile, and the tile range covering the clip
+        double step = TILE_SIZE * zoom / tileZoom;
+        int firstColumn = (int) Math.floor((clip.x - offsetX) / step);
+        int lastColumn = (int) Math.floor((clip.x + clip.width - offsetX) / step);
+        int firstRow = (int) Math.floor((clip.y - offsetY) / step);
+        int lastRow = (int) Math.floor((clip.y + clip.height - offsetY) / step);
+
+        int rendered = 0;
+        Graphics2D target = (Graphics2D) g.create();
+        try {
+            boolean scaled = zoom != tileZoom;
+            if (scaled) {
+                target.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            }
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    Key key = new Key(tileZoom, column, row);
+                    BufferedImage tile = tiles.get(key);
+                    if (tile == null) {
+                        tile = render(key, gc, renderer);
+                        tiles.put(key, tile);
+                        misses++;
+                        rendered++;
+                    } else {
+                        hits++;
+                    }
+                    // Whole device pixels, with neighbouring tiles sharing their edges so no seams show
+                    int x0 = (int) Math.round(offsetX + column * step);
+                    int y0 = (int) Math.round(offsetY + row * step);
+                    if (scaled) {
+                        int x1 = (int) Math.round(offsetX + (column + 1) * step);
+                        int y1 = (int) Math.round(offsetY + (row + 1) * step);
+                        target.drawImage(tile, x0, y0, x1 - x0, y1 - y0, null);
+                    } else {
+                        target.drawImage(tile, x0, y0, null);
+                    }
+                }
+            }
+        } finally {
+            target.dispose();
+        }
+        evict();
+        return rendered;
+    }
+
+    private static BufferedImage render(Key key, GraphicsConfiguration gc, TileRenderer renderer) {
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(TILE_SIZE, TILE_SIZE, Transparency.TRANSLUCENT)
+                : new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.SrcOver);
+            Rectangle area = new Rectangle(key.column * TILE_SIZE, key.row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            g.translate(-area.x, -area.y);
+            renderer.render(g, area, key.zoom);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /** Drops the tiles of every zoom level that overlap the world rectangle. */
+    public void invalidate(double minX, double minY, double maxX, double maxY) {
+        Iterator<Map.Entry<Key, BufferedImage>> it = tiles.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, BufferedImage> e = it.next();
+            if (e.getKey().intersects(minX, minY, maxX, maxY)) {
+                e.getValue().flush();
+                it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        for (BufferedImage image : tiles.values()) image.flush();
+        tiles.clear();
+    }
+
+    private void evict() {
+        Iterator<BufferedImage> it = tiles.values().iterator();
+        while (tiles.size() * TILE_BYTES > budgetBytes && it.hasNext()) {
+            it.next().flush();
+            it.remove();
+        }
+    }
+
+    public int size() { return tiles.size(); }
+    public long getUsedBytes() { return tiles.size() * TILE_BYTES; }
+    public long getBudgetBytes() { return budgetBytes; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+}
@@ -0,0 +1,368 @@
+package com.sap.flowdeconstruct.ui.dialogs;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import com.sap.flowdeconstruct.i18n.I18n;
+import com.sap.flowdeconstruct.importer.BatchMarkdownImporter;
+import com.sap.flowdeconstruct.importer.ImportReport;
+
+/**
+ * Dialog for importing a whole folder (or a multi-selection) of Markdown flows at once.
+ * Parsing runs in the background; per-file progress and errors are listed as they complete.
+ */
+public class BatchImportDialog extends JDialog implements KeyListener {
+
+    private static final Color BACKGROUND_COLOR = new Color(0x2d, 0x2d, 0x2d);
+    private static final Color PANEL_COLOR = new Color(0x3a, 0x3a, 0x3a);
+    private static final Color TEXT_COLOR = new Color(0xcc, 0xcc, 0xcc);
+    private static final Color ACCENT_COLOR = new Color(0x5f, 0x9e, 0xa0);
+    private static final Font MONO_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    // Problems listed per file in the log; the rest are only counted
+    private static final int MAX_LISTED_PROBLEMS = 5;
+
+    public enum MergeMode { SUBFLOWS, SEPARATE_PROJECTS }
+
+    private final List<Path> selectedFiles = new ArrayList<>();
+    private JLabel selectionLabel;
+    private JRadioButton subflowsRadio;
+    private JRadioButton separateRadio;
+    private JProgressBar progressBar;
+    private JTextArea logArea;
+    private JButton importButton;
+    private JButton browseButton;
+
+    private BatchMarkdownImporter importer;
+    private SwingWorker<List<BatchMarkdownImporter.FileResult>, String> worker;
+    private List<BatchMarkdownImporter.FileResult> results = Collections.emptyList();
+    private boolean confirmed = false;
+
+    public BatchImportDialog(Frame parent) {
+        super(parent, I18n.t("batch.import.title"), true);
+        initializeDialog();
+        setupComponents();
+        setupKeyboardHandling();
+    }
+
+    private void initializeDialog() {
+        setSize(620, 460);
+        setLocationRelativeTo(getOwner());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        getContentPane().setBackground(BACKGROUND_COLOR);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                cancelAndClose();
+            }
+        });
+    }
+
+    private void setupComponents() {
+        setLayout(new BorderLayout());
+
+        JPanel titlePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        titlePanel.setBackground(BACKGROUND_COLOR);
+        titlePanel.setBorder(BorderFactory.createEmptyBorder(12, 16, 8, 16));
+        JLabel titleLabel = new JLabel(I18n.t("batch.import.header"));
+        titleLabel.setForeground(TEXT_COLOR);
+        titleLabel.setFont(MONO_FONT.deriveFont(Font.BOLD, 14f));
+        titlePanel.add(titleLabel);
+        add(titlePanel, BorderLayout.NORTH);
+
+        JPanel content = new JPanel();
+        content.setBackground(BACKGROUND_COLOR);
+        content.setBorder(BorderFactory.createEmptyBorder(0, 16, 12, 16));
+        content.setLayout(new BoxLayout(content, BoxLayout.Y_AXIS));
+        content.add(createSourceSection());
+        content.add(Box.createVerticalStrut(12));
+        content.add(createModeSection());
+        content.add(Box.createVerticalStrut(12));
+        content.add(createProgressSection());
+        add(content, BorderLayout.CENTER);
+
+        add(createButtonPanel(), BorderLayout.SOUTH);
+    }
+
+    private JPanel createSourceSection() {
+        JPanel section = new JPanel(new BorderLayout(8, 0));
+        section.setBackground(BACKGROUND_COLOR);
+        section.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        selectionLabel = new JLabel(I18n.t("batch.import.none"));
+        selectionLabel.setForeground(TEXT_COLOR);
+        selectionLabel.setFont(MONO_FONT);
+        section.add(selectionLabel, BorderLayout.CENTER);
+
+        browseButton = createStyledButton(I18n.t("import.dialog.browse"));
+        browseButton.addActionListener(e -> browse());
+        section.add(browseButton, BorderLayout.EAST);
+        return section;
+    }
+
+    private JPanel createModeSection() {
+        JPanel section = new JPanel();
+        section.setBackground(BACKGROUND_COLOR);
+        section.setLayout(new BoxLayout(section, BoxLayout.Y_AXIS));
+        section.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel label = new JLabel(I18n.t("batch.import.mode"));
+        label.setForeground(TEXT_COLOR);
+        label.setFont(MONO_FONT);
+        section.add(label);
+
+        subflowsRadio = createStyledRadio(I18n.t("batch.import.mode.subflows"));
+        separateRadio = createStyledRadio(I18n.t("batch.import.mode.separate"));
+        subflowsRadio.setSelected(true);
+        ButtonGroup group = new ButtonGroup();
+        group.add(subflowsRadio);
+        group.add(separateRadio);
+        section.add(subflowsRadio);
+        section.add(separateRadio);
+        return section;
+    }
+
+    private JPanel createProgressSection() {
+        JPanel section = new JPanel(new BorderLayout(0, 6));
+        section.setBackground(BACKGROUND_COLOR);
+        section.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        progressBar = new JProgressBar(0, 1);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        progressBar.setBackground(PANEL_COLOR);
+        progressBar.setForeground(ACCENT_COLOR);
+        progressBar.setFont(MONO_FONT);
+        section.add(progressBar, BorderLayout.NORTH);
+
+        logArea = new JTextArea(10, 40);
+        logArea.setEditable(false);
+        logArea.setBackground(PANEL_COLOR);
+        logArea.setForeground(TEXT_COLOR);
+        logArea.setFont(MONO_FONT);
+        JScrollPane scroll = new JScrollPane(logArea);
+        scroll.setBorder(BorderFactory.createLineBorder(ACCENT_COLOR.darker(), 1));
+        section.add(scroll, BorderLayout.CENTER);
+        return section;
+    }
+
+    private JPanel createButtonPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        panel.setBackground(BACKGROUND_COLOR);
+        panel.setBorder(BorderFactory.createEmptyBorder(8, 16, 16, 16));
+
+        JButton cancelButton = createStyledButton(I18n.t("import.dialog.cancel"));
+        cancelButton.addActionListener(e -> cancelAndClose());
+
+        importButton = createStyledButton(I18n.t("import.dialog.import"));
+        importButton.setEnabled(false);
+        importButton.addActionListener(e -> startImport());
+
+        panel.add(cancelButton);
+        panel.add(Box.createHorizontalStrut(8));
+        panel.add(importButton);
+        return panel;
+    }
+
+    private JButton createStyledButton(String text) {
+        JButton button = new JButton(text);
+        button.setBackground(PANEL_COLOR);
+        button.setForeground(TEXT_COLOR);
+        button.setFont(MONO_FONT);
+        button.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(ACCENT_COLOR.darker(), 1),
+            BorderFactory.createEmptyBorder(6, 12, 6, 12)
+        ));
+        button.setFocusPainted(false);
+        button.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override public void mouseEntered(java.awt.event.MouseEvent e) { button.setBackground(ACCENT_COLOR.darker()); }
+            @Override public void mouseExited(java.awt.event.MouseEvent e) { button.setBackground(PANEL_COLOR); }
+        });
+        return button;
+    }
+
+    private JRadioButton createStyledRadio(String text) {
+        JRadioButton radio = new JRadioButton(text);
+        radio.setBackground(BACKGROUND_COLOR);
+        radio.setForeground(TEXT_COLOR);
+        radio.setFont(MONO_FONT);
+        radio.setFocusPainted(false);
+        return radio;
+    }
+
+    private void browse() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setFileFilter(new FileNameExtensionFilter(I18n.t("import.dialog.filetype.markdown"), "md"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Set<Path> files = new LinkedHashSet<>();
+        try {
+            for (File f : chooser.getSelectedFiles()) {
+                Path p = f.toPath();
+                if (Files.isDirectory(p)) {
+                    files.addAll(BatchMarkdownImporter.collectMarkdownFiles(p));
+                } else if (Files.isRegularFile(p)) {
+                    files.add(p);
+                }
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, I18n.t("import.error", e.getMessage()), I18n.t("batch.import.title"), JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        selectedFiles.clear();
+        selectedFiles.addAll(files);
+        selectionLabel.setText(I18n.t("batch.import.selected", selectedFiles.size()));
+        importButton.setEnabled(!selectedFiles.isEmpty());
+        logArea.setText("");
+        progressBar.setValue(0);
+        progressBar.setString("");
+    }
+
+    private void startImport() {
+        if (selectedFiles.isEmpty() || worker != null) return;
+        importButton.setEnabled(false);
+        browseButton.setEnabled(false);
+        subflowsRadio.setEnabled(false);
+        separateRadio.setEnabled(false);
+        logArea.setText("");
+        progressBar.setMaximum(selectedFiles.size());
+        progressBar.setValue(0);
+
+        final List<Path> files = new ArrayList<>(selectedFiles);
+        importer = new BatchMarkdownImporter();
+        worker = new SwingWorker<List<BatchMarkdownImporter.FileResult>, String>() {
+            @Override
+            protected List<BatchMarkdownImporter.FileResult> doInBackground() {
+                return importer.importAll(files, (result, completed, total) -> {
+                    String line = result.isSuccess()
+                            ? I18n.t("batch.import.file.ok", result.getFileName(),
+                                     result.getDiagram().getNodeCount(), result.getElapsedNanos() / 1_000_000L)
+                                    + describeProblems(result.getReport())
+                            : I18n.t("batch.import.file.error", result.getFileName(), String.valueOf(result.getError().getMessage()));
+                    // One entry per file, so progress counts files rather than log lines
+                    publish(line);
+                });
+            }
+
+            @Override
+            protected void process(List<String> lines) {
+                for (String line : lines) {
+                    logArea.append(line + "\n");
+                    progressBar.setValue(progressBar.getValue() + 1);
+                    progressBar.setString(progressBar.getValue() + " / " + progressBar.getMaximum());
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    results = isCancelled() ? Collections.<BatchMarkdownImporter.FileResult>emptyList() : get();
+                } catch (Exception e) {
+                    results = Collections.emptyList();
+                    logArea.append(I18n.t("import.error", e.getMessage()) + "\n");
+                }
+                finishImport();
+            }
+        };
+        worker.execute();
+    }
+
+    /** Log lines for the skipped and invalid lines of a file, or an empty string if there were none. */
+    private static String describeProblems(ImportReport report) {
+        if (report == null || !report.hasProblems()) return "";
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n       ").append(I18n.t("batch.import.file.problems", report.getProblemCount()));
+        List<ImportReport.Entry> entries = report.getEntries();
+        for (int i = 0; i < Math.min(MAX_LISTED_PROBLEMS, entries.size()); i++) {
+            sb.append("\n         ").append(entries.get(i));
+        }
+        if (report.getProblemCount() > MAX_LISTED_PROBLEMS) {
+            sb.append("\n         ...");
+        }
+        return sb.toString();
+    }
+
+    private void finishImport() {
+        int ok = 0;
+        for (BatchMarkdownImporter.FileResult r : results) {
+            if (r.isSuccess()) ok++;
+        }
+        logArea.append(I18n.t("batch.import.summary", ok, results.size() - ok) + "\n");
+        if (ok == 0) {
+            // Nothing usable: let the user pick other files
+            worker = null;
+            browseButton.setEnabled(true);
+            subflowsRadio.setEnabled(true);
+            separateRadio.setEnabled(true);
+            return;
+        }
+        confirmed = true;
+        importButton.setText(I18n.t("batch.import.open"));
+        importButton.setEnabled(true);
+        for (java.awt.event.ActionListener l : importButton.getActionListeners()) {
+            importButton.removeActionListener(l);
+        }
+        importButton.addActionListener(e -> dispose());
+        getRootPane().setDefaultButton(importButton);
+    }
+
+    private void cancelAndClose() {
+        if (worker != null && !worker.isDone()) {
+            importer.cancel();
+            worker.cancel(true);
+        }
+        confirmed = false;
+        dispose();
+    }
+
+    private void setupKeyboardHandling() {
+        addKeyListener(this);
+        setFocusable(true);
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+            cancelAndClose();
+        } else if (e.getKeyCode() == KeyEvent.VK_ENTER && e.isControlDown()) {
+            if (confirmed) {
+                dispose();
+            } else {
+                startImport();
+            }
+        }
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {}
+
+    @Override
+    public void keyReleased(KeyEvent e) {}
+
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+
+    public MergeMode getMergeMode() {
+        return separateRadio.isSelected() ? MergeMode.SEPARATE_PROJECTS : MergeMode.SUBFLOWS;
+    }
+
+    public List<BatchMarkdownImporter.FileResult> getResults() {
+        return results;
+    }
+}
@@ -6,10 +6,12 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.io.File;
 
+import com.sap.flowdeconstruct.export.TextExporter;
+import com.sap.flowdeconstruct.export.TextExporters;
 import com.sap.flowdeconstruct.i18n.I18n;
 
 /**
- * Dialog for exporting flow diagrams to PDF or Markdown
+ * Dialog for exporting flow diagrams to PDF, PPTX, Markdown or any registered text format
  * Follows the dark theme design from design.md
  */
 public class ExportDialog extends JDialog implements KeyListener {
@@ -44,7 +46,7 @@ public class ExportDialog extends JDialog implements KeyListener {
     }
     
     private JTextField filePathField;
-    private JComboBox<ExportFormat> formatComboBox;
+    private JComboBox<Object> formatComboBox;
     private JCheckBox includeNotesCheckBox;
     private JCheckBox includeSubflowsCheckBox;
     private JCheckBox includeFlowCheckBox;
@@ -155,7 +157,14 @@ public class ExportDialog extends JDialog implements KeyListener {
         label.setFont(MONO_FONT);
         section.add(label, BorderLayout.NORTH);
         
-        formatComboBox = new JComboBox<>(ExportFormat.values());
+        // Built-in document formats first, then every registered text exporter
+        formatComboBox = new JComboBox<>();
+        for (ExportFormat format : ExportFormat.values()) {
+            formatComboBox.addItem(format);
+        }
+        for (TextExporter exporter : TextExporters.getAvailable()) {
+            formatComboBox.addItem(exporter);
+        }
         formatComboBox.setBackground(PANEL_COLOR);
         formatComboBox.setForeground(TEXT_COLOR);
         formatComboBox.setFont(MONO_FONT);
@@ -166,6 +175,8 @@ public class ExportDialog extends JDialog implements KeyListener {
                 super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
                 if (value instanceof ExportFormat) {
                     setText(((ExportFormat) value).getDisplayName());
+                } else if (value instanceof TextExporter) {
+                    setText(((TextExporter) value).getDisplayName());
                 }
                 setBackground(isSelected ? ACCENT_COLOR.darker() : PANEL_COLOR);
                 setForeground(TEXT_COLOR);
@@ -307,25 +318,25 @@ public class ExportDialog extends JDialog implements KeyListener {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
         
-        ExportFormat selectedFormat = (ExportFormat) formatComboBox.getSelectedItem();
-        if (selectedFormat != null) {
-            fileChooser.setSelectedFile(new File(I18n.t("export.dialog.default.filename") + selectedFormat.getExtension()));
+        String selectedExtension = getSelectedExtension();
+        if (selectedExtension != null) {
+            fileChooser.setSelectedFile(new File(I18n.t("export.dialog.default.filename") + selectedExtension));
         }
         
         int result = fileChooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             String path = selectedFile.getAbsolutePath();
-            ExportFormat fmt = (ExportFormat) formatComboBox.getSelectedItem();
-            if (fmt != null) {
+            String ext = getSelectedExtension();
+            if (ext != null) {
                 int lastSep = Math.max(path.lastIndexOf(File.separatorChar), path.lastIndexOf('/'));
                 int dotIdx = path.lastIndexOf('.');
                 // Se não houver extensão após o último separador OU a extensão não for a esperada, normaliza para a extensão do formato
-                if (dotIdx <= lastSep || !path.substring(dotIdx).equalsIgnoreCase(fmt.getExtension())) {
+                if (dotIdx <= lastSep || !path.substring(dotIdx).equalsIgnoreCase(ext)) {
                     if (dotIdx > lastSep) {
-                        path = path.substring(0, dotIdx) + fmt.getExtension();
+                        path = path.substring(0, dotIdx) + ext;
                     } else {
-                        path = path + fmt.getExtension();
+                        path = path + ext;
                     }
                 }
             }
@@ -333,9 +344,19 @@ public class ExportDialog extends JDialog implements KeyListener {
         }
     }
     
+    private String getSelectedExtension() {
+        Object selected = formatComboBox.getSelectedItem();
+        if (selected instanceof ExportFormat) {
+            return ((ExportFormat) selected).getExtension();
+        } else if (selected instanceof TextExporter) {
+            return ((TextExporter) selected).getFileExtension();
+        }
+        return null;
+    }
+    
     private void updateFileExtension() {
-        ExportFormat selectedFormat = (ExportFormat) formatComboBox.getSelectedItem();
-        if (selectedFormat != null) {
+        String selectedExtension = getSelectedExtension();
+        if (selectedExtension != null) {
             String currentPath = filePathField.getText();
             
             // Considera apenas extensão após o último separador de caminho
@@ -346,7 +367,7 @@ public class ExportDialog extends JDialog implements KeyListener {
             }
             
             // Adiciona a nova extensão
-            filePathField.setText(currentPath + selectedFormat.getExtension());
+            filePathField.setText(currentPath + selectedExtension);
         }
     }
     
@@ -383,8 +404,20 @@ public class ExportDialog extends JDialog implements KeyListener {
         return filePathField.getText();
     }
     
+    /**
+     * The selected document format, or null when a text exporter is selected.
+     */
     public ExportFormat getSelectedFormat() {
-        return (ExportFormat) formatComboBox.getSelectedItem();
+        Object selected = formatComboBox.getSelectedItem();
+        return (selected instanceof ExportFormat) ? (ExportFormat) selected : null;
+    }
+    
+    /**
+     * The selected text exporter, or null when a document format is selected.
+     */
+    public TextExporter getSelectedTextExporter() {
+        Object selected = formatComboBox.getSelectedItem();
+        return (selected instanceof TextExporter) ? (TextExporter) selected : null;
     }
     
     public boolean isIncludeNotes() {
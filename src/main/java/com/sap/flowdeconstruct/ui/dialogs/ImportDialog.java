@@ -5,7 +5,7 @@ import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import com.sap.flowdeconstruct.model.FlowDiagram;
-import com.sap.flowdeconstruct.importer.MarkdownImporter;
+import com.sap.flowdeconstruct.importer.FlowImporters;
 import com.sap.flowdeconstruct.ui.components.FlowCanvas;
 import java.io.File;
 import java.io.IOException;
@@ -180,7 +180,11 @@ public class ImportDialog extends JDialog implements KeyListener {
     private void browseForFile() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
-        fileChooser.setFileFilter(new FileNameExtensionFilter(I18n.t("import.dialog.filetype.markdown"), "md"));
+        FileNameExtensionFilter markdownFilter = new FileNameExtensionFilter(I18n.t("import.dialog.filetype.markdown"), "md");
+        fileChooser.addChoosableFileFilter(markdownFilter);
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter(I18n.t("import.dialog.filetype.mermaid"), "mmd", "mermaid"));
+        fileChooser.addChoosableFileFilter(new FileNameExtensionFilter(I18n.t("import.dialog.filetype.dot"), "dot", "gv"));
+        fileChooser.setFileFilter(markdownFilter);
 
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
@@ -192,8 +196,7 @@ public class ImportDialog extends JDialog implements KeyListener {
 
     private void updatePreview(String filePath) {
         try {
-            MarkdownImporter importer = new MarkdownImporter();
-            FlowDiagram previewDiagram = importer.importFlow(filePath);
+            FlowDiagram previewDiagram = FlowImporters.importFile(filePath);
             previewCanvas.setFlowDiagram(previewDiagram);
             previewCanvas.repaint();
         } catch (IOException e) {
@@ -0,0 +1,314 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class DiagramSpatialIndexTest {
+
+    private static FlowNode bruteNodeAt(FlowDiagram d, double x, double y) {
+        for (FlowNode n : d.getNodes()) {
+            if (x >= n.getX() && x <= n.getX() + n.getWidth() && y >= n.getY() && y <= n.getY() + n.getHeight()) return n;
+        }
+        return null;
+    }
+
+    private static double[] bruteNodeBounds(FlowDiagram d) {
+        double[] b = { Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (FlowNode n : d.getNodes()) {
+            b[0] = Math.min(b[0], n.getX());
+            b[1] = Math.min(b[1], n.getY());
+            b[2] = Math.max(b[2], n.getX() + n.getWidth());
+            b[3] = Math.max(b[3], n.getY() + n.getHeight());
+        }
+        return b;
+    }
+
+    private static double distance(Map<String, FlowNode> byId, FlowConnection c, double x, double y) {
+        FlowNode a = byId.get(c.getFromNodeId());
+        FlowNode b = byId.get(c.getToNodeId());
+        Point2D.Double p = DiagramSpatialIndex.anchorPointTowards(a, b.getX() + b.getWidth() / 2.0, b.getY() + b.getHeight() / 2.0);
+        Point2D.Double q = DiagramSpatialIndex.anchorPointTowards(b, a.getX() + a.getWidth() / 2.0, a.getY() + a.getHeight() / 2.0);
+        return DiagramSpatialIndex.distancePointToSegment(x, y, p.x, p.y, q.x, q.y);
+    }
+
+    private static double bruteConnectionDistance(FlowDiagram d, Map<String, FlowNode> byId, double x, double y) {
+        double best = Double.MAX_VALUE;
+        for (FlowConnection c : d.getConnections()) {
+            best = Math.min(best, distance(byId, c, x, y));
+        }
+        return best;
+    }
+
+    @Test
+    public void queries_ShouldMatchLinearScanAcrossEdits() {
+        Random random = new Random(3);
+        FlowDiagram d = new FlowDiagram("Index");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            FlowNode n = new FlowNode("n" + i, random.nextInt(4000) - 1000, random.nextInt(3000) - 500);
+            d.addNode(n);
+            nodes.add(n);
+        }
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        for (int i = 0; i < 400; i++) {
+            d.addConnection(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+        }
+
+        for (int step = 0; step < 2000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                FlowNode n = d.getNodes().get(random.nextInt(d.getNodeCount()));
+                n.setPosition((int) n.getX() + random.nextInt(400) - 200, (int) n.getY() + random.nextInt(400) - 200);
+            } else if (op == 6) {
+                d.getNodes().get(random.nextInt(d.getNodeCount())).setWidth(40 + random.nextInt(200));
+            } else if (op == 7 && d.getNodeCount() > 50) {
+                d.removeNode(d.getNodes().get(random.nextInt(d.getNodeCount())));
+            } else if (op == 8) {
+                FlowNode n = new FlowNode("new" + step, random.nextInt(6000) - 2000, random.nextInt(6000) - 2000);
+                d.addNode(n);
+                d.addConnection(n, d.getNodes().get(random.nextInt(d.getNodeCount())));
+            } else if (d.getConnectionCount() > 0) {
+                d.removeConnection(d.getConnections().get(random.nextInt(d.getConnectionCount())));
+            }
+
+            double x = random.nextInt(5000) - 1500;
+            double y = random.nextInt(4000) - 1000;
+            Assertions.assertSame(bruteNodeAt(d, x, y), index.findNodeAt(x, y), "step " + step);
+            Assertions.assertArrayEquals(bruteNodeBounds(d), index.getNodeBounds(), "step " + step);
+
+            Map<String, FlowNode> byId = new HashMap<>();
+            for (FlowNode n : d.getNodes()) byId.put(n.getId(), n);
+            FlowConnection hit = index.findConnectionAt(x, y, 200);
+            double expected = bruteConnectionDistance(d, byId, x, y);
+            if (expected > 200) {
+                Assertions.assertNull(hit, "step " + step);
+            } else {
+                Assertions.assertNotNull(hit, "step " + step);
+                Assertions.assertEquals(expected, distance(byId, hit, x, y), 1e-9, "step " + step);
+            }
+        }
+
+        // A batch replaces many positions at once and rebuilds the index
+        d.runBatch(() -> {
+            for (FlowNode n : d.getNodes()) n.setPosition((int) n.getX() + 5000, (int) n.getY());
+        });
+        FlowNode first = d.getNodes().get(0);
+        Assertions.assertSame(bruteNodeAt(d, first.getX() + 1, first.getY() + 1), index.findNodeAt(first.getX() + 1, first.getY() + 1));
+        index.detach();
+    }
+
+    @Test
+    public void geometry_ShouldBeRecomputedOnlyWhenAnEndpointChanges() {
+        FlowDiagram d = new FlowDiagram("Geometry");
+        FlowNode a = new FlowNode("a", 0, 0);
+        FlowNode b = new FlowNode("b", 400, 0);
+        FlowNode c = new FlowNode("c", 0, 400);
+        d.addNode(a);
+        d.addNode(b);
+        d.addNode(c);
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        FlowConnection ab = d.addConnection(a, b);
+        List<String> events = new ArrayList<>();
+        d.addStateListener((diagram, event, oldValue, newValue) -> events.add(event + ":" + newValue));
+
+        ConnectionGeometry g = index.geometryOf(ab);
+        Assertions.assertArrayEquals(new double[] { a.getWidth(), a.getHeight() / 2.0, 400, b.getHeight() / 2.0 }, g.segment, 1e-9);
+        Assertions.assertEquals(400, g.headX[0]);
+        Assertions.assertTrue(g.headX[1] < 400 && g.headX[2] < 400, "head points into b");
+        Assertions.assertEquals(a.getWidth(), g.tailX[0]);
+
+        // Moving an unrelated node leaves the geometry alone
+        double[] before = g.segment.clone();
+        c.setPosition(50, 500);
+        Assertions.assertArrayEquals(before, index.geometryOf(ab).segment, 0);
+
+        // Moving an endpoint below the other flips the anchors to the facing sides
+        b.setPosition(0, 300);
+        Assertions.assertSame(g, index.geometryOf(ab));
+        Assertions.assertArrayEquals(new double[] { a.getWidth() / 2.0, a.getHeight(), b.getWidth() / 2.0, 300 }, g.segment, 1e-9);
+        Assertions.assertSame(ab, index.findConnectionAt(a.getWidth() / 2.0, 200, 1));
+
+        b.setShape(FlowNode.NodeShape.CIRCLE);
+        Assertions.assertTrue(events.contains("nodeModified:shape"), "events: " + events);
+
+        d.removeConnection(ab);
+        Assertions.assertNull(index.geometryOf(ab));
+        index.detach();
+    }
+
+    @Test
+    public void overlap_ShouldIgnoreMovingNodeAndTouchingEdges() {
+        FlowDiagram d = new FlowDiagram("Overlap");
+        FlowNode a = new FlowNode("a", 0, 0);
+        FlowNode b = new FlowNode("b", 300, 0);
+        d.addNode(a);
+        d.addNode(b);
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        int w = a.getWidth();
+        Assertions.assertFalse(index.intersectsAnyNode(0, 0, w, a.getHeight(), a));
+        Assertions.assertTrue(index.intersectsAnyNode(299, 0, 310, 10, a));
+        Assertions.assertFalse(index.intersectsAnyNode(300 + b.getWidth(), 0, 900, 10, a), "touching edge");
+        b.setPosition(1000, 1000);
+        Assertions.assertFalse(index.intersectsAnyNode(299, 0, 310, 10, a));
+        Assertions.assertSame(b, index.findNodeAt(1001, 1001));
+    }
+
+    @Test
+    public void visibleNodes_ShouldComeBackInDrawingOrderAndSkipOffscreen() {
+        FlowDiagram d = new FlowDiagram("Cull");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            nodes.add(new FlowNode("n" + i, (i % 20) * 160, (i / 20) * 80));
+        }
+        d.addAll(nodes, null);
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+
+        List<FlowNode> visible = index.findNodesInListOrder(0, 0, 800, 400);
+        Assertions.assertTrue(visible.size() > 0 && visible.size() < 60, "visible: " + visible.size());
+        for (int i = 1; i < visible.size(); i++) {
+            Assertions.assertTrue(nodes.indexOf(visible.get(i - 1)) < nodes.indexOf(visible.get(i)));
+        }
+        Assertions.assertTrue(index.findNodesIn(-5000, -5000, -4000, -4000).isEmpty());
+    }
+
+    @Test
+    public void dragOnLargeMap_ShouldStayFast() {
+        FlowDiagram d = new FlowDiagram("Big");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            FlowNode n = new FlowNode("n" + i, (i % 60) * 160, (i / 60) * 80);
+            nodes.add(n);
+        }
+        d.addAll(nodes, null);
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        FlowNode moving = nodes.get(0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            int x = (i * 7) % 9000;
+            int y = (i * 3) % 4000;
+            if (!index.intersectsAnyNode(x - 10, y - 10, x + moving.getWidth() + 10, y + moving.getHeight() + 10, moving)) {
+                moving.setPosition(x, y);
+            }
+            index.findNodeAt(x, y);
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertTrue(ms < 2000, "100k drag steps on 3k nodes took " + ms + " ms");
+    }
+
+    @Test
+    public void longConnections_ShouldOnlyBeVisitedWhereTheyPass() {
+        Random random = new Random(11);
+        FlowDiagram d = new FlowDiagram("Long");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            nodes.add(new FlowNode("n" + i, random.nextInt(16000) - 8000, random.nextInt(16000) - 8000));
+        }
+        d.addAll(nodes, null);
+        for (int i = 0; i < 4000; i++) {
+            d.addConnection(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())));
+        }
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        Map<String, FlowNode> byId = new HashMap<>();
+        for (FlowNode n : d.getNodes()) byId.put(n.getId(), n);
+
+        // A viewport sees the connections crossing it, plus at most those passing a grid square away
+        double reach = DiagramSpatialIndex.PIECE_SIZE * Math.sqrt(2);
+        for (int q = 0; q < 20; q++) {
+            double x = random.nextInt(14000) - 7000;
+            double y = random.nextInt(14000) - 7000;
+            List<FlowConnection> visited = new ArrayList<>();
+            index.forEachConnectionIn(x, y, x + 400, y + 300, visited::add);
+            for (FlowConnection c : d.getConnections()) {
+                double toCenter = distance(byId, c, x + 200, y + 150);
+                if (toCenter <= 150) Assertions.assertTrue(visited.contains(c), "crossing connection missed");
+                if (toCenter > 250 + reach) Assertions.assertFalse(visited.contains(c), "far connection visited");
+            }
+            Assertions.assertEquals(visited.size(), new HashSet<>(visited).size(), "visited twice");
+        }
+
+        long start = System.nanoTime();
+        for (int q = 0; q < 2000; q++) {
+            double x = random.nextInt(16000) - 8000;
+            double y = random.nextInt(16000) - 8000;
+            FlowConnection hit = index.findConnectionAt(x, y, 8);
+            if (q % 100 == 0) {
+                double expected = bruteConnectionDistance(d, byId, x, y);
+                if (expected > 8) Assertions.assertNull(hit);
+                else Assertions.assertEquals(expected, distance(byId, hit, x, y), 1e-9);
+            }
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertTrue(ms < 1000, "2000 hit tests among 4k long connections took " + ms + " ms");
+        index.detach();
+    }
+
+    private static double directionalScore(FlowNode from, FlowNode n, int dx, int dy) {
+        double nx = n.getX() + n.getWidth() / 2.0 - (from.getX() + from.getWidth() / 2.0);
+        double ny = n.getY() + n.getHeight() / 2.0 - (from.getY() + from.getHeight() / 2.0);
+        double along = nx * dx + ny * dy;
+        return along > 0 ? along + 2 * Math.abs(nx * dy - ny * dx) : Double.MAX_VALUE;
+    }
+
+    @Test
+    public void directionalQuery_ShouldMatchLinearScan() {
+        Random random = new Random(17);
+        FlowDiagram d = new FlowDiagram("Directions");
+        for (int i = 0; i < 3000; i++) d.addNode("n" + i, random.nextInt(20000), random.nextInt(20000));
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+        List<FlowNode> nodes = d.getNodes();
+        int[][] directions = { {1, 0}, {-1, 0}, {0, 1}, {0, -1} };
+
+        for (int q = 0; q < 300; q++) {
+            FlowNode from = nodes.get(random.nextInt(nodes.size()));
+            for (int[] dir : directions) {
+                double best = Double.MAX_VALUE;
+                for (FlowNode n : nodes) {
+                    if (n != from) best = Math.min(best, directionalScore(from, n, dir[0], dir[1]));
+                }
+                FlowNode found = index.findNearestInDirection(from, dir[0], dir[1]);
+                if (best == Double.MAX_VALUE) {
+                    Assertions.assertNull(found);
+                } else {
+                    Assertions.assertNotNull(found);
+                    Assertions.assertEquals(best, directionalScore(from, found, dir[0], dir[1]), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void connectedQuery_ShouldFollowEdgesAheadOnly() {
+        FlowDiagram d = new FlowDiagram("Edges");
+        FlowNode from = d.addNode("from", 0, 0);
+        d.addNode("close", 200, 0);
+        FlowNode far = d.addNode("far", 1000, 100);
+        FlowNode side = d.addNode("side", 300, 800);
+        FlowNode before = d.addNode("before", -600, 0);
+        d.addConnection(from, far);
+        d.addConnection(from, side);
+        d.addConnection(before, from);
+        DiagramSpatialIndex index = DiagramSpatialIndex.attach(d);
+
+        Assertions.assertSame(far, index.findConnectedInDirection(from, 1, 0, true));
+        // Connected, but too far off to the side of the direction
+        Assertions.assertNull(index.findConnectedInDirection(from, 1, 0, false));
+        Assertions.assertSame(side, index.findConnectedInDirection(from, 0, 1, true));
+        Assertions.assertSame(before, index.findConnectedInDirection(from, -1, 0, false));
+        Assertions.assertNull(index.findConnectedInDirection(from, -1, 0, true));
+        Assertions.assertSame(before, index.findNearestInDirection(from, -1, 0));
+        Assertions.assertNull(index.findNearestInDirection(from, 0, -1));
+        Assertions.assertEquals("close", index.findNearestNode(from).getText());
+    }
+}
@@ -0,0 +1,161 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ForceDirectedLayoutTest {
+
+    /** A square mesh with links in both directions, all nodes at the origin as after an import. */
+    private static FlowDiagram mesh(int side) {
+        FlowDiagram d = new FlowDiagram("Mesh");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < side * side; i++) nodes.add(new FlowNode("n" + i));
+        List<FlowConnection> connections = new ArrayList<>();
+        for (int i = 0; i < side * side; i++) {
+            if ((i + 1) % side != 0) connections.add(new FlowConnection(nodes.get(i), nodes.get(i + 1)));
+            if (i + side < side * side) connections.add(new FlowConnection(nodes.get(i + side), nodes.get(i)));
+        }
+        d.addAll(nodes, connections);
+        return d;
+    }
+
+    private static double medianEdgeLength(FlowDiagram d) {
+        Map<String, FlowNode> byId = new HashMap<>();
+        for (FlowNode n : d.getNodes()) byId.put(n.getId(), n);
+        List<Double> lengths = new ArrayList<>();
+        for (FlowConnection c : d.getConnections()) {
+            FlowNode a = byId.get(c.getFromNodeId());
+            FlowNode b = byId.get(c.getToNodeId());
+            lengths.add(Math.hypot(a.getX() - b.getX(), a.getY() - b.getY()));
+        }
+        Collections.sort(lengths);
+        return lengths.get(lengths.size() / 2);
+    }
+
+    @Test
+    public void barnesHut_ShouldApproximateTheExactRepulsion() {
+        Random random = new Random(4);
+        FlowDiagram d = new FlowDiagram("Cloud");
+        // Dense enough that every pair is within repulsion range, with a cluster pulling to one side
+        for (int i = 0; i < 1500; i++) d.addNode("n" + i, random.nextInt(380), random.nextInt(380));
+        for (int i = 1500; i < 2000; i++) d.addNode("n" + i, 300 + random.nextInt(60), 20 + random.nextInt(60));
+        ForceDirectedLayout layout = ForceDirectedLayout.of(d);
+
+        for (int i = 0; i < 2000; i += 97) {
+            double[] exact = layout.exactRepulsion(i);
+            double[] approx = layout.approximateRepulsion(i);
+            double error = Math.hypot(exact[0] - approx[0], exact[1] - approx[1]);
+            double magnitude = Math.hypot(exact[0], exact[1]);
+            Assertions.assertTrue(error <= 0.05 * magnitude, "node " + i + ": error " + error + " of " + magnitude);
+        }
+    }
+
+    @Test
+    public void mesh_ShouldSpreadOutAroundTheIdealEdgeLength() {
+        FlowDiagram d = mesh(10);
+        ForceDirectedLayout layout = ForceDirectedLayout.of(d);
+        while (layout.step()) {
+            // run to convergence
+        }
+        layout.applyTo(d);
+
+        Assertions.assertTrue(layout.getIterations() < ForceDirectedLayout.MAX_ITERATIONS, "iterations: " + layout.getIterations());
+        double median = medianEdgeLength(d);
+        Assertions.assertTrue(median > ForceDirectedLayout.IDEAL_EDGE_LENGTH * 0.7
+                && median < ForceDirectedLayout.IDEAL_EDGE_LENGTH * 2, "median edge length " + median);
+        List<FlowNode> nodes = d.getNodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                Assertions.assertFalse(nodes.get(i).getX() == nodes.get(j).getX() && nodes.get(i).getY() == nodes.get(j).getY());
+            }
+        }
+    }
+
+    @Test
+    public void pinnedNodes_ShouldKeepTheirPosition() {
+        FlowDiagram d = mesh(8);
+        FlowNode corner = d.getNodes().get(0);
+        corner.setPosition(-500, -400);
+        corner.setPinned(true);
+        FlowNode middle = d.getNodes().get(27);
+        middle.setPosition(900, 300);
+        middle.setPinned(true);
+
+        ForceDirectedLayout layout = ForceDirectedLayout.of(d);
+        while (layout.step()) {
+            // run to convergence
+        }
+        layout.applyTo(d);
+
+        Assertions.assertEquals(-500, (int) corner.getX());
+        Assertions.assertEquals(-400, (int) corner.getY());
+        Assertions.assertEquals(900, (int) middle.getX());
+        Assertions.assertEquals(300, (int) middle.getY());
+        // Its neighbours settled around the pinned node
+        FlowNode next = d.getNodes().get(1);
+        Assertions.assertTrue(Math.hypot(next.getX() - corner.getX(), next.getY() - corner.getY())
+                < ForceDirectedLayout.IDEAL_EDGE_LENGTH * 3);
+    }
+
+    @Test
+    public void twoThousandNodeStep_ShouldStayWellBelowQuadratic() {
+        FlowDiagram d = mesh(45);
+        ForceDirectedLayout layout = ForceDirectedLayout.of(d);
+        for (int i = 0; i < 10; i++) layout.step();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) layout.step();
+        long perStepMs = (System.nanoTime() - start) / 20 / 1_000_000;
+        Assertions.assertTrue(perStepMs < 40, "step took " + perStepMs + " ms");
+    }
+
+    @Test
+    public void start_ShouldAnimateAndFinishWithBatchedUpdates() throws Exception {
+        FlowDiagram d = mesh(12);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        d.addStateListener((diagram, event, oldValue, newValue) -> events.add(event));
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        try {
+            LayoutJob<ForceDirectedLayout> job = ForceDirectedLayout.start(d, ui);
+            ForceDirectedLayout result = job.getFuture().get(20, TimeUnit.SECONDS);
+
+            Assertions.assertFalse(events.isEmpty());
+            // One event per published frame, never one per node
+            Assertions.assertTrue(events.stream().allMatch("batchUpdated"::equals), events.toString());
+            Assertions.assertTrue(result.isDone());
+            FlowNode first = d.getNodes().get(0);
+            Assertions.assertEquals(result.getX(0), (int) first.getX());
+            Assertions.assertEquals(result.getY(0), (int) first.getY());
+        } finally {
+            ui.shutdown();
+        }
+    }
+
+    @Test
+    public void cancel_ShouldStopTheSimulation() throws Exception {
+        FlowDiagram d = mesh(40);
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        try {
+            LayoutJob<ForceDirectedLayout> job = ForceDirectedLayout.start(d, ui);
+            job.cancel();
+            Assertions.assertThrows(CancellationException.class, () -> job.getFuture().get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(job.isCancelled());
+        } finally {
+            ui.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IncrementalPlacerTest {
+
+    private static boolean overlap(FlowNode a, FlowNode b) {
+        return a.getX() < b.getX() + b.getWidth() && b.getX() < a.getX() + a.getWidth()
+                && a.getY() < b.getY() + b.getHeight() && b.getY() < a.getY() + a.getHeight();
+    }
+
+    @Test
+    public void children_ShouldStackRightOfTheirParent() {
+        FlowDiagram d = new FlowDiagram("Children");
+        FlowNode parent = d.addNode("parent", 100, 100);
+        IncrementalPlacer placer = new IncrementalPlacer(DiagramSpatialIndex.attach(d));
+
+        List<FlowNode> children = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            FlowNode child = d.addNode("child" + i, 0, 0);
+            d.addConnection(parent, child);
+            placer.place(child);
+            children.add(child);
+        }
+
+        int expectedX = 100 + parent.getWidth() + IncrementalPlacer.COLUMN_GAP;
+        for (int i = 0; i < children.size(); i++) {
+            Assertions.assertEquals(expectedX, (int) children.get(i).getX());
+            Assertions.assertEquals(100 + i * (parent.getHeight() + IncrementalPlacer.ROW_GAP), (int) children.get(i).getY());
+        }
+        Assertions.assertEquals(100, (int) parent.getX());
+        Assertions.assertEquals(100, (int) parent.getY());
+    }
+
+    @Test
+    public void nodeWithOnlySuccessors_ShouldGoLeftOfThem() {
+        FlowDiagram d = new FlowDiagram("Before");
+        FlowNode next = d.addNode("next", 500, 300);
+        FlowNode added = d.addNode("added", 0, 0);
+        d.addConnection(added, next);
+
+        new IncrementalPlacer(DiagramSpatialIndex.attach(d)).place(added);
+
+        Assertions.assertEquals(500 - IncrementalPlacer.COLUMN_GAP - added.getWidth(), (int) added.getX());
+        Assertions.assertEquals(300, (int) added.getY());
+    }
+
+    @Test
+    public void crowdedSpot_ShouldPushOnlyTheLocalColumnDown() {
+        FlowDiagram d = new FlowDiagram("Crowded");
+        FlowNode parent = d.addNode("parent", 0, 0);
+        // A packed column right of the parent, and a far node that must not move
+        List<FlowNode> column = new ArrayList<>();
+        for (int i = 0; i < 10; i++) column.add(d.addNode("c" + i, 160, i * 60));
+        FlowNode pinned = d.addNode("pinned", 160, 600);
+        pinned.setPinned(true);
+        FlowNode far = d.addNode("far", 2000, 0);
+        FlowNode child = d.addNode("child", 0, 0);
+        d.addConnection(parent, child);
+
+        new IncrementalPlacer(DiagramSpatialIndex.attach(d)).place(child);
+
+        Assertions.assertEquals(160, (int) child.getX());
+        Assertions.assertEquals(0, (int) child.getY());
+        for (FlowNode n : column) {
+            Assertions.assertFalse(overlap(n, child), n.getText());
+            Assertions.assertEquals(160, (int) n.getX());
+        }
+        for (int i = 1; i < column.size(); i++) {
+            Assertions.assertTrue(column.get(i).getY() > column.get(i - 1).getY(), "order kept at " + i);
+        }
+        Assertions.assertEquals(600, (int) pinned.getY());
+        Assertions.assertEquals(2000, (int) far.getX());
+        Assertions.assertEquals(0, (int) far.getY());
+        Assertions.assertEquals(0, (int) parent.getY());
+    }
+
+    @Test
+    public void placing_ShouldNotDependOnDiagramSize() {
+        FlowDiagram d = new FlowDiagram("Large");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) nodes.add(new FlowNode("n" + i, (i % 200) * 200, (i / 200) * 100));
+        d.addAll(nodes, new ArrayList<FlowConnection>());
+        IncrementalPlacer placer = new IncrementalPlacer(DiagramSpatialIndex.attach(d));
+
+        // Warm up, then time insertions of connected nodes spread over the map
+        for (int i = 0; i < 200; i++) {
+            FlowNode child = d.addNode("w" + i, 0, 0);
+            d.addConnection(nodes.get(i * 97), child);
+            placer.place(child);
+        }
+        int count = 1000;
+        long elapsed = 0;
+        for (int i = 0; i < count; i++) {
+            FlowNode child = d.addNode("x" + i, 0, 0);
+            d.addConnection(nodes.get((i * 7919) % nodes.size()), child);
+            long start = System.nanoTime();
+            placer.place(child);
+            elapsed += System.nanoTime() - start;
+        }
+        long perNodeMicros = elapsed / count / 1000;
+        Assertions.assertTrue(perNodeMicros < 500, "placing took " + perNodeMicros + " µs per node");
+    }
+}
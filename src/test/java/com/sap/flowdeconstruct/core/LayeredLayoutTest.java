@@ -0,0 +1,169 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LayeredLayoutTest {
+
+    /** A flow-like graph: mostly short forward edges, some branches and a few loops back. */
+    private static FlowDiagram flow(int size, long seed) {
+        Random random = new Random(seed);
+        FlowDiagram d = new FlowDiagram("Layout");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) nodes.add(new FlowNode("n" + i));
+        List<FlowConnection> connections = new ArrayList<>();
+        for (int i = 1; i < size; i++) {
+            connections.add(new FlowConnection(nodes.get(Math.max(0, i - 1 - random.nextInt(8))), nodes.get(i)));
+            if (random.nextInt(4) == 0) {
+                connections.add(new FlowConnection(nodes.get(i), nodes.get(Math.min(size - 1, i + 1 + random.nextInt(20)))));
+            }
+            if (random.nextInt(40) == 0) {
+                connections.add(new FlowConnection(nodes.get(i), nodes.get(Math.max(0, i - 1 - random.nextInt(30)))));
+            }
+        }
+        d.addAll(nodes, connections);
+        return d;
+    }
+
+    private static boolean overlap(FlowNode a, FlowNode b) {
+        return a.getX() < b.getX() + b.getWidth() && b.getX() < a.getX() + a.getWidth()
+                && a.getY() < b.getY() + b.getHeight() && b.getY() < a.getY() + a.getHeight();
+    }
+
+    @Test
+    public void acyclicFlow_ShouldPointEveryEdgeRightWithoutOverlaps() {
+        FlowDiagram d = new FlowDiagram("Tree");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) nodes.add(d.addNode("n" + i, 0, 0));
+        // A binary tree added in scrambled order has a crossing-free layering
+        for (int i = 39; i > 0; i--) d.addConnection(nodes.get((i - 1) / 2), nodes.get(i));
+
+        LayeredLayout.Result result = LayeredLayout.compute(LayeredLayout.Input.of(d));
+        result.applyTo(d);
+
+        Assertions.assertEquals(0, result.getReversedEdges());
+        Assertions.assertEquals(0, result.getCrossings());
+        Assertions.assertEquals(6, result.getLayerCount());
+        Map<String, FlowNode> byId = new HashMap<>();
+        for (FlowNode n : d.getNodes()) byId.put(n.getId(), n);
+        for (FlowConnection c : d.getConnections()) {
+            FlowNode from = byId.get(c.getFromNodeId());
+            FlowNode to = byId.get(c.getToNodeId());
+            Assertions.assertTrue(from.getX() + from.getWidth() < to.getX(), c.toString());
+        }
+        List<FlowNode> all = d.getNodes();
+        for (int i = 0; i < all.size(); i++) {
+            for (int j = i + 1; j < all.size(); j++) {
+                Assertions.assertFalse(overlap(all.get(i), all.get(j)), all.get(i) + " / " + all.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void cycles_ShouldBeBrokenAndCrossingsReduced() {
+        FlowDiagram d = flow(297, 5);
+        FlowNode a = d.addNode("a", 0, 0);
+        FlowNode b = d.addNode("b", 0, 0);
+        FlowNode c = d.addNode("c", 0, 0);
+        d.addConnection(a, b);
+        d.addConnection(b, c);
+        d.addConnection(c, a);
+        LayeredLayout.Input input = LayeredLayout.Input.of(d);
+        LayeredLayout.Result result = LayeredLayout.compute(input);
+
+        Assertions.assertTrue(result.getReversedEdges() > 0);
+        Assertions.assertEquals(300, result.getNodeCount());
+        for (int i = 0; i < result.getNodeCount(); i++) {
+            Assertions.assertTrue(result.getX(i) >= LayeredLayout.MARGIN && result.getY(i) >= LayeredLayout.MARGIN);
+        }
+        // Edges mostly span few layers, so a good ordering has far fewer crossings than edges
+        Assertions.assertTrue(result.getCrossings() < d.getConnections().size(), "crossings: " + result.getCrossings());
+    }
+
+    @Test
+    public void twoThousandNodes_ShouldLayOutWithinBudget() {
+        LayeredLayout.Input input = LayeredLayout.Input.of(flow(2000, 11));
+        for (int i = 0; i < 5; i++) LayeredLayout.compute(input);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            LayeredLayout.compute(input);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        Assertions.assertTrue(best < 200_000_000L, "layout took " + best / 1_000_000 + " ms");
+    }
+
+    @Test
+    public void start_ShouldApplyOnTheUiExecutorInOneBatch() throws Exception {
+        FlowDiagram d = flow(200, 7);
+        List<String> events = new ArrayList<>();
+        d.addStateListener((diagram, event, oldValue, newValue) -> events.add(event));
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        try {
+            LayoutJob<LayeredLayout.Result> job = LayeredLayout.start(d, ui);
+            LayeredLayout.Result result = job.getFuture().get(5, TimeUnit.SECONDS);
+
+            Assertions.assertEquals(1, events.size(), events.toString());
+            FlowNode first = d.getNodes().get(0);
+            Assertions.assertEquals(result.getId(0), first.getId());
+            Assertions.assertEquals(result.getX(0), (int) first.getX());
+            Assertions.assertEquals(result.getY(0), (int) first.getY());
+        } finally {
+            ui.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelledJob_ShouldLeaveTheDiagramUntouched() throws Exception {
+        FlowDiagram d = flow(500, 9);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        try {
+            // Hold the worker so the job is cancelled before it starts computing
+            worker.submit(() -> {
+                release.await();
+                return null;
+            });
+            LayoutJob<LayeredLayout.Result> job = LayeredLayout.start(d, worker, ui);
+            job.cancel();
+            release.countDown();
+
+            Assertions.assertTrue(job.isCancelled());
+            Assertions.assertThrows(CancellationException.class, () -> job.getFuture().get(5, TimeUnit.SECONDS));
+            worker.submit(() -> null).get(5, TimeUnit.SECONDS);
+            ui.submit(() -> null).get(5, TimeUnit.SECONDS);
+            for (FlowNode n : d.getNodes()) {
+                Assertions.assertEquals(0, (int) n.getX());
+                Assertions.assertEquals(0, (int) n.getY());
+            }
+        } finally {
+            worker.shutdown();
+            ui.shutdown();
+        }
+    }
+
+    @Test
+    public void compute_ShouldStopWhenCancelledMidway() {
+        LayeredLayout.Input input = LayeredLayout.Input.of(flow(300, 3));
+        int[] polls = new int[1];
+        Assertions.assertThrows(CancellationException.class,
+                () -> LayeredLayout.compute(input, () -> ++polls[0] > 2));
+        Assertions.assertEquals(3, polls[0]);
+    }
+}
@@ -0,0 +1,196 @@
+package com.sap.flowdeconstruct.core;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OrthogonalRouterTest {
+
+    private static boolean crossesInterior(OrthogonalRouter.Route route, FlowNode node) {
+        for (int i = 0; i + 1 < route.getPointCount(); i++) {
+            int minX = Math.min(route.xs[i], route.xs[i + 1]);
+            int maxX = Math.max(route.xs[i], route.xs[i + 1]);
+            int minY = Math.min(route.ys[i], route.ys[i + 1]);
+            int maxY = Math.max(route.ys[i], route.ys[i + 1]);
+            if (maxX > node.getX() && minX < node.getX() + node.getWidth()
+                    && maxY > node.getY() && minY < node.getY() + node.getHeight()) return true;
+        }
+        return false;
+    }
+
+    private static void assertOrthogonal(OrthogonalRouter.Route route) {
+        for (int i = 0; i + 1 < route.getPointCount(); i++) {
+            Assertions.assertTrue(route.xs[i] == route.xs[i + 1] || route.ys[i] == route.ys[i + 1], "segment " + i);
+        }
+    }
+
+    @Test
+    public void route_ShouldGoAroundNodesInTheWay() {
+        FlowDiagram d = new FlowDiagram("Route");
+        FlowNode a = d.addNode("a", 0, 0);
+        FlowNode b = d.addNode("b", 600, 0);
+        FlowNode wall = d.addNode("wall", 300, -60);
+        wall.setHeight(160);
+        FlowConnection conn = d.addConnection(a, b);
+        OrthogonalRouter router = OrthogonalRouter.attach(DiagramSpatialIndex.attach(d));
+
+        OrthogonalRouter.Route route = router.routeOf(conn);
+
+        Assertions.assertFalse(route.isStraight());
+        assertOrthogonal(route);
+        for (FlowNode n : d.getNodes()) Assertions.assertFalse(crossesInterior(route, n), n.getText());
+        // From the middle of a's right side to the middle of b's left side
+        Assertions.assertEquals(120, route.xs[0]);
+        Assertions.assertEquals(20, route.ys[0]);
+        Assertions.assertEquals(600, route.xs[route.getPointCount() - 1]);
+        Assertions.assertEquals(20, route.ys[route.getPointCount() - 1]);
+        // Around the wall: out, over or under it, back and in
+        Assertions.assertTrue(route.getPointCount() >= 4 && route.getPointCount() <= 6, "points: " + route.getPointCount());
+
+        // Clicks hit the drawn route, not the straight line through the wall
+        int mid = route.getPointCount() / 2;
+        double onRouteX = (route.xs[mid - 1] + route.xs[mid]) / 2.0;
+        double onRouteY = (route.ys[mid - 1] + route.ys[mid]) / 2.0;
+        Assertions.assertSame(conn, router.findConnectionAt(onRouteX, onRouteY, 6));
+        Assertions.assertNull(router.findConnectionAt(360, 20, 6));
+        Assertions.assertSame(conn, DiagramSpatialIndex.attach(d).findConnectionAt(360, 20, 6));
+
+        // Without the wall the route is a single segment
+        d.removeNode(wall);
+        route = router.routeOf(conn);
+        Assertions.assertEquals(2, route.getPointCount());
+    }
+
+    @Test
+    public void moves_ShouldOnlyRerouteTouchedCorridors() {
+        FlowDiagram d = new FlowDiagram("Rows");
+        List<FlowConnection> rows = new ArrayList<>();
+        for (int row = 0; row < 5; row++) {
+            FlowNode from = d.addNode("from" + row, 0, row * 1500);
+            FlowNode to = d.addNode("to" + row, 600, row * 1500);
+            rows.add(d.addConnection(from, to));
+        }
+        FlowNode loose = d.addNode("loose", 5000, 5000);
+        OrthogonalRouter router = OrthogonalRouter.attach(DiagramSpatialIndex.attach(d));
+        for (FlowConnection conn : rows) router.routeOf(conn);
+        Assertions.assertEquals(5, router.getRoutesComputed());
+
+        // Far from every route: nothing is dropped
+        loose.setPosition(5200, 5200);
+        Assertions.assertNull(router.takeDamage());
+        Assertions.assertEquals(5, router.getRoutesComputed());
+
+        // Into the way of the third row: only that route is computed again, around the node
+        loose.setPosition(300, 3000);
+        Rectangle2D.Double damage = router.takeDamage();
+        Assertions.assertEquals(6, router.getRoutesComputed());
+        Assertions.assertNotNull(damage);
+        for (FlowConnection conn : rows) Assertions.assertTrue(router.isCached(conn));
+        OrthogonalRouter.Route detour = router.routeOf(rows.get(2));
+        Assertions.assertFalse(crossesInterior(detour, loose));
+        // Covers the old straight route and the detour
+        Assertions.assertTrue(damage.y <= 3020 && damage.contains(detour.getBounds()), damage.toString());
+        Assertions.assertEquals(6, router.getRoutesComputed());
+
+        // Moving an endpoint reroutes its own connection only
+        FlowNode end = d.getNodes().get(1);
+        end.setPosition(700, 100);
+        router.takeDamage();
+        Assertions.assertEquals(7, router.getRoutesComputed());
+        assertOrthogonal(router.routeOf(rows.get(0)));
+    }
+
+    @Test
+    public void backgroundSearch_ShouldDrawStraightUntilTheRouteArrives() {
+        FlowDiagram d = new FlowDiagram("Background");
+        FlowNode a = d.addNode("a", 0, 0);
+        FlowNode b = d.addNode("b", 600, 0);
+        FlowNode wall = d.addNode("wall", 300, -60);
+        wall.setHeight(160);
+        FlowConnection conn = d.addConnection(a, b);
+        List<Runnable> worker = new ArrayList<>();
+        List<Runnable> ui = new ArrayList<>();
+        int[] routed = new int[1];
+        OrthogonalRouter router = OrthogonalRouter.attach(DiagramSpatialIndex.attach(d), worker::add, ui::add,
+                () -> routed[0]++);
+
+        OrthogonalRouter.Route standIn = router.routeOf(conn);
+        Assertions.assertTrue(standIn.isPending() && standIn.isStraight());
+        Assertions.assertSame(standIn, router.routeOf(conn));
+        Assertions.assertEquals(1, worker.size());
+        run(worker);
+        Assertions.assertEquals(0, routed[0]);
+        run(ui);
+        OrthogonalRouter.Route route = router.routeOf(conn);
+        Assertions.assertFalse(route.isPending() || route.isStraight());
+        Assertions.assertEquals(1, routed[0]);
+        Rectangle2D.Double both = standIn.getBounds();
+        both.add(route.getBounds());
+        Assertions.assertEquals(both, router.takeDamage());
+
+        // A search overtaken by a change is dropped, and the new one delivers
+        wall.setPosition(300, -40);
+        router.takeDamage();
+        run(worker);
+        wall.setPosition(300, -80);
+        router.takeDamage();
+        run(worker);
+        run(ui);
+        Assertions.assertEquals(2, routed[0]);
+        Assertions.assertEquals(2, router.getRoutesComputed());
+        Assertions.assertFalse(crossesInterior(router.routeOf(conn), wall));
+    }
+
+    @Test
+    public void longConnection_ShouldOnlySearchTheNodesAlongIt() {
+        Random random = new Random(5);
+        FlowDiagram d = new FlowDiagram("Grid");
+        int side = 45;
+        FlowNode[][] grid = new FlowNode[side][side];
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                grid[i][j] = d.addNode("n", i * 200 + random.nextInt(60) - 30, j * 120 + random.nextInt(40) - 20);
+            }
+        }
+        FlowConnection diagonal = d.addConnection(grid[0][0], grid[side - 1][side / 3]);
+        FlowConnection row = d.addConnection(grid[0][side / 2], grid[side - 1][side / 2]);
+        OrthogonalRouter router = OrthogonalRouter.attach(DiagramSpatialIndex.attach(d));
+
+        long start = System.nanoTime();
+        for (FlowConnection conn : new FlowConnection[]{diagonal, row}) {
+            OrthogonalRouter.Route route = router.routeOf(conn);
+            Assertions.assertFalse(route.isStraight());
+            assertOrthogonal(route);
+            for (FlowNode n : d.getNodes()) Assertions.assertFalse(crossesInterior(route, n), n.getText());
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertTrue(ms < 1000, "routing across 2025 nodes took " + ms + " ms");
+    }
+
+    private static void run(List<Runnable> queue) {
+        List<Runnable> tasks = new ArrayList<>(queue);
+        queue.clear();
+        for (Runnable task : tasks) task.run();
+    }
+
+    @Test
+    public void removedConnections_ShouldNotBeRouted() {
+        FlowDiagram d = new FlowDiagram("Removed");
+        FlowNode a = d.addNode("a", 0, 0);
+        FlowNode b = d.addNode("b", 0, 400);
+        FlowConnection conn = d.addConnection(a, b);
+        OrthogonalRouter router = OrthogonalRouter.attach(DiagramSpatialIndex.attach(d));
+        Assertions.assertNotNull(router.routeOf(conn));
+
+        d.removeNode(b);
+        Assertions.assertFalse(router.isCached(conn));
+        Assertions.assertNull(router.routeOf(conn));
+    }
+}
@@ -0,0 +1,72 @@
+package com.sap.flowdeconstruct.export;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+public class TextExportersTest {
+
+    private FlowDiagram sampleFlow() {
+        FlowDiagram flow = new FlowDiagram("Order \"v2\"");
+        FlowNode api = new FlowNode("API", 0, 0);
+        FlowNode db = new FlowNode("DB", 100, 0);
+        FlowNode check = new FlowNode("Valid?", 200, 0);
+        check.setShape(FlowNode.NodeShape.DIAMOND);
+        flow.addNode(api);
+        flow.addNode(db);
+        flow.addNode(check);
+
+        FlowConnection c1 = flow.addConnection(api, db);
+        c1.setProtocol("JDBC");
+        FlowConnection c2 = flow.addConnection(db, check);
+        c2.setType(FlowConnection.ConnectionType.CONDITIONAL);
+        c2.setDirectionStyle(FlowConnection.DirectionStyle.BIDIRECTIONAL);
+        FlowConnection c3 = flow.addConnection(check, api);
+        c3.setType(FlowConnection.ConnectionType.ERROR);
+        c3.setDirectionStyle(FlowConnection.DirectionStyle.NONE);
+
+        FlowNode sub = api.createSubFlow();
+        sub.getSubFlow().addNode(new FlowNode("Auth"));
+        return flow;
+    }
+
+    private String export(String id, FlowDiagram flow) throws Exception {
+        TextExporter exporter = TextExporters.find(id);
+        Assertions.assertNotNull(exporter, "Built-in exporter " + id + " should be registered");
+        StringWriter out = new StringWriter();
+        exporter.export(flow, out, true, true);
+        return out.toString();
+    }
+
+    @Test
+    public void builtInExporters_ShouldMapEdgeStylesAndNestSubflows() throws Exception {
+        FlowDiagram flow = sampleFlow();
+
+        String mermaid = export("mermaid", flow);
+        Assertions.assertTrue(mermaid.contains("flowchart LR"));
+        Assertions.assertTrue(mermaid.contains("n1 -->|\"JDBC\"| n2"), mermaid);
+        Assertions.assertTrue(mermaid.contains("n2 <-.-> n3"), mermaid);
+        Assertions.assertTrue(mermaid.contains("n3 === n1"), mermaid);
+        Assertions.assertTrue(mermaid.contains("n3{\"Valid?\"}"), mermaid);
+        Assertions.assertTrue(mermaid.contains("subgraph sg1 [\"API\"]"), mermaid);
+        Assertions.assertTrue(mermaid.contains("#quot;v2#quot;"), mermaid);
+
+        String dot = export("dot", flow);
+        Assertions.assertTrue(dot.startsWith("digraph \"Order \\\"v2\\\"\" {"), dot);
+        Assertions.assertTrue(dot.contains("n1 -> n2 [dir=forward"), dot);
+        Assertions.assertTrue(dot.contains("label=\"JDBC\""), dot);
+        Assertions.assertTrue(dot.contains("n2 -> n3 [dir=both, style=dashed"), dot);
+        Assertions.assertTrue(dot.contains("subgraph cluster_sg1 {"), dot);
+        Assertions.assertTrue(dot.trim().endsWith("}"));
+
+        String puml = export("plantuml", flow);
+        Assertions.assertTrue(puml.startsWith("@startuml"));
+        Assertions.assertTrue(puml.contains(" : JDBC"), puml);
+        Assertions.assertTrue(puml.contains("package \"API\" as sg1 {"), puml);
+        Assertions.assertTrue(puml.trim().endsWith("@enduml"));
+    }
+}
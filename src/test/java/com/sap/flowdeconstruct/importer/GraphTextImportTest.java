@@ -0,0 +1,149 @@
+package com.sap.flowdeconstruct.importer;
+
+import com.sap.flowdeconstruct.export.DotExporter;
+import com.sap.flowdeconstruct.export.MermaidExporter;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+public class GraphTextImportTest {
+
+    private static FlowNode byText(FlowDiagram d, String text) {
+        for (FlowNode n : d.getNodes()) {
+            if (text.equals(n.getText())) return n;
+        }
+        return null;
+    }
+
+    private static FlowConnection between(FlowDiagram d, FlowNode a, FlowNode b) {
+        for (FlowConnection c : d.getConnections()) {
+            if (c.getFromNodeId().equals(a.getId()) && c.getToNodeId().equals(b.getId())) return c;
+        }
+        return null;
+    }
+
+    @Test
+    public void mermaid_ShouldParseShapesLinksAndSubgraphs() throws Exception {
+        String src = "flowchart LR\n"
+                + "  %% a comment\n"
+                + "  api[Order API] -->|HTTPS| db[(Orders DB)]\n"
+                + "  db -.-> chk{Valid?}\n"
+                + "  chk == fail ==> api\n"
+                + "  a & b --- api\n"
+                + "  subgraph auth [Auth service]\n"
+                + "    login((Login)) --> token([Token])\n"
+                + "  end\n"
+                + "  api --> login\n"
+                + "  classDef hot fill:#f00\n";
+        FlowDiagram d = new MermaidImporter().importFlowFromString(src);
+
+        FlowNode api = byText(d, "Order API");
+        FlowNode db = byText(d, "Orders DB");
+        FlowNode chk = byText(d, "Valid?");
+        FlowNode auth = byText(d, "Auth service");
+        Assertions.assertNotNull(api);
+        Assertions.assertNotNull(db);
+        Assertions.assertEquals(FlowNode.NodeShape.DIAMOND, chk.getShape());
+        Assertions.assertEquals(6, d.getNodeCount(), "api, db, chk, a, b and the subgraph node");
+
+        Assertions.assertEquals("HTTPS", between(d, api, db).getProtocol());
+        Assertions.assertEquals(FlowConnection.ConnectionType.CONDITIONAL, between(d, db, chk).getType());
+        FlowConnection fail = between(d, chk, api);
+        Assertions.assertEquals(FlowConnection.ConnectionType.ERROR, fail.getType());
+        Assertions.assertEquals("fail", fail.getProtocol());
+        Assertions.assertEquals(FlowConnection.DirectionStyle.NONE, between(d, byText(d, "a"), api).getDirectionStyle());
+
+        // The edge into the subgraph is lifted to the subgraph node; the inner edge lives in the sub-flow
+        Assertions.assertNotNull(between(d, api, auth));
+        FlowDiagram sub = auth.getSubFlow();
+        Assertions.assertNotNull(sub);
+        Assertions.assertEquals(FlowNode.NodeShape.CIRCLE, byText(sub, "Login").getShape());
+        Assertions.assertEquals(FlowNode.NodeShape.OVAL, byText(sub, "Token").getShape());
+        Assertions.assertEquals(1, sub.getConnectionCount());
+    }
+
+    @Test
+    public void dot_ShouldParseAttributesClustersAndEdgeGroups() throws Exception {
+        String src = "digraph \"Payments\" {\n"
+                + "  node [shape=box];\n"
+                + "  /* block comment */\n"
+                + "  gw [label=\"Gateway\", tooltip=\"entry point\"];\n"
+                + "  gw -> psp [label=\"REST\", style=dashed];\n"
+                + "  psp -> {ledger audit} [dir=both];\n"
+                + "  subgraph cluster_bank { label=\"Bank\"; core -> clearing [style=bold]; }\n"
+                + "  psp -> core;\n"
+                + "  ledger:p1 -> gw;\n"
+                + "}\n";
+        FlowDiagram d = new DotImporter().importFlowFromString(src);
+
+        Assertions.assertEquals("Payments", d.getName());
+        FlowNode gw = byText(d, "Gateway");
+        FlowNode psp = byText(d, "psp");
+        FlowNode bank = byText(d, "Bank");
+        Assertions.assertEquals("entry point", gw.getNotes());
+        FlowConnection rest = between(d, gw, psp);
+        Assertions.assertEquals("REST", rest.getProtocol());
+        Assertions.assertEquals(FlowConnection.ConnectionType.CONDITIONAL, rest.getType());
+        Assertions.assertEquals(FlowConnection.DirectionStyle.BIDIRECTIONAL, between(d, psp, byText(d, "audit")).getDirectionStyle());
+        Assertions.assertNotNull(between(d, byText(d, "ledger"), gw));
+        Assertions.assertNotNull(between(d, psp, bank));
+        Assertions.assertEquals(FlowConnection.ConnectionType.ERROR, bank.getSubFlow().getConnections().get(0).getType());
+    }
+
+    @Test
+    public void exportersAndImporters_ShouldRoundTrip() throws Exception {
+        FlowDiagram flow = new FlowDiagram("Round trip");
+        FlowNode a = new FlowNode("Client");
+        FlowNode b = new FlowNode("Server \"main\"");
+        b.setShape(FlowNode.NodeShape.OVAL);
+        flow.addNode(a);
+        flow.addNode(b);
+        FlowConnection c = flow.addConnection(a, b);
+        c.setProtocol("gRPC");
+        c.setType(FlowConnection.ConnectionType.CONDITIONAL);
+        c.setDirectionStyle(FlowConnection.DirectionStyle.BIDIRECTIONAL);
+
+        StringWriter mmd = new StringWriter();
+        new MermaidExporter().export(flow, mmd, true, true);
+        StringWriter dot = new StringWriter();
+        new DotExporter().export(flow, dot, true, true);
+
+        for (FlowDiagram back : new FlowDiagram[] {
+                new MermaidImporter().importFlowFromString(mmd.toString()),
+                new DotImporter().importFlowFromString(dot.toString()) }) {
+            Assertions.assertEquals("Round trip", back.getName());
+            FlowNode server = byText(back, "Server \"main\"");
+            Assertions.assertNotNull(server, back.getNodes().toString());
+            Assertions.assertEquals(FlowNode.NodeShape.OVAL, server.getShape());
+            FlowConnection conn = between(back, byText(back, "Client"), server);
+            Assertions.assertEquals("gRPC", conn.getProtocol());
+            Assertions.assertEquals(FlowConnection.ConnectionType.CONDITIONAL, conn.getType());
+            Assertions.assertEquals(FlowConnection.DirectionStyle.BIDIRECTIONAL, conn.getDirectionStyle());
+        }
+    }
+
+    @Test
+    public void dot_LargeGraphShouldImportQuickly() throws Exception {
+        StringBuilder sb = new StringBuilder("digraph big {\n");
+        int nodes = 5000;
+        for (int i = 0; i < 20000; i++) {
+            sb.append("  n").append(i % nodes).append(" -> n").append((i % nodes + 1 + i / nodes) % nodes)
+              .append(" [label=\"e").append(i).append("\"];\n");
+        }
+        sb.append("}\n");
+        String src = sb.toString();
+
+        new DotImporter().importFlowFromString(src); // warm-up
+        long start = System.nanoTime();
+        FlowDiagram d = new DotImporter().importFlowFromString(src);
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertEquals(nodes, d.getNodeCount());
+        Assertions.assertEquals(20000, d.getConnectionCount());
+        Assertions.assertTrue(ms < 1000, "20k-edge import took " + ms + " ms");
+    }
+}
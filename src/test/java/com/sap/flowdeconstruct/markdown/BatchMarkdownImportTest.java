@@ -0,0 +1,65 @@
+package com.sap.flowdeconstruct.markdown;
+
+import com.sap.flowdeconstruct.export.MarkdownExporter;
+import com.sap.flowdeconstruct.importer.BatchMarkdownImporter;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchMarkdownImportTest {
+
+    @Test
+    public void importAll_ShouldParseEveryFileAndKeepInputOrder() throws Exception {
+        Path dir = Files.createTempDirectory("flowdeconstruct-batch-");
+        try {
+            for (int i = 0; i < 6; i++) {
+                FlowDiagram flow = new FlowDiagram("Flow " + i);
+                FlowNode a = new FlowNode("A" + i);
+                FlowNode b = new FlowNode("B" + i);
+                flow.addNode(a);
+                flow.addNode(b);
+                flow.addConnection(a, b);
+                new MarkdownExporter().export(flow, dir.resolve("flow-" + i + ".md").toString(), true, false);
+            }
+            // A file that cannot be read as a regular file is reported, not thrown
+            Path missing = dir.resolve("missing.md");
+
+            List<Path> files = new ArrayList<>(BatchMarkdownImporter.collectMarkdownFiles(dir));
+            Assertions.assertEquals(6, files.size());
+            files.add(missing);
+
+            List<Integer> progress = new ArrayList<>();
+            List<BatchMarkdownImporter.FileResult> results = new BatchMarkdownImporter(3)
+                    .importAll(files, (result, completed, total) -> progress.add(completed));
+
+            Assertions.assertEquals(7, results.size());
+            Assertions.assertEquals(7, progress.size());
+            for (int i = 0; i < 6; i++) {
+                BatchMarkdownImporter.FileResult r = results.get(i);
+                Assertions.assertTrue(r.isSuccess(), "File " + r.getPath() + " should import");
+                Assertions.assertEquals("Flow " + i, r.getDiagram().getName());
+                Assertions.assertEquals(1, r.getDiagram().getConnectionCount());
+            }
+            Assertions.assertFalse(results.get(6).isSuccess());
+            Assertions.assertNotNull(results.get(6).getError());
+            Assertions.assertEquals(6, BatchMarkdownImporter.countSuccessful(results));
+
+            FlowDiagram root = BatchMarkdownImporter.mergeAsSubflows("Incident", results);
+            Assertions.assertEquals(6, root.getNodeCount());
+            for (FlowNode n : root.getNodes()) {
+                Assertions.assertTrue(n.hasSubFlow());
+            }
+        } finally {
+            for (Path p : BatchMarkdownImporter.collectMarkdownFiles(dir)) {
+                Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+}
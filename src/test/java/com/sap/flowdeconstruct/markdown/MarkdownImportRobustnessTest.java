@@ -0,0 +1,232 @@
+package com.sap.flowdeconstruct.markdown;
+
+import com.sap.flowdeconstruct.export.MarkdownExporter;
+import com.sap.flowdeconstruct.importer.ImportReport;
+import com.sap.flowdeconstruct.importer.MarkdownImporter;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+public class MarkdownImportRobustnessTest {
+
+    private static final String[] FUZZ_TOKENS = {
+            "#", "# ", "## Connections", "[", "]", "[n1]", "[n2] Text", "(", ")", "(ERROR)", "*", "_", "\\*", "`", "```",
+            "<br>", "<div>", ">", "- ", "1. ", "    ", "\t", "\n", "\n\n", "From:", "To:", "n1", "n2", "Direction:",
+            "Protocol:", "Position:", "Size:", "Shape:", "1,", "-7", "99999999999", "ä", "\u0000", "\r\n", ":", "|"
+    };
+
+    @Test
+    public void report_ShouldListProblemsWithLineNumbers() {
+        String md = "# Orders\n"              // 1
+                + "\n"                          // 2
+                + "Position: 1, 2\n"            // 3 orphan attribute
+                + "[a] Alpha\n"                 // 4
+                + "  Position: x, 2\n"          // 5 invalid value
+                + "  Shape: HEXAGON\n"          // 6 invalid value
+                + "[b] Beta\n"                  // 7
+                + "[a] Again\n"                 // 8 duplicate id
+                + "random words\n"              // 9 skipped
+                + "\n"                          // 10
+                + "## Connections\n"            // 11
+                + "From: a To: b (WEIRD)\n"     // 12 invalid type, still imported
+                + "From: a To: zzz\n"           // 13 unresolved
+                + "From: a\n"                   // 14 malformed
+                + "From: a   To:  b\n"          // 15 duplicate
+                + "From: b To: c\n"             // 16 forward reference, resolved below
+                + "[c] Gamma\n";                // 17
+        ImportReport report = new ImportReport();
+        FlowDiagram flow = new MarkdownImporter().importFlowFromString(md, report);
+
+        Assertions.assertEquals("Orders", flow.getName());
+        Assertions.assertEquals(3, flow.getNodeCount());
+        Assertions.assertEquals("Alpha", flow.findNodeById("a").getText());
+        Assertions.assertEquals(2, flow.getConnectionCount());
+        Assertions.assertEquals(17, report.getLinesRead());
+
+        assertEntry(report, ImportReport.Kind.ORPHAN_ATTRIBUTE, 3);
+        Assertions.assertEquals(3, report.getCount(ImportReport.Kind.INVALID_VALUE), report.toString());
+        assertEntry(report, ImportReport.Kind.INVALID_VALUE, 5);
+        assertEntry(report, ImportReport.Kind.INVALID_VALUE, 6);
+        assertEntry(report, ImportReport.Kind.INVALID_VALUE, 12);
+        assertEntry(report, ImportReport.Kind.DUPLICATE_ID, 8);
+        assertEntry(report, ImportReport.Kind.SKIPPED_LINE, 9);
+        assertEntry(report, ImportReport.Kind.UNRESOLVED_REFERENCE, 13);
+        assertEntry(report, ImportReport.Kind.MALFORMED_CONNECTION, 14);
+        assertEntry(report, ImportReport.Kind.DUPLICATE_CONNECTION, 15);
+        Assertions.assertEquals(9, report.getProblemCount(), report.toString());
+    }
+
+    private static void assertEntry(ImportReport report, ImportReport.Kind kind, int line) {
+        for (ImportReport.Entry e : report.getEntries(kind)) {
+            if (e.getLine() == line) return;
+        }
+        Assertions.fail("Expected " + kind + " on line " + line + " in:\n" + report);
+    }
+
+    @Test
+    public void fuzz_RandomInputShouldNeverThrow() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            StringBuilder sb = new StringBuilder();
+            int tokens = random.nextInt(200);
+            for (int i = 0; i < tokens; i++) {
+                sb.append(FUZZ_TOKENS[random.nextInt(FUZZ_TOKENS.length)]);
+                if (random.nextInt(4) == 0) sb.append(' ');
+            }
+            String input = sb.toString();
+            ImportReport report = new ImportReport();
+            FlowDiagram flow = Assertions.assertDoesNotThrow(
+                    () -> new MarkdownImporter().importFlowFromString(input, report), input);
+            Assertions.assertEquals(flow.getNodeCount(), report.getNodesImported());
+            Assertions.assertTrue(report.getEntries().size() <= ImportReport.MAX_ENTRIES);
+            for (ImportReport.Entry e : report.getEntries()) {
+                Assertions.assertTrue(e.getLine() >= 1 && e.getLine() <= report.getLinesRead(), e + "\n" + input);
+            }
+        }
+    }
+
+    @Test
+    public void property_ExportedDiagramsShouldImportWithoutProblems() throws Exception {
+        Random random = new Random(7);
+        FlowNode.NodeShape[] shapes = FlowNode.NodeShape.values();
+        FlowConnection.ConnectionType[] types = FlowConnection.ConnectionType.values();
+        FlowConnection.DirectionStyle[] directions = FlowConnection.DirectionStyle.values();
+        for (int round = 0; round < 50; round++) {
+            FlowDiagram original = new FlowDiagram("Flow " + round);
+            int nodeCount = 1 + random.nextInt(20);
+            for (int i = 0; i < nodeCount; i++) {
+                FlowNode node = new FlowNode(randomText(random), random.nextInt(2000), random.nextInt(2000));
+                node.setShape(shapes[random.nextInt(shapes.length)]);
+                if (random.nextBoolean()) node.setNotes(randomText(random));
+                original.addNode(node);
+            }
+            for (int i = 0; i < nodeCount * 2; i++) {
+                FlowConnection conn = original.addConnection(original.getNodes().get(random.nextInt(nodeCount)),
+                        original.getNodes().get(random.nextInt(nodeCount)));
+                if (conn == null) continue;
+                conn.setType(types[random.nextInt(types.length)]);
+                conn.setDirectionStyle(directions[random.nextInt(directions.length)]);
+                if (random.nextBoolean()) conn.setProtocol(randomText(random));
+            }
+
+            StringWriter out = new StringWriter();
+            new MarkdownExporter().export(original, out, true, false);
+            ImportReport report = new ImportReport();
+            FlowDiagram imported = new MarkdownImporter().importFlowFromString(out.toString(), report);
+
+            Assertions.assertFalse(report.hasProblems(), report + "\n" + out);
+            Assertions.assertEquals(original.getName(), imported.getName());
+            Assertions.assertEquals(original.getNodeCount(), imported.getNodeCount());
+            Assertions.assertEquals(original.getConnectionCount(), imported.getConnectionCount());
+            for (FlowNode node : original.getNodes()) {
+                FlowNode back = imported.findNodeById(node.getId());
+                Assertions.assertEquals(node.getText(), back.getText());
+                Assertions.assertEquals(node.getShape(), back.getShape());
+                Assertions.assertEquals((int) node.getX(), (int) back.getX());
+                Assertions.assertEquals(node.getNotes() == null || node.getNotes().isEmpty() ? "" : node.getNotes(),
+                        back.getNotes() == null ? "" : back.getNotes());
+            }
+            for (int i = 0; i < original.getConnectionCount(); i++) {
+                FlowConnection a = original.getConnections().get(i);
+                FlowConnection b = imported.getConnections().get(i);
+                Assertions.assertEquals(a.getFromNodeId(), b.getFromNodeId());
+                Assertions.assertEquals(a.getType(), b.getType());
+                Assertions.assertEquals(a.getDirectionStyle(), b.getDirectionStyle());
+                Assertions.assertEquals(a.getProtocol() == null ? "" : a.getProtocol(), b.getProtocol() == null ? "" : b.getProtocol());
+            }
+        }
+    }
+
+    private static String randomText(Random random) {
+        String[] words = { "Order", "API", "db_main", "x*y", "a  b", "Ünïcode", "v2.1", "cache", "(retry)" };
+        StringBuilder sb = new StringBuilder(words[random.nextInt(words.length)]);
+        int more = random.nextInt(4);
+        for (int i = 0; i < more; i++) sb.append(' ').append(words[random.nextInt(words.length)]);
+        return sb.toString();
+    }
+
+    // --- worst-case inputs: time must grow linearly with size ---
+
+    @Test
+    public void linear_HugeSingleLine() {
+        assertLinear("huge single line", n -> {
+            StringBuilder sb = new StringBuilder("[a] ");
+            String[] chunks = { "word ", "*em* ", "[x] ", "_u_ ", "`c` ", "<br>", "\\* ", "[[", "]]", "(", ")" };
+            for (int i = 0; i < n; i++) sb.append(chunks[i % chunks.length]);
+            return sb.toString();
+        }, 5_000);
+    }
+
+    @Test
+    public void linear_ManyHeadings() {
+        assertLinear("many headings", n -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < n; i++) sb.append(repeat("#", 1 + i % 9)).append(" Heading ").append(i).append('\n');
+            return sb.toString();
+        }, 1_000);
+    }
+
+    @Test
+    public void linear_DeeplyNestedLists() {
+        assertLinear("deeply nested lists", n -> {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                sb.append(repeat("  ", i)).append("- [n").append(i).append("] Item ").append(i).append('\n');
+            }
+            return sb.toString();
+        }, 400);
+    }
+
+    @Test
+    public void linear_NestedListMarkersOnOneLine() {
+        assertLinear("nested markers", n -> repeat("- ", n) + "[a] Deep\n", 2_000);
+    }
+
+    @Test
+    public void linear_ManyNodesAndConnections() {
+        assertLinear("many nodes", n -> {
+            StringBuilder sb = new StringBuilder("# Big\n\n");
+            for (int i = 0; i < n; i++) sb.append("[n").append(i).append("] Node ").append(i).append("\n  Position: ").append(i).append(", 0\n");
+            sb.append("\n## Connections\n");
+            for (int i = 0; i < n; i++) sb.append("From: n").append(i).append(" To: n").append((i + 1) % n).append(" (NORMAL)\n");
+            return sb.toString();
+        }, 1_000);
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    /**
+     * Imports inputs of size n and 4n and compares the best of several runs. Linear growth gives a
+     * ratio near 4 and quadratic growth near 16; the bound leaves room for timer and GC noise.
+     */
+    private static void assertLinear(String name, IntFunction<String> generator, int n) {
+        String small = generator.apply(n);
+        String large = generator.apply(n * 4);
+        // Warm up so the small run is not measured while the JIT still compiles the parser
+        bestOf(small);
+        long smallNanos = bestOf(small);
+        long largeNanos = bestOf(large);
+        double ratio = (double) largeNanos / Math.max(smallNanos, 1_000_000L);
+        Assertions.assertTrue(ratio < 9.0, name + ": " + smallNanos / 1000 + " us -> " + largeNanos / 1000 + " us (x" + ratio + ")");
+    }
+
+    private static long bestOf(String input) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            new MarkdownImporter().importFlowFromString(input, new ImportReport());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,87 @@
+package com.sap.flowdeconstruct.markdown;
+
+import com.sap.flowdeconstruct.core.DiagramDiff;
+import com.sap.flowdeconstruct.export.MarkdownExporter;
+import com.sap.flowdeconstruct.importer.MarkdownImporter;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MarkdownLiveSyncDiffTest {
+
+    @Test
+    public void externalEdit_ShouldOnlyTouchChangedNodesAndKeepLiveState() throws Exception {
+        FlowDiagram live = new FlowDiagram("Live");
+        FlowNode a = new FlowNode("Alpha", 100, 100);
+        FlowNode b = new FlowNode("Beta", 300, 100);
+        FlowNode c = new FlowNode("Gamma", 500, 100);
+        live.addNode(a);
+        live.addNode(b);
+        live.addNode(c);
+        live.addConnection(a, b);
+        live.addConnection(b, c);
+
+        StringWriter written = new StringWriter();
+        new MarkdownExporter().export(live, written, true, false);
+        String original = written.toString();
+        DiagramDiff.Snapshot base = DiagramDiff.Snapshot.of(new MarkdownImporter().importFlowFromString(original));
+
+        // Meanwhile the user moves Alpha on the canvas and selects Beta
+        a.setPosition(150, 220);
+        live.selectNode(b);
+
+        // ...and someone renames Beta, drops Gamma and adds a new node in the text editor
+        String edited = original
+                .replace("] Beta", "] Beta (renamed)")
+                .replace("[" + c.getId() + "] Gamma", "[new-1] Delta");
+        edited = edited.replace("From: " + b.getId() + " To: " + c.getId(), "From: " + b.getId() + " To: new-1");
+
+        DiagramDiff diff = DiagramDiff.compute(base, DiagramDiff.Snapshot.of(new MarkdownImporter().importFlowFromString(edited)));
+
+        List<String> events = new ArrayList<>();
+        live.addStateListener((d, event, oldValue, newValue) -> events.add(event));
+        diff.applyTo(live);
+
+        Assertions.assertEquals(1, events.size(), "A diff is applied as one batch");
+        Assertions.assertEquals("Beta (renamed)", b.getText());
+        Assertions.assertSame(b, live.getSelectedNode());
+        Assertions.assertEquals(150, (int) a.getX(), "Untouched fields keep the live value");
+        Assertions.assertEquals(220, (int) a.getY());
+        Assertions.assertNull(live.findNodeById(c.getId()));
+        FlowNode delta = live.findNodeById("new-1");
+        Assertions.assertNotNull(delta);
+        Assertions.assertEquals(2, live.getConnectionCount());
+        Assertions.assertEquals(1, live.getOutgoingConnections(b).size());
+        Assertions.assertEquals("new-1", live.getOutgoingConnections(b).get(0).getToNodeId());
+    }
+
+    @Test
+    public void externalAutoFitEdit_ShouldBeApplied() throws Exception {
+        FlowDiagram live = new FlowDiagram("Live");
+        FlowNode a = new FlowNode("Alpha", 100, 100);
+        FlowNode b = new FlowNode("Beta", 300, 100);
+        live.addNode(a);
+        live.addNode(b);
+
+        StringWriter written = new StringWriter();
+        new MarkdownExporter().export(live, written, true, false);
+        String original = written.toString();
+        DiagramDiff.Snapshot base = DiagramDiff.Snapshot.of(new MarkdownImporter().importFlowFromString(original));
+
+        String edited = original.replace("[" + a.getId() + "] Alpha", "[" + a.getId() + "] Alpha\n  AutoFit: true");
+        DiagramDiff.Snapshot next = DiagramDiff.Snapshot.of(new MarkdownImporter().importFlowFromString(edited));
+        DiagramDiff.compute(base, next).applyTo(live);
+
+        Assertions.assertTrue(a.isAutoFit());
+        Assertions.assertFalse(b.isAutoFit());
+
+        // Removing the line again turns it off
+        DiagramDiff.compute(next, DiagramDiff.Snapshot.of(new MarkdownImporter().importFlowFromString(original))).applyTo(live);
+        Assertions.assertFalse(a.isAutoFit());
+    }
+}
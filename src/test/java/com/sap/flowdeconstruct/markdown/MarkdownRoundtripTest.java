@@ -22,6 +22,8 @@ public class MarkdownRoundtripTest {
         a.setNotes("First note");
         FlowNode b = new FlowNode("Beta");
         b.setNotes("Second note");
+        b.setPinned(true);
+        b.setAutoFit(true);
         original.addNode(a);
         original.addNode(b);
         FlowConnection c = original.addConnection(a, b);
@@ -44,6 +46,10 @@ public class MarkdownRoundtripTest {
         boolean hasA = imported.findNodeById(a.getId()) != null;
         boolean hasB = imported.findNodeById(b.getId()) != null;
         Assertions.assertTrue(hasA && hasB, "Imported diagram should contain both original node IDs");
+        Assertions.assertFalse(imported.findNodeById(a.getId()).isPinned());
+        Assertions.assertTrue(imported.findNodeById(b.getId()).isPinned());
+        Assertions.assertFalse(imported.findNodeById(a.getId()).isAutoFit());
+        Assertions.assertTrue(imported.findNodeById(b.getId()).isAutoFit());
 
         // Optional: validate connection endpoints exist
         FlowConnection importedConn = imported.getConnections().get(0);
@@ -0,0 +1,115 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.export.ExportRenderer;
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@ExtendWith(OnEventDispatchThread.class)
+public class DiagramRendererTest {
+
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 600;
+
+    private static FlowDiagram diagram() {
+        FlowDiagram d = new FlowDiagram("Render");
+        List<FlowNode> nodes = new ArrayList<>();
+        FlowNode.NodeShape[] shapes = FlowNode.NodeShape.values();
+        for (int i = 0; i < 60; i++) {
+            FlowNode n = new FlowNode("node " + i, 20 + (i % 10) * 170, 20 + (i / 10) * 110);
+            n.setShape(shapes[i % shapes.length]);
+            if (i % 7 == 0) n.setFillColorHex("#224466");
+            nodes.add(n);
+        }
+        d.addAll(nodes, null);
+        for (int i = 1; i < nodes.size(); i++) {
+            FlowConnection c = d.addConnection(nodes.get(i - 1), nodes.get(i));
+            c.setDirectionStyle(FlowConnection.DirectionStyle.values()[i % 4]);
+        }
+        d.selectNode(nodes.get(12));
+        return d;
+    }
+
+    private static BufferedImage render(DiagramRenderer renderer, DiagramRenderer.Snapshot snapshot, DiagramRenderer.Viewport viewport) {
+        BufferedImage img = new BufferedImage(viewport.width, viewport.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        renderer.render(g, snapshot, viewport);
+        g.dispose();
+        return img;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    Assertions.fail("pixel " + x + "," + y + ": " + Integer.toHexString(expected.getRGB(x, y))
+                            + " vs " + Integer.toHexString(actual.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void render_ShouldMatchTheCanvasAtTheSameViewport() {
+        FlowDiagram d = diagram();
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setNodeSpritesEnabled(false);
+        canvas.setLayeredRenderingEnabled(false);
+        canvas.getLevelOfDetail().disable();
+        canvas.setFlowDiagram(d);
+        canvas.setSize(WIDTH, HEIGHT);
+        canvas.setViewOffset(-35, 12);
+        canvas.setZoomLevel(0.75);
+
+        BufferedImage painted = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = painted.createGraphics();
+        canvas.paint(g);
+        g.dispose();
+
+        DiagramRenderer.Viewport viewport = new DiagramRenderer.Viewport(-35, 12, 0.75, WIDTH, HEIGHT);
+        assertSameImage(painted, render(new DiagramRenderer(), DiagramRenderer.Snapshot.of(d), viewport));
+    }
+
+    @Test
+    public void snapshots_ShouldRenderConcurrentlyWhileTheDiagramChanges() throws Exception {
+        FlowDiagram d = diagram();
+        DiagramRenderer renderer = new DiagramRenderer();
+        DiagramRenderer.Snapshot snapshot = DiagramRenderer.Snapshot.of(d);
+        DiagramRenderer.Viewport viewport = new DiagramRenderer.Viewport(0, 0, 0.5, WIDTH, HEIGHT);
+        BufferedImage expected = render(renderer, snapshot, viewport);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<BufferedImage>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(() -> render(renderer, snapshot, viewport)));
+            }
+            // The snapshot is a copy, so editing the diagram meanwhile does not affect it
+            for (FlowNode n : d.getNodes()) {
+                n.setPosition((int) n.getX() + 40, (int) n.getY() + 25);
+                n.setText(n.getText() + "!");
+            }
+            for (Future<BufferedImage> f : results) {
+                assertSameImage(expected, f.get());
+            }
+
+            // Exports need neither a canvas nor the event dispatch thread
+            BufferedImage export = pool.submit(() -> new ExportRenderer().renderFlowImage(snapshot, 800, 600)).get();
+            Assertions.assertTrue(export.getWidth() <= 800 && export.getHeight() <= 600);
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertNotEquals(snapshot.getNodes().get(0).getX(), d.getNodes().get(0).getX());
+    }
+}
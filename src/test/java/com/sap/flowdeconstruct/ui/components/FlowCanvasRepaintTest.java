@@ -0,0 +1,420 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.SecondaryLoop;
+import java.awt.Toolkit;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@ExtendWith(OnEventDispatchThread.class)
+public class FlowCanvasRepaintTest {
+
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 1000;
+
+    /** Records repaint requests instead of queueing them. */
+    private static class RecordingCanvas extends FlowCanvas {
+        final List<Rectangle> requests = new ArrayList<>();
+        FlowDiagram diagram;
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            if (requests != null) requests.add(new Rectangle(x, y, width, height));
+        }
+
+        Rectangle takeDamage() {
+            Rectangle union = null;
+            for (Rectangle r : requests) union = union == null ? new Rectangle(r) : union.union(r);
+            requests.clear();
+            return union;
+        }
+    }
+
+    private static RecordingCanvas canvasWithGrid(int count) {
+        FlowDiagram d = new FlowDiagram("Repaint");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new FlowNode("node " + i, 20 + (i % 40) * 160, 20 + (i / 40) * 80));
+        }
+        d.addAll(nodes, null);
+        for (int i = 1; i < count; i++) {
+            d.addConnection(nodes.get(i - 1), nodes.get(i));
+        }
+        RecordingCanvas canvas = new RecordingCanvas();
+        canvas.diagram = d;
+        canvas.setFlowDiagram(d);
+        canvas.setSize(WIDTH, HEIGHT);
+        canvas.requests.clear();
+        return canvas;
+    }
+
+    private static BufferedImage paint(FlowCanvas canvas, BufferedImage onto, Rectangle clip) {
+        BufferedImage img = onto != null ? onto : new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        if (clip != null) g.setClip(clip);
+        canvas.paint(g);
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage copy(BufferedImage img) {
+        BufferedImage c = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
+        img.copyData(c.getRaster());
+        return c;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    Assertions.fail("pixel " + x + "," + y + " not repainted");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void drag_ShouldRepaintOnlyTheMovedNodeAndItsConnections() {
+        RecordingCanvas canvas = canvasWithGrid(400);
+        FlowNode node = canvas.diagram.getNodes().get(45);
+        BufferedImage before = paint(canvas, null, null);
+
+        canvas.moveNode(node, (int) node.getX() + 37, (int) node.getY() + 23);
+        Rectangle damage = canvas.takeDamage();
+        Assertions.assertNotNull(damage);
+        Assertions.assertTrue(damage.width * (long) damage.height < WIDTH * (long) HEIGHT / 20, "damage " + damage);
+
+        // Repainting just the damaged area must give the same picture as a full repaint
+        BufferedImage partial = paint(canvas, copy(before), damage);
+        assertSameImage(paint(canvas, null, null), partial);
+    }
+
+    /** Paints the view from the canvas's tiles and returns the world areas of the tiles rendered anew. */
+    private static List<Rectangle> paintTiles(FlowCanvas canvas) {
+        List<Rectangle> rendered = new ArrayList<>();
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        canvas.getTileCache().paint(g, new Rectangle(0, 0, WIDTH, HEIGHT), 0, 0, 1.0, 1.0, null,
+                (tile, area, zoom) -> rendered.add(area));
+        g.dispose();
+        return rendered;
+    }
+
+    private static boolean covers(List<Rectangle> tiles, double x, double y) {
+        for (Rectangle t : tiles) {
+            if (t.contains(x, y)) return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void modelEvents_ShouldDropOnlyTheTilesTheyTouch() {
+        RecordingCanvas recording = canvasWithGrid(400);
+        FlowDiagram d = recording.diagram;
+        recording.setFlowDiagram(null);
+        // Not recording, so that repaints invalidate tiles as in the application
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setFlowDiagram(d);
+        canvas.setSize(WIDTH, HEIGHT);
+        canvas.setViewOffset(0, 0);
+        int all = paintTiles(canvas).size();
+        Assertions.assertEquals(all, canvas.getTileCache().size());
+
+        FlowNode node = d.getNodes().get(45);
+        double oldX = node.getX() + 10;
+        double oldY = node.getY() + 10;
+        node.setPosition((int) node.getX() + 200, (int) node.getY() + 40);
+        List<Rectangle> rendered = paintTiles(canvas);
+        Assertions.assertTrue(covers(rendered, oldX, oldY), "old position");
+        Assertions.assertTrue(covers(rendered, node.getX() + 10, node.getY() + 10), "new position");
+        Assertions.assertTrue(rendered.size() < all / 2, rendered.size() + " of " + all);
+        Assertions.assertFalse(covers(rendered, 1700, 900));
+
+        node.setText("renamed");
+        rendered = paintTiles(canvas);
+        Assertions.assertTrue(covers(rendered, node.getX() + 10, node.getY() + 10));
+        Assertions.assertTrue(rendered.size() < all / 2, rendered.size() + " of " + all);
+
+        d.removeConnection(d.getConnections().get(0));
+        rendered = paintTiles(canvas);
+        Assertions.assertTrue(covers(rendered, 100, 50));
+        Assertions.assertTrue(rendered.size() <= 2, rendered.size() + " tiles");
+
+        // Bulk changes drop every tile
+        d.runBatch(() -> d.getNodes().get(0).setPosition(30, 30));
+        Assertions.assertEquals(0, canvas.getTileCache().size());
+    }
+
+    @Test
+    public void typing_ShouldRepaintOnlyTheEditedNode() {
+        RecordingCanvas canvas = canvasWithGrid(400);
+        FlowNode node = canvas.diagram.getNodes().get(85);
+        canvas.diagram.selectNode(node);
+        canvas.startEditingSelectedNode();
+        BufferedImage frame = paint(canvas, null, null);
+        canvas.requests.clear();
+
+        String typed = "a considerably longer label\b\b";
+        for (char c : typed.toCharArray()) {
+            canvas.handleKeyTyped(c);
+            Rectangle damage = canvas.takeDamage();
+            Assertions.assertTrue(damage.width < WIDTH / 3 && damage.height < HEIGHT / 10, "damage " + damage);
+            frame = paint(canvas, frame, damage);
+        }
+        assertSameImage(paint(canvas, null, null), frame);
+    }
+
+    @Test
+    public void previousDiagram_ShouldNoLongerReachTheCanvas() throws Exception {
+        RecordingCanvas canvas = canvasWithGrid(10);
+        FlowDiagram previous = canvas.diagram;
+        canvas.setFlowDiagram(new FlowDiagram("Next"));
+        canvas.requests.clear();
+
+        previous.addNode("Edited after navigating away", 0, 0);
+        // Events from other threads are handed over to the event dispatch thread
+        Thread editor = new Thread(() -> previous.getNodes().get(3).setPosition(500, 500));
+        editor.start();
+        editor.join();
+        dispatchPendingEvents();
+        Assertions.assertTrue(canvas.requests.isEmpty(), canvas.requests.toString());
+    }
+
+    /** Runs the events queued so far from within the event dispatch thread, which the tests run on. */
+    private static void dispatchPendingEvents() {
+        SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
+        SwingUtilities.invokeLater(loop::exit);
+        loop.enter();
+    }
+
+    private static MouseEvent mouse(FlowCanvas canvas, int id, int x, int y, long when) {
+        return new MouseEvent(canvas, id, when, MouseEvent.BUTTON1_DOWN_MASK, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+
+    private static MouseEvent mouse(FlowCanvas canvas, int id, int x, int y) {
+        return new MouseEvent(canvas, id, System.currentTimeMillis(), MouseEvent.BUTTON1_DOWN_MASK, x, y, 1, false, MouseEvent.BUTTON1);
+    }
+
+    /** Layer pixels are composited rather than drawn directly, so antialiased edges may round differently. */
+    private static void assertSameImageWithinRounding(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    if (Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff)) > 2) {
+                        Assertions.fail("pixel " + x + "," + y + ": " + Integer.toHexString(a) + " vs " + Integer.toHexString(b));
+                    }
+                }
+            }
+        }
+    }
+
+    /** A second canvas on the same diagram that always paints normally. */
+    private static FlowCanvas referenceFor(RecordingCanvas canvas) {
+        FlowCanvas reference = new FlowCanvas();
+        reference.setLayeredRenderingEnabled(false);
+        reference.setFlowDiagram(canvas.diagram);
+        reference.setSize(WIDTH, HEIGHT);
+        return reference;
+    }
+
+    @Test
+    public void layeredDrag_ShouldPaintOnlyTheMovingNodeAndMatchNormalPainting() {
+        RecordingCanvas canvas = canvasWithGrid(400);
+        FlowCanvas reference = referenceFor(canvas);
+        FlowNode node = canvas.diagram.getNodes().get(45);
+        int cx = (int) node.getX() + node.getWidth() / 2;
+        int cy = (int) node.getY() + node.getHeight() / 2;
+        canvas.mousePressed(mouse(canvas, MouseEvent.MOUSE_PRESSED, cx, cy));
+        for (int i = 1; i <= 5; i++) {
+            canvas.mouseDragged(mouse(canvas, MouseEvent.MOUSE_DRAGGED, cx + i * 4, cy + i));
+            BufferedImage layered = paint(canvas, null, null);
+            // The dragged node and its two neighbours
+            Assertions.assertEquals(3, canvas.getRenderStats().getNodesDrawn());
+            assertSameImageWithinRounding(paint(reference, null, null), layered);
+        }
+        canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, cx + 20, cy + 5));
+        paint(canvas, null, null);
+        Assertions.assertTrue(canvas.getRenderStats().getNodesDrawn() > 1);
+    }
+
+    @Test
+    public void layeredPan_ShouldShiftTheLayerAndPaintOnlyUncoveredStrips() {
+        RecordingCanvas canvas = canvasWithGrid(400);
+        FlowCanvas reference = referenceFor(canvas);
+        // Empty space between two grid rows
+        int x = 150;
+        int y = 70;
+        paint(canvas, null, null);
+        int total = canvas.getRenderStats().getNodesDrawn();
+        canvas.mousePressed(mouse(canvas, MouseEvent.MOUSE_PRESSED, x, y));
+        // Small pans move the layer within its margin, larger ones scroll it
+        int[] steps = { 13, 26, 300, 313, 640 };
+        for (int step : steps) {
+            canvas.mouseDragged(mouse(canvas, MouseEvent.MOUSE_DRAGGED, x - step, y - step / 2));
+            BufferedImage layered = paint(canvas, null, null);
+            Assertions.assertTrue(canvas.getRenderStats().getNodesDrawn() < total / 2,
+                    "nodes drawn " + canvas.getRenderStats().getNodesDrawn() + " of " + total);
+            reference.setViewOffset(-step, -(step / 2));
+            assertSameImageWithinRounding(paint(reference, null, null), layered);
+        }
+        canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, x - 640, y - 320));
+    }
+
+    @Test
+    public void zoomToFit_ShouldBringEveryNodeIntoView() {
+        RecordingCanvas canvas = canvasWithGrid(400);
+        canvas.zoomToFit();
+        double zoom = canvas.getZoomLevel();
+        Assertions.assertTrue(zoom < 1.0, "zoom " + zoom);
+        for (FlowNode n : canvas.diagram.getNodes()) {
+            double x = n.getX() * zoom + canvas.getViewOffset().x;
+            double y = n.getY() * zoom + canvas.getViewOffset().y;
+            Assertions.assertTrue(x >= 0 && y >= 0 && x + n.getWidth() * zoom <= WIDTH
+                    && y + n.getHeight() * zoom <= HEIGHT, n.getText());
+        }
+    }
+
+    @Test
+    public void viewAnimation_ShouldEaseZoomAndKeepTheCenterOnItsPath() {
+        // From (0, 0) at zoom 1 to world point (1000, 500) in the center at zoom 0.25
+        FlowCanvas.ViewAnimation animation = new FlowCanvas.ViewAnimation(1.0, 0, 0,
+                0.25, 800 - 1000 * 0.25, 500 - 500 * 0.25, 800, 500, 0, 1000);
+        Assertions.assertEquals(0.25, animation.tileZoom);
+        double previous = 1.0;
+        for (long t = 0; t <= 1000; t += 100) {
+            double[] view = animation.at(t);
+            Assertions.assertTrue(view[0] <= previous, "zoom at " + t);
+            previous = view[0];
+            // The world point in the center moves in a straight line from (800, 500) to (1000, 500)
+            double centerY = (500 - view[2]) / view[0];
+            Assertions.assertEquals(500, centerY, 1e-6);
+        }
+        double[] end = animation.at(1000);
+        Assertions.assertTrue(animation.isDone(1000));
+        Assertions.assertEquals(0.25, end[0]);
+        Assertions.assertEquals(550, end[1]);
+        Assertions.assertEquals(375, end[2]);
+        // Eases out: more than half of the way after half the time
+        double half = animation.at(500)[0];
+        Assertions.assertTrue(half < 0.5, "zoom at half time " + half);
+    }
+
+    @Test
+    public void releasedPan_ShouldGlideOnOnlyWhenStillMoving() {
+        RecordingCanvas canvas = canvasWithGrid(10);
+        canvas.setViewOffset(0, 0);
+        // 10 px every 10 ms to the right, released right away: 1 px/ms
+        long when = 1_000;
+        canvas.mousePressed(mouse(canvas, MouseEvent.MOUSE_PRESSED, 1500, 900, when));
+        for (int i = 1; i <= 10; i++) {
+            canvas.mouseDragged(mouse(canvas, MouseEvent.MOUSE_DRAGGED, 1500 - i * 10, 900, when + i * 10));
+        }
+        Assertions.assertEquals(-100, canvas.getViewOffset().x, 1e-9);
+        canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, 1400, 900, when + 105));
+        // Not showing, so the fling jumps to where it would end
+        Assertions.assertTrue(canvas.getViewOffset().x < -250, "offset " + canvas.getViewOffset().x);
+        Assertions.assertEquals(0, canvas.getViewOffset().y, 1e-9);
+
+        // Held still before the release: no glide
+        canvas.setViewOffset(0, 0);
+        canvas.mousePressed(mouse(canvas, MouseEvent.MOUSE_PRESSED, 1500, 900, when));
+        for (int i = 1; i <= 10; i++) {
+            canvas.mouseDragged(mouse(canvas, MouseEvent.MOUSE_DRAGGED, 1500 - i * 10, 900, when + i * 10));
+        }
+        canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, 1400, 900, when + 400));
+        Assertions.assertEquals(-100, canvas.getViewOffset().x, 1e-9);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    @Test
+    public void benchmark_DamagedFramesVersusFullFrames() {
+        RecordingCanvas canvas = canvasWithGrid(2000);
+        FlowNode node = canvas.diagram.getNodes().get(170);
+        BufferedImage img = paint(canvas, null, null);
+        int frames = 30;
+
+        // Drag: full repaint per mouse event (old behavior) versus the damaged area only
+        long full = 0;
+        long damaged = 0;
+        for (int i = 0; i < frames * 2; i++) {
+            canvas.moveNode(node, (int) node.getX() + (i % 2 == 0 ? 3 : -3), (int) node.getY());
+            Rectangle damage = canvas.takeDamage();
+            long t0 = System.nanoTime();
+            paint(canvas, img, null);
+            long t1 = System.nanoTime();
+            paint(canvas, img, damage);
+            long t2 = System.nanoTime();
+            // The first half warms up
+            if (i >= frames) {
+                full += t1 - t0;
+                damaged += t2 - t1;
+            }
+        }
+        System.out.println("FlowCanvasRepaintTest: drag frame " + (full / frames / 1000) + " us full, "
+                + (damaged / frames / 1000) + " us damaged area");
+
+        canvas.diagram.selectNode(node);
+        canvas.startEditingSelectedNode();
+        full = 0;
+        damaged = 0;
+        for (int i = 0; i < frames * 2; i++) {
+            long t0 = System.nanoTime();
+            canvas.handleKeyTyped(i % 4 == 3 ? '\b' : 'x');
+            Rectangle damage = canvas.takeDamage();
+            long t1 = System.nanoTime();
+            paint(canvas, img, damage);
+            long t2 = System.nanoTime();
+            paint(canvas, img, null);
+            long t3 = System.nanoTime();
+            if (i >= frames) {
+                full += (t1 - t0) + (t3 - t2);
+                damaged += t2 - t0;
+            }
+        }
+        System.out.println("FlowCanvasRepaintTest: keystroke " + (full / frames / 1000) + " us full, "
+                + (damaged / frames / 1000) + " us damaged area");
+        canvas.finishEditingNode();
+
+        // Pan: full repaint per frame versus scrolling the static layer. A first pass over the same
+        // path warms up node sprites, so both measured passes see the same cache state.
+        canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, 0, 0));
+        long[] layered = new long[frames * 2];
+        long[] direct = new long[frames * 2];
+        for (int pass = 0; pass < 3; pass++) {
+            canvas.setViewOffset(0, 0);
+            canvas.setLayeredRenderingEnabled(pass == 1);
+            canvas.mousePressed(mouse(canvas, MouseEvent.MOUSE_PRESSED, 150, 70));
+            for (int i = 0; i < frames * 2; i++) {
+                canvas.mouseDragged(mouse(canvas, MouseEvent.MOUSE_DRAGGED, 150 - i * 5, 70 - i * 2));
+                long t0 = System.nanoTime();
+                paint(canvas, img, null);
+                long t = System.nanoTime() - t0;
+                if (pass == 1) layered[i] = t;
+                else if (pass == 2) direct[i] = t;
+            }
+            canvas.mouseReleased(mouse(canvas, MouseEvent.MOUSE_RELEASED, 150 - frames * 10, 70 - frames * 4));
+        }
+        // Medians, as single frames are easily disturbed by garbage collection
+        System.out.println("FlowCanvasRepaintTest: pan frame " + (median(direct) / 1000) + " us full, "
+                + (median(layered) / 1000) + " us static layer (median)");
+        Assertions.assertTrue(canvas.getRenderStats().getFrames() > 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class FrameSchedulerTest {
+
+    private final List<Rectangle> painted = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> paintTimes = Collections.synchronizedList(new ArrayList<>());
+
+    private FrameScheduler scheduler(Runnable beforeFrame, int fps) {
+        return new FrameScheduler((x, y, w, h) -> {
+            painted.add(new Rectangle(x, y, w, h));
+            paintTimes.add(System.nanoTime());
+        }, beforeFrame, fps);
+    }
+
+    /** Waits until pending frames have been flushed. */
+    private static void drain() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(40);
+            SwingUtilities.invokeAndWait(() -> { });
+        }
+    }
+
+    @Test
+    public void burst_ShouldCoalesceIntoFewFramesCoveringEverything() throws Exception {
+        FrameScheduler scheduler = scheduler(null, 60);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            scheduler.invalidate(i % 100, i % 50, 10, 10);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        drain();
+
+        Assertions.assertTrue(painted.size() <= 2 + elapsedMs / 16, painted.size() + " frames in " + elapsedMs + " ms");
+        Rectangle union = new Rectangle(painted.get(0));
+        for (Rectangle r : painted) union.add(r);
+        Assertions.assertEquals(new Rectangle(0, 0, 109, 59), union);
+        Assertions.assertEquals(10_000, scheduler.getRequests());
+        Assertions.assertTrue(scheduler.getDropped() > 9_000, "dropped " + scheduler.getDropped());
+    }
+
+    @Test
+    public void frames_ShouldBePacedByTheCap() throws Exception {
+        FrameScheduler scheduler = scheduler(null, 60);
+        long end = System.nanoTime() + 300_000_000L;
+        while (System.nanoTime() < end) {
+            scheduler.invalidate(0, 0, 50, 50);
+            Thread.sleep(1);
+        }
+        drain();
+
+        Assertions.assertTrue(painted.size() >= 5 && painted.size() <= 22, "frames: " + painted.size());
+        for (int i = 1; i < paintTimes.size(); i++) {
+            long gapMs = (paintTimes.get(i) - paintTimes.get(i - 1)) / 1_000_000;
+            // Timer delays are whole milliseconds
+            Assertions.assertTrue(gapMs >= 15, "frame " + i + " after " + gapMs + " ms");
+        }
+    }
+
+    @Test
+    public void repaintsRequestedBeforeFrame_ShouldJoinThatFrame() throws Exception {
+        FrameScheduler[] holder = new FrameScheduler[1];
+        int[] runs = new int[1];
+        holder[0] = scheduler(() -> {
+            runs[0]++;
+            holder[0].invalidate(5, 5, 20, 20);
+        }, 120);
+        // Both from the event dispatch thread, so the first cannot be flushed before the second arrives
+        SwingUtilities.invokeAndWait(() -> {
+            holder[0].requestFrame();
+            holder[0].requestFrame();
+        });
+        drain();
+
+        Assertions.assertEquals(1, runs[0]);
+        Assertions.assertEquals(1, holder[0].getFrames());
+        Assertions.assertEquals(Collections.singletonList(new Rectangle(5, 5, 20, 20)), painted);
+        Assertions.assertEquals(120, holder[0].getMaxFps());
+    }
+}
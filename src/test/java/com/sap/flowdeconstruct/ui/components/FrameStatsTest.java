@@ -0,0 +1,139 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.JViewport;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@ExtendWith(OnEventDispatchThread.class)
+public class FrameStatsTest {
+
+    @Test
+    public void ring_ShouldKeepTheNewestSamplesAndTheirPercentiles() {
+        FrameStats stats = new FrameStats(10);
+        Assertions.assertEquals(-1, stats.getPaintPercentile(0.5));
+        for (int i = 1; i <= 25; i++) {
+            stats.recordFrame(i * 1_000_000L, i, 100 - i, 2 * i, 0);
+        }
+        // Frames 16 to 25 are left
+        Assertions.assertEquals(10, stats.getFrameCount());
+        Assertions.assertEquals(20_000_000L, stats.getPaintPercentile(0.5));
+        Assertions.assertEquals(25_000_000L, stats.getPaintPercentile(0.95));
+        Assertions.assertEquals(16_000_000L, stats.getPaintPercentile(0));
+
+        List<String> summary = stats.summary();
+        Assertions.assertTrue(summary.get(0).contains("p50 20.00 ms"), summary.get(0));
+        Assertions.assertTrue(summary.get(1).contains("25 drawn / 75 culled"), summary.get(1));
+        Assertions.assertTrue(summary.get(2).contains("50 drawn / 0 culled"), summary.get(2));
+
+        stats.clear();
+        Assertions.assertEquals(0, stats.getFrameCount());
+    }
+
+    @Test
+    public void dump_ShouldWriteEverySampleOldestFirst(@TempDir Path dir) throws Exception {
+        FrameStats stats = new FrameStats(4);
+        for (int i = 1; i <= 6; i++) stats.recordFrame(i * 1000L, i, 0, 0, 0);
+        stats.recordEdtDelay(7000);
+        stats.recordKeyLatency(9000);
+
+        Path file = dir.resolve("stats.csv");
+        stats.dump(file);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+        Assertions.assertTrue(lines.get(0).startsWith("#"));
+        int header = lines.indexOf("frame,time,paintMicros,nodesDrawn,nodesCulled,connectionsDrawn,connectionsCulled");
+        Assertions.assertTrue(header > 0, lines.toString());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(lines.get(header + 1 + i).endsWith("," + (i + 3) + "," + (i + 3) + ",0,0,0"),
+                    lines.get(header + 1 + i));
+        }
+        Assertions.assertEquals("edtDelay,time,micros", lines.get(header + 5));
+        Assertions.assertTrue(lines.get(header + 6).endsWith(",7"), lines.get(header + 6));
+        Assertions.assertEquals("keyLatency,time,micros", lines.get(header + 7));
+        Assertions.assertTrue(lines.get(header + 8).endsWith(",9"), lines.get(header + 8));
+    }
+
+    @Test
+    public void canvas_ShouldTimeFramesAndTypedKeysAndDrawTheHud() {
+        FlowDiagram d = new FlowDiagram("Hud");
+        FlowNode node = d.addNode("node", 300, 300);
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setFlowDiagram(d);
+        canvas.setSize(800, 600);
+        d.selectNode(node);
+        canvas.startEditingSelectedNode();
+
+        BufferedImage plain = paint(canvas);
+        Assertions.assertEquals(1, canvas.getFrameStats().getFrameCount());
+        canvas.handleKeyTyped('a');
+        canvas.handleKeyTyped('b');
+        paint(canvas);
+        // Both keys reached the screen in the same frame
+        Assertions.assertEquals(1, canvas.getFrameStats().getKeyLatencyCount());
+        Assertions.assertTrue(canvas.getFrameStats().getKeyLatencyPercentile(0.5) > 0);
+
+        // A key that waited 200 ms in the event queue counts from when it was posted
+        canvas.keyTyped(new KeyEvent(canvas, KeyEvent.KEY_TYPED, System.currentTimeMillis() - 200, 0,
+                KeyEvent.VK_UNDEFINED, 'c'));
+        paint(canvas);
+        Assertions.assertEquals(2, canvas.getFrameStats().getKeyLatencyCount());
+        Assertions.assertTrue(canvas.getFrameStats().getKeyLatencyPercentile(1) >= 200_000_000L);
+
+        canvas.setHudVisible(true);
+        try {
+            BufferedImage withHud = paint(canvas);
+            Assertions.assertNotEquals(plain.getRGB(12, 12), withHud.getRGB(12, 12));
+        } finally {
+            canvas.setHudVisible(false);
+        }
+        Assertions.assertFalse(canvas.isHudVisible());
+    }
+
+    @Test
+    public void hud_ShouldStayInTheCornerOfTheScrolledView() {
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setFlowDiagram(new FlowDiagram("Scrolled"));
+        canvas.setSize(1600, 1200);
+        JViewport viewport = new JViewport();
+        viewport.setSize(800, 600);
+        viewport.setView(canvas);
+        viewport.setViewPosition(new Point(500, 400));
+        Assertions.assertEquals(new Rectangle(500, 400, 800, 600), canvas.getVisibleRect());
+
+        BufferedImage plain = paint(canvas, 1600, 1200);
+        canvas.setHudVisible(true);
+        try {
+            BufferedImage withHud = paint(canvas, 1600, 1200);
+            Assertions.assertNotEquals(plain.getRGB(512, 412), withHud.getRGB(512, 412));
+            Assertions.assertEquals(plain.getRGB(12, 12), withHud.getRGB(12, 12));
+        } finally {
+            canvas.setHudVisible(false);
+        }
+    }
+
+    private static BufferedImage paint(FlowCanvas canvas) {
+        return paint(canvas, 800, 600);
+    }
+
+    private static BufferedImage paint(FlowCanvas canvas, int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        canvas.paint(g);
+        g.dispose();
+        return img;
+    }
+}
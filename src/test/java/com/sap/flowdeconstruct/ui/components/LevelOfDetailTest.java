@@ -0,0 +1,95 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+@ExtendWith(OnEventDispatchThread.class)
+public class LevelOfDetailTest {
+
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 1000;
+
+    @Test
+    public void tiers_ShouldFollowThresholds() {
+        LevelOfDetail lod = new LevelOfDetail();
+        Assertions.assertEquals(LevelOfDetail.Tier.FULL, lod.tierFor(1.0));
+        Assertions.assertEquals(LevelOfDetail.Tier.FULL, lod.tierFor(LevelOfDetail.DEFAULT_TEXT_THRESHOLD));
+        Assertions.assertEquals(LevelOfDetail.Tier.NO_TEXT, lod.tierFor(0.3));
+        Assertions.assertEquals(LevelOfDetail.Tier.SIMPLE_SHAPES, lod.tierFor(0.2));
+        Assertions.assertEquals(LevelOfDetail.Tier.AGGREGATED, lod.tierFor(0.1));
+
+        lod.setThresholds(0.5, 0.5, 0);
+        Assertions.assertEquals(LevelOfDetail.Tier.SIMPLE_SHAPES, lod.tierFor(0.1));
+        lod.disable();
+        Assertions.assertEquals(LevelOfDetail.Tier.FULL, lod.tierFor(0.1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lod.setThresholds(0.2, 0.3, 0.1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> lod.setThresholds(0.4, 0.3, -1));
+    }
+
+    private static FlowCanvas canvasWithGrid(int count) {
+        FlowDiagram d = new FlowDiagram("LOD");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new FlowNode("node " + i, 20 + (i % 100) * 160, 20 + (i / 100) * 80));
+        }
+        d.addAll(nodes, null);
+        for (int i = 1; i < count; i++) {
+            d.addConnection(nodes.get(i - 1), nodes.get(i));
+        }
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setLayeredRenderingEnabled(false);
+        canvas.setFlowDiagram(d);
+        canvas.setSize(WIDTH, HEIGHT);
+        return canvas;
+    }
+
+    private static long paint(FlowCanvas canvas, BufferedImage img) {
+        Graphics2D g = img.createGraphics();
+        long t0 = System.nanoTime();
+        canvas.paint(g);
+        long t = System.nanoTime() - t0;
+        g.dispose();
+        return t;
+    }
+
+    private static int countNonBackground(BufferedImage img) {
+        int background = img.getRGB(0, 0);
+        int count = 0;
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                if (img.getRGB(x, y) != background) count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void overview_ShouldStayFastOnTenThousandNodes() {
+        FlowCanvas canvas = canvasWithGrid(10_000);
+        canvas.setZoomLevel(0.1);
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int frames = 5;
+
+        long lod = Long.MAX_VALUE;
+        // Extra frames let the JIT settle on the simplified paths
+        for (int i = 0; i < frames * 6; i++) lod = Math.min(lod, paint(canvas, img));
+        // Every node is still accounted for, and the blocks cover the map
+        Assertions.assertEquals(10_000, canvas.getRenderStats().getNodesDrawn());
+        Assertions.assertTrue(countNonBackground(img) > WIDTH * HEIGHT / 4, "overview left mostly empty");
+
+        canvas.getLevelOfDetail().disable();
+        long full = Long.MAX_VALUE;
+        for (int i = 0; i < frames; i++) full = Math.min(full, paint(canvas, img));
+        System.out.println("LevelOfDetailTest: 10k nodes at zoom 0.1, " + (full / 1000) + " us full detail, "
+                + (lod / 1000) + " us aggregated (best frame)");
+        Assertions.assertTrue(lod < full, "aggregated " + lod + " ns, full " + full + " ns");
+    }
+}
@@ -0,0 +1,74 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+@ExtendWith(OnEventDispatchThread.class)
+public class MinimapPanelTest {
+
+    @Test
+    public void version_ShouldCountContentChangesOnly() {
+        FlowDiagram d = new FlowDiagram("Version");
+        long start = d.getVersion();
+        FlowNode a = d.addNode("a", 0, 0);
+        FlowNode b = d.addNode("b", 200, 0);
+        Assertions.assertEquals(start + 2, d.getVersion());
+
+        d.selectNode(a);
+        Assertions.assertEquals(start + 2, d.getVersion());
+
+        // Changes inside a batch count even though listeners only hear of the batch
+        d.runBatch(() -> {
+            a.setPosition(10, 10);
+            d.addConnection(a, b);
+        });
+        Assertions.assertTrue(d.getVersion() >= start + 4, "version " + d.getVersion());
+    }
+
+    @Test
+    public void snapshot_ShouldFitTheWholeDiagramAndMapBackToTheWorld() {
+        FlowDiagram d = new FlowDiagram("Snapshot");
+        FlowNode a = d.addNode("a", -500, -200);
+        FlowNode b = d.addNode("b", 3000, 1200);
+        d.addConnection(a, b);
+
+        MinimapPanel.Snapshot s = MinimapPanel.snapshot(d, 240, 160);
+        Assertions.assertEquals(d.getVersion(), s.version);
+        Assertions.assertEquals(4, s.connections.length);
+        for (FlowNode n : d.getNodes()) {
+            Assertions.assertTrue(s.toMinimapX(n.getX()) >= 0 && s.toMinimapX(n.getX() + n.getWidth()) <= 240, n.getText());
+            Assertions.assertTrue(s.toMinimapY(n.getY()) >= 0 && s.toMinimapY(n.getY() + n.getHeight()) <= 160, n.getText());
+        }
+        Assertions.assertEquals(1000, s.toWorldX(s.toMinimapX(1000)), 1e-9);
+        Assertions.assertEquals(-50, s.toWorldY(s.toMinimapY(-50)), 1e-9);
+
+        // Both nodes are drawn, however small they get
+        BufferedImage img = MinimapPanel.render(s);
+        int background = img.getRGB(1, 1);
+        Assertions.assertNotEquals(background, img.getRGB((int) s.toMinimapX(-500), (int) s.toMinimapY(-200)));
+        Assertions.assertNotEquals(background, img.getRGB((int) s.toMinimapX(3000), (int) s.toMinimapY(1200)));
+    }
+
+    @Test
+    public void centerViewOn_ShouldMoveTheVisibleWorldBounds() {
+        FlowCanvas canvas = new FlowCanvas();
+        canvas.setFlowDiagram(new FlowDiagram("View"));
+        canvas.setSize(800, 600);
+        canvas.setZoomLevel(0.5);
+        int[] changes = { 0 };
+        canvas.addPropertyChangeListener(FlowCanvas.VIEW_PROPERTY, e -> changes[0]++);
+
+        canvas.centerViewOn(2000, 1000);
+        Rectangle2D.Double view = canvas.getVisibleWorldBounds();
+        Assertions.assertEquals(2000, view.getCenterX(), 1e-9);
+        Assertions.assertEquals(1000, view.getCenterY(), 1e-9);
+        Assertions.assertEquals(1600, view.width, 1e-9);
+        Assertions.assertEquals(1, changes[0]);
+    }
+}
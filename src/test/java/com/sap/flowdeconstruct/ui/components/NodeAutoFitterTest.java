@@ -0,0 +1,70 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowDiagram;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NodeAutoFitterTest {
+
+    private static DiagramRenderer renderer() {
+        return new DiagramRenderer(new StyleCache(), new TextLayoutCache());
+    }
+
+    @Test
+    public void autoFitNodes_ShouldFollowTheirTextAndFont() {
+        FlowDiagram d = new FlowDiagram("Fit");
+        DiagramRenderer renderer = renderer();
+        NodeAutoFitter.attach(d, renderer);
+        FlowNode node = d.addNode("Short", 0, 0);
+        FlowNode manual = d.addNode("Short", 0, 100);
+        node.setAutoFit(true);
+        Assertions.assertEquals(NodeAutoFitter.MIN_WIDTH, node.getWidth());
+        Assertions.assertEquals(NodeAutoFitter.MIN_HEIGHT, node.getHeight());
+
+        node.setText("A much longer label that has to be wrapped over several lines to fit");
+        int wrappedWidth = node.getWidth();
+        int wrappedHeight = node.getHeight();
+        Assertions.assertTrue(wrappedWidth > NodeAutoFitter.MIN_WIDTH, "width " + wrappedWidth);
+        Assertions.assertTrue(wrappedWidth <= NodeAutoFitter.MAX_TEXT_WIDTH + 20, "width " + wrappedWidth);
+        Assertions.assertTrue(wrappedHeight > NodeAutoFitter.MIN_HEIGHT, "height " + wrappedHeight);
+        // The painted label gets every line, without an ellipsis
+        TextLayoutCache.TextBlock block = renderer.textBlock(node, renderer.nodeStyle(node), node.getText());
+        Assertions.assertFalse(block.isTruncated());
+        Assertions.assertTrue(block.getLineCount() > 1);
+
+        node.setTextFontSize(20);
+        Assertions.assertTrue(node.getHeight() > wrappedHeight, "height " + node.getHeight());
+
+        // Moves keep the size, and nodes not in auto-fit mode are never resized
+        int fittedWidth = node.getWidth();
+        node.setPosition(50, 50);
+        Assertions.assertEquals(fittedWidth, node.getWidth());
+        manual.setText("Another much longer label that would need wrapping");
+        Assertions.assertEquals(120, manual.getWidth());
+        Assertions.assertEquals(40, manual.getHeight());
+    }
+
+    @Test
+    public void fitAll_ShouldBeOneBatchedUpdate() {
+        FlowDiagram d = new FlowDiagram("Imported");
+        List<FlowNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) nodes.add(new FlowNode("Imported step number " + i + " with a long label", i * 300, 0));
+        d.addAll(nodes, null);
+        NodeAutoFitter fitter = NodeAutoFitter.attach(d, renderer());
+        List<String> events = new ArrayList<>();
+        d.addStateListener((diagram, event, oldValue, newValue) -> events.add(event));
+
+        fitter.fitAll();
+
+        Assertions.assertEquals(1, events.size(), events.toString());
+        Assertions.assertEquals("batchUpdated", events.get(0));
+        for (FlowNode n : nodes) {
+            Assertions.assertTrue(n.isAutoFit());
+            Assertions.assertNotEquals(120, n.getWidth(), n.getText());
+        }
+    }
+}
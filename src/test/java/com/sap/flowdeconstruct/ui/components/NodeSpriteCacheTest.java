@@ -0,0 +1,80 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+public class NodeSpriteCacheTest {
+
+    private static final Font DEFAULT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private static final NodeSpriteCache.NodePainter PAINTER = (g, n) -> {
+        g.setColor(Color.BLUE);
+        g.fillRect((int) n.getX(), (int) n.getY(), n.getWidth(), n.getHeight());
+        g.setColor(Color.RED);
+        g.drawRect((int) n.getX(), (int) n.getY(), n.getWidth(), n.getHeight());
+    };
+
+    private static BufferedImage paint(NodeSpriteCache cache, FlowNode node, StyleCache.NodeStyle style, double zoom) {
+        BufferedImage img = new BufferedImage(400, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.translate(7, 5);
+        g.scale(zoom, zoom);
+        if (cache == null || !cache.draw(g, node, style, style.border, PAINTER)) {
+            PAINTER.paint(g, node);
+        }
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    public void sprite_ShouldMatchDirectPaintingAndBeReused() {
+        StyleCache styles = new StyleCache();
+        NodeSpriteCache cache = new NodeSpriteCache();
+        FlowNode node = new FlowNode("A", 30, 20);
+        StyleCache.NodeStyle style = styles.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT);
+
+        BufferedImage direct = paint(null, node, style, 1.0);
+        BufferedImage cached = paint(cache, node, style, 1.0);
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                Assertions.assertEquals(direct.getRGB(x, y), cached.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+        Assertions.assertEquals(1, cache.getMisses());
+
+        // Moving the node reuses the sprite; resizing or changing zoom renders a new one
+        node.setPosition(60, 40);
+        paint(cache, node, style, 1.0);
+        Assertions.assertEquals(1, cache.getHits());
+        node.setWidth(90);
+        paint(cache, node, style, 1.0);
+        paint(cache, node, style, 1.5);
+        Assertions.assertEquals(3, cache.getMisses());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void budget_ShouldEvictLeastRecentlyUsedSprites() {
+        StyleCache styles = new StyleCache();
+        FlowNode probe = new FlowNode("probe", 0, 0);
+        StyleCache.NodeStyle style = styles.nodeStyle(probe, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT);
+        NodeSpriteCache cache = new NodeSpriteCache(200_000);
+
+        for (int i = 0; i < 50; i++) {
+            FlowNode node = new FlowNode("n", i * 10, 0);
+            paint(cache, node, styles.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT), 1.0);
+            Assertions.assertTrue(cache.getUsedBytes() <= cache.getBudgetBytes());
+        }
+        Assertions.assertTrue(cache.size() < 50, "sprites kept: " + cache.size());
+        paint(cache, probe, style, 1.0);
+        Assertions.assertTrue(cache.size() > 0);
+        cache.clear();
+        Assertions.assertEquals(0, cache.getUsedBytes());
+    }
+}
@@ -0,0 +1,35 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Runs each test method on the event dispatch thread. The canvas hands diagram events and repaints from
+ * other threads over to the event dispatch thread, so a test driving it from the test thread would race
+ * with itself.
+ */
+public class OnEventDispatchThread implements InvocationInterceptor {
+
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                    ExtensionContext extensionContext) throws Throwable {
+        Throwable[] failure = new Throwable[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                try {
+                    invocation.proceed();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            });
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (failure[0] != null) throw failure[0];
+    }
+}
@@ -0,0 +1,47 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowConnection;
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+
+public class StyleCacheTest {
+
+    private static final Font DEFAULT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    @Test
+    public void nodeStyle_ShouldBeReusedUntilAStyleFieldChanges() {
+        StyleCache cache = new StyleCache();
+        FlowNode node = new FlowNode("A");
+        node.setFillColorHex("#112233");
+        StyleCache.NodeStyle first = cache.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT);
+        Assertions.assertEquals(new Color(0x11, 0x22, 0x33), first.fill);
+        Assertions.assertEquals(12, first.font.getSize());
+        Assertions.assertSame(first, cache.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT));
+
+        node.setTextFontSize(20);
+        StyleCache.NodeStyle resized = cache.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT);
+        Assertions.assertNotSame(first, resized);
+        Assertions.assertEquals(20, resized.font.getSize());
+
+        node.setBorderColorHex("not a color");
+        Assertions.assertEquals(Color.DARK_GRAY, cache.nodeStyle(node, Color.GRAY, Color.DARK_GRAY, Color.WHITE, DEFAULT_FONT).border);
+    }
+
+    @Test
+    public void connectionStyle_ArrowShouldFallBackToLineColor() {
+        StyleCache cache = new StyleCache();
+        FlowConnection conn = new FlowConnection("a", "b");
+        conn.setLineColorHex("#ff0000");
+        conn.setArrowColorHex(null);
+        StyleCache.ConnectionStyle style = cache.connectionStyle(conn, Color.GRAY);
+        Assertions.assertEquals(Color.RED, style.line);
+        Assertions.assertEquals(Color.RED, style.arrow);
+        Assertions.assertSame(style, cache.connectionStyle(conn, Color.GRAY));
+        conn.setArrowColorHex("#0000ff");
+        Assertions.assertEquals(Color.BLUE, cache.connectionStyle(conn, Color.GRAY).arrow);
+    }
+}
@@ -0,0 +1,78 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import com.sap.flowdeconstruct.model.FlowNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+public class TextLayoutCacheTest {
+
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    @Test
+    public void layout_ShouldWrapAtWordsAndBeReusedUntilTheKeyChanges() {
+        TextLayoutCache cache = new TextLayoutCache();
+        String text = "Validate the incoming order against the customer credit limit";
+        TextLayoutCache.TextBlock block = cache.layout(text, FONT, 120, 200);
+
+        Assertions.assertTrue(block.getLineCount() > 1, "lines " + block.getLineCount());
+        Assertions.assertFalse(block.isTruncated());
+        Assertions.assertTrue(block.getWidth() <= 120, "width " + block.getWidth());
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < block.getLineCount(); i++) {
+            // Breaks fall between words
+            Assertions.assertFalse(block.getLine(i).startsWith(" "), block.getLine(i));
+            joined.append(block.getLine(i));
+        }
+        Assertions.assertEquals(text, joined.toString());
+
+        Assertions.assertSame(block, cache.layout(text, FONT, 120, 200));
+        Assertions.assertNotSame(block, cache.layout(text, FONT, 200, 200));
+        Assertions.assertNotSame(block, cache.layout(text, FONT.deriveFont(14f), 120, 200));
+        Assertions.assertNotSame(block, cache.layout(text + "!", FONT, 120, 200));
+        Assertions.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void layout_ShouldEllipsizeTheLastLineThatFits() {
+        TextLayoutCache cache = new TextLayoutCache();
+        String text = "one two three four five six seven eight nine ten eleven twelve";
+        // Room for two lines only
+        TextLayoutCache.TextBlock block = cache.layout(text, FONT, 80, 34);
+
+        Assertions.assertEquals(2, block.getLineCount());
+        Assertions.assertTrue(block.isTruncated());
+        Assertions.assertTrue(block.getLine(1).endsWith("…") || block.getLine(1).endsWith("..."), block.getLine(1));
+        Assertions.assertTrue(block.getWidth() <= 80, "width " + block.getWidth());
+
+        // A single line at least, however little room there is
+        Assertions.assertEquals(1, cache.layout(text, FONT, 80, 1).getLineCount());
+        // Explicit line breaks are kept
+        Assertions.assertEquals(3, cache.layout("a\nb\r\nc", FONT, 80, 200).getLineCount());
+    }
+
+    @Test
+    public void longLabels_ShouldStayInsideTheirNode() {
+        DiagramRenderer renderer = new DiagramRenderer(new StyleCache(), new TextLayoutCache());
+        FlowNode node = new FlowNode("A label much longer than the node it is written in, which used to overflow", 100, 100);
+        StyleCache.NodeStyle style = renderer.nodeStyle(node);
+
+        BufferedImage img = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        renderer.paintNode(g, node, Color.BLACK, Color.BLACK, style, node.getText());
+        g.dispose();
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                boolean inside = x >= node.getX() && x <= node.getX() + node.getWidth()
+                        && y >= node.getY() && y <= node.getY() + node.getHeight();
+                if (!inside) Assertions.assertEquals(0, img.getRGB(x, y) & 0xffffff, "pixel " + x + "," + y);
+            }
+        }
+        Assertions.assertTrue(renderer.textBlock(node, style, node.getText()).isTruncated());
+    }
+}
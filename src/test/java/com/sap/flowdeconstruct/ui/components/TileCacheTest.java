@@ -0,0 +1,134 @@
+package com.sap.flowdeconstruct.ui.components;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+public class TileCacheTest {
+
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 600;
+
+    /**
+     * Antialiased world content crossing tile borders, drawn with the view's zoom applied. Straight edges only:
+     * curves are flattened relative to the device origin, which differs between tiles and the view.
+     */
+    private static void drawWorld(Graphics2D g, double zoom) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(zoom, zoom);
+        g.setColor(Color.RED);
+        g.fillRect(100, 100, 50, 50);
+        g.setColor(Color.GREEN);
+        g.setStroke(new BasicStroke(3f));
+        g.drawLine(0, 0, 1200, 700);
+        g.drawRect(230, 180, 120, 90);
+    }
+
+    private static final class CountingRenderer implements TileCache.TileRenderer {
+        int tiles;
+
+        @Override
+        public void render(Graphics2D g, Rectangle area, double zoom) {
+            tiles++;
+            drawWorld(g, zoom);
+        }
+    }
+
+    private static BufferedImage paintTiles(TileCache cache, double offsetX, double offsetY, double zoom, double tileZoom,
+                                            TileCache.TileRenderer renderer) {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        cache.paint(g, new Rectangle(0, 0, WIDTH, HEIGHT), offsetX, offsetY, zoom, tileZoom, null, renderer);
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage paintDirect(double offsetX, double offsetY, double zoom) {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.translate(offsetX, offsetY);
+        drawWorld(g, zoom);
+        g.dispose();
+        return img;
+    }
+
+    @Test
+    public void tiles_ShouldMatchDirectPaintingAndBeReusedAcrossPans() {
+        TileCache cache = new TileCache();
+        CountingRenderer renderer = new CountingRenderer();
+
+        BufferedImage tiled = paintTiles(cache, -40, -30, 1.0, 1.0, renderer);
+        BufferedImage direct = paintDirect(-40, -30, 1.0);
+        // Tiles are composited rather than drawn directly, so antialiased edges may round differently
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int a = direct.getRGB(x, y);
+                int b = tiled.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    if (Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff)) > 2) {
+                        Assertions.fail("pixel " + x + "," + y + ": " + Integer.toHexString(a) + " vs " + Integer.toHexString(b));
+                    }
+                }
+            }
+        }
+        // 4 x 3 tiles cover 900 x 600 pixels starting 40 pixels into the first column
+        Assertions.assertEquals(12, renderer.tiles);
+
+        // Panning by less than a tile renders only the column coming into sight
+        paintTiles(cache, -140, -90, 1.0, 1.0, renderer);
+        Assertions.assertEquals(15, renderer.tiles);
+        // Panning within the tiles already rendered renders nothing
+        paintTiles(cache, -300, -30, 1.0, 1.0, renderer);
+        Assertions.assertEquals(15, renderer.tiles);
+        Assertions.assertEquals(24, cache.getHits());
+    }
+
+    @Test
+    public void invalidate_ShouldDropOnlyTouchedTilesOfEveryZoom() {
+        TileCache cache = new TileCache();
+        CountingRenderer renderer = new CountingRenderer();
+        paintTiles(cache, 0, 0, 1.0, 1.0, renderer);
+        paintTiles(cache, 0, 0, 0.5, 0.5, renderer);
+        int rendered = renderer.tiles;
+
+        // Inside the first tile at zoom 1, and so also inside the first tile at zoom 0.5
+        cache.invalidate(10, 10, 60, 60);
+        paintTiles(cache, 0, 0, 1.0, 1.0, renderer);
+        paintTiles(cache, 0, 0, 0.5, 0.5, renderer);
+        Assertions.assertEquals(rendered + 2, renderer.tiles);
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void zoomFrames_ShouldScaleTilesOfAnotherZoom() {
+        TileCache cache = new TileCache();
+        CountingRenderer renderer = new CountingRenderer();
+        paintTiles(cache, 0, 0, 1.0, 1.0, renderer);
+        int rendered = renderer.tiles;
+
+        // Twice the zoom: the red square covers (200, 200) to (300, 300), drawn from the same tiles
+        BufferedImage zoomed = paintTiles(cache, 0, 0, 2.0, 1.0, renderer);
+        Assertions.assertEquals(rendered, renderer.tiles);
+        Assertions.assertEquals(Color.RED.getRGB(), zoomed.getRGB(250, 230));
+        Assertions.assertEquals(0, zoomed.getRGB(190, 250) >>> 24);
+        Assertions.assertEquals(0, zoomed.getRGB(310, 250) >>> 24);
+    }
+
+    @Test
+    public void budget_ShouldEvictLeastRecentlyUsedTiles() {
+        // Room for 8 tiles
+        TileCache cache = new TileCache(8L * 4 * TileCache.TILE_SIZE * TileCache.TILE_SIZE);
+        CountingRenderer renderer = new CountingRenderer();
+        paintTiles(cache, 0, 0, 1.0, 1.0, renderer);
+        Assertions.assertEquals(8, cache.size());
+        Assertions.assertTrue(cache.getUsedBytes() <= cache.getBudgetBytes());
+    }
+}